@@ -0,0 +1,99 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.http.lib.ServerInfo;
+
+/**
+ * Benchmarks of the conversion of the simulation into the JSON objects and of
+ * their serialization, for simulations of different sizes. The response cache
+ * is disabled, so each operation does the complete work of a request. The
+ * benchmarks are executed with "gradlew jmh", which also reports the
+ * allocated bytes per operation (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationConnectorBenchmark {
+
+	private static final String SERVER_NAME = "http://localhost:8080";
+
+	@Param({ "10", "100" })
+	public int platforms;
+
+	@Param({ "3" })
+	public int gateways;
+
+	@Param({ "3", "30" })
+	public int ecus;
+
+	@Param({ "30", "300" })
+	public int lookupEntries;
+
+	private SimulationConnector connector;
+
+	private List<Platform> platformList;
+
+	private Platform platform;
+
+	private Gateway gateway;
+
+	private doip.simulation.http.lib.Gateway gatewayInfo;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		ScalableSimulationManager simulationManager = new ScalableSimulationManager(platforms, gateways, ecus,
+				lookupEntries);
+		connector = new SimulationConnector(simulationManager, SERVER_NAME);
+		connector.setResponseCacheEnabled(false);
+		platformList = simulationManager.getPlatforms();
+		platform = platformList.get(0);
+		gateway = platform.getGateways().get(0);
+		gatewayInfo = connector.processGateway(SERVER_NAME, gateway, platform.getName(), ResponseProjection.ALL);
+	}
+
+	@Benchmark
+	public ServerInfo processOverview() {
+		return connector.processOverview(SERVER_NAME, platformList, "");
+	}
+
+	@Benchmark
+	public doip.simulation.http.lib.Platform processPlatform() {
+		return connector.processPlatform(SERVER_NAME, platform);
+	}
+
+	@Benchmark
+	public doip.simulation.http.lib.Gateway processGateway() {
+		return connector.processGateway(SERVER_NAME, gateway, platform.getName(), ResponseProjection.ALL);
+	}
+
+	@Benchmark
+	public String buildJsonResponse() throws IOException {
+		return connector.buildJsonResponse(gatewayInfo);
+	}
+
+	@Benchmark
+	public byte[] buildJsonResponseBytes() throws IOException {
+		return connector.buildJsonResponseBytes(gatewayInfo);
+	}
+}
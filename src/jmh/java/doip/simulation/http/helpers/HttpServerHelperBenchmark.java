@@ -0,0 +1,164 @@
+package doip.simulation.http.helpers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import doip.simulation.api.ServiceState;
+
+/**
+ * Benchmarks of the request parsing and response sending of the
+ * HttpServerHelper which is done for each request. The benchmarks are executed
+ * with "gradlew jmh", which also reports the allocated bytes per operation
+ * (gc.alloc.rate.norm).
+ * <p>
+ * Each group of benchmarks has its own state, so the parameters of the
+ * responses do not multiply the runs of the parsing benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpServerHelperBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Query {
+
+		@Param({ "status=RUNNING", "fields=status,ecus&limit=50&cursor=100", "waitFor=RUNNING&timeout=10s" })
+		public String query;
+
+		/**
+		 * Name of the last parameter of the query, so the whole query is scanned.
+		 */
+		private String name;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			int end = query.lastIndexOf('=');
+			name = query.substring(query.lastIndexOf('&', end) + 1, end);
+		}
+	}
+
+	/**
+	 * Queries of the overview and of the actions whose values are enum constants.
+	 */
+	@State(Scope.Benchmark)
+	public static class StatusQuery {
+
+		@Param({ "status=RUNNING", "fields=status&status=running" })
+		public String query;
+
+		private final EnumLookup<ServiceState> states = EnumLookup.of(ServiceState.class);
+	}
+
+	@State(Scope.Benchmark)
+	public static class Path {
+
+		@Param({ "/doip-simulation/platform/X2024/gateway/GW/ecu/EMS" })
+		public String path;
+	}
+
+	@State(Scope.Thread)
+	public static class Response {
+
+		/**
+		 * Size of the response body in bytes.
+		 */
+		@Param({ "128", "16384" })
+		public int bodySize;
+
+		/**
+		 * Compression of the response, "none" or "gzip".
+		 */
+		@Param({ "none", "gzip" })
+		public String compression;
+
+		private NullHttpExchange exchange;
+
+		private byte[] body;
+
+		/**
+		 * The same body as a cached response, its ETag and compressed variant
+		 * are computed during the setup.
+		 */
+		private ResponseBody cachedBody;
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			exchange = new NullHttpExchange("/doip-simulation/platform/X2024/gateway/GW");
+			if ("gzip".equals(compression)) {
+				exchange.getRequestHeaders().set("Accept-Encoding", "gzip");
+				exchange.setAttribute(ResponseCompression.ATTRIBUTE, ResponseCompression.DEFAULT);
+			}
+			// JSON-like text, so the compression ratio is realistic
+			byte[] pattern = "{\"regex\":\"22 F1 86\",\"result\":\"62 F1 86 01\"},".getBytes(StandardCharsets.UTF_8);
+			body = new byte[bodySize];
+			for (int i = 0; i < bodySize; i++) {
+				body[i] = pattern[i % pattern.length];
+			}
+			cachedBody = new ResponseBody(body.clone());
+			HttpServerHelper.sendResponseBody(exchange, cachedBody, "application/json", 200);
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> parseQueryParameters(Query query) {
+		return HttpServerHelper.parseQueryParameters(query.query);
+	}
+
+	/**
+	 * Scans the query for one parameter, the value is the only allocation.
+	 */
+	@Benchmark
+	public String getQueryParam(Query query) {
+		return HttpServerHelper.getQueryParam(query.query, query.name);
+	}
+
+	/**
+	 * Looks up the status of the overview like SimulationOverviewHandler, which
+	 * does not allocate any memory.
+	 */
+	@Benchmark
+	public ServiceState getQueryStatus(StatusQuery query) {
+		int start = HttpServerHelper.indexOfQueryValue(query.query, "status");
+		return start < 0 ? null : HttpServerHelper.getQueryParam(query.query, start, query.states);
+	}
+
+	@Benchmark
+	public String getPathParam(Path path) {
+		return HttpServerHelper.getPathParam(path.path, "gateway");
+	}
+
+	@Benchmark
+	public long sendResponse(Response response) throws IOException {
+		response.exchange.reset();
+		HttpServerHelper.sendResponse(response.exchange, response.body, "application/json", 200);
+		return response.exchange.getResponseLength();
+	}
+
+	/**
+	 * Sends a body whose ETag and compressed variant have already been
+	 * computed, like a response from the response cache.
+	 */
+	@Benchmark
+	public long sendCachedResponseBody(Response response) throws IOException {
+		response.exchange.reset();
+		HttpServerHelper.sendResponseBody(response.exchange, response.cachedBody, "application/json", 200);
+		return response.exchange.getResponseLength();
+	}
+}
@@ -0,0 +1,158 @@
+package doip.simulation.http.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * Exchange without a connection. The response body is counted and discarded,
+ * so the benchmarks measure the work of the server and not of the network.
+ * Call {@link #reset()} before each operation.
+ */
+public class NullHttpExchange extends HttpExchange {
+
+	private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("localhost", 8080);
+
+	private final URI requestUri;
+
+	private final Headers requestHeaders = new Headers();
+
+	private Headers responseHeaders = new Headers();
+
+	private final Map<String, Object> attributes = new HashMap<>();
+
+	private final CountingOutputStream responseBody = new CountingOutputStream();
+
+	private int responseCode = -1;
+
+	public NullHttpExchange(String requestUri) {
+		this.requestUri = URI.create(requestUri);
+		requestHeaders.set("Host", "localhost:8080");
+	}
+
+	/**
+	 * Prepares the exchange for the next operation.
+	 */
+	public void reset() {
+		responseHeaders = new Headers();
+		responseCode = -1;
+		responseBody.count = 0;
+	}
+
+	/**
+	 * Gets the number of bytes which have been written to the response body
+	 * since the last reset.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getResponseLength() {
+		return responseBody.count;
+	}
+
+	@Override
+	public Headers getRequestHeaders() {
+		return requestHeaders;
+	}
+
+	@Override
+	public Headers getResponseHeaders() {
+		return responseHeaders;
+	}
+
+	@Override
+	public URI getRequestURI() {
+		return requestUri;
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return "GET";
+	}
+
+	@Override
+	public HttpContext getHttpContext() {
+		return null;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public InputStream getRequestBody() {
+		return new ByteArrayInputStream(new byte[0]);
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		return responseBody;
+	}
+
+	@Override
+	public void sendResponseHeaders(int rCode, long responseLength) {
+		this.responseCode = rCode;
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return ADDRESS;
+	}
+
+	@Override
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return ADDRESS;
+	}
+
+	@Override
+	public String getProtocol() {
+		return "HTTP/1.1";
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		attributes.put(name, value);
+	}
+
+	@Override
+	public void setStreams(InputStream i, OutputStream o) {
+	}
+
+	@Override
+	public HttpPrincipal getPrincipal() {
+		return null;
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
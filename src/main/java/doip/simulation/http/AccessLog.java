@@ -0,0 +1,353 @@
+package doip.simulation.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Structured access log of the HTTP server. Request threads only put one
+ * compact record per request into a lock-free ring buffer. A background
+ * thread drains the buffer and writes the records to the logger
+ * "doip.simulation.http.access". If the buffer is full because the writer can
+ * not keep up, new records will be dropped and counted instead of blocking
+ * the request threads.
+ * <p>
+ * Response bodies are not logged by default. If a sample rate greater than 0
+ * is set, the body of the sampled requests will be logged truncated to the
+ * given number of bytes.
+ */
+public class AccessLog {
+
+	private static Logger logger = LogManager.getLogger(AccessLog.class);
+
+	/**
+	 * Logger to which the access log records will be written.
+	 */
+	private static Logger accessLogger = LogManager.getLogger("doip.simulation.http.access");
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/**
+	 * Default for the maximum number of logged bytes of a body. It is the same
+	 * default as for "maxByteArraySize.logging" of the gateways.
+	 */
+	public static final int DEFAULT_MAX_BODY_SIZE = 64;
+
+	/**
+	 * Time for which the writer sleeps when the buffer is empty.
+	 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final AtomicReferenceArray<Record> slots;
+
+	private final int mask;
+
+	/**
+	 * Index of the next slot which will be claimed by a request thread.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Index of the next slot which will be read by the writer. Only the writer
+	 * thread modifies it.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private volatile double bodySampleRate = 0;
+
+	private volatile int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+	private volatile Thread writer = null;
+
+	private volatile boolean running = false;
+
+	/**
+	 * Constructs an access log with the default capacity.
+	 */
+	public AccessLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an access log.
+	 *
+	 * @param capacity The number of records which can be buffered. It will be
+	 *                 rounded up to the next power of two.
+	 */
+	public AccessLog(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The capacity must be greater than 0");
+		}
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	public int getCapacity() {
+		return slots.length();
+	}
+
+	public double getBodySampleRate() {
+		return bodySampleRate;
+	}
+
+	public int getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Sets how often response bodies will be logged.
+	 *
+	 * @param sampleRate  The fraction of requests whose body will be logged, from
+	 *                    0 (never, the default) to 1 (always).
+	 * @param maxBodySize The maximum number of bytes of a body which will be
+	 *                    logged.
+	 */
+	public void setBodySampling(double sampleRate, int maxBodySize) {
+		if (sampleRate < 0 || sampleRate > 1) {
+			throw new IllegalArgumentException("The sample rate must be between 0 and 1");
+		}
+		if (maxBodySize < 0) {
+			throw new IllegalArgumentException("The maximum body size must not be negative");
+		}
+		this.bodySampleRate = sampleRate;
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * Decides whether the body of the current request will be logged.
+	 *
+	 * @return true if the body shall be captured.
+	 */
+	boolean sampleBody() {
+		double rate = bodySampleRate;
+		return rate > 0 && maxBodySize > 0 && (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate);
+	}
+
+	/**
+	 * Gets the number of records which have been dropped because the buffer was
+	 * full.
+	 *
+	 * @return The number of dropped records.
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Gets the number of records which are waiting to be written.
+	 *
+	 * @return The number of buffered records.
+	 */
+	public int getPendingCount() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * Puts a record into the buffer. This method never blocks. It can be called
+	 * by any number of threads at the same time.
+	 *
+	 * @param record The record.
+	 * @return true if the record has been buffered, false if it has been dropped
+	 *         because the buffer is full.
+	 */
+	public boolean offer(Record record) {
+		long index;
+		do {
+			index = tail.get();
+			if (index - head.get() >= slots.length()) {
+				droppedCount.incrementAndGet();
+				return false;
+			}
+		} while (!tail.compareAndSet(index, index + 1));
+
+		// The slot is visible for the writer when the record has been set
+		slots.lazySet((int) index & mask, record);
+		return true;
+	}
+
+	/**
+	 * Writes all records which are currently in the buffer. It is called by the
+	 * background writer. A record whose slot has been claimed but which has not
+	 * been set yet will be written by the next call.
+	 *
+	 * @return The number of written records.
+	 */
+	int drain() {
+		int count = 0;
+		long index = head.get();
+		while (true) {
+			int slot = (int) index & mask;
+			Record record = slots.get(slot);
+			if (record == null) {
+				break;
+			}
+			slots.lazySet(slot, null);
+			index++;
+			head.lazySet(index);
+			write(record);
+			count++;
+		}
+		return count;
+	}
+
+	private void write(Record record) {
+		if (record.body == null && record.timing == null) {
+			accessLogger.info("{} {} {} {} {} {}us", record.remoteAddress, record.method, record.path,
+					record.status, record.bytes, TimeUnit.NANOSECONDS.toMicros(record.latencyNanos));
+		} else if (record.timing == null) {
+			accessLogger.info("{} {} {} {} {} {}us body={}", record.remoteAddress, record.method, record.path,
+					record.status, record.bytes, TimeUnit.NANOSECONDS.toMicros(record.latencyNanos), record.body);
+		} else if (record.body == null) {
+			accessLogger.info("{} {} {} {} {} {}us timing=\"{}\"", record.remoteAddress, record.method,
+					record.path, record.status, record.bytes, TimeUnit.NANOSECONDS.toMicros(record.latencyNanos),
+					record.timing);
+		} else {
+			accessLogger.info("{} {} {} {} {} {}us timing=\"{}\" body={}", record.remoteAddress, record.method,
+					record.path, record.status, record.bytes, TimeUnit.NANOSECONDS.toMicros(record.latencyNanos),
+					record.timing, record.body);
+		}
+	}
+
+	/**
+	 * Starts the background writer.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		Thread thread = new Thread(this::run, "doip-http-access-log");
+		thread.setDaemon(true);
+		writer = thread;
+		thread.start();
+	}
+
+	/**
+	 * Stops the background writer after all buffered records have been written.
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		Thread thread = writer;
+		writer = null;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				if (drain() == 0) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+			}
+			drain();
+		} catch (RuntimeException e) {
+			logger.error("Access log writer failed: {}", e.getMessage(), e);
+			running = false;
+		}
+	}
+
+	/**
+	 * One entry of the access log.
+	 */
+	public static final class Record {
+		private final String remoteAddress;
+		private final String method;
+		private final String path;
+		private final int status;
+		private final long bytes;
+		private final long latencyNanos;
+		private final String body;
+		private final String timing;
+
+		/**
+		 * Constructs a new record.
+		 *
+		 * @param remoteAddress The address of the client.
+		 * @param method        The request method.
+		 * @param path          The request path including the query.
+		 * @param status        The status code, -1 if no response has been sent.
+		 * @param bytes         The number of bytes of the response body.
+		 * @param latencyNanos  The time which was needed to handle the request.
+		 * @param body          The truncated response body or null if it is not
+		 *                      logged.
+		 */
+		public Record(String remoteAddress, String method, String path, int status, long bytes, long latencyNanos,
+				String body) {
+			this(remoteAddress, method, path, status, bytes, latencyNanos, body, null);
+		}
+
+		/**
+		 * Constructs a new record with the phases of the Server-Timing.
+		 *
+		 * @param remoteAddress The address of the client.
+		 * @param method        The request method.
+		 * @param path          The request path including the query.
+		 * @param status        The status code, -1 if no response has been sent.
+		 * @param bytes         The number of bytes of the response body.
+		 * @param latencyNanos  The time which was needed to handle the request.
+		 * @param body          The truncated response body or null if it is not
+		 *                      logged.
+		 * @param timing        The phases in the format of the Server-Timing
+		 *                      header, or null if the request has not been timed.
+		 */
+		public Record(String remoteAddress, String method, String path, int status, long bytes, long latencyNanos,
+				String body, String timing) {
+			this.remoteAddress = remoteAddress;
+			this.method = method;
+			this.path = path;
+			this.status = status;
+			this.bytes = bytes;
+			this.latencyNanos = latencyNanos;
+			this.body = body;
+			this.timing = timing;
+		}
+
+		public String getRemoteAddress() {
+			return remoteAddress;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public long getLatencyNanos() {
+			return latencyNanos;
+		}
+
+		public String getBody() {
+			return body;
+		}
+
+		public String getTiming() {
+			return timing;
+		}
+	}
+}
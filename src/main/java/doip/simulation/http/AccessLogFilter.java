@@ -0,0 +1,149 @@
+package doip.simulation.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import doip.simulation.http.helpers.ServerTiming;
+
+/**
+ * Filter which records one access log entry for each request. The response
+ * stream is wrapped to count the bytes of the response body and, for sampled
+ * requests, to capture the beginning of the body. The entry is recorded when
+ * the response is complete, which is later than the return of the handler for
+ * parked requests and event streams.
+ */
+class AccessLogFilter extends Filter {
+
+	private final AccessLog accessLog;
+
+	AccessLogFilter(AccessLog accessLog) {
+		this.accessLog = accessLog;
+	}
+
+	@Override
+	public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+		int maxBodySize = accessLog.sampleBody() ? accessLog.getMaxBodySize() : 0;
+		Entry entry = new Entry(exchange, new CountingOutputStream(exchange.getResponseBody(), maxBodySize));
+		exchange.setStreams(null, entry.responseBody);
+		ResponseCompletion.run(() -> {
+			try {
+				chain.doFilter(exchange);
+			} finally {
+				// The Server-Timing is bound to the handler thread
+				entry.timing = ServerTiming.takeSummary();
+			}
+		}, entry);
+	}
+
+	@Override
+	public String description() {
+		return "Records an access log entry for each request";
+	}
+
+	/**
+	 * The access log entry of one request, recorded when the response is
+	 * complete.
+	 */
+	private final class Entry implements Runnable {
+
+		private final long start = System.nanoTime();
+
+		private final HttpExchange exchange;
+
+		private final CountingOutputStream responseBody;
+
+		private volatile String timing = null;
+
+		private Entry(HttpExchange exchange, CountingOutputStream responseBody) {
+			this.exchange = exchange;
+			this.responseBody = responseBody;
+		}
+
+		@Override
+		public void run() {
+			InetSocketAddress remoteAddress = exchange.getRemoteAddress();
+			accessLog.offer(new AccessLog.Record(
+					remoteAddress != null ? remoteAddress.getAddress().getHostAddress() : "-",
+					exchange.getRequestMethod(), exchange.getRequestURI().toString(), exchange.getResponseCode(),
+					responseBody.getCount(), System.nanoTime() - start, getLoggedBody(exchange, responseBody),
+					timing));
+		}
+	}
+
+	private static String getLoggedBody(HttpExchange exchange, CountingOutputStream responseBody) {
+		if (!responseBody.isCapturing()) {
+			return null;
+		}
+		String encoding = exchange.getResponseHeaders().getFirst("Content-Encoding");
+		if (encoding != null) {
+			return "<" + encoding + " encoded>";
+		}
+		String body = new String(responseBody.getCaptured(), 0, responseBody.getCapturedLength(),
+				StandardCharsets.UTF_8);
+		return responseBody.getCount() > responseBody.getCapturedLength() ? body + "..." : body;
+	}
+
+	/**
+	 * Stream which counts the written bytes and keeps the first bytes.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private final byte[] captured;
+
+		private int capturedLength = 0;
+
+		/**
+		 * Volatile, because the bytes of a deferred response are written by
+		 * another thread than the one which records the entry.
+		 */
+		private volatile long count = 0;
+
+		private CountingOutputStream(OutputStream out, int maxCaptured) {
+			super(out);
+			this.captured = maxCaptured > 0 ? new byte[maxCaptured] : null;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			if (captured != null && capturedLength < captured.length) {
+				captured[capturedLength++] = (byte) b;
+			}
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// FilterOutputStream would write each byte separately
+			out.write(b, off, len);
+			if (captured != null && capturedLength < captured.length) {
+				int length = Math.min(len, captured.length - capturedLength);
+				System.arraycopy(b, off, captured, capturedLength, length);
+				capturedLength += length;
+			}
+			count += len;
+		}
+
+		private boolean isCapturing() {
+			return captured != null;
+		}
+
+		private byte[] getCaptured() {
+			return captured;
+		}
+
+		private int getCapturedLength() {
+			return capturedLength;
+		}
+
+		private long getCount() {
+			return count;
+		}
+	}
+}
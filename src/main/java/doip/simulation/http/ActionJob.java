@@ -0,0 +1,184 @@
+package doip.simulation.http;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.http.lib.Action;
+
+/**
+ * An action on a platform which is executed asynchronously by
+ * {@link ActionJobs}. The fields are written by the thread which executes the
+ * job and by the StateMonitor, and they are read by the HTTP handlers.
+ */
+final class ActionJob {
+
+	private static final String GATEWAY_ERROR = "The gateway is in state ERROR";
+
+	private final String id;
+
+	private final Platform platform;
+
+	private final Action action;
+
+	private final long submittedNanos = System.nanoTime();
+
+	private volatile long startedNanos = 0;
+
+	private volatile long finishedNanos = 0;
+
+	private volatile JobStatus.State state = JobStatus.State.PENDING;
+
+	private volatile String error = null;
+
+	private final Map<String, GatewayEntry> gateways = new LinkedHashMap<>();
+
+	ActionJob(String id, Platform platform, Action action) {
+		this.id = id;
+		this.platform = platform;
+		this.action = action;
+		List<Gateway> platformGateways = platform.getGateways();
+		if (platformGateways != null) {
+			for (Gateway gateway : platformGateways) {
+				gateways.put(gateway.getName(), new GatewayEntry(gateway));
+			}
+		}
+	}
+
+	String getId() {
+		return id;
+	}
+
+	Platform getPlatform() {
+		return platform;
+	}
+
+	Action getAction() {
+		return action;
+	}
+
+	JobStatus.State getState() {
+		return state;
+	}
+
+	boolean isFinished() {
+		return state == JobStatus.State.SUCCEEDED || state == JobStatus.State.FAILED;
+	}
+
+	Collection<GatewayEntry> getGateways() {
+		return gateways.values();
+	}
+
+	/**
+	 * The state which the gateways will have after the action.
+	 */
+	ServiceState getTargetState() {
+		return action == Action.stop ? ServiceState.STOPPED : ServiceState.RUNNING;
+	}
+
+	void markRunning() {
+		startedNanos = System.nanoTime();
+		state = JobStatus.State.RUNNING;
+	}
+
+	void markFinished(String error) {
+		long now = System.nanoTime();
+		for (GatewayEntry entry : gateways.values()) {
+			// The gateway has reached its state at the latest when the platform is done
+			entry.finish(entry.gateway.getState() == ServiceState.ERROR ? GATEWAY_ERROR : null, now);
+		}
+		this.error = error;
+		finishedNanos = now;
+		state = error == null ? JobStatus.State.SUCCEEDED : JobStatus.State.FAILED;
+	}
+
+	/**
+	 * Records a change of the state of a gateway which has been detected by the
+	 * StateMonitor.
+	 */
+	void gatewayChanged(String gatewayName, ServiceState newState) {
+		GatewayEntry entry = gateways.get(gatewayName);
+		if (entry == null || startedNanos == 0) {
+			return;
+		}
+		if (newState == getTargetState()) {
+			entry.finish(null, System.nanoTime());
+		} else if (newState == ServiceState.ERROR) {
+			entry.finish(GATEWAY_ERROR, System.nanoTime());
+		}
+	}
+
+	JobStatus toStatus(String url) {
+		long now = System.nanoTime();
+		JobStatus status = new JobStatus();
+		status.id = id;
+		status.url = url;
+		status.platform = platform.getName();
+		status.action = action;
+		status.state = state;
+		status.error = error;
+		long started = startedNanos;
+		long finished = finishedNanos;
+		status.queuedMillis = toMillis((started != 0 ? started : now) - submittedNanos);
+		if (started != 0) {
+			status.durationMillis = toMillis((finished != 0 ? finished : now) - started);
+		}
+		status.gateways = new ArrayList<>(gateways.size());
+		for (GatewayEntry entry : gateways.values()) {
+			JobStatus.GatewayProgress progress = new JobStatus.GatewayProgress();
+			progress.name = entry.gateway.getName();
+			progress.state = entry.gateway.getState();
+			progress.error = entry.error;
+			long finishedGateway = entry.finishedNanos;
+			if (finishedGateway != 0 && started != 0) {
+				progress.latencyMillis = toMillis(finishedGateway - started);
+				status.completedGateways++;
+			}
+			status.gateways.add(progress);
+		}
+		status.totalGateways = gateways.size();
+		return status;
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+	}
+
+	/**
+	 * Progress of a single gateway of the job.
+	 */
+	static final class GatewayEntry {
+
+		private final Gateway gateway;
+
+		private volatile long finishedNanos = 0;
+
+		private volatile String error = null;
+
+		private GatewayEntry(Gateway gateway) {
+			this.gateway = gateway;
+		}
+
+		Gateway getGateway() {
+			return gateway;
+		}
+
+		/**
+		 * Records that the gateway has finished. Only the first call has an
+		 * effect, so the earliest time is kept.
+		 */
+		synchronized void finish(String error, long nanos) {
+			if (finishedNanos != 0) {
+				return;
+			}
+			this.error = error;
+			this.finishedNanos = nanos;
+		}
+	}
+}
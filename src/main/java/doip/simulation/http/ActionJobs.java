@@ -0,0 +1,228 @@
+package doip.simulation.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import doip.library.exception.DoipException;
+import doip.simulation.api.Platform;
+import doip.simulation.http.lib.Action;
+
+/**
+ * Executes actions on platforms asynchronously, so an HTTP request to start a
+ * large platform can be answered with "202 Accepted" right away. The jobs run
+ * on a dedicated pool of threads and can be queried by their ID. The progress
+ * of the gateways is taken from the StateMonitor, or measured directly if the
+ * platform implements {@link ParallelStartPlatform} and its gateways are
+ * started in parallel.
+ * <p>
+ * Only the most recent jobs are kept, older finished jobs will be removed.
+ */
+public class ActionJobs implements StateListener {
+
+	private static Logger logger = LogManager.getLogger(ActionJobs.class);
+
+	public static final int DEFAULT_THREADS = 4;
+
+	public static final int MAX_RETAINED_JOBS = 256;
+
+	private final SimulationConnector simulationConnector;
+
+	private final ExecutorService executor;
+
+	/**
+	 * Executor for starting gateways in parallel. It is separate from the job
+	 * executor, so a job never waits for a thread of its own pool.
+	 */
+	private final ExecutorService gatewayExecutor = Executors
+			.newCachedThreadPool(ServerExecutors.namedThreadFactory("doip-http-job-gateway"));
+
+	private final Map<String, ActionJob> jobs = new ConcurrentHashMap<>();
+
+	/**
+	 * The IDs of the jobs in the order in which they have been submitted.
+	 */
+	private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	public ActionJobs(SimulationConnector simulationConnector) {
+		this(simulationConnector, DEFAULT_THREADS);
+	}
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param simulationConnector The connector which executes the actions under
+	 *                            the lock of the platform and updates its
+	 *                            cached responses and state index.
+	 * @param threads             The number of jobs which run at the same time.
+	 */
+	public ActionJobs(SimulationConnector simulationConnector, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be greater than 0");
+		}
+		this.simulationConnector = simulationConnector;
+		this.executor = Executors.newFixedThreadPool(threads, ServerExecutors.namedThreadFactory("doip-http-job"));
+	}
+
+	/**
+	 * Submits an action for asynchronous execution.
+	 *
+	 * @param platform The platform.
+	 * @param action   The action.
+	 * @return The job.
+	 */
+	ActionJob submit(Platform platform, Action action) {
+		ActionJob job = new ActionJob(Long.toString(nextId.getAndIncrement()), platform, action);
+		jobs.put(job.getId(), job);
+		order.add(job.getId());
+		removeOldJobs();
+		logger.info("Submitted job {}: {} platform {}", job.getId(), action, platform.getName());
+		executor.execute(() -> run(job));
+		return job;
+	}
+
+	/**
+	 * Gets a job by its ID.
+	 *
+	 * @param id The ID of the job.
+	 * @return The job, or null if it does not exist (anymore).
+	 */
+	ActionJob get(String id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * Gets all retained jobs in the order in which they have been submitted.
+	 *
+	 * @return The jobs.
+	 */
+	List<ActionJob> list() {
+		List<ActionJob> list = new ArrayList<>();
+		for (String id : order) {
+			ActionJob job = jobs.get(id);
+			if (job != null) {
+				list.add(job);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Stops the threads of the jobs. Jobs which have not been started yet will
+	 * not be executed.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		gatewayExecutor.shutdownNow();
+	}
+
+	@Override
+	public void stateChanged(StateChangeEvent event) {
+		if (event.getGateway() == null) {
+			return;
+		}
+		for (ActionJob job : jobs.values()) {
+			if (job.getState() == JobStatus.State.RUNNING && job.getPlatform().getName().equals(event.getPlatform())) {
+				job.gatewayChanged(event.getGateway(), event.getState());
+			}
+		}
+	}
+
+	private void removeOldJobs() {
+		int excess = jobs.size() - MAX_RETAINED_JOBS;
+		for (String id : order) {
+			if (excess <= 0) {
+				break;
+			}
+			ActionJob job = jobs.get(id);
+			// Jobs which are still running will be kept
+			if (job == null || job.isFinished()) {
+				jobs.remove(id);
+				order.remove(id);
+				excess--;
+			}
+		}
+	}
+
+	private void run(ActionJob job) {
+		job.markRunning();
+		String error = null;
+		try {
+			// Holds the lock of the platform against other actions and updates the state index
+			error = simulationConnector.changePlatform(job.getPlatform(), () -> perform(job));
+		} catch (DoipException | RuntimeException e) {
+			error = "Failed to perform action on platform: " + e.getMessage();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = "The job has been interrupted";
+		} finally {
+			job.markFinished(error);
+			if (error == null) {
+				logger.info("Job {} succeeded", job.getId());
+			} else {
+				logger.error("Job {} failed: {}", job.getId(), error);
+			}
+		}
+	}
+
+	/**
+	 * Performs the action of a job.
+	 *
+	 * @return null if the action succeeded, otherwise the error.
+	 */
+	private String perform(ActionJob job) throws DoipException, InterruptedException {
+		Platform platform = job.getPlatform();
+		if (job.getAction() == Action.start && platform instanceof ParallelStartPlatform) {
+			return startInParallel(job, (ParallelStartPlatform) platform);
+		} else if (job.getAction() == Action.start) {
+			platform.start();
+		} else if (job.getAction() == Action.stop) {
+			platform.stop();
+		} else {
+			return "Unknown action: " + job.getAction();
+		}
+		return null;
+	}
+
+	private String startInParallel(ActionJob job, ParallelStartPlatform platform)
+			throws DoipException, InterruptedException {
+		List<Future<?>> futures = new ArrayList<>();
+		for (ActionJob.GatewayEntry entry : job.getGateways()) {
+			futures.add(gatewayExecutor.submit(() -> {
+				try {
+					platform.startGateway(entry.getGateway());
+					entry.finish(null, System.nanoTime());
+				} catch (DoipException | RuntimeException e) {
+					entry.finish(e.getMessage(), System.nanoTime());
+					throw e;
+				}
+				return null;
+			}));
+		}
+		int failed = 0;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				failed++;
+			}
+		}
+		if (failed > 0) {
+			return failed + " of " + futures.size() + " gateways could not be started";
+		}
+		platform.completeStart();
+		return null;
+	}
+}
@@ -0,0 +1,136 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import doip.simulation.http.helpers.HttpServerHelper;
+import doip.simulation.http.helpers.JsonCodec;
+
+/**
+ * Define a handler for the "/doip-simulation/actions" path. It starts or stops
+ * many platforms with a single request:
+ *
+ * <pre>
+ * POST /doip-simulation/actions
+ * {"parallelism": 8, "actions": [{"platform": "X2024", "action": "start"}, ...]}
+ * </pre>
+ *
+ * The body can also be the array of actions only. The actions for different
+ * platforms are executed concurrently, so the whole batch takes about as long
+ * as the slowest platform. The response contains the result and the timing of
+ * each action.
+ */
+public class ActionsHandler implements HttpHandler {
+
+	private static Logger logger = LogManager.getLogger(ActionsHandler.class);
+
+	public static final String RESOURCE_PATH = "/doip-simulation/actions";
+
+	private final SimulationConnector simulationConnector;
+
+	public ActionsHandler(SimulationConnector simulationConnector) {
+		this.simulationConnector = simulationConnector;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		String requestPath = exchange.getRequestURI().getPath();
+		if (!requestPath.equals(RESOURCE_PATH) && !requestPath.equals(RESOURCE_PATH + "/")) {
+			logger.error("No resource found for path {}", requestPath);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			return;
+		}
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			logger.error("Method not allowed. Received a {} request.", exchange.getRequestMethod());
+			exchange.getResponseHeaders().set("Allow", "POST");
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+			return;
+		}
+		handlePostRequest(exchange);
+	}
+
+	private void handlePostRequest(HttpExchange exchange) throws IOException {
+		try {
+			String requestString = HttpServerHelper.readRequestBodyAsString(exchange);
+			HttpServerHelper.requestServerLogging(exchange, requestString);
+
+			BatchActionRequest request;
+			try {
+				request = parseRequest(requestString, simulationConnector.getJsonCodec());
+			} catch (IllegalArgumentException | IOException e) {
+				logger.error("Received JSON structure is invalid: {}", e.getMessage());
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1); // Bad Request
+				return;
+			}
+
+			int parallelism = simulationConnector.getActionParallelism();
+			if (request.parallelism != null) {
+				parallelism = Math.min(parallelism, request.parallelism);
+			}
+
+			BatchActionResponse response = simulationConnector.performActions(request.actions, parallelism);
+			String jsonResponse = simulationConnector.getJsonCodec().writeAsString(response);
+
+			HttpServerHelper.sendResponse(exchange, jsonResponse, "application/json", HttpURLConnection.HTTP_OK);
+			HttpServerHelper.responseServerLogging(exchange, HttpURLConnection.HTTP_OK, jsonResponse);
+		} catch (Exception e) {
+			// Handle exceptions and send an appropriate response
+			logger.error("Error processing request: {}", e.getMessage(), e);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1); // Internal Server Error
+		}
+	}
+
+	/**
+	 * Parses the body of a request, which is either a BatchActionRequest or an
+	 * array of its entries.
+	 *
+	 * @param requestString The body of the request.
+	 * @return The request.
+	 * @throws IOException              If the body is not valid JSON.
+	 * @throws IllegalArgumentException If the body does not contain any action
+	 *                                  or the parallelism is invalid.
+	 */
+	static BatchActionRequest parseRequest(String requestString) throws IOException {
+		return parseRequest(requestString, JsonCodec.getDefault());
+	}
+
+	/**
+	 * Parses the body of a request with the given codec.
+	 *
+	 * @param requestString The body of the request.
+	 * @param jsonCodec     The codec.
+	 * @return The request.
+	 * @throws IOException              If the body is not valid JSON.
+	 * @throws IllegalArgumentException If the body does not contain any action
+	 *                                  or the parallelism is invalid.
+	 */
+	static BatchActionRequest parseRequest(String requestString, JsonCodec jsonCodec) throws IOException {
+		if (requestString == null || requestString.trim().isEmpty()) {
+			throw new IllegalArgumentException("The request body is empty");
+		}
+		BatchActionRequest request;
+		if (requestString.trim().startsWith("[")) {
+			request = new BatchActionRequest();
+			List<BatchActionRequest.Entry> entries = Arrays
+					.asList(jsonCodec.read(requestString, BatchActionRequest.Entry[].class));
+			request.actions = entries;
+		} else {
+			request = jsonCodec.read(requestString, BatchActionRequest.class);
+		}
+		if (request == null || request.actions == null || request.actions.isEmpty()) {
+			throw new IllegalArgumentException("The request does not contain any action");
+		}
+		if (request.parallelism != null && request.parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be greater than 0");
+		}
+		return request;
+	}
+}
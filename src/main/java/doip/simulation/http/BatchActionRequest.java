@@ -0,0 +1,46 @@
+package doip.simulation.http;
+
+import java.util.List;
+
+import doip.simulation.http.lib.Action;
+
+/**
+ * Body of a request to "POST /doip-simulation/actions", e.g.
+ *
+ * <pre>
+ * {
+ *   "parallelism": 8,
+ *   "actions": [
+ *     { "platform": "X2024", "action": "start" },
+ *     { "platform": "Y2024", "action": "start" }
+ *   ]
+ * }
+ * </pre>
+ *
+ * The parallelism is optional, the server limits it to its configured
+ * maximum.
+ */
+public class BatchActionRequest {
+
+	public Integer parallelism;
+
+	public List<Entry> actions;
+
+	/**
+	 * An action for a single platform.
+	 */
+	public static class Entry {
+
+		public String platform;
+
+		public Action action;
+
+		public Entry() {
+		}
+
+		public Entry(String platform, Action action) {
+			this.platform = platform;
+			this.action = action;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package doip.simulation.http;
+
+import java.util.List;
+
+import doip.simulation.api.ServiceState;
+import doip.simulation.http.lib.Action;
+
+/**
+ * Response of "POST /doip-simulation/actions" with one result per requested
+ * action in the order of the request.
+ */
+public class BatchActionResponse {
+
+	/**
+	 * Time in milliseconds until all actions have finished.
+	 */
+	public long durationMillis;
+
+	public List<Result> results;
+
+	/**
+	 * The result of an action for a single platform.
+	 */
+	public static class Result {
+
+		public String platform;
+
+		public Action action;
+
+		/**
+		 * The HTTP status code which would have been returned for a single
+		 * action, e.g. 200 if it was successful or 404 if the platform does not
+		 * exist.
+		 */
+		public int status;
+
+		/**
+		 * The state of the platform after the action.
+		 */
+		public ServiceState state;
+
+		public String message;
+
+		public String error;
+
+		/**
+		 * Time in milliseconds from the start of the batch to the start of this
+		 * action.
+		 */
+		public long startMillis;
+
+		/**
+		 * Duration of this action in milliseconds.
+		 */
+		public long durationMillis;
+
+		public Result() {
+		}
+
+		public Result(String platform, Action action) {
+			this.platform = platform;
+			this.action = action;
+		}
+	}
+}
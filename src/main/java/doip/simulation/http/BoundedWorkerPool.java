@@ -0,0 +1,163 @@
+package doip.simulation.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Thread pool with a fixed number of worker threads and a bounded queue for
+ * the HTTP exchanges. When the queue is full the exchange is not queued.
+ * Instead it is executed directly on the dispatcher thread of the HTTP server
+ * and marked as rejected, so that the {@link LoadSheddingFilter} answers it
+ * immediately with "503 Service Unavailable".
+ */
+class BoundedWorkerPool extends ThreadPoolExecutor {
+
+	private static Logger logger = LogManager.getLogger(BoundedWorkerPool.class);
+
+	/**
+	 * Contains the value for the Retry-After header while a rejected exchange is
+	 * executed on the dispatcher thread.
+	 */
+	private static final ThreadLocal<Integer> rejectedRetryAfter = new ThreadLocal<>();
+
+	private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	// Weight of the latest sample in the moving average of the drain rate
+	private static final double SAMPLE_WEIGHT = 0.5;
+
+	static final int MIN_RETRY_AFTER_SECONDS = 1;
+
+	static final int MAX_RETRY_AFTER_SECONDS = 60;
+
+	private final AtomicLong completedCount = new AtomicLong();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final Object sampleLock = new Object();
+
+	private volatile long sampleNanos = System.nanoTime();
+
+	private volatile long sampleCompletedCount = 0;
+
+	// Number of exchanges per second which are taken from the queue
+	private volatile double drainRate = 0;
+
+	/**
+	 * Constructs a new pool.
+	 *
+	 * @param threads       The number of worker threads.
+	 * @param queueCapacity The maximum number of exchanges which are waiting for
+	 *                      a worker thread.
+	 */
+	BoundedWorkerPool(int threads, int queueCapacity) {
+		super(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+				ServerExecutors.namedThreadFactory("doip-http-worker"), new ShedOnCallerThread());
+	}
+
+	/**
+	 * Returns the value for the Retry-After header if the current thread executes
+	 * an exchange which has been rejected by the pool.
+	 *
+	 * @return The number of seconds after which the client shall retry, or null
+	 *         if the current exchange has not been rejected.
+	 */
+	static Integer getRetryAfterOfRejectedExchange() {
+		return rejectedRetryAfter.get();
+	}
+
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * Returns the number of exchanges per second which have been taken from the
+	 * queue in the recent past.
+	 *
+	 * @return The drain rate in exchanges per second.
+	 */
+	public double getDrainRate() {
+		sampleDrainRate(System.nanoTime());
+		return drainRate;
+	}
+
+	/**
+	 * Estimates after how many seconds the current queue will have been drained.
+	 *
+	 * @return The number of seconds, limited to the range
+	 *         [MIN_RETRY_AFTER_SECONDS, MAX_RETRY_AFTER_SECONDS].
+	 */
+	public int estimateRetryAfterSeconds() {
+		double rate = getDrainRate();
+		if (rate <= 0) {
+			return MIN_RETRY_AFTER_SECONDS;
+		}
+		double seconds = Math.ceil((getQueueDepth() + 1) / rate);
+		return (int) Math.max(MIN_RETRY_AFTER_SECONDS, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+	}
+
+	@Override
+	protected void afterExecute(Runnable runnable, Throwable throwable) {
+		super.afterExecute(runnable, throwable);
+		completedCount.incrementAndGet();
+		sampleDrainRate(System.nanoTime());
+	}
+
+	/**
+	 * Updates the moving average of the drain rate if the sample interval has
+	 * elapsed. Only one thread per interval needs to take the lock.
+	 *
+	 * @param now The current value of System.nanoTime().
+	 */
+	private void sampleDrainRate(long now) {
+		long last = sampleNanos;
+		long elapsed = now - last;
+		if (elapsed < SAMPLE_INTERVAL_NANOS) {
+			return;
+		}
+		synchronized (sampleLock) {
+			if (sampleNanos != last) {
+				// Another thread has already taken this sample
+				return;
+			}
+			long completed = completedCount.get();
+			double rate = (completed - sampleCompletedCount) * 1e9 / elapsed;
+			drainRate = drainRate == 0 ? rate : drainRate * (1 - SAMPLE_WEIGHT) + rate * SAMPLE_WEIGHT;
+			sampleCompletedCount = completed;
+			sampleNanos = now;
+		}
+	}
+
+	/**
+	 * Executes a rejected exchange on the calling thread (the dispatcher thread of
+	 * the HTTP server) and marks it as rejected. The exchange will then only be
+	 * answered with 503 by the {@link LoadSheddingFilter}, so the calling thread
+	 * is blocked only for a very short time.
+	 */
+	private static class ShedOnCallerThread implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+			BoundedWorkerPool pool = (BoundedWorkerPool) executor;
+			long rejected = pool.rejectedCount.incrementAndGet();
+			int retryAfter = pool.estimateRetryAfterSeconds();
+			logger.debug("Worker pool is saturated, rejecting request (rejected in total: {}, Retry-After: {} s)",
+					rejected, retryAfter);
+			rejectedRetryAfter.set(retryAfter);
+			try {
+				runnable.run();
+			} finally {
+				rejectedRetryAfter.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Handler of the single root context "/" of the server which dispatches each
+ * exchange to the handler of the longest matching context path, in the same
+ * way as the JDK HTTP server does for its contexts. The contexts are kept in
+ * an array which is replaced on each change (copy-on-write), so contexts can
+ * be added and removed while the server is running and the request path
+ * only reads a volatile field without any locking.
+ */
+class ContextDispatcher implements HttpHandler {
+
+	private static Logger logger = LogManager.getLogger(ContextDispatcher.class);
+
+	private static final ContextHandler[] EMPTY = new ContextHandler[0];
+
+	/**
+	 * The contexts sorted by the length of the path, longest first. The array is
+	 * never modified after it has been published.
+	 */
+	private volatile ContextHandler[] contexts = EMPTY;
+
+	/**
+	 * Serializes the changes, readers do not use it.
+	 */
+	private final Object writeLock = new Object();
+
+	/**
+	 * Adds a context.
+	 *
+	 * @param contextHandler The context path and its handler.
+	 * @return true if it has been added, false if the path already exists.
+	 */
+	boolean add(ContextHandler contextHandler) {
+		return addAll(List.of(contextHandler)) == 1;
+	}
+
+	/**
+	 * Adds several contexts with a single change, so requests see either none
+	 * or all of them. Contexts whose path already exists are skipped.
+	 *
+	 * @param contextHandlers The contexts to add.
+	 * @return The number of contexts which have been added.
+	 */
+	int addAll(Collection<ContextHandler> contextHandlers) {
+		synchronized (writeLock) {
+			List<ContextHandler> updated = new ArrayList<>(Arrays.asList(contexts));
+			int added = 0;
+			for (ContextHandler contextHandler : contextHandlers) {
+				if (find(updated, contextHandler.getContext()) != null) {
+					logger.warn("Mapping context '{}' already exists. Not adding it again.",
+							contextHandler.getContext());
+					continue;
+				}
+				updated.add(contextHandler);
+				added++;
+			}
+			if (added > 0) {
+				publish(updated);
+			}
+			return added;
+		}
+	}
+
+	/**
+	 * Removes a context.
+	 *
+	 * @param context The context path.
+	 * @return true if it has been removed, false if it did not exist.
+	 */
+	boolean remove(String context) {
+		synchronized (writeLock) {
+			List<ContextHandler> updated = new ArrayList<>(Arrays.asList(contexts));
+			ContextHandler existing = find(updated, context);
+			if (existing == null) {
+				return false;
+			}
+			updated.remove(existing);
+			publish(updated);
+			return true;
+		}
+	}
+
+	/**
+	 * Gets the current contexts. The returned array must not be modified.
+	 *
+	 * @return The contexts, longest path first.
+	 */
+	ContextHandler[] snapshot() {
+		return contexts;
+	}
+
+	boolean contains(String context) {
+		for (ContextHandler contextHandler : contexts) {
+			if (contextHandler.getContext().equals(context)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void publish(List<ContextHandler> updated) {
+		ContextHandler[] array = updated.toArray(EMPTY);
+		// Stable sort, so the first context with the longest path wins
+		Arrays.sort(array, Comparator.comparingInt((ContextHandler c) -> c.getContext().length()).reversed());
+		contexts = array;
+	}
+
+	private static ContextHandler find(List<ContextHandler> list, String context) {
+		for (ContextHandler contextHandler : list) {
+			if (contextHandler.getContext().equals(context)) {
+				return contextHandler;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the handler for a request path.
+	 *
+	 * @param path The path of the request.
+	 * @return The handler of the longest context path which is a prefix of the
+	 *         path, or null if there is none.
+	 */
+	HttpHandler match(String path) {
+		for (ContextHandler contextHandler : contexts) {
+			if (path.startsWith(contextHandler.getContext())) {
+				return contextHandler.getHandler();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		HttpHandler handler = match(path);
+		if (handler == null) {
+			logger.error("No context found for request {}", path);
+			try {
+				exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			} finally {
+				exchange.close();
+			}
+			return;
+		}
+		handler.handle(exchange);
+	}
+}
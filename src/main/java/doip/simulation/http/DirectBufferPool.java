@@ -0,0 +1,66 @@
+package doip.simulation.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers of the same size. Allocating direct buffers is
+ * expensive and they are only freed by the garbage collector, so the buffers
+ * for reading requests and writing responses are reused. If the pool is empty
+ * a new buffer is allocated; if it is full, a returned buffer is left to the
+ * garbage collector.
+ */
+final class DirectBufferPool {
+
+	private final int bufferSize;
+
+	private final int maxPooled;
+
+	private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	DirectBufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Takes a buffer from the pool.
+	 *
+	 * @return An empty buffer in write mode.
+	 */
+	ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. Buffers which have not been taken from a
+	 * pool of this size, e.g. wrapped byte arrays, are ignored, so any buffer of
+	 * a response can be passed. A buffer must not be used after it has been
+	 * returned.
+	 *
+	 * @param buffer The buffer.
+	 */
+	void release(ByteBuffer buffer) {
+		if (!buffer.isDirect() || buffer.capacity() != bufferSize) {
+			return;
+		}
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		buffers.offer(buffer);
+	}
+}
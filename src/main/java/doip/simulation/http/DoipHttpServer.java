@@ -1,11 +1,15 @@
 package doip.simulation.http;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.ArrayList;
 
 import org.apache.logging.log4j.LogManager;
@@ -13,11 +17,14 @@ import org.apache.logging.log4j.Logger;
 
 import doip.simulation.api.SimulationManager;
 import doip.simulation.http.helpers.HttpServerHelper;
+import doip.simulation.http.helpers.JsonCodec;
+import doip.simulation.http.helpers.ResponseCompression;
+import doip.simulation.http.helpers.ServerTiming;
 
 import com.starcode88.http.HttpUtils;
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import com.sun.net.httpserver.HttpServer;
 
 /**
  * Represents an HTTP server for handling POST and GET requests.
@@ -27,7 +34,16 @@ public class DoipHttpServer {
 	private static Logger logger = LogManager.getLogger(DoipHttpServer.class);
 
 	private static final int DEFAULT_PORT = 8080;
-	private HttpServer server;
+
+	public static final int DEFAULT_WORKER_THREADS = 16;
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+	/**
+	 * The transport which accepts the connections and parses the requests.
+	 */
+	private final HttpTransport transport;
+
+	private final Transport transportType;
 	private String serverName;
 	private int port;
 
@@ -46,7 +62,18 @@ public class DoipHttpServer {
 		return simulationManager;
 	}
 
-	private List<ContextHandler> handlers;
+	/**
+	 * @return The transport which accepts the connections.
+	 */
+	public Transport getTransport() {
+		return transportType;
+	}
+
+	/**
+	 * Dispatches the exchanges of the root context to the handlers of the
+	 * registered context paths. Contexts can be added and removed at any time.
+	 */
+	private final ContextDispatcher dispatcher = new ContextDispatcher();
 
 	/**
 	 * Checks if the server is currently running.
@@ -62,6 +89,214 @@ public class DoipHttpServer {
 	// To make the start() and stop() methods thread-safe
 	private final Object lock = new Object(); // Object for synchronization
 
+	private ExecutionMode executionMode = ExecutionMode.DISPATCHER_THREAD;
+
+	// Executor for the HTTP exchanges, null if the default executor is used
+	private ExecutorService executor = null;
+
+	private int workerThreads = DEFAULT_WORKER_THREADS;
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+	private final LoadSheddingFilter loadSheddingFilter = new LoadSheddingFilter();
+
+	private ResponseCompression responseCompression = ResponseCompression.DEFAULT;
+
+	private AccessLog accessLog = new AccessLog();
+
+	private final RouteMetrics routeMetrics = new RouteMetrics();
+
+	private boolean serverTimingEnabled = false;
+
+	private JsonCodec jsonCodec = JsonCodec.getDefault();
+
+	private final StateMonitor stateMonitor;
+
+	/**
+	 * Tasks which release the resources of the handlers, e.g. their thread
+	 * pools, when the server is stopped.
+	 */
+	private final List<Runnable> stopTasks = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Gets the monitor which detects changes of the states of the platforms and
+	 * gateways. It is running while the server is running.
+	 *
+	 * @return The state monitor.
+	 */
+	public StateMonitor getStateMonitor() {
+		return stateMonitor;
+	}
+
+	/**
+	 * Gets the latency histograms and counters of the requests. They are
+	 * recorded for the handlers of all contexts, including custom handlers.
+	 *
+	 * @return The metrics of the routes.
+	 */
+	public RouteMetrics getRouteMetrics() {
+		return routeMetrics;
+	}
+
+	public boolean isServerTimingEnabled() {
+		return serverTimingEnabled;
+	}
+
+	/**
+	 * Enables the "Server-Timing" response header which splits the time of a
+	 * request into phases like resolving the gateway, mapping and serializing.
+	 * The phases are also written to the access log. It can only be changed
+	 * while the server is not running.
+	 *
+	 * @param enabled true to send the header.
+	 */
+	public void setServerTimingEnabled(boolean enabled) {
+		if (isRunning) {
+			logger.warn("Server is running. Server timing not changed.");
+			return;
+		}
+		this.serverTimingEnabled = enabled;
+	}
+
+	public JsonCodec getJsonCodec() {
+		return jsonCodec;
+	}
+
+	/**
+	 * Sets the codec which is used by the handlers of this server, so it can be
+	 * prepared when the server is started. It can only be changed while the
+	 * server is not running.
+	 *
+	 * @param jsonCodec The codec.
+	 */
+	public void setJsonCodec(JsonCodec jsonCodec) {
+		if (jsonCodec == null) {
+			throw new IllegalArgumentException("The codec must not be null");
+		}
+		if (isRunning) {
+			logger.warn("Server is running. JSON codec not changed.");
+			return;
+		}
+		this.jsonCodec = jsonCodec;
+	}
+
+	public AccessLog getAccessLog() {
+		return accessLog;
+	}
+
+	/**
+	 * Sets the access log to which one record per request will be written. The
+	 * access log can only be changed while the server is not running.
+	 *
+	 * @param accessLog The access log, or null to disable the access log.
+	 */
+	public void setAccessLog(AccessLog accessLog) {
+		if (isRunning) {
+			logger.warn("Server is running. Access log not changed.");
+			return;
+		}
+		this.accessLog = accessLog;
+	}
+
+	public ResponseCompression getResponseCompression() {
+		return responseCompression;
+	}
+
+	/**
+	 * Sets the compression of response bodies. Bodies will only be compressed if
+	 * the client accepts gzip or deflate. The settings can only be changed while
+	 * the server is not running.
+	 *
+	 * @param responseCompression The compression settings.
+	 */
+	public void setResponseCompression(ResponseCompression responseCompression) {
+		if (isRunning) {
+			logger.warn("Server is running. Response compression not changed.");
+			return;
+		}
+		this.responseCompression = responseCompression;
+	}
+
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	/**
+	 * Sets the mode which defines on which threads the HTTP exchanges will be
+	 * executed. The mode can only be changed while the server is not running.
+	 *
+	 * @param executionMode The execution mode.
+	 */
+	public void setExecutionMode(ExecutionMode executionMode) {
+		if (isRunning) {
+			logger.warn("Server is running. Execution mode not changed.");
+			return;
+		}
+		this.executionMode = executionMode;
+	}
+
+	/**
+	 * Sets the size of the worker pool which is used in execution mode
+	 * BOUNDED_POOL. The size can only be changed while the server is not running.
+	 *
+	 * @param workerThreads The number of worker threads.
+	 * @param queueCapacity The maximum number of requests which are waiting for a
+	 *                      worker thread. Further requests will be answered with
+	 *                      "503 Service Unavailable".
+	 */
+	public void setWorkerPoolSize(int workerThreads, int queueCapacity) {
+		if (workerThreads < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("Worker threads and queue capacity must be greater than 0");
+		}
+		if (isRunning) {
+			logger.warn("Server is running. Worker pool size not changed.");
+			return;
+		}
+		this.workerThreads = workerThreads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Gets the number of worker threads which are currently executing a request.
+	 * 
+	 * @return The number of active threads, 0 if the execution mode is not
+	 *         BOUNDED_POOL.
+	 */
+	public int getActiveWorkerCount() {
+		ExecutorService current = executor;
+		if (current instanceof BoundedWorkerPool) {
+			return ((BoundedWorkerPool) current).getActiveCount();
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the number of requests which are waiting for a worker thread.
+	 * 
+	 * @return The queue depth, 0 if the execution mode is not BOUNDED_POOL.
+	 */
+	public int getQueueDepth() {
+		ExecutorService current = executor;
+		if (current instanceof BoundedWorkerPool) {
+			return ((BoundedWorkerPool) current).getQueueDepth();
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the number of requests which have been answered with "503 Service
+	 * Unavailable" because the worker pool was saturated.
+	 * 
+	 * @return The number of rejected requests since the server has been started.
+	 */
+	public long getRejectedCount() {
+		ExecutorService current = executor;
+		if (current instanceof BoundedWorkerPool) {
+			return ((BoundedWorkerPool) current).getRejectedCount();
+		}
+		return 0;
+	}
+
 	/**
 	 * Constructs a new DoipHttpServer with the default port.
 	 *
@@ -71,7 +306,20 @@ public class DoipHttpServer {
 	 */
 
 	public DoipHttpServer(SimulationManager simulationManager) throws IOException {
-		this(DEFAULT_PORT, simulationManager);
+		this(DEFAULT_PORT, simulationManager, Transport.JDK);
+	}
+
+	/**
+	 * Constructs a new DoipHttpServer with the default port and the given
+	 * transport.
+	 *
+	 * @param simulationManager The simulation manager for handling
+	 *                          simulation-related functionality.
+	 * @param transport         The transport which accepts the connections.
+	 * @throws IOException If an I/O error occurs while creating the server.
+	 */
+	public DoipHttpServer(SimulationManager simulationManager, Transport transport) throws IOException {
+		this(DEFAULT_PORT, simulationManager, transport);
 	}
 
 	/**
@@ -83,11 +331,30 @@ public class DoipHttpServer {
 	 * @throws IOException If an I/O error occurs while creating the server.
 	 */
 	public DoipHttpServer(int port, SimulationManager simulationManager) throws IOException {
+		this(port, simulationManager, Transport.JDK);
+	}
+
+	/**
+	 * Constructs a new DoipHttpServer with a specified port and transport.
+	 *
+	 * @param port              The port on which the server will listen.
+	 * @param simulationManager The simulation manager for handling
+	 *                          simulation-related functionality.
+	 * @param transport         The transport which accepts the connections.
+	 * @throws IOException If an I/O error occurs while creating the server.
+	 */
+	public DoipHttpServer(int port, SimulationManager simulationManager, Transport transport) throws IOException {
 		this.simulationManager = simulationManager;
 
-		server = HttpServer.create(new InetSocketAddress(port), 0);
+		InetSocketAddress address = new InetSocketAddress(port);
+		if (transport == Transport.NIO) {
+			this.transport = new NioHttpTransport(address, Runtime.getRuntime().availableProcessors());
+		} else {
+			this.transport = new JdkHttpTransport(address);
+		}
+		this.transportType = transport;
 
-		handlers = new ArrayList<ContextHandler>();
+		stateMonitor = new StateMonitor(simulationManager);
 
 		this.port = port;
 		this.serverName = buildServerName(port);
@@ -109,77 +376,73 @@ public class DoipHttpServer {
 
 	/**
 	 * Adds a custom mapping context for handling HTTP requests if it does not
-	 * already exist.
+	 * already exist. The context can also be added while the server is running,
+	 * it will be used by the next request.
 	 *
 	 * @param context The context path for the mapping.
 	 * @param handler The HTTP handler for processing requests in the specified
 	 *                context.
 	 */
 	public void addMappingContext(String context, HttpHandler handler) {
-		// Check if the server is running before adding mapping context
-		if (isRunning == false) {
-			// Check if the context already exists in handlers
-			if (!contextExists(context)) {
-				handlers.add(new ContextHandler(context, handler));
-				logger.info("Added mapping context: {}", context);
-			} else {
-				logger.warn("Mapping context '{}' already exists. Not adding it again.", context);
-			}
-		} else {
-			logger.warn("Server is running. Mapping context not added.");
+		if (dispatcher.add(measured(new ContextHandler(context, handler)))) {
+			logger.info("Added mapping context: {}", context);
 		}
 	}
 
 	/**
-	 * Adds a list of custom mapping contexts for handling HTTP requests.
+	 * Adds a list of custom mapping contexts for handling HTTP requests. All
+	 * contexts become visible to requests at the same time.
 	 *
 	 * @param customHandlers The list of custom context handlers.
 	 */
 	public void createMappingContexts(List<ContextHandler> customHandlers) {
-		// Check if the server is running before creating custom mapping contexts
-		if (isRunning == false) {
-			for (ContextHandler customHandler : customHandlers) {
-				// Check if the context already exists in handlers before adding
-				if (!contextExists(customHandler.getContext())) {
-					handlers.add(customHandler);
-					logger.info("Added mapping context: {}", customHandler.getContext());
-				} else {
-					logger.warn("Mapping context '{}' already exists. Not adding it again.",
-							customHandler.getContext());
-				}
-			}
+		List<ContextHandler> measuredHandlers = new ArrayList<>(customHandlers.size());
+		for (ContextHandler contextHandler : customHandlers) {
+			measuredHandlers.add(measured(contextHandler));
+		}
+		int added = dispatcher.addAll(measuredHandlers);
+		logger.info("Added {} mapping contexts", added);
+	}
+
+	/**
+	 * Wraps the handler of a context, so its requests are recorded in the route
+	 * metrics and timed for the Server-Timing header.
+	 */
+	private ContextHandler measured(ContextHandler contextHandler) {
+		return new ContextHandler(contextHandler.getContext(),
+				new MeasuredHandler(contextHandler.getContext(), contextHandler.getHandler(), this));
+	}
+
+	/**
+	 * Removes a mapping context. Requests which are already being handled by
+	 * its handler are not affected.
+	 *
+	 * @param context The context path of the mapping.
+	 * @return true if the context has been removed, false if it did not exist.
+	 */
+	public boolean removeMappingContext(String context) {
+		boolean removed = dispatcher.remove(context);
+		if (removed) {
+			logger.info("Removed mapping context: {}", context);
 		} else {
-			logger.warn("Server is running. Custom mapping contexts not created.");
+			logger.warn("Mapping context '{}' does not exist. Nothing removed.", context);
 		}
+		return removed;
 	}
 
 	/**
-	 * Dynamically adds a custom mapping context for handling HTTP requests.
+	 * Dynamically adds a custom mapping context for handling HTTP requests. The
+	 * server does not need to be restarted for it, so requests which are in
+	 * progress are not affected.
 	 *
 	 * @param context The context path for the mapping.
 	 * @param handler The HTTP handler for processing requests in the specified
 	 *                context.
 	 */
 	public void addDynamicContext(String contextPath, HttpHandler handler) {
-		// Stop the server
-		stop();
-
-		// Modify the context configuration
 		addMappingContext(contextPath, handler);
-
-		// Restart the server
-		start();
 	}
 
-//	/**
-//	 * Adds a list of custom mapping contexts for handling HTTP requests.
-//	 *
-//	 * @param customHandlers The list of custom context handlers.
-//	 */
-//	public void createMappingContextsAll(List<ContextHandler> customHandlers) {
-//		handlers.addAll(customHandlers);
-//	}
-
 	/**
 	 * Checks if a context path already exists in the handlers.
 	 *
@@ -187,7 +450,7 @@ public class DoipHttpServer {
 	 * @return true if the context path already exists, false otherwise.
 	 */
 	public boolean contextExists(String context) {
-		return handlers.stream().anyMatch(handler -> handler.getContext().equals(context));
+		return dispatcher.contains(context);
 	}
 
 	/**
@@ -196,47 +459,127 @@ public class DoipHttpServer {
 	 * @return A list of strings representing the context paths.
 	 */
 	public List<String> getRegisteredContextPaths() {
-		return handlers.stream().map(ContextHandler::getContext).collect(Collectors.toList());
+		ContextHandler[] snapshot = dispatcher.snapshot();
+		List<String> paths = new ArrayList<>(snapshot.length);
+		for (ContextHandler contextHandler : snapshot) {
+			paths.add(contextHandler.getContext());
+		}
+		return paths;
 	}
 
 	/**
-	 * Starts the HTTP server.
+	 * Starts the HTTP server. If the server is already running nothing happens.
+	 *
+	 * @throws UncheckedIOException  If the transport could not be started.
+	 * @throws IllegalStateException If the transport can not be started again.
 	 */
 	public void start() {
-		// Set the executor before registering context handlers
-		server.setExecutor(null); // Use the default executor
+		synchronized (lock) {
+			if (isRunning) {
+				logger.warn("Server is already running.");
+				return;
+			}
+			// The executor is handed to the transport when it is started
+			executor = ServerExecutors.create(executionMode, workerThreads, queueCapacity);
+			logger.info("Transport: {}", transportType);
+			logger.info("Execution mode: {}", executionMode);
+			logger.info("Response compression: {}", responseCompression);
+
+			// Create the serializers before the first request has to wait for them
+			jsonCodec.warmUp();
+
+			// The access log filter comes first, so rejected requests are logged too
+			AccessLogFilter accessLogFilter = null;
+			if (accessLog != null) {
+				accessLog.start();
+				accessLogFilter = new AccessLogFilter(accessLog);
+			}
 
-		// Register context handlers
-		for (ContextHandler contextHandler : handlers) {
-			server.createContext(contextHandler.getContext(), contextHandler.getHandler());
-		}
+			// All requests go through the same filters, the dispatcher selects the handler
+			List<Filter> filters = new ArrayList<>();
+			if (accessLogFilter != null) {
+				filters.add(accessLogFilter);
+			}
+			filters.add(loadSheddingFilter);
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put(ResponseCompression.ATTRIBUTE, responseCompression);
 
-		// Log the registered contexts and handlers
-		logRegisteredHandlers();
+			// Log the registered contexts and handlers
+			logRegisteredHandlers();
 
-		synchronized (lock) {
+			boolean transportStarted = false;
 			try {
-				if (server != null && !isRunning) {
-					server.start();
-					logger.info("Server is running on port {}.", server.getAddress().getPort());
-					isRunning = true;
-				}
-			} catch (Exception e) {
+				transport.start(dispatcher, filters, attributes, executor);
+				transportStarted = true;
+				stateMonitor.start();
+			} catch (IOException | RuntimeException e) {
 				logger.error("Error starting the server: {}", e.getMessage(), e);
+				// Nothing must be left running while the server is not running
+				if (transportStarted) {
+					transport.stop(0);
+				}
+				if (executor != null) {
+					executor.shutdownNow();
+					executor = null;
+				}
+				if (accessLog != null) {
+					accessLog.stop();
+				}
+				if (e instanceof IOException) {
+					throw new UncheckedIOException("Error starting the server", (IOException) e);
+				}
+				throw (RuntimeException) e;
+			}
+			if (serverTimingEnabled) {
+				ServerTiming.enable();
 			}
+			logger.info("Server is running on port {}.", transport.getAddress().getPort());
+			isRunning = true;
 		}
 	}
 
 	/**
-	 * Stops the HTTP server.
+	 * Registers a task which is executed once when the server is stopped, after
+	 * the StateMonitor and the transport have been stopped. Handlers which own
+	 * threads register the shutdown of their pools here.
+	 *
+	 * @param task The task.
+	 */
+	public void addStopTask(Runnable task) {
+		stopTasks.add(task);
+	}
+
+	/**
+	 * Stops the HTTP server. The stop tasks are executed even if the server has
+	 * never been started, so a server which is not used anymore does not leave
+	 * any threads behind.
 	 */
 	public void stop() {
 		synchronized (lock) {
-			if (server != null && isRunning) {
-				server.stop(0);
+			if (isRunning) {
+				stateMonitor.stop();
+				transport.stop(0);
+				if (serverTimingEnabled) {
+					ServerTiming.disable();
+				}
+				if (executor != null) {
+					executor.shutdown();
+					executor = null;
+				}
+				if (accessLog != null) {
+					accessLog.stop();
+				}
 				logger.info("Server stopped.");
 				isRunning = false;
 			}
+			for (Runnable task : stopTasks) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					logger.error("Error executing a stop task: {}", e.getMessage(), e);
+				}
+			}
+			stopTasks.clear();
 		}
 	}
 
@@ -245,7 +588,7 @@ public class DoipHttpServer {
 	 */
 	private void logRegisteredHandlers() {
 		logger.info("Registered Handlers:");
-		for (ContextHandler contextHandler : handlers) {
+		for (ContextHandler contextHandler : dispatcher.snapshot()) {
 			logger.info("Context: {}, Handler: {}", contextHandler.getContext(), contextHandler.getHandler());
 		}
 	}
@@ -1,8 +1,20 @@
 package doip.simulation.http;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,6 +24,8 @@ import doip.library.properties.EmptyPropertyValue;
 import doip.library.properties.MissingProperty;
 import doip.simulation.PlatformConfig;
 import doip.simulation.api.Platform;
+import doip.simulation.http.helpers.JsonCodec;
+import doip.simulation.http.helpers.ResponseCompression;
 import doip.simulation.standard.StandardPlatform;
 import doip.simulation.standard.StandardSimulationManager;
 
@@ -21,6 +35,38 @@ public class DoipHttpServerBuilder {
 	
 	private List<doip.simulation.api.Platform> platforms = new ArrayList<>();
 	
+	private Transport transport = Transport.JDK;
+	
+	private ExecutionMode executionMode = ExecutionMode.DISPATCHER_THREAD;
+	
+	private int workerThreads = DoipHttpServer.DEFAULT_WORKER_THREADS;
+	
+	private int queueCapacity = DoipHttpServer.DEFAULT_QUEUE_CAPACITY;
+	
+	private boolean responseCacheEnabled = true;
+	
+	private boolean streamingEnabled = false;
+	
+	private int actionParallelism = SimulationConnector.DEFAULT_ACTION_PARALLELISM;
+	
+	private int jobThreads = ActionJobs.DEFAULT_THREADS;
+	
+	private boolean bytecodeAccessors = false;
+	
+	private boolean accessLogEnabled = true;
+	
+	private boolean metricsEnabled = true;
+	
+	private boolean serverTimingEnabled = false;
+	
+	private double accessLogBodySampleRate = 0;
+	
+	private int accessLogMaxBodySize = AccessLog.DEFAULT_MAX_BODY_SIZE;
+	
+	private ResponseCompression responseCompression = ResponseCompression.DEFAULT;
+	
+	private int loadParallelism = Runtime.getRuntime().availableProcessors();
+	
 	public static DoipHttpServerBuilder newBuilder() {
 		String method = "public static DoipHttpServerBuilder newBuilder()";
 		logger.trace(">>> {}", method);
@@ -62,6 +108,329 @@ public class DoipHttpServerBuilder {
 		return this;
 	}
 	
+	/**
+	 * Loads the platform configurations from the given files and creates the
+	 * platforms in parallel on a fork-join pool. The platforms are added in the
+	 * order of the files. If any file can not be loaded, no platform will be
+	 * added and the errors of all files are reported together.
+	 * Note that {@link #createPlatform(PlatformConfig)} will be called
+	 * concurrently.
+	 * @param filenames The platform configuration files
+	 * @return
+	 * @throws PlatformLoadException If one or more files could not be loaded
+	 */
+	public DoipHttpServerBuilder addPlatforms(List<String> filenames) throws PlatformLoadException {
+		String method = "public DoipHttpServerBuilder addPlatforms(List<String> filenames)";
+		try {
+			logger.trace(">>> {}", method);
+			List<Callable<Platform>> tasks = new ArrayList<>(filenames.size());
+			for (String filename : filenames) {
+				tasks.add(() -> {
+					PlatformConfig config = new PlatformConfig();
+					config.loadFromFile(filename);
+					return createPlatform(config);
+				});
+			}
+			
+			List<Platform> loaded = new ArrayList<>(filenames.size());
+			Map<String, Throwable> failures = new LinkedHashMap<>();
+			ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(loadParallelism, filenames.size())));
+			try {
+				List<Future<Platform>> futures = pool.invokeAll(tasks);
+				for (int i = 0; i < futures.size(); i++) {
+					try {
+						loaded.add(futures.get(i).get());
+					} catch (ExecutionException e) {
+						logger.error("Failed to load platform from file {}: {}", filenames.get(i),
+								e.getCause().getMessage());
+						failures.put(filenames.get(i), e.getCause());
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failures.put(filenames.get(i), e);
+					}
+				}
+			} finally {
+				pool.shutdown();
+			}
+			
+			if (!failures.isEmpty()) {
+				throw logger.throwing(new PlatformLoadException(failures, filenames.size()));
+			}
+			this.platforms.addAll(loaded);
+			logger.info("Loaded {} platforms", loaded.size());
+		} finally {
+			logger.trace("<<< {}", method);
+		}
+		return this;
+	}
+	
+	/**
+	 * Loads all platform configurations in a directory in parallel, see
+	 * {@link #addPlatforms(List)}. A file is a platform configuration if its
+	 * name ends with ".properties" and it contains the property "gateway.files",
+	 * so the configurations of gateways and ECUs in the same directory are
+	 * skipped. The platforms are added in the order of the file names.
+	 * @param directory The directory which contains the configuration files
+	 * @return
+	 * @throws IOException If the directory can not be read
+	 * @throws PlatformLoadException If one or more files could not be loaded
+	 */
+	public DoipHttpServerBuilder addPlatformsFromDirectory(String directory)
+			throws IOException, PlatformLoadException {
+		String method = "public DoipHttpServerBuilder addPlatformsFromDirectory(String directory)";
+		try {
+			logger.trace(">>> {}", method);
+			List<String> filenames = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(directory), "*.properties")) {
+				for (Path path : stream) {
+					if (isPlatformConfig(path)) {
+						filenames.add(path.toString());
+					}
+				}
+			}
+			filenames.sort(null);
+			logger.info("Found {} platform configurations in directory {}", filenames.size(), directory);
+			this.addPlatforms(filenames);
+		} finally {
+			logger.trace("<<< {}", method);
+		}
+		return this;
+	}
+	
+	private static boolean isPlatformConfig(Path path) throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(path)) {
+			properties.load(in);
+		}
+		return properties.containsKey("gateway.files");
+	}
+	
+	/**
+	 * Sets the maximum number of threads which load platform configurations
+	 * at the same time in {@link #addPlatforms(List)}. The default is the
+	 * number of processors.
+	 * @param parallelism
+	 * @return
+	 */
+	public DoipHttpServerBuilder loadParallelism(int parallelism) {
+		String method = "public DoipHttpServerBuilder loadParallelism(int parallelism)";
+		logger.trace(">>> {}", method);
+		if (parallelism < 1) {
+			throw logger.throwing(new IllegalArgumentException("The parallelism must be greater than 0"));
+		}
+		this.loadParallelism = parallelism;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Sets the transport which accepts the connections and parses the
+	 * requests. The default is the HTTP server of the JDK.
+	 * @param transport
+	 * @return
+	 */
+	public DoipHttpServerBuilder transport(Transport transport) {
+		String method = "public DoipHttpServerBuilder transport(Transport transport)";
+		logger.trace(">>> {}", method);
+		this.transport = transport;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Sets the mode which defines on which threads the HTTP exchanges will be
+	 * executed.
+	 * @param executionMode
+	 * @return
+	 */
+	public DoipHttpServerBuilder executionMode(ExecutionMode executionMode) {
+		String method = "public DoipHttpServerBuilder executionMode(ExecutionMode executionMode)";
+		logger.trace(">>> {}", method);
+		this.executionMode = executionMode;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Sets the number of worker threads and the maximum number of waiting
+	 * requests for execution mode BOUNDED_POOL. When the queue is full further
+	 * requests will be answered with "503 Service Unavailable".
+	 * @param workerThreads
+	 * @param queueCapacity
+	 * @return
+	 */
+	public DoipHttpServerBuilder workerPool(int workerThreads, int queueCapacity) {
+		String method = "public DoipHttpServerBuilder workerPool(int workerThreads, int queueCapacity)";
+		logger.trace(">>> {}", method);
+		this.workerThreads = workerThreads;
+		this.queueCapacity = queueCapacity;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables the cache for serialized responses. It is enabled by
+	 * default.
+	 * @param enabled
+	 * @return
+	 */
+	public DoipHttpServerBuilder responseCache(boolean enabled) {
+		String method = "public DoipHttpServerBuilder responseCache(boolean enabled)";
+		logger.trace(">>> {}", method);
+		this.responseCacheEnabled = enabled;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables streaming of large responses. If enabled, the JSON of
+	 * a gateway will be written directly to the response with chunked transfer
+	 * encoding instead of building it in memory. Streamed responses are not
+	 * cached and do not have an ETag. It is disabled by default.
+	 * @param enabled
+	 * @return
+	 */
+	public DoipHttpServerBuilder streamingResponses(boolean enabled) {
+		String method = "public DoipHttpServerBuilder streamingResponses(boolean enabled)";
+		logger.trace(">>> {}", method);
+		this.streamingEnabled = enabled;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of platforms which will be started or stopped at
+	 * the same time by a request to "/doip-simulation/actions".
+	 * @param parallelism
+	 * @return
+	 */
+	public DoipHttpServerBuilder actionParallelism(int parallelism) {
+		String method = "public DoipHttpServerBuilder actionParallelism(int parallelism)";
+		logger.trace(">>> {}", method);
+		this.actionParallelism = parallelism;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Sets the number of asynchronous action jobs which run at the same time.
+	 * Further jobs wait until a thread is available.
+	 * @param threads
+	 * @return
+	 */
+	public DoipHttpServerBuilder jobThreads(int threads) {
+		String method = "public DoipHttpServerBuilder jobThreads(int threads)";
+		logger.trace(">>> {}", method);
+		this.jobThreads = threads;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables bytecode generated accessors for the JSON
+	 * serialization. If enabled, the Blackbird module will be registered at the
+	 * shared JSON codec, so the properties of the DTOs will be accessed by
+	 * generated lambdas instead of reflection. It is disabled by default.
+	 * @param enabled
+	 * @return
+	 */
+	public DoipHttpServerBuilder bytecodeAccessors(boolean enabled) {
+		String method = "public DoipHttpServerBuilder bytecodeAccessors(boolean enabled)";
+		logger.trace(">>> {}", method);
+		this.bytecodeAccessors = enabled;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables the access log which writes one record per request to
+	 * the logger "doip.simulation.http.access". It is enabled by default.
+	 * @param enabled
+	 * @return
+	 */
+	public DoipHttpServerBuilder accessLog(boolean enabled) {
+		String method = "public DoipHttpServerBuilder accessLog(boolean enabled)";
+		logger.trace(">>> {}", method);
+		this.accessLogEnabled = enabled;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables the latency histograms and counters of the requests
+	 * which are served at "/doip-simulation/metrics". They are enabled by
+	 * default.
+	 * @param enabled
+	 * @return
+	 */
+	public DoipHttpServerBuilder metrics(boolean enabled) {
+		String method = "public DoipHttpServerBuilder metrics(boolean enabled)";
+		logger.trace(">>> {}", method);
+		this.metricsEnabled = enabled;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables the "Server-Timing" response header which splits the
+	 * time of a request into phases, e.g. resolving the gateway, mapping and
+	 * serialization. The phases are also written to the access log. It is
+	 * disabled by default.
+	 * @param enabled
+	 * @return
+	 */
+	public DoipHttpServerBuilder serverTiming(boolean enabled) {
+		String method = "public DoipHttpServerBuilder serverTiming(boolean enabled)";
+		logger.trace(">>> {}", method);
+		this.serverTimingEnabled = enabled;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Enables logging of response bodies in the access log for a fraction of
+	 * the requests. Bodies are not logged by default.
+	 * @param sampleRate Fraction of the requests from 0 (never) to 1 (always)
+	 * @param maxBodySize Maximum number of logged bytes of a body
+	 * @return
+	 */
+	public DoipHttpServerBuilder accessLogBodySampling(double sampleRate, int maxBodySize) {
+		String method = "public DoipHttpServerBuilder accessLogBodySampling(double sampleRate, int maxBodySize)";
+		logger.trace(">>> {}", method);
+		this.accessLogBodySampleRate = sampleRate;
+		this.accessLogMaxBodySize = maxBodySize;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Sets the compression of response bodies. Bodies will be compressed with
+	 * gzip or deflate if the client accepts it and if the body has at least the
+	 * given size.
+	 * @param level Compression level from 1 (fastest) to 9 (smallest)
+	 * @param minSize Minimum size of a body in bytes which will be compressed
+	 * @return
+	 */
+	public DoipHttpServerBuilder compression(int level, int minSize) {
+		String method = "public DoipHttpServerBuilder compression(int level, int minSize)";
+		logger.trace(">>> {}", method);
+		this.responseCompression = new ResponseCompression(level, minSize);
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
+	/**
+	 * Disables the compression of response bodies.
+	 * @return
+	 */
+	public DoipHttpServerBuilder disableCompression() {
+		String method = "public DoipHttpServerBuilder disableCompression()";
+		logger.trace(">>> {}", method);
+		this.responseCompression = ResponseCompression.DISABLED;
+		logger.trace("<<< {}", method);
+		return this;
+	}
+	
 	/**
 	 * Creates a new instance of StandardPlatform. This method can be overridden
 	 * when a different platform shall be created instead of StandardPlatorm.
@@ -89,13 +458,49 @@ public class DoipHttpServerBuilder {
 			for (Platform platform : this.platforms) {
 				simulationManager.addPlatform(platform);
 			}
+			// Each server gets its own codec, the shared default is only used if it fits
+			JsonCodec jsonCodec = JsonCodec.getDefault().isBytecodeAccessors() == bytecodeAccessors
+					? JsonCodec.getDefault()
+					: new JsonCodec(bytecodeAccessors);
 			SimulationConnector simulationConnector = new SimulationConnector(simulationManager, "http://localhost:8080");
-			SimulationOverviewHandler rootHandler = new SimulationOverviewHandler(simulationConnector);
-			PlatformOverviewHandler platformHandler = new PlatformOverviewHandler(simulationConnector);
+			simulationConnector.setJsonCodec(jsonCodec);
+			simulationConnector.setResponseCacheEnabled(responseCacheEnabled);
+			simulationConnector.setStreamingEnabled(streamingEnabled);
+			simulationConnector.setActionParallelism(actionParallelism);
 			
-			server = new DoipHttpServer(simulationManager);
+			server = new DoipHttpServer(simulationManager, transport);
+			server.setJsonCodec(jsonCodec);
+			server.addStopTask(simulationConnector::shutdown);
+			SimulationOverviewHandler rootHandler = new SimulationOverviewHandler(simulationConnector);
+			PlatformOverviewHandler platformHandler = new PlatformOverviewHandler(simulationConnector,
+					server.getStateMonitor());
+			ActionJobs actionJobs = new ActionJobs(simulationConnector, jobThreads);
+			server.getStateMonitor().addListener(actionJobs);
+			server.addStopTask(actionJobs::shutdown);
+			simulationConnector.enableStateIndex(server.getStateMonitor());
+			platformHandler.setActionJobs(actionJobs);
+			server.addStopTask(platformHandler::shutdown);
+			server.setExecutionMode(executionMode);
+			server.setWorkerPoolSize(workerThreads, queueCapacity);
+			server.setResponseCompression(responseCompression);
+			server.setServerTimingEnabled(serverTimingEnabled);
+			if (accessLogEnabled) {
+				server.getAccessLog().setBodySampling(accessLogBodySampleRate, accessLogMaxBodySize);
+			} else {
+				server.setAccessLog(null);
+			}
 			server.addMappingContext(SimulationOverviewHandler.RESOURCE_PATH, rootHandler);
 			server.addMappingContext(PlatformOverviewHandler.RESOURCE_PATH, platformHandler);
+			server.addMappingContext(ActionsHandler.RESOURCE_PATH, new ActionsHandler(simulationConnector));
+			server.addMappingContext(JobsHandler.RESOURCE_PATH, new JobsHandler(simulationConnector, actionJobs));
+			EventStreamHandler eventStreamHandler = new EventStreamHandler(server.getStateMonitor());
+			server.addStopTask(eventStreamHandler::shutdown);
+			server.addMappingContext(EventStreamHandler.RESOURCE_PATH, eventStreamHandler);
+			server.getRouteMetrics().setEnabled(metricsEnabled);
+			if (metricsEnabled) {
+				server.addMappingContext(MetricsHandler.RESOURCE_PATH,
+						new MetricsHandler(server.getRouteMetrics(), jsonCodec));
+			}
 		} finally {
 			logger.trace("<<< {}", method);
 		}
@@ -0,0 +1,362 @@
+package doip.simulation.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import doip.simulation.http.helpers.JsonCodec;
+
+/**
+ * Define a handler for the "/doip-simulation/events" path. It sends a stream
+ * of Server-Sent Events with one event per change of the state of a platform
+ * or gateway, e.g.
+ *
+ * <pre>
+ * id: 7
+ * event: state
+ * data: {"seq":7,"platform":"X2024","gateway":"GW","previous":"STOPPED","state":"RUNNING","time":1700000000000}
+ * </pre>
+ *
+ * After connecting, a client first receives the current state of each
+ * platform and gateway.
+ * <p>
+ * Each event is serialized once and then queued for every subscriber. The
+ * queue of a subscriber holds at most one event per platform or gateway: if a
+ * client is too slow, a newer event replaces the older event of the same
+ * platform or gateway which has not been sent yet. If the queue still grows
+ * beyond its limit, or if a write to the client blocks for longer than two
+ * heartbeat intervals, the subscriber will be disconnected. The events are
+ * written by a separate pool of threads, so a slow client never stalls the
+ * StateMonitor or other clients.
+ */
+public class EventStreamHandler implements HttpHandler, StateListener {
+
+	private static Logger logger = LogManager.getLogger(EventStreamHandler.class);
+
+	public static final String RESOURCE_PATH = "/doip-simulation/events";
+
+	public static final int DEFAULT_MAX_SUBSCRIBERS = 256;
+
+	public static final int DEFAULT_MAX_PENDING_EVENTS = 1024;
+
+	public static final long HEARTBEAT_INTERVAL_SECONDS = 15;
+
+	private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.US_ASCII);
+
+	private static final String HEARTBEAT_KEY = "";
+
+	/**
+	 * A client which has not accepted a write for this time will be
+	 * disconnected.
+	 */
+	static final long STALLED_WRITE_NANOS = TimeUnit.SECONDS.toNanos(2 * HEARTBEAT_INTERVAL_SECONDS);
+
+	private final StateMonitor stateMonitor;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	private final ExecutorService writers = Executors
+			.newCachedThreadPool(ServerExecutors.namedThreadFactory("doip-http-sse"));
+
+	private final ScheduledExecutorService heartbeat = Executors
+			.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("doip-http-sse-heartbeat"));
+
+	private final int maxSubscribers;
+
+	private final int maxPendingEvents;
+
+	public EventStreamHandler(StateMonitor stateMonitor) {
+		this(stateMonitor, DEFAULT_MAX_SUBSCRIBERS, DEFAULT_MAX_PENDING_EVENTS);
+	}
+
+	/**
+	 * Constructs a new handler and registers it at the StateMonitor.
+	 *
+	 * @param stateMonitor     The monitor which detects the state changes.
+	 * @param maxSubscribers   The maximum number of connected clients. Further
+	 *                         clients will be answered with "503 Service
+	 *                         Unavailable".
+	 * @param maxPendingEvents The maximum number of events which have not been
+	 *                         sent to a client. If it is exceeded the client
+	 *                         will be disconnected.
+	 */
+	public EventStreamHandler(StateMonitor stateMonitor, int maxSubscribers, int maxPendingEvents) {
+		if (maxSubscribers < 1 || maxPendingEvents < 1) {
+			throw new IllegalArgumentException("Maximum subscribers and pending events must be greater than 0");
+		}
+		this.stateMonitor = stateMonitor;
+		this.maxSubscribers = maxSubscribers;
+		this.maxPendingEvents = maxPendingEvents;
+		stateMonitor.addListener(this);
+		heartbeat.scheduleAtFixedRate(this::sendHeartbeat, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS,
+				TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Gets the number of connected clients.
+	 *
+	 * @return The number of subscribers.
+	 */
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Disconnects all clients and stops the threads of the handler. It is
+	 * called when the server is stopped.
+	 */
+	public void shutdown() {
+		heartbeat.shutdownNow();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.close();
+		}
+		writers.shutdown();
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		if (!"GET".equals(exchange.getRequestMethod())) {
+			logger.error("Method not allowed. Received a {} request.", exchange.getRequestMethod());
+			exchange.getResponseHeaders().set("Allow", "GET");
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+			exchange.close();
+			return;
+		}
+		if (subscribers.size() >= maxSubscribers) {
+			logger.warn("Maximum number of {} event stream subscribers reached", maxSubscribers);
+			exchange.getResponseHeaders().set("Retry-After", Long.toString(HEARTBEAT_INTERVAL_SECONDS));
+			exchange.sendResponseHeaders(LoadSheddingFilter.HTTP_SERVICE_UNAVAILABLE, -1);
+			exchange.close();
+			return;
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+
+		// Subscribe before taking the snapshot, so no change gets lost between
+		// both. A change which is contained in both will be coalesced.
+		// The stream is recorded by the access log and the metrics when it ends
+		Subscriber subscriber = new Subscriber(exchange, ResponseCompletion.defer());
+		subscribers.add(subscriber);
+		logger.info("Event stream subscriber connected from {}", exchange.getRemoteAddress());
+		for (StateChangeEvent event : stateMonitor.snapshot()) {
+			subscriber.offer(event.getKey(), encode(event));
+		}
+		// The exchange stays open, it will be closed when the client disconnects
+		// or the server is stopped
+	}
+
+	@Override
+	public void stateChanged(StateChangeEvent event) {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+		byte[] frame = encode(event);
+		String key = event.getKey();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.offer(key, frame);
+		}
+	}
+
+	@Override
+	public void monitorStopped() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.close();
+		}
+	}
+
+	private void sendHeartbeat() {
+		sendHeartbeat(System.nanoTime());
+	}
+
+	/**
+	 * Disconnects the subscribers whose writes have stalled and sends a
+	 * heartbeat to all others.
+	 *
+	 * @param now The current value of System.nanoTime().
+	 */
+	void sendHeartbeat(long now) {
+		for (Subscriber subscriber : subscribers) {
+			if (subscriber.isStalled(now)) {
+				// Closing the exchange also unblocks the writer thread
+				logger.warn("Event stream subscriber {} does not read anymore, disconnecting it",
+						subscriber.exchange.getRemoteAddress());
+				subscriber.close();
+			} else {
+				subscriber.offer(HEARTBEAT_KEY, HEARTBEAT);
+			}
+		}
+	}
+
+	/**
+	 * Serializes an event in the format of Server-Sent Events.
+	 *
+	 * @param event The event.
+	 * @return The bytes which will be sent to the clients.
+	 */
+	static byte[] encode(StateChangeEvent event) {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(160);
+			out.write(("id: " + event.getSequence() + "\nevent: state\ndata: ").getBytes(StandardCharsets.US_ASCII));
+			try (JsonGenerator generator = JsonCodec.getDefault().createGenerator(out)) {
+				generator.writeStartObject();
+				generator.writeNumberField("seq", event.getSequence());
+				generator.writeStringField("platform", event.getPlatform());
+				if (event.getGateway() != null) {
+					generator.writeStringField("gateway", event.getGateway());
+				}
+				if (event.getPreviousState() != null) {
+					generator.writeStringField("previous", event.getPreviousState().name());
+				}
+				generator.writeStringField("state", event.getState().name());
+				generator.writeNumberField("time", event.getTimestamp());
+				generator.writeEndObject();
+			}
+			out.write('\n');
+			out.write('\n');
+			return out.toByteArray();
+		} catch (IOException e) {
+			// Can not happen when writing to a ByteArrayOutputStream
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * A connected client with its queue of events which have not been sent yet.
+	 */
+	private final class Subscriber implements Runnable {
+
+		private final HttpExchange exchange;
+
+		private final OutputStream out;
+
+		private final ResponseCompletion completion;
+
+		/**
+		 * The events which have not been sent yet, with at most one event per
+		 * platform or gateway. Guarded by this.
+		 */
+		private final LinkedHashMap<String, byte[]> pending = new LinkedHashMap<>();
+
+		/**
+		 * True while a writer thread has been scheduled for this subscriber.
+		 * Guarded by this.
+		 */
+		private boolean scheduled = false;
+
+		private boolean closed = false;
+
+		/**
+		 * The time when the current write has started, 0 if no write is in
+		 * progress.
+		 */
+		private volatile long writingSince = 0;
+
+		private Subscriber(HttpExchange exchange, ResponseCompletion completion) {
+			this.exchange = exchange;
+			this.out = exchange.getResponseBody();
+			this.completion = completion;
+		}
+
+		private void offer(String key, byte[] frame) {
+			boolean overflow = false;
+			boolean submit = false;
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				// Remove first, so the replaced event moves to the end of the queue
+				pending.remove(key);
+				pending.put(key, frame);
+				if (pending.size() > maxPendingEvents) {
+					overflow = true;
+				} else if (!scheduled) {
+					scheduled = true;
+					submit = true;
+				}
+			}
+			if (overflow) {
+				logger.warn("Event stream subscriber {} is too slow, disconnecting it", exchange.getRemoteAddress());
+				close();
+			} else if (submit) {
+				try {
+					writers.execute(this);
+				} catch (RejectedExecutionException e) {
+					close();
+				}
+			}
+		}
+
+		/**
+		 * Checks whether a write to the client has been blocked for too long,
+		 * e.g. because the client does not read anymore.
+		 */
+		private boolean isStalled(long now) {
+			long since = writingSince;
+			return since != 0 && now - since > STALLED_WRITE_NANOS;
+		}
+
+		@Override
+		public void run() {
+			List<byte[]> frames = new ArrayList<>();
+			while (true) {
+				synchronized (this) {
+					if (closed || pending.isEmpty()) {
+						scheduled = false;
+						return;
+					}
+					frames.addAll(pending.values());
+					pending.clear();
+				}
+				writingSince = System.nanoTime();
+				try {
+					for (byte[] frame : frames) {
+						out.write(frame);
+					}
+					out.flush();
+				} catch (IOException e) {
+					logger.info("Event stream subscriber {} disconnected", exchange.getRemoteAddress());
+					close();
+					return;
+				} finally {
+					writingSince = 0;
+				}
+				frames.clear();
+			}
+		}
+
+		private void close() {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				pending.clear();
+			}
+			subscribers.remove(this);
+			exchange.close();
+			completion.complete();
+		}
+	}
+}
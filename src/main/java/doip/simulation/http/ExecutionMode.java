@@ -0,0 +1,29 @@
+package doip.simulation.http;
+
+/**
+ * Defines on which threads the {@link DoipHttpServer} executes the HTTP
+ * exchanges.
+ */
+public enum ExecutionMode {
+
+	/**
+	 * All exchanges are executed one after another by the dispatcher thread of
+	 * the JDK HTTP server, or by the selector thread of the connection with
+	 * {@link Transport#NIO}. A slow request blocks all other requests on that
+	 * thread.
+	 */
+	DISPATCHER_THREAD,
+
+	/**
+	 * Each exchange is executed on its own virtual thread. On JVMs without
+	 * virtual threads a cached pool of platform threads is used instead.
+	 */
+	VIRTUAL_THREADS,
+
+	/**
+	 * The exchanges are executed by a fixed number of worker threads. Waiting
+	 * exchanges are kept in a bounded queue. When the queue is full new
+	 * exchanges are answered with "503 Service Unavailable".
+	 */
+	BOUNDED_POOL
+}
@@ -0,0 +1,47 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The part of the {@link DoipHttpServer} which accepts the connections and
+ * turns the requests into HttpExchanges. All exchanges are passed through the
+ * filters to a single handler, which dispatches them to the handlers of the
+ * contexts. The transport is bound to its port when it is created.
+ */
+interface HttpTransport {
+
+	/**
+	 * Starts accepting connections.
+	 *
+	 * @param handler    The handler of all exchanges.
+	 * @param filters    The filters which are applied before the handler.
+	 * @param attributes The attributes which are visible in all exchanges.
+	 * @param executor   The executor of the exchanges, or null if they shall
+	 *                   be executed by the thread of the transport.
+	 * @throws IOException If the transport could not be started.
+	 */
+	void start(HttpHandler handler, List<Filter> filters, Map<String, Object> attributes, Executor executor)
+			throws IOException;
+
+	/**
+	 * Stops accepting connections and closes all connections.
+	 *
+	 * @param delaySeconds The maximum time to wait until the current exchanges
+	 *                     have finished.
+	 */
+	void stop(int delaySeconds);
+
+	/**
+	 * Gets the address to which the transport is bound.
+	 *
+	 * @return The address.
+	 */
+	InetSocketAddress getAddress();
+}
@@ -0,0 +1,53 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Transport with the HTTP server of the JDK. All requests go through its root
+ * context.
+ */
+class JdkHttpTransport implements HttpTransport {
+
+	private final HttpServer server;
+
+	/**
+	 * The single context of the HTTP server, null until the server is started
+	 * for the first time.
+	 */
+	private HttpContext rootContext = null;
+
+	JdkHttpTransport(InetSocketAddress address) throws IOException {
+		server = HttpServer.create(address, 0);
+	}
+
+	@Override
+	public void start(HttpHandler handler, List<Filter> filters, Map<String, Object> attributes, Executor executor) {
+		server.setExecutor(executor); // null means the default executor
+		if (rootContext == null) {
+			rootContext = server.createContext("/", handler);
+		}
+		rootContext.getFilters().clear();
+		rootContext.getFilters().addAll(filters);
+		rootContext.getAttributes().putAll(attributes);
+		server.start();
+	}
+
+	@Override
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+	}
+
+	@Override
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+}
@@ -0,0 +1,76 @@
+package doip.simulation.http;
+
+import java.util.List;
+
+import doip.simulation.api.ServiceState;
+import doip.simulation.http.lib.Action;
+
+/**
+ * State of an asynchronous action job as it is returned by
+ * "GET /doip-simulation/jobs/{id}".
+ */
+public class JobStatus {
+
+	public enum State {
+		/**
+		 * The job is waiting for a thread.
+		 */
+		PENDING,
+
+		RUNNING,
+
+		SUCCEEDED,
+
+		FAILED
+	}
+
+	public String id;
+
+	public String url;
+
+	public String platform;
+
+	public Action action;
+
+	public State state;
+
+	/**
+	 * Number of gateways which have finished the action.
+	 */
+	public int completedGateways;
+
+	public int totalGateways;
+
+	/**
+	 * Time in milliseconds the job has been waiting for a thread.
+	 */
+	public Long queuedMillis;
+
+	/**
+	 * Time in milliseconds the job has been running, up to now if it is still
+	 * running.
+	 */
+	public Long durationMillis;
+
+	public String error;
+
+	public List<GatewayProgress> gateways;
+
+	/**
+	 * Progress of a single gateway.
+	 */
+	public static class GatewayProgress {
+
+		public String name;
+
+		public ServiceState state;
+
+		/**
+		 * Time in milliseconds from the start of the job until the gateway has
+		 * reached its new state, null if it has not been reached yet.
+		 */
+		public Long latencyMillis;
+
+		public String error;
+	}
+}
@@ -0,0 +1,110 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import doip.simulation.http.helpers.HttpServerHelper;
+import doip.simulation.http.helpers.PathParameters;
+import doip.simulation.http.helpers.RouteHandler;
+import doip.simulation.http.helpers.RouteMatch;
+import doip.simulation.http.helpers.RouteTable;
+
+/**
+ * Define a handler for the "/doip-simulation/jobs" path which returns the
+ * state of asynchronous action jobs.
+ */
+public class JobsHandler implements HttpHandler {
+
+	private static Logger logger = LogManager.getLogger(JobsHandler.class);
+
+	public static final String RESOURCE_PATH = "/doip-simulation/jobs";
+
+	private final SimulationConnector simulationConnector;
+
+	private final ActionJobs actionJobs;
+
+	/**
+	 * Routes of this handler.
+	 */
+	private final RouteTable<RouteHandler> routes = new RouteTable<RouteHandler>()
+			.add("GET", RESOURCE_PATH, this::handleGetJobsRequest)
+			.add("GET", RESOURCE_PATH + "/{job}", this::handleGetJobRequest);
+
+	public JobsHandler(SimulationConnector simulationConnector, ActionJobs actionJobs) {
+		this.simulationConnector = simulationConnector;
+		this.actionJobs = actionJobs;
+	}
+
+	/**
+	 * Handle method for processing incoming HTTP requests
+	 * /doip-simulation/jobs (GET)
+	 * /doip-simulation/jobs/{id} (GET)
+	 */
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		String requestPath = exchange.getRequestURI().getPath();
+		String requestMethod = exchange.getRequestMethod();
+
+		RouteMatch<RouteHandler> match = routes.match(requestMethod, requestPath);
+		switch (match.getResult()) {
+		case FOUND:
+			RouteMetrics.setCurrentRoute(match.getTemplate());
+			match.getHandler().handle(exchange, match.getParameters());
+			break;
+		case METHOD_NOT_ALLOWED:
+			logger.error("Method not allowed. Received a {} request.", requestMethod);
+			exchange.getResponseHeaders().set("Allow", match.getAllowedMethods());
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+			break;
+		default:
+			logger.error("No resource found for path {}", requestPath);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			break;
+		}
+	}
+
+	private void handleGetJobsRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
+		List<JobStatus> statuses = new ArrayList<>();
+		for (ActionJob job : actionJobs.list()) {
+			statuses.add(job.toStatus(getJobUrl(exchange, job.getId())));
+		}
+		sendJson(exchange, statuses);
+	}
+
+	private void handleGetJobRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
+		String id = parameters.get("job");
+		ActionJob job = actionJobs.get(id);
+		if (job == null) {
+			logger.error("Job {} not found", id);
+			String errorMessage = String.format("The job %s does not exist", id);
+			HttpServerHelper.sendResponse(exchange, simulationConnector.buildJsonErrorResponse(errorMessage),
+					"application/json", HttpURLConnection.HTTP_NOT_FOUND);
+			return;
+		}
+		sendJson(exchange, job.toStatus(getJobUrl(exchange, id)));
+	}
+
+	private void sendJson(HttpExchange exchange, Object value) throws IOException {
+		try {
+			String jsonResponse = simulationConnector.getJsonCodec().writeAsString(value);
+			HttpServerHelper.sendResponse(exchange, jsonResponse, "application/json", HttpURLConnection.HTTP_OK);
+			HttpServerHelper.responseServerLogging(exchange, HttpURLConnection.HTTP_OK, jsonResponse);
+		} catch (IOException e) {
+			logger.error("I/O error processing request: {}", e.getMessage());
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1); // Internal Server Error
+		}
+	}
+
+	private String getJobUrl(HttpExchange exchange, String id) {
+		String serverName = simulationConnector.getServerName(HttpServerHelper.getHostWithPort(exchange));
+		return serverName + RESOURCE_PATH + "/" + id;
+	}
+}
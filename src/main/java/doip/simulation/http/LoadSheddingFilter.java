@@ -0,0 +1,42 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Answers exchanges which have been rejected by the {@link BoundedWorkerPool}
+ * with "503 Service Unavailable" and a Retry-After header. All other exchanges
+ * are passed to the handler of the context.
+ */
+class LoadSheddingFilter extends Filter {
+
+	private static Logger logger = LogManager.getLogger(LoadSheddingFilter.class);
+
+	static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+	@Override
+	public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+		Integer retryAfter = BoundedWorkerPool.getRetryAfterOfRejectedExchange();
+		if (retryAfter == null) {
+			chain.doFilter(exchange);
+			return;
+		}
+		logger.debug("Send 503 for {} {}", exchange.getRequestMethod(), exchange.getRequestURI());
+		try {
+			exchange.getResponseHeaders().set("Retry-After", retryAfter.toString());
+			exchange.sendResponseHeaders(HTTP_SERVICE_UNAVAILABLE, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public String description() {
+		return "Answers requests rejected by the worker pool with 503 Service Unavailable";
+	}
+}
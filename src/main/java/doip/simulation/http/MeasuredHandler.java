@@ -0,0 +1,115 @@
+package doip.simulation.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import doip.simulation.http.helpers.ServerTiming;
+
+/**
+ * Wrapper of the handler of a context which records the latency, the status
+ * code and the size of the response body of each request in the
+ * RouteMetrics, and which starts the Server-Timing of the request if it is
+ * enabled. DoipHttpServer wraps every handler which is registered, so custom
+ * handlers are measured as well. A request is recorded when its response is
+ * complete, so parked requests and event streams are recorded with their real
+ * status code and latency.
+ */
+class MeasuredHandler implements HttpHandler {
+
+	private final String context;
+
+	private final HttpHandler handler;
+
+	private final DoipHttpServer server;
+
+	MeasuredHandler(String context, HttpHandler handler, DoipHttpServer server) {
+		this.context = context;
+		this.handler = handler;
+		this.server = server;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		RouteMetrics metrics = server.getRouteMetrics();
+		boolean measured = metrics.isEnabled();
+		ServerTiming timing = server.isServerTimingEnabled() ? ServerTiming.begin() : null;
+		if (!measured) {
+			try {
+				handler.handle(exchange);
+			} finally {
+				if (timing != null) {
+					timing.stop();
+				}
+			}
+			return;
+		}
+
+		Measurement measurement = new Measurement(new CountingOutputStream(exchange.getResponseBody()));
+		exchange.setStreams(null, measurement.responseBody);
+		// Clear a route which has been left by a handler that was called directly
+		RouteMetrics.takeCurrentRoute();
+		ResponseCompletion.run(() -> {
+			try {
+				handler.handle(exchange);
+			} finally {
+				if (timing != null) {
+					timing.stop();
+				}
+				measurement.route = RouteMetrics.takeCurrentRoute();
+			}
+		}, () -> metrics.record(measurement.route != null ? measurement.route : context,
+				exchange.getRequestMethod(), exchange.getResponseCode(), measurement.responseBody.count,
+				System.nanoTime() - measurement.start));
+	}
+
+	@Override
+	public String toString() {
+		return handler.toString();
+	}
+
+	/**
+	 * The values of one request which are only known when the response is
+	 * complete, e.g. after a parked request has been answered.
+	 */
+	private static final class Measurement {
+
+		private final long start = System.nanoTime();
+
+		private final CountingOutputStream responseBody;
+
+		private volatile String route = null;
+
+		private Measurement(CountingOutputStream responseBody) {
+			this.responseBody = responseBody;
+		}
+	}
+
+	/**
+	 * Stream which counts the bytes of the response body.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		private volatile long count = 0;
+
+		private CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// FilterOutputStream would write each byte separately
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
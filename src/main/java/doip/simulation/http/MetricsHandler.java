@@ -0,0 +1,220 @@
+package doip.simulation.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import doip.simulation.http.RouteMetrics.RouteStats;
+import doip.simulation.http.helpers.HttpServerHelper;
+import doip.simulation.http.helpers.JsonCodec;
+import doip.simulation.http.helpers.LatencyHistogram;
+
+/**
+ * Define a handler for the "/doip-simulation/metrics" path. It returns the
+ * RouteMetrics of the server, either as JSON (default) or in the text format
+ * of Prometheus. The text format is returned for the query parameter
+ * "format=prometheus" or if the Accept header asks for "text/plain" or
+ * OpenMetrics like a Prometheus scraper does, e.g.
+ *
+ * <pre>
+ * GET /doip-simulation/metrics
+ * {"routes":[{"route":"/doip-simulation/platform/{platform}","method":"GET","requests":12,"bytes":4711,
+ *   "status":{"2xx":11,"4xx":1},"latency":{"mean":0.41,"p50":0.35,"p90":0.6,"p99":1.2,"p999":1.2,"max":1.2}}]}
+ * </pre>
+ *
+ * Latencies are given in milliseconds in JSON and in seconds in the text
+ * format.
+ */
+public class MetricsHandler implements HttpHandler {
+
+	private static Logger logger = LogManager.getLogger(MetricsHandler.class);
+
+	public static final String RESOURCE_PATH = "/doip-simulation/metrics";
+
+	static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * Upper bounds of the buckets of the Prometheus histogram in seconds.
+	 */
+	private static final double[] BUCKET_BOUNDS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25,
+			0.5, 1, 2.5, 5, 10 };
+
+	private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS.length];
+
+	static {
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			BUCKET_BOUNDS_NANOS[i] = Math.round(BUCKET_BOUNDS[i] * 1e9);
+		}
+	}
+
+	private final RouteMetrics metrics;
+
+	private final JsonCodec jsonCodec;
+
+	public MetricsHandler(RouteMetrics metrics) {
+		this(metrics, JsonCodec.getDefault());
+	}
+
+	/**
+	 * Constructs a new handler.
+	 *
+	 * @param metrics   The metrics which will be sent.
+	 * @param jsonCodec The codec which writes the JSON format.
+	 */
+	public MetricsHandler(RouteMetrics metrics, JsonCodec jsonCodec) {
+		this.metrics = metrics;
+		this.jsonCodec = jsonCodec;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		String requestPath = exchange.getRequestURI().getPath();
+		if (!requestPath.equals(RESOURCE_PATH) && !requestPath.equals(RESOURCE_PATH + "/")) {
+			logger.error("No resource found for path {}", requestPath);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			return;
+		}
+		if (!"GET".equals(exchange.getRequestMethod())) {
+			logger.error("Method not allowed. Received a {} request.", exchange.getRequestMethod());
+			exchange.getResponseHeaders().set("Allow", "GET");
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+			return;
+		}
+		List<RouteStats> all = metrics.getAll();
+		if (isPrometheusRequest(exchange)) {
+			HttpServerHelper.sendResponse(exchange, toPrometheusText(all), PROMETHEUS_CONTENT_TYPE,
+					HttpURLConnection.HTTP_OK);
+		} else {
+			HttpServerHelper.sendResponse(exchange, toJson(all, jsonCodec), "application/json", HttpURLConnection.HTTP_OK);
+		}
+	}
+
+	static boolean isPrometheusRequest(HttpExchange exchange) {
+		String format = HttpServerHelper.getQueryParam(exchange, "format");
+		if (format != null) {
+			return format.equalsIgnoreCase("prometheus");
+		}
+		String accept = exchange.getRequestHeaders().getFirst("Accept");
+		return accept != null && (accept.contains("text/plain") || accept.contains("application/openmetrics-text"));
+	}
+
+	static byte[] toJson(List<RouteStats> all, JsonCodec jsonCodec) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256 + all.size() * 256);
+		try (JsonGenerator generator = jsonCodec.createGenerator(out)) {
+			generator.writeStartObject();
+			generator.writeArrayFieldStart("routes");
+			for (RouteStats stats : all) {
+				LatencyHistogram latency = stats.getLatency();
+				generator.writeStartObject();
+				generator.writeStringField("route", stats.getRoute());
+				generator.writeStringField("method", stats.getMethod());
+				generator.writeNumberField("requests", stats.getRequests());
+				generator.writeNumberField("bytes", stats.getBytes());
+				generator.writeObjectFieldStart("status");
+				for (int statusClass = 1; statusClass <= 5; statusClass++) {
+					long count = stats.getStatusCount(statusClass);
+					if (count > 0) {
+						generator.writeNumberField(statusClass + "xx", count);
+					}
+				}
+				generator.writeEndObject();
+				generator.writeObjectFieldStart("latency");
+				generator.writeNumberField("mean", round(latency.getMean() / 1e6));
+				generator.writeNumberField("p50", millis(latency.getValueAtPercentile(50)));
+				generator.writeNumberField("p90", millis(latency.getValueAtPercentile(90)));
+				generator.writeNumberField("p99", millis(latency.getValueAtPercentile(99)));
+				generator.writeNumberField("p999", millis(latency.getValueAtPercentile(99.9)));
+				generator.writeNumberField("max", millis(latency.getMax()));
+				generator.writeEndObject();
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+		}
+		return out.toByteArray();
+	}
+
+	static String toPrometheusText(List<RouteStats> all) {
+		StringBuilder text = new StringBuilder(1024 + all.size() * 2048);
+
+		text.append("# HELP doip_http_requests_total Number of requests by route, method and status class.\n");
+		text.append("# TYPE doip_http_requests_total counter\n");
+		for (RouteStats stats : all) {
+			for (int statusClass = 1; statusClass <= 5; statusClass++) {
+				long count = stats.getStatusCount(statusClass);
+				if (count > 0) {
+					text.append("doip_http_requests_total{");
+					appendLabels(text, stats);
+					text.append(",status=\"").append(statusClass).append("xx\"} ").append(count).append('\n');
+				}
+			}
+		}
+
+		text.append("# HELP doip_http_response_bytes_total Number of bytes of the response bodies.\n");
+		text.append("# TYPE doip_http_response_bytes_total counter\n");
+		for (RouteStats stats : all) {
+			text.append("doip_http_response_bytes_total{");
+			appendLabels(text, stats);
+			text.append("} ").append(stats.getBytes()).append('\n');
+		}
+
+		text.append("# HELP doip_http_request_duration_seconds Time to handle a request.\n");
+		text.append("# TYPE doip_http_request_duration_seconds histogram\n");
+		for (RouteStats stats : all) {
+			LatencyHistogram latency = stats.getLatency();
+			long count = latency.getCount();
+			for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+				text.append("doip_http_request_duration_seconds_bucket{");
+				appendLabels(text, stats);
+				// Values recorded meanwhile must not make a bucket larger than the count
+				long bucketCount = Math.min(latency.getCountAtOrBelow(BUCKET_BOUNDS_NANOS[i]), count);
+				text.append(",le=\"").append(BUCKET_BOUNDS[i]).append("\"} ").append(bucketCount).append('\n');
+			}
+			text.append("doip_http_request_duration_seconds_bucket{");
+			appendLabels(text, stats);
+			text.append(",le=\"+Inf\"} ").append(count).append('\n');
+			text.append("doip_http_request_duration_seconds_sum{");
+			appendLabels(text, stats);
+			text.append("} ").append(latency.getSum() / 1e9).append('\n');
+			text.append("doip_http_request_duration_seconds_count{");
+			appendLabels(text, stats);
+			text.append("} ").append(count).append('\n');
+		}
+		return text.toString();
+	}
+
+	private static void appendLabels(StringBuilder text, RouteStats stats) {
+		text.append("method=\"").append(stats.getMethod()).append("\",route=\"");
+		String route = stats.getRoute();
+		for (int i = 0; i < route.length(); i++) {
+			char c = route.charAt(i);
+			if (c == '\\' || c == '"') {
+				text.append('\\').append(c);
+			} else if (c == '\n') {
+				text.append("\\n");
+			} else {
+				text.append(c);
+			}
+		}
+		text.append('"');
+	}
+
+	private static double millis(long nanos) {
+		return round(LatencyHistogram.toMillis(nanos));
+	}
+
+	/**
+	 * Rounds to microseconds, more digits would only be noise.
+	 */
+	private static double round(double millis) {
+		return Math.round(millis * 1000) / 1000.0;
+	}
+}
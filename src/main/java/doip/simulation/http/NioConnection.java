@@ -0,0 +1,565 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * A connection of the {@link NioHttpTransport}. Reading, parsing and writing
+ * is only done by the selector loop of the connection. The handlers of the
+ * exchanges may run on other threads, they only append buffers to the write
+ * queue.
+ * <p>
+ * Only one exchange of a connection is executed at a time. Further pipelined
+ * requests stay in the read buffer until the response of the current exchange
+ * has been queued, so the responses are sent in the order of the requests.
+ */
+final class NioConnection {
+
+	private static Logger logger = LogManager.getLogger(NioConnection.class);
+
+	/**
+	 * A thread which writes a response blocks while more bytes than this are
+	 * waiting to be sent, so a slow client can not fill the memory.
+	 */
+	static final int HIGH_WATER_MARK = 256 * 1024;
+
+	static final int MAX_REQUEST_BODY_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Maximum number of buffers in one gathering write.
+	 */
+	private static final int MAX_GATHER = 64;
+
+	private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	private final NioHttpTransport.Loop loop;
+
+	private final DirectBufferPool bufferPool;
+
+	private final SocketChannel channel;
+
+	private final InetSocketAddress remoteAddress;
+
+	private final InetSocketAddress localAddress;
+
+	private SelectionKey key;
+
+	// The following fields are only accessed by the selector loop
+
+	/**
+	 * Bytes which have been read but not parsed, in read mode. null while there
+	 * are no such bytes, so idle connections do not hold a buffer.
+	 */
+	private ByteBuffer readBuffer = null;
+
+	/**
+	 * The exchange whose body is being read.
+	 */
+	private NioHttpExchange reading = null;
+
+	/**
+	 * The body of the request which is being read. It grows with the received
+	 * bytes up to the announced length, so a client can not make the server
+	 * allocate memory for bytes which it does not send.
+	 */
+	private byte[] body = null;
+
+	private int bodyFilled = 0;
+
+	private int bodyLength = 0;
+
+	/**
+	 * The exchange which is being executed, null if there is none.
+	 */
+	private NioHttpExchange current = null;
+
+	/**
+	 * true while the loop parses and executes requests of this connection.
+	 */
+	private boolean processing = false;
+
+	/**
+	 * Set if the current exchange has finished while it was executed by the
+	 * selector loop.
+	 */
+	private boolean finishedInLoop = false;
+
+	private boolean closeAfterWrite = false;
+
+	private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+	private volatile long lastActive = System.currentTimeMillis();
+
+	// The following fields are guarded by this
+
+	private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+	private long queuedBytes = 0;
+
+	private boolean closed = false;
+
+	NioConnection(NioHttpTransport.Loop loop, SocketChannel channel) throws IOException {
+		this.loop = loop;
+		this.bufferPool = loop.getTransport().getBufferPool();
+		this.channel = channel;
+		this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+		this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+	}
+
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	NioHttpTransport getTransport() {
+		return loop.getTransport();
+	}
+
+	DirectBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	InetSocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+
+	InetSocketAddress getLocalAddress() {
+		return localAddress;
+	}
+
+	long getLastActive() {
+		return lastActive;
+	}
+
+	boolean isBusy() {
+		return current != null || reading != null || queuedBytes() > 0;
+	}
+
+	private synchronized long queuedBytes() {
+		return queuedBytes;
+	}
+
+	/**
+	 * Reads the available bytes and executes the requests which are complete.
+	 */
+	void onReadable() {
+		if (readBuffer == null) {
+			readBuffer = bufferPool.acquire();
+			readBuffer.flip();
+		}
+		int count;
+		try {
+			readBuffer.compact();
+			count = channel.read(readBuffer);
+			readBuffer.flip();
+		} catch (IOException e) {
+			logger.debug("Error reading from {}: {}", remoteAddress, e.getMessage());
+			close();
+			return;
+		}
+		if (count < 0) {
+			close();
+			return;
+		}
+		lastActive = System.currentTimeMillis();
+		process();
+	}
+
+	/**
+	 * Parses and executes requests until a request is incomplete or an exchange
+	 * continues on another thread.
+	 */
+	private void process() {
+		processing = true;
+		try {
+			while (current == null && !closeAfterWrite && !isClosed()) {
+				if (reading == null) {
+					reading = parseHead();
+					if (reading == null) {
+						break;
+					}
+				}
+				if (!readBody()) {
+					break;
+				}
+				NioHttpExchange exchange = reading;
+				reading = null;
+				current = exchange;
+				finishedInLoop = false;
+				loop.getTransport().dispatch(exchange);
+				if (finishedInLoop) {
+					finished(exchange);
+				}
+			}
+		} finally {
+			processing = false;
+		}
+		if (readBuffer != null && !readBuffer.hasRemaining()) {
+			bufferPool.release(readBuffer);
+			readBuffer = null;
+		}
+		updateInterest();
+		loop.flushLater(this);
+	}
+
+	/**
+	 * Parses the request line and the headers.
+	 *
+	 * @return The exchange, or null if the head is incomplete or invalid.
+	 */
+	private NioHttpExchange parseHead() {
+		if (readBuffer == null) {
+			return null;
+		}
+		int start = readBuffer.position();
+		int limit = readBuffer.limit();
+		int end = -1;
+		for (int i = start; i + 3 < limit; i++) {
+			if (readBuffer.get(i) == '\r' && readBuffer.get(i + 1) == '\n' && readBuffer.get(i + 2) == '\r'
+					&& readBuffer.get(i + 3) == '\n') {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0) {
+			if (start == 0 && limit == readBuffer.capacity()) {
+				sendError(431, "Request Header Fields Too Large");
+			}
+			return null;
+		}
+
+		// Copy the head out of the direct buffer, so it can be decoded in one go
+		byte[] scratch = loop.getScratch();
+		int length = end - start;
+		readBuffer.get(scratch, 0, length);
+		readBuffer.position(end + 4);
+		String head = new String(scratch, 0, length, StandardCharsets.ISO_8859_1);
+
+		int lineEnd = head.indexOf("\r\n");
+		String requestLine = lineEnd < 0 ? head : head.substring(0, lineEnd);
+		int firstSpace = requestLine.indexOf(' ');
+		int lastSpace = requestLine.lastIndexOf(' ');
+		if (firstSpace <= 0 || lastSpace <= firstSpace + 1) {
+			sendError(400, "Bad Request");
+			return null;
+		}
+		String method = requestLine.substring(0, firstSpace);
+		String target = requestLine.substring(firstSpace + 1, lastSpace);
+		String protocol = requestLine.substring(lastSpace + 1);
+		if (!"HTTP/1.1".equals(protocol) && !"HTTP/1.0".equals(protocol)) {
+			sendError(505, "HTTP Version Not Supported");
+			return null;
+		}
+
+		Headers headers = new Headers();
+		int lineStart = lineEnd < 0 ? head.length() : lineEnd + 2;
+		while (lineStart < head.length()) {
+			lineEnd = head.indexOf("\r\n", lineStart);
+			if (lineEnd < 0) {
+				lineEnd = head.length();
+			}
+			int colon = head.indexOf(':', lineStart);
+			if (colon <= lineStart || colon > lineEnd) {
+				sendError(400, "Bad Request");
+				return null;
+			}
+			headers.add(head.substring(lineStart, colon).trim(), head.substring(colon + 1, lineEnd).trim());
+			lineStart = lineEnd + 2;
+		}
+
+		URI uri;
+		try {
+			uri = new URI(target);
+		} catch (URISyntaxException e) {
+			sendError(400, "Bad Request");
+			return null;
+		}
+		if (headers.containsKey("Transfer-Encoding")) {
+			// Request bodies are only accepted with Content-Length
+			sendError(411, "Length Required");
+			return null;
+		}
+		long contentLength = 0;
+		String contentLengthHeader = headers.getFirst("Content-Length");
+		if (contentLengthHeader != null) {
+			try {
+				contentLength = Long.parseLong(contentLengthHeader);
+			} catch (NumberFormatException e) {
+				contentLength = -1;
+			}
+			if (contentLength < 0) {
+				sendError(400, "Bad Request");
+				return null;
+			}
+			if (contentLength > MAX_REQUEST_BODY_SIZE) {
+				sendError(413, "Payload Too Large");
+				return null;
+			}
+		}
+
+		String connection = headers.getFirst("Connection");
+		boolean keepAlive = "HTTP/1.1".equals(protocol) ? !"close".equalsIgnoreCase(connection)
+				: "keep-alive".equalsIgnoreCase(connection);
+
+		bodyLength = (int) contentLength;
+		body = bodyLength > 0 ? new byte[Math.min(bodyLength, NioHttpTransport.BUFFER_SIZE)] : null;
+		bodyFilled = 0;
+		if (body != null && readBuffer.remaining() < bodyLength
+				&& "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+			write(ByteBuffer.wrap(CONTINUE));
+		}
+		return new NioHttpExchange(this, method, uri, protocol, headers, keepAlive);
+	}
+
+	/**
+	 * Copies the body of the request which is being read.
+	 *
+	 * @return true if the body is complete.
+	 */
+	private boolean readBody() {
+		if (body == null) {
+			return true;
+		}
+		while (readBuffer != null && readBuffer.hasRemaining() && bodyFilled < bodyLength) {
+			if (bodyFilled == body.length) {
+				body = Arrays.copyOf(body, (int) Math.min(bodyLength, 2L * body.length));
+			}
+			int count = Math.min(readBuffer.remaining(), body.length - bodyFilled);
+			readBuffer.get(body, bodyFilled, count);
+			bodyFilled += count;
+		}
+		if (bodyFilled < bodyLength) {
+			return false;
+		}
+		reading.setRequestBody(body);
+		body = null;
+		return true;
+	}
+
+	private void updateInterest() {
+		if (key == null || !key.isValid()) {
+			return;
+		}
+		// Pipelined requests wait in the socket until the current exchange has finished
+		boolean read = current == null && !closeAfterWrite;
+		int ops = key.interestOps();
+		ops = read ? ops | SelectionKey.OP_READ : ops & ~SelectionKey.OP_READ;
+		key.interestOps(ops);
+	}
+
+	/**
+	 * Sends an error for a request which can not be parsed and closes the
+	 * connection afterwards.
+	 */
+	private void sendError(int code, String reason) {
+		logger.debug("Sending {} {} to {}", code, reason, remoteAddress);
+		String response = "HTTP/1.1 " + code + " " + reason + "\r\nContent-length: 0\r\nConnection: close\r\n\r\n";
+		closeAfterWrite = true;
+		write(ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private void write(ByteBuffer buffer) {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			writeQueue.add(buffer);
+			queuedBytes += buffer.remaining();
+		}
+		loop.requestWrite(this);
+	}
+
+	/**
+	 * Appends buffers to the write queue. It can be called by any thread. A
+	 * thread other than the selector loop will be blocked while the queue is
+	 * above the high water mark.
+	 *
+	 * @param buffers The buffers in read mode. They will be returned to the pool
+	 *                after they have been written.
+	 * @throws IOException If the connection has been closed.
+	 */
+	void write(List<ByteBuffer> buffers) throws IOException {
+		synchronized (this) {
+			if (closed) {
+				for (ByteBuffer buffer : buffers) {
+					bufferPool.release(buffer);
+				}
+				throw new IOException("Connection closed");
+			}
+			for (ByteBuffer buffer : buffers) {
+				writeQueue.add(buffer);
+				queuedBytes += buffer.remaining();
+			}
+		}
+		loop.requestWrite(this);
+		if (loop.inLoop()) {
+			return;
+		}
+		synchronized (this) {
+			while (queuedBytes > HIGH_WATER_MARK && !closed) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for the client");
+				}
+			}
+			if (closed) {
+				throw new IOException("Connection closed");
+			}
+		}
+	}
+
+	/**
+	 * Writes as much of the queue as the socket accepts with gathering writes.
+	 * Only called by the selector loop.
+	 */
+	void flush() {
+		if (isClosed()) {
+			return;
+		}
+		try {
+			while (true) {
+				int count;
+				synchronized (this) {
+					count = 0;
+					for (ByteBuffer buffer : writeQueue) {
+						gather[count++] = buffer;
+						if (count == MAX_GATHER) {
+							break;
+						}
+					}
+				}
+				if (count == 0) {
+					break;
+				}
+				long written = channel.write(gather, 0, count);
+				int completed = 0;
+				while (completed < count && !gather[completed].hasRemaining()) {
+					completed++;
+				}
+				synchronized (this) {
+					for (int i = 0; i < completed; i++) {
+						bufferPool.release(writeQueue.poll());
+					}
+					queuedBytes -= written;
+					notifyAll();
+				}
+				for (int i = 0; i < count; i++) {
+					gather[i] = null;
+				}
+				if (completed < count) {
+					// The socket buffer is full
+					break;
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Error writing to {}: {}", remoteAddress, e.getMessage());
+			close();
+			return;
+		}
+		lastActive = System.currentTimeMillis();
+		boolean empty;
+		synchronized (this) {
+			empty = writeQueue.isEmpty();
+		}
+		if (empty && closeAfterWrite && current == null) {
+			close();
+			return;
+		}
+		if (key.isValid()) {
+			int ops = key.interestOps();
+			key.interestOps(empty ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Called when the response of an exchange has been queued completely. It
+	 * can be called by any thread.
+	 *
+	 * @param exchange The exchange.
+	 */
+	void exchangeFinished(NioHttpExchange exchange) {
+		if (loop.inLoop() && processing && current == exchange) {
+			finishedInLoop = true;
+			return;
+		}
+		loop.execute(() -> {
+			if (current == exchange) {
+				finished(exchange);
+				process();
+			}
+		});
+	}
+
+	private void finished(NioHttpExchange exchange) {
+		current = null;
+		finishedInLoop = false;
+		if (!exchange.isKeepAlive()) {
+			closeAfterWrite = true;
+		}
+		loop.flushLater(this);
+	}
+
+	/**
+	 * Closes the connection without sending the rest of the response. It can be
+	 * called by any thread.
+	 */
+	void abort() {
+		if (loop.inLoop()) {
+			close();
+		} else {
+			loop.execute(this::close);
+		}
+	}
+
+	private synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Closes the connection. Only called by the selector loop.
+	 */
+	void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			ByteBuffer buffer;
+			while ((buffer = writeQueue.poll()) != null) {
+				bufferPool.release(buffer);
+			}
+			queuedBytes = 0;
+			notifyAll();
+		}
+		if (readBuffer != null) {
+			bufferPool.release(readBuffer);
+			readBuffer = null;
+		}
+		current = null;
+		reading = null;
+		loop.unregister(this);
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			logger.debug("Error closing connection: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,468 @@
+package doip.simulation.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * Adapter which presents a request of the {@link NioHttpTransport} as
+ * HttpExchange, so the handlers and filters of the JDK server can be used
+ * without changes. It behaves like the exchanges of the JDK server: a
+ * response length of -1 finishes the exchange without a body, 0 sends a
+ * chunked body, and the response is finished when its body stream is closed.
+ * <p>
+ * The head of the response is encoded into a pooled direct buffer and the body
+ * is copied into further pooled buffers. A fixed-length response is queued
+ * when it is complete, so the head and the body are sent with one gathering
+ * write.
+ */
+final class NioHttpExchange extends HttpExchange {
+
+	private static Logger logger = LogManager.getLogger(NioHttpExchange.class);
+
+	/**
+	 * A response body is queued for writing whenever this number of bytes has
+	 * been written to it.
+	 */
+	private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+	private final NioConnection connection;
+
+	private final String method;
+
+	private final URI uri;
+
+	private final String protocol;
+
+	private final Headers requestHeaders;
+
+	private final Headers responseHeaders = new Headers();
+
+	private boolean keepAlive;
+
+	private InputStream requestBody = new ByteArrayInputStream(new byte[0]);
+
+	private final ResponseStream originalResponseBody = new ResponseStream();
+
+	private OutputStream responseBody = originalResponseBody;
+
+	private volatile int responseCode = -1;
+
+	private boolean headersSent = false;
+
+	private boolean finished = false;
+
+	private boolean closed = false;
+
+	NioHttpExchange(NioConnection connection, String method, URI uri, String protocol, Headers requestHeaders,
+			boolean keepAlive) {
+		this.connection = connection;
+		this.method = method;
+		this.uri = uri;
+		this.protocol = protocol;
+		this.requestHeaders = requestHeaders;
+		this.keepAlive = keepAlive;
+	}
+
+	void setRequestBody(byte[] body) {
+		requestBody = new ByteArrayInputStream(body);
+	}
+
+	boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * Closes the connection because the response can not be completed.
+	 */
+	void abort() {
+		keepAlive = false;
+		connection.abort();
+	}
+
+	@Override
+	public Headers getRequestHeaders() {
+		return requestHeaders;
+	}
+
+	@Override
+	public Headers getResponseHeaders() {
+		return responseHeaders;
+	}
+
+	@Override
+	public URI getRequestURI() {
+		return uri;
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return method;
+	}
+
+	@Override
+	public HttpContext getHttpContext() {
+		return connection.getTransport().getContext();
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (!headersSent) {
+			// Like the JDK server, an exchange without response closes the connection
+			abort();
+			return;
+		}
+		try {
+			requestBody.close();
+			responseBody.close();
+		} catch (IOException e) {
+			logger.debug("Error closing exchange: {}", e.getMessage());
+			abort();
+		}
+	}
+
+	@Override
+	public InputStream getRequestBody() {
+		return requestBody;
+	}
+
+	@Override
+	public OutputStream getResponseBody() {
+		return responseBody;
+	}
+
+	@Override
+	public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+		if (headersSent) {
+			throw new IOException("headers already sent");
+		}
+		headersSent = true;
+		responseCode = rCode;
+
+		boolean noContentLength = rCode == 204 || rCode == 304 || rCode < 200;
+		boolean noBody = responseLength == -1 || noContentLength || "HEAD".equals(method);
+		boolean chunked = false;
+		if (noBody) {
+			if (!noContentLength) {
+				responseHeaders.set("Content-length", "0");
+			}
+		} else if (responseLength == 0) {
+			if ("HTTP/1.1".equals(protocol)) {
+				chunked = true;
+				responseHeaders.set("Transfer-encoding", "chunked");
+			} else {
+				// HTTP/1.0 knows no chunks, the end of the body is the end of the connection
+				keepAlive = false;
+			}
+		} else {
+			responseHeaders.set("Content-length", Long.toString(responseLength));
+		}
+		if (!keepAlive) {
+			responseHeaders.set("Connection", "close");
+		}
+		if (!responseHeaders.containsKey("Date")) {
+			responseHeaders.set("Date", connection.getTransport().getDate());
+		}
+
+		ByteBuffer head = encodeHead(rCode);
+		if (noBody) {
+			originalResponseBody.start(head, 0, false);
+			originalResponseBody.close();
+		} else {
+			originalResponseBody.start(head, responseLength, chunked);
+		}
+	}
+
+	private ByteBuffer encodeHead(int rCode) {
+		StringBuilder head = new StringBuilder(256);
+		head.append("HTTP/1.1 ").append(rCode).append(' ').append(reasonPhrase(rCode)).append("\r\n");
+		for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+			for (String value : header.getValue()) {
+				head.append(header.getKey()).append(": ").append(value).append("\r\n");
+			}
+		}
+		head.append("\r\n");
+
+		DirectBufferPool pool = connection.getBufferPool();
+		if (head.length() > pool.getBufferSize()) {
+			return ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+		}
+		ByteBuffer buffer = pool.acquire();
+		for (int i = 0; i < head.length(); i++) {
+			char c = head.charAt(i);
+			buffer.put(c < 256 ? (byte) c : (byte) '?');
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static String reasonPhrase(int code) {
+		switch (code) {
+		case 100:
+			return "Continue";
+		case 200:
+			return "OK";
+		case 201:
+			return "Created";
+		case 202:
+			return "Accepted";
+		case 204:
+			return "No Content";
+		case 304:
+			return "Not Modified";
+		case 400:
+			return "Bad Request";
+		case 404:
+			return "Not Found";
+		case 405:
+			return "Method Not Allowed";
+		case 409:
+			return "Conflict";
+		case 413:
+			return "Payload Too Large";
+		case 500:
+			return "Internal Server Error";
+		case 503:
+			return "Service Unavailable";
+		default:
+			return "";
+		}
+	}
+
+	@Override
+	public InetSocketAddress getRemoteAddress() {
+		return connection.getRemoteAddress();
+	}
+
+	@Override
+	public int getResponseCode() {
+		return responseCode;
+	}
+
+	@Override
+	public InetSocketAddress getLocalAddress() {
+		return connection.getLocalAddress();
+	}
+
+	@Override
+	public String getProtocol() {
+		return protocol;
+	}
+
+	@Override
+	public Object getAttribute(String name) {
+		return getHttpContext().getAttributes().get(name);
+	}
+
+	@Override
+	public void setAttribute(String name, Object value) {
+		if (value == null) {
+			getHttpContext().getAttributes().remove(name);
+		} else {
+			getHttpContext().getAttributes().put(name, value);
+		}
+	}
+
+	@Override
+	public void setStreams(InputStream i, OutputStream o) {
+		if (i != null) {
+			requestBody = i;
+		}
+		if (o != null) {
+			responseBody = o;
+		}
+	}
+
+	@Override
+	public HttpPrincipal getPrincipal() {
+		return null;
+	}
+
+	private void finish() {
+		if (!finished) {
+			finished = true;
+			connection.exchangeFinished(this);
+		}
+	}
+
+	/**
+	 * The body of the response. The bytes are collected in pooled direct
+	 * buffers and handed to the connection in batches.
+	 */
+	private final class ResponseStream extends OutputStream {
+
+		/**
+		 * The encoded head in read mode until it has been handed to the
+		 * connection.
+		 */
+		private ByteBuffer head = null;
+
+		/**
+		 * The buffers of the body in write mode.
+		 */
+		private final List<ByteBuffer> data = new ArrayList<>();
+
+		private ByteBuffer current = null;
+
+		private int pendingBytes = 0;
+
+		private boolean started = false;
+
+		private boolean chunked = false;
+
+		/**
+		 * The number of bytes of a fixed-length body which have not been
+		 * written yet, -1 if the length is not fixed.
+		 */
+		private long remaining = -1;
+
+		private boolean streamClosed = false;
+
+		private void start(ByteBuffer head, long length, boolean chunked) throws IOException {
+			this.head = head;
+			this.started = true;
+			this.chunked = chunked;
+			this.remaining = length > 0 ? length : -1;
+			if (length <= 0) {
+				// The client shall see the head of a streamed response right away
+				send(false);
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (streamClosed) {
+				throw new IOException("stream is closed");
+			}
+			if (!started) {
+				throw new IOException("response headers not sent yet");
+			}
+			if (len == 0) {
+				return;
+			}
+			if (remaining >= 0 && len > remaining) {
+				throw new IOException("too many bytes to write to stream");
+			}
+			DirectBufferPool pool = connection.getBufferPool();
+			int offset = off;
+			int left = len;
+			while (left > 0) {
+				if (current == null || !current.hasRemaining()) {
+					current = pool.acquire();
+					data.add(current);
+				}
+				int count = Math.min(left, current.remaining());
+				current.put(b, offset, count);
+				offset += count;
+				left -= count;
+			}
+			pendingBytes += len;
+			if (remaining >= 0) {
+				remaining -= len;
+				if (remaining == 0) {
+					// The body is complete, it is sent without waiting for close()
+					send(true);
+					return;
+				}
+			}
+			if (pendingBytes >= FLUSH_THRESHOLD) {
+				send(false);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (started && !streamClosed && remaining < 0) {
+				send(false);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (streamClosed) {
+				return;
+			}
+			if (remaining > 0) {
+				streamClosed = true;
+				abort();
+				throw new IOException("insufficient bytes written to stream");
+			}
+			send(true);
+		}
+
+		/**
+		 * Hands the head, if it has not been sent yet, and the collected body
+		 * to the connection.
+		 *
+		 * @param last true if the response is complete.
+		 */
+		private void send(boolean last) throws IOException {
+			if (streamClosed) {
+				return;
+			}
+			if (last) {
+				streamClosed = true;
+			}
+			List<ByteBuffer> buffers = new ArrayList<>(data.size() + 4);
+			if (head != null) {
+				buffers.add(head);
+				head = null;
+			}
+			if (chunked && pendingBytes > 0) {
+				String size = Integer.toHexString(pendingBytes) + "\r\n";
+				buffers.add(ByteBuffer.wrap(size.getBytes(StandardCharsets.US_ASCII)));
+			}
+			for (ByteBuffer buffer : data) {
+				buffer.flip();
+				buffers.add(buffer);
+			}
+			if (chunked && pendingBytes > 0) {
+				buffers.add(ByteBuffer.wrap(CRLF));
+			}
+			if (chunked && last) {
+				buffers.add(ByteBuffer.wrap(LAST_CHUNK));
+			}
+			data.clear();
+			current = null;
+			pendingBytes = 0;
+			try {
+				if (!buffers.isEmpty()) {
+					connection.write(buffers);
+				}
+			} finally {
+				if (last) {
+					finish();
+				}
+			}
+		}
+	}
+}
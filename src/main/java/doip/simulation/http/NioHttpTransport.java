@@ -0,0 +1,489 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/1.1 transport with non-blocking channels. Each selector loop owns a
+ * part of the connections and does all reading, parsing and writing of them,
+ * so a connection is never touched by two loops. The exchanges are presented
+ * to the handlers as {@link NioHttpExchange}, so all handlers and filters which
+ * have been written for the JDK server can be used.
+ * <p>
+ * The exchanges are executed by the executor of the server. Without an
+ * executor they are executed by the selector loop itself, which avoids the
+ * hand-over between threads; pipelined requests on one connection are then
+ * answered with a single gathering write.
+ */
+class NioHttpTransport implements HttpTransport {
+
+	private static Logger logger = LogManager.getLogger(NioHttpTransport.class);
+
+	/**
+	 * Size of the pooled buffers. A request head must fit into one buffer.
+	 */
+	static final int BUFFER_SIZE = 16 * 1024;
+
+	private static final int MAX_POOLED_BUFFERS = 1024;
+
+	private static final long IDLE_TIMEOUT_MILLIS = 30000;
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+			.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+	private final ServerSocketChannel serverChannel;
+
+	private final int loopCount;
+
+	private final DirectBufferPool bufferPool = new DirectBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+	private final Context context = new Context();
+
+	/**
+	 * The handler of all exchanges. It can be replaced through the context like
+	 * in the JDK server.
+	 */
+	private volatile HttpHandler handler;
+
+	private Executor executor;
+
+	private Loop[] loops = new Loop[0];
+
+	private int nextLoop = 0;
+
+	private volatile String date = null;
+
+	private volatile long dateSecond = -1;
+
+	/**
+	 * Creates the transport and binds it to the address.
+	 *
+	 * @param address   The address.
+	 * @param loopCount The number of selector loops.
+	 * @throws IOException If the address can not be bound.
+	 */
+	NioHttpTransport(InetSocketAddress address, int loopCount) throws IOException {
+		if (loopCount < 1) {
+			throw new IllegalArgumentException("The number of selector loops must be greater than 0");
+		}
+		this.loopCount = loopCount;
+		serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			serverChannel.bind(address);
+			serverChannel.configureBlocking(false);
+		} catch (IOException e) {
+			serverChannel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public synchronized void start(HttpHandler handler, List<Filter> filters, Map<String, Object> attributes,
+			Executor executor) throws IOException {
+		this.handler = handler;
+		context.filters.clear();
+		context.filters.addAll(filters);
+		this.executor = executor;
+		context.attributes.putAll(attributes);
+
+		loops = new Loop[loopCount];
+		for (int i = 0; i < loopCount; i++) {
+			loops[i] = new Loop(i);
+		}
+		serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+		for (Loop loop : loops) {
+			loop.thread.start();
+		}
+		logger.info("NIO transport started with {} selector loops", loopCount);
+	}
+
+	@Override
+	public synchronized void stop(int delaySeconds) {
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+			logger.warn("Error closing the server channel: {}", e.getMessage());
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delaySeconds);
+		for (Loop loop : loops) {
+			loop.shutdown(deadline);
+		}
+		for (Loop loop : loops) {
+			if (loop.thread != Thread.currentThread()) {
+				try {
+					loop.thread.join(TimeUnit.SECONDS.toMillis(delaySeconds) + 1000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	@Override
+	public InetSocketAddress getAddress() {
+		try {
+			return (InetSocketAddress) serverChannel.getLocalAddress();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	DirectBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	HttpContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Gets the value of the Date header, it is formatted once per second.
+	 *
+	 * @return The current date.
+	 */
+	String getDate() {
+		long now = System.currentTimeMillis();
+		long second = now / 1000;
+		String current = date;
+		if (current == null || second != dateSecond) {
+			current = DATE_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC));
+			date = current;
+			dateSecond = second;
+		}
+		return current;
+	}
+
+	/**
+	 * Executes an exchange which has been read completely.
+	 *
+	 * @param exchange The exchange.
+	 */
+	void dispatch(NioHttpExchange exchange) {
+		Executor current = executor;
+		if (current == null) {
+			execute(exchange);
+		} else {
+			current.execute(() -> execute(exchange));
+		}
+	}
+
+	private void execute(NioHttpExchange exchange) {
+		try {
+			new Filter.Chain(context.filters, handler).doFilter(exchange);
+		} catch (Throwable e) {
+			// Like the JDK server: the client can not rely on the response anymore
+			logger.error("Error handling {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(),
+					e.getMessage(), e);
+			exchange.abort();
+		}
+	}
+
+	private void accept(Loop acceptingLoop) throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			try {
+				channel.configureBlocking(false);
+				// Responses are written completely, so Nagle's algorithm would only delay them
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			} catch (IOException e) {
+				logger.debug("Error configuring accepted connection: {}", e.getMessage());
+				channel.close();
+				continue;
+			}
+			Loop loop = loops[nextLoop];
+			nextLoop = (nextLoop + 1) % loops.length;
+			SocketChannel accepted = channel;
+			if (loop == acceptingLoop) {
+				loop.register(accepted);
+			} else {
+				loop.execute(() -> loop.register(accepted));
+			}
+		}
+	}
+
+	/**
+	 * A selector with its thread and the connections which it serves.
+	 */
+	final class Loop implements Runnable {
+
+		private final Selector selector;
+
+		private final Thread thread;
+
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * Connections which have been written by other threads.
+		 */
+		private final ConcurrentLinkedQueue<NioConnection> writeRequests = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * Connections which have to be written before the next select. Only
+		 * accessed by the thread of the loop.
+		 */
+		private final List<NioConnection> pendingFlushes = new ArrayList<>();
+
+		private final Map<NioConnection, Boolean> connections = new ConcurrentHashMap<>();
+
+		/**
+		 * Buffer for copying request heads out of the direct buffers.
+		 */
+		private final byte[] scratch = new byte[BUFFER_SIZE];
+
+		private volatile boolean running = true;
+
+		private volatile long shutdownDeadline = 0;
+
+		private long lastIdleCheck = System.currentTimeMillis();
+
+		private Loop(int index) throws IOException {
+			selector = Selector.open();
+			// Not a daemon, like the dispatcher thread of the JDK server
+			thread = new Thread(this, "doip-http-nio-" + index);
+		}
+
+		NioHttpTransport getTransport() {
+			return NioHttpTransport.this;
+		}
+
+		byte[] getScratch() {
+			return scratch;
+		}
+
+		boolean inLoop() {
+			return Thread.currentThread() == thread;
+		}
+
+		/**
+		 * Executes a task on the thread of the loop.
+		 */
+		void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		/**
+		 * Requests to write the queued buffers of a connection. Can be called by
+		 * any thread.
+		 */
+		void requestWrite(NioConnection connection) {
+			if (inLoop()) {
+				flushLater(connection);
+			} else {
+				writeRequests.add(connection);
+				selector.wakeup();
+			}
+		}
+
+		/**
+		 * Writes a connection before the next select, so all responses of a
+		 * loop iteration are written together.
+		 */
+		void flushLater(NioConnection connection) {
+			pendingFlushes.add(connection);
+		}
+
+		private void register(SocketChannel channel) {
+			try {
+				NioConnection connection = new NioConnection(this, channel);
+				connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+				connections.put(connection, Boolean.TRUE);
+			} catch (IOException e) {
+				logger.debug("Error registering connection: {}", e.getMessage());
+				try {
+					channel.close();
+				} catch (IOException ignored) {
+					// Already closed
+				}
+			}
+		}
+
+		void unregister(NioConnection connection) {
+			connections.remove(connection);
+		}
+
+		private void shutdown(long deadline) {
+			shutdownDeadline = deadline;
+			running = false;
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running || hasBusyConnections()) {
+					selector.select(running ? 1000 : 10);
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						SelectionKey key = keys.next();
+						keys.remove();
+						handleKey(key);
+					}
+					Runnable task;
+					while ((task = tasks.poll()) != null) {
+						task.run();
+					}
+					NioConnection connection;
+					while ((connection = writeRequests.poll()) != null) {
+						pendingFlushes.add(connection);
+					}
+					// Flushing can not add further connections, it only writes
+					for (int i = 0; i < pendingFlushes.size(); i++) {
+						pendingFlushes.get(i).flush();
+					}
+					pendingFlushes.clear();
+					closeIdleConnections();
+				}
+			} catch (ClosedSelectorException e) {
+				logger.debug("Selector closed");
+			} catch (Throwable e) {
+				logger.error("Selector loop failed: {}", e.getMessage(), e);
+			} finally {
+				for (NioConnection connection : new ArrayList<>(connections.keySet())) {
+					connection.close();
+				}
+				try {
+					selector.close();
+				} catch (IOException e) {
+					logger.debug("Error closing selector: {}", e.getMessage());
+				}
+			}
+		}
+
+		private void handleKey(SelectionKey key) throws IOException {
+			if (!key.isValid()) {
+				return;
+			}
+			if (key.isAcceptable()) {
+				accept(this);
+				return;
+			}
+			NioConnection connection = (NioConnection) key.attachment();
+			if (key.isWritable()) {
+				connection.flush();
+			}
+			if (key.isValid() && key.isReadable()) {
+				connection.onReadable();
+			}
+		}
+
+		/**
+		 * While stopping, the loop keeps running until the exchanges in progress
+		 * have finished or the deadline has expired.
+		 */
+		private boolean hasBusyConnections() {
+			if (System.nanoTime() - shutdownDeadline >= 0) {
+				return false;
+			}
+			for (NioConnection connection : connections.keySet()) {
+				if (connection.isBusy()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void closeIdleConnections() {
+			long now = System.currentTimeMillis();
+			if (now - lastIdleCheck < 1000) {
+				return;
+			}
+			lastIdleCheck = now;
+			for (NioConnection connection : connections.keySet()) {
+				if (!connection.isBusy() && now - connection.getLastActive() > IDLE_TIMEOUT_MILLIS) {
+					logger.debug("Closing idle connection from {}", connection.getRemoteAddress());
+					connection.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The only context of the transport. Like in the JDK server the attributes
+	 * of the context are the attributes of all exchanges.
+	 */
+	private final class Context extends HttpContext {
+
+		private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+		/**
+		 * The filters of all exchanges, modifiable at any time like the filters
+		 * of a context of the JDK server.
+		 */
+		private final List<Filter> filters = new CopyOnWriteArrayList<>();
+
+		private Authenticator authenticator = null;
+
+		@Override
+		public HttpHandler getHandler() {
+			return handler;
+		}
+
+		@Override
+		public void setHandler(HttpHandler handler) {
+			NioHttpTransport.this.handler = handler;
+		}
+
+		@Override
+		public String getPath() {
+			return "/";
+		}
+
+		@Override
+		public HttpServer getServer() {
+			// There is no JDK server behind this context
+			return null;
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public List<Filter> getFilters() {
+			return filters;
+		}
+
+		@Override
+		public Authenticator setAuthenticator(Authenticator auth) {
+			Authenticator previous = authenticator;
+			authenticator = auth;
+			return previous;
+		}
+
+		@Override
+		public Authenticator getAuthenticator() {
+			return authenticator;
+		}
+	}
+}
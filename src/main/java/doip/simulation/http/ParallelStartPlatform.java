@@ -0,0 +1,31 @@
+package doip.simulation.http;
+
+import doip.library.exception.DoipException;
+import doip.simulation.api.Gateway;
+
+/**
+ * Optional interface of a platform whose gateways can be started independently
+ * of each other. If a platform implements it, an asynchronous start job will
+ * start all gateways at the same time instead of calling
+ * {@link doip.simulation.api.Platform#start()}, so the platform is ready after
+ * the slowest gateway instead of after the sum of all gateways.
+ */
+public interface ParallelStartPlatform {
+
+	/**
+	 * Starts a single gateway of the platform. It will be called concurrently
+	 * for different gateways.
+	 *
+	 * @param gateway The gateway which belongs to this platform.
+	 * @throws DoipException If the gateway could not be started.
+	 */
+	void startGateway(Gateway gateway) throws DoipException;
+
+	/**
+	 * Will be called after all gateways have been started, so the platform can
+	 * update its own state.
+	 *
+	 * @throws DoipException If the platform could not be started.
+	 */
+	void completeStart() throws DoipException;
+}
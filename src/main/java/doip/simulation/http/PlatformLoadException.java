@@ -0,0 +1,50 @@
+package doip.simulation.http;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Thrown when one or more platform configurations could not be loaded by
+ * {@link DoipHttpServerBuilder#addPlatforms(java.util.List)}. It contains the
+ * error of each file which failed, the errors are also added as suppressed
+ * exceptions.
+ */
+public class PlatformLoadException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, Throwable> failures;
+
+	/**
+	 * Constructs a new exception.
+	 *
+	 * @param failures The errors by file name, in the order of the files.
+	 * @param total    The number of files which should have been loaded.
+	 */
+	public PlatformLoadException(Map<String, Throwable> failures, int total) {
+		super(buildMessage(failures, total));
+		this.failures = Collections.unmodifiableMap(failures);
+		for (Throwable failure : failures.values()) {
+			addSuppressed(failure);
+		}
+	}
+
+	/**
+	 * Gets the errors of the files which could not be loaded.
+	 *
+	 * @return The errors by file name.
+	 */
+	public Map<String, Throwable> getFailures() {
+		return failures;
+	}
+
+	private static String buildMessage(Map<String, Throwable> failures, int total) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(failures.size()).append(" of ").append(total).append(" platforms could not be loaded");
+		for (Map.Entry<String, Throwable> entry : failures.entrySet()) {
+			builder.append(System.lineSeparator()).append("    ").append(entry.getKey()).append(": ")
+					.append(entry.getValue().getMessage());
+		}
+		return builder.toString();
+	}
+}
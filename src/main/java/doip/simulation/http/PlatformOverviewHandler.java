@@ -3,6 +3,7 @@ package doip.simulation.http;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,7 +15,13 @@ import com.sun.net.httpserver.HttpExchange;
 
 import doip.library.exception.DoipException;
 import doip.simulation.api.ServiceState;
+import doip.simulation.http.helpers.EnumLookup;
 import doip.simulation.http.helpers.HttpServerHelper;
+import doip.simulation.http.helpers.PathParameters;
+import doip.simulation.http.helpers.RouteHandler;
+import doip.simulation.http.helpers.RouteMatch;
+import doip.simulation.http.helpers.RouteTable;
+import doip.simulation.http.helpers.ServerTiming;
 
 import doip.simulation.http.lib.Action;
 import doip.simulation.http.lib.ActionRequest;
@@ -29,10 +36,76 @@ public class PlatformOverviewHandler implements HttpHandler {
 
 	public final static String RESOURCE_PATH = "/doip-simulation/platform";
 
-	private static final String GATEWAY_PATH = "/gateway";
+	/**
+	 * Name of the response header which tells whether a request with the query
+	 * parameter "waitFor" has reached the state ("reached") or has timed out
+	 * ("timeout").
+	 */
+	public static final String WAIT_RESULT_HEADER = "X-Wait-Result";
+
+	private static final EnumLookup<ServiceState> STATES = EnumLookup.of(ServiceState.class);
+
+	private static final EnumLookup<Action> ACTIONS = EnumLookup.of(Action.class);
+
+	/**
+	 * Parks requests with the query parameter "waitFor", null if there is no
+	 * StateMonitor.
+	 */
+	private final StateWaiter stateWaiter;
+
+	/**
+	 * Executes actions asynchronously, null if asynchronous actions are not
+	 * supported.
+	 */
+	private volatile ActionJobs actionJobs = null;
+
+	/**
+	 * Routes of this handler.
+	 */
+	private final RouteTable<RouteHandler> routes = new RouteTable<RouteHandler>()
+			.add("GET", RESOURCE_PATH + "/{platform}", this::handleGetPlatformOrAction)
+			.add("POST", RESOURCE_PATH + "/{platform}", this::handlePostPlatformRequest)
+			.add("GET", RESOURCE_PATH + "/{platform}/gateway/{gateway}", this::handleGetGatewayOrWait)
+			.add("GET", RESOURCE_PATH + "/{platform}/gateway/{gateway}/ecu/{ecu}", this::handleGetEcuRequest);
 
 	public PlatformOverviewHandler(SimulationConnector simulationConnector) {
+		this(simulationConnector, null);
+	}
+
+	/**
+	 * Constructs a handler which supports waiting for a state with the query
+	 * parameters "waitFor" and "timeout", e.g.
+	 * /doip-simulation/platform/X2024?waitFor=RUNNING&timeout=10s
+	 *
+	 * @param simulationConnector The connector to the simulation.
+	 * @param stateMonitor        The monitor which detects the state changes, or
+	 *                            null if waiting shall not be supported.
+	 */
+	public PlatformOverviewHandler(SimulationConnector simulationConnector, StateMonitor stateMonitor) {
 		this.simulationConnector = simulationConnector;
+		this.stateWaiter = stateMonitor != null ? new StateWaiter(stateMonitor) : null;
+	}
+
+	/**
+	 * Answers the requests which are still parked and stops the threads which
+	 * complete them. It is called when the server is stopped.
+	 */
+	public void shutdown() {
+		if (stateWaiter != null) {
+			stateWaiter.shutdown();
+		}
+	}
+
+	/**
+	 * Enables asynchronous actions. A request with the query parameter
+	 * "async=true" or the header "Prefer: respond-async" will then be answered
+	 * with "202 Accepted" and the location of a job resource.
+	 *
+	 * @param actionJobs The executor of the jobs, or null to disable
+	 *                   asynchronous actions.
+	 */
+	public void setActionJobs(ActionJobs actionJobs) {
+		this.actionJobs = actionJobs;
 	}
 
 	/**
@@ -40,69 +113,207 @@ public class PlatformOverviewHandler implements HttpHandler {
 	 * /doip-simulation/platform/{platformName} (GET)
 	 * /doip-simulation/platform/{platformName} (POST)
 	 * /doip-simulation/platform/{platformName}?action=start (GET)
+	 * /doip-simulation/platform/{platformName}?action=start&async=true (GET)
+	 * /doip-simulation/platform/{platformName}?waitFor=RUNNING&timeout=10s (GET)
 	 * /doip-simulation/platform/{platformName}/gateway/{gatewayName} (GET)
+	 * /doip-simulation/platform/{platformName}/gateway/{gatewayName}?waitFor=RUNNING (GET)
+	 * /doip-simulation/platform/{platformName}/gateway/{gatewayName}/ecu/{ecuName} (GET)
 	 */
 	@Override
 	public void handle(HttpExchange exchange) throws IOException {
 
 		URI uri = exchange.getRequestURI();
-		logger.info("Full URI: {}", uri.toString());
-
-		String hostWithPort = HttpServerHelper.getHostWithPort(exchange);
-		if (hostWithPort != null) {
-			simulationConnector.setServerNameFromRequestHeader("http://" + hostWithPort);
-		}
+		logger.debug("Full URI: {}", uri);
 
 		String requestPath = exchange.getRequestURI().getPath();
 		String requestMethod = exchange.getRequestMethod();
 
-		if ("GET".equals(requestMethod) && requestPath.contains(GATEWAY_PATH)) {
-			handleGetGatewayRequest(exchange);
-		} else if ("GET".equals(requestMethod)) {
-			if (isStartActionRequest(exchange)) {
-				handleStartActionRequest(exchange);
-			} else {
-				handleGetPlatformRequest(exchange);
-			}
-		} else if ("POST".equals(requestMethod)) {
-			handlePostPlatformRequest(exchange);
-		} else {
-			// Respond with 405 Method Not Allowed for non-GET requests
+		RouteMatch<RouteHandler> match = routes.match(requestMethod, requestPath);
+		switch (match.getResult()) {
+		case FOUND:
+			RouteMetrics.setCurrentRoute(match.getTemplate());
+			match.getHandler().handle(exchange, match.getParameters());
+			break;
+		case METHOD_NOT_ALLOWED:
+			// Respond with 405 Method Not Allowed and the methods which are supported
 			logger.error("Method not allowed. Received a {} request.", requestMethod);
+			exchange.getResponseHeaders().set("Allow", match.getAllowedMethods());
 			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+			break;
+		default:
+			logger.error("No resource found for path {}", requestPath);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+			break;
+		}
+	}
+
+	private void handleGetPlatformOrAction(HttpExchange exchange, PathParameters parameters) throws IOException {
+		if (isStartActionRequest(exchange)) {
+			handleStartActionRequest(exchange, parameters);
+		} else if (!parkUntilState(exchange, parameters, this::handleGetPlatformRequest)) {
+			handleGetPlatformRequest(exchange, parameters);
+		}
+	}
+
+	/**
+	 * Submits the action as a job if the client requested an asynchronous
+	 * action, and answers with "202 Accepted". The body contains the initial
+	 * state of the job and the header "Location" its path.
+	 *
+	 * @return true if the request has been answered, false if the action shall
+	 *         be executed synchronously.
+	 */
+	private boolean submitIfAsync(HttpExchange exchange, String platformParam, Action action) throws IOException {
+		ActionJobs jobs = actionJobs;
+		if (jobs == null || !isAsyncRequest(exchange)) {
+			return false;
+		}
+		doip.simulation.api.Platform platform = simulationConnector.getPlatformByName(platformParam);
+		if (platform == null) {
+			return false; // Will be answered with 404
+		}
+		ActionJob job = jobs.submit(platform, action);
+		String jobPath = JobsHandler.RESOURCE_PATH + "/" + job.getId();
+		String jsonResponse = simulationConnector.getJsonCodec()
+				.writeAsString(job.toStatus(getServerName(exchange) + jobPath));
+
+		exchange.getResponseHeaders().set("Location", jobPath);
+		HttpServerHelper.sendResponse(exchange, jsonResponse, "application/json", HttpURLConnection.HTTP_ACCEPTED);
+		HttpServerHelper.responseServerLogging(exchange, HttpURLConnection.HTTP_ACCEPTED, jsonResponse);
+		return true;
+	}
+
+	/**
+	 * Gets the server name for the URLs in the response. It is taken from each
+	 * request, so concurrent requests with different hosts do not interfere.
+	 */
+	private String getServerName(HttpExchange exchange) {
+		return simulationConnector.getServerName(HttpServerHelper.getHostWithPort(exchange));
+	}
+
+	private static boolean isAsyncRequest(HttpExchange exchange) {
+		if ("true".equalsIgnoreCase(HttpServerHelper.getQueryParam(exchange, "async"))) {
+			return true;
+		}
+		String prefer = exchange.getRequestHeaders().getFirst("Prefer");
+		return prefer != null && prefer.toLowerCase().contains("respond-async");
+	}
+
+	private void handleGetGatewayOrWait(HttpExchange exchange, PathParameters parameters) throws IOException {
+		if (!parkUntilState(exchange, parameters, this::handleGetGatewayRequest)) {
+			handleGetGatewayRequest(exchange, parameters);
+		}
+	}
+
+	/**
+	 * Parks a request with the query parameter "waitFor" until the platform or
+	 * gateway has reached the state or the timeout has expired. No thread is
+	 * blocked while the request is parked. Then the response is sent by the
+	 * given handler with the header "X-Wait-Result".
+	 *
+	 * @param exchange   The HTTP exchange.
+	 * @param parameters The path parameters "platform" and optionally "gateway".
+	 * @param handler    The handler which sends the response.
+	 * @return true if the request has been parked or has already been answered
+	 *         because of invalid parameters, false if the response shall be sent
+	 *         right away.
+	 */
+	private boolean parkUntilState(HttpExchange exchange, PathParameters parameters, RouteHandler handler)
+			throws IOException {
+		String query = exchange.getRequestURI().getQuery();
+		int waitForStart = HttpServerHelper.indexOfQueryValue(query, "waitFor");
+		if (waitForStart < 0) {
+			return false;
+		}
+		if (stateWaiter == null) {
+			logger.warn("Waiting for a state is not supported without a state monitor, answering right away");
+			return false;
+		}
+
+		ServiceState target = HttpServerHelper.getQueryParam(query, waitForStart, STATES);
+		long timeoutMillis;
+		try {
+			if (target == null) {
+				throw new IllegalArgumentException("Unknown state: " + HttpServerHelper.getQueryParam(query, "waitFor"));
+			}
+			timeoutMillis = StateWaiter.parseTimeout(HttpServerHelper.getQueryParam(query, "timeout"));
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid query parameters: {}", e.getMessage());
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1); // Bad Request
+			return true;
+		}
+
+		String platformParam = parameters.get("platform");
+		String gatewayParam = parameters.get("gateway");
+		String key;
+		Supplier<ServiceState> currentState;
+		if (gatewayParam == null) {
+			doip.simulation.api.Platform platform = simulationConnector.getPlatformByName(platformParam);
+			if (platform == null) {
+				return false; // Will be answered with 404
+			}
+			key = platformParam;
+			currentState = platform::getState;
+		} else {
+			doip.simulation.api.Gateway gateway = simulationConnector.getGatewayByName(platformParam, gatewayParam);
+			if (gateway == null) {
+				return false; // Will be answered with 404
+			}
+			key = platformParam + "/" + gatewayParam;
+			currentState = gateway::getState;
 		}
+
+		logger.debug("Waiting up to {} ms for {} to be {}", timeoutMillis, key, target);
+		// The request is recorded by the access log and the metrics when it is answered
+		ResponseCompletion completion = ResponseCompletion.defer();
+		stateWaiter.await(key, target, currentState, timeoutMillis, reached -> {
+			try {
+				exchange.getResponseHeaders().set(WAIT_RESULT_HEADER, reached ? "reached" : "timeout");
+				handler.handle(exchange, parameters);
+			} catch (IOException e) {
+				logger.error("Error sending the response of a parked request: {}", e.getMessage(), e);
+				exchange.close();
+			} finally {
+				completion.complete();
+			}
+		});
+		return true;
 	}
 
 	// Method to handle the special case for starting an action
-	private void handleStartActionRequest(HttpExchange exchange) throws IOException {
+	private void handleStartActionRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
 		try {
 			// Extract platform parameter from the path
 			String requestPath = exchange.getRequestURI().getPath();
 
-			logger.info("Path component of this URI :{} ", requestPath);
+			logger.debug("Path component of this URI :{} ", requestPath);
 
-			String platformParam = HttpServerHelper.getPathParam(requestPath, "platform");
+			String platformParam = parameters.get("platform");
 			if (platformParam != null) {
 
-				String requestInfo = String.format("This is a POST request for platform: %s", platformParam);
-				logger.info(requestInfo);
+				logger.debug("This is a POST request for platform: {}", platformParam);
 
 				// Deserialize the JSON string into a ActionRequest object
-				String actionParam = HttpServerHelper.getQueryParam(exchange, "action");
-				if (actionParam == null || !isValidAction(actionParam)) {
-					// If 'status' is not empty and not a valid status, return Bad Request
-					logger.error("Invalid status provided: {}", actionParam);
+				String query = exchange.getRequestURI().getQuery();
+				int actionStart = HttpServerHelper.indexOfQueryValue(query, "action");
+				Action currentAction = actionStart < 0 ? null : HttpServerHelper.getQueryParam(query, actionStart, ACTIONS);
+				if (currentAction == null) {
+					// If 'action' is missing or not a valid action, return Bad Request
+					logger.error("Invalid action provided: {}", query);
 					exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1); // Bad Request
 					return;
 				}
 
-				Action currentAction = Action.valueOf(actionParam);
 				ActionRequest receivedAction = new ActionRequest();
 				receivedAction.setAction(currentAction);
 
 				// Process the received platform information
 				logger.info("Received action: {}", receivedAction.getAction().toString());
 
+				if (submitIfAsync(exchange, platformParam, currentAction)) {
+					return;
+				}
+
 				SimulationResponse simulationResponse = simulationConnector.handlePlatformAction(platformParam,
 						receivedAction);
 
@@ -111,7 +322,8 @@ public class PlatformOverviewHandler implements HttpHandler {
 				if (simulationResponse.getStatusCode() != HttpURLConnection.HTTP_OK) {
 					jsonResponse = simulationResponse.getJsonResponse();
 				} else {
-					jsonResponse = simulationConnector.buildPlatformJsonResponse(platformParam).getJsonResponse();
+					jsonResponse = simulationConnector.buildPlatformJsonResponse(getServerName(exchange), platformParam)
+							.getJsonResponse();
 				}
 
 				// Set the response headers and body
@@ -135,14 +347,14 @@ public class PlatformOverviewHandler implements HttpHandler {
 		}
 	}
 
-	private void handlePostPlatformRequest(HttpExchange exchange) throws IOException {
+	private void handlePostPlatformRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
 		try {
 			// Extract platform parameter from the path
 			String requestPath = exchange.getRequestURI().getPath();
 
-			logger.info("Path component of this URI :{} ", requestPath);
+			logger.debug("Path component of this URI :{} ", requestPath);
 
-			String platformParam = HttpServerHelper.getPathParam(requestPath, "platform");
+			String platformParam = parameters.get("platform");
 			if (platformParam != null) {
 
 				// Check the Content-Type header
@@ -156,8 +368,7 @@ public class PlatformOverviewHandler implements HttpHandler {
 							contentType);
 				}
 
-				String requestInfo = String.format("This is a POST request for platform: %s", platformParam);
-				logger.info(requestInfo);
+				logger.debug("This is a POST request for platform: {}", platformParam);
 
 				String requestString = HttpServerHelper.readRequestBodyAsString(exchange);
 				HttpServerHelper.requestServerLogging(exchange, requestString);
@@ -173,10 +384,10 @@ public class PlatformOverviewHandler implements HttpHandler {
 					// If an empty request JSON is allowed
 					// Build the JSON response
 					SimulationResponse simulationResponse = simulationConnector
-							.buildPlatformJsonResponse(platformParam);
+							.buildPlatformJsonResponse(getServerName(exchange), platformParam);
 
 					// Set the response headers and body
-					HttpServerHelper.sendResponse(exchange, simulationResponse.getJsonResponse(), "application/json",
+					HttpServerHelper.sendResponse(exchange, simulationResponse.getBody(), "application/json",
 							simulationResponse.getStatusCode());
 					HttpServerHelper.responseServerLogging(exchange, simulationResponse.getStatusCode(),
 							simulationResponse.getJsonResponse());
@@ -190,6 +401,10 @@ public class PlatformOverviewHandler implements HttpHandler {
 						// Process the received platform information
 						logger.info("Received action: {}", receivedAction.getAction().toString());
 
+						if (submitIfAsync(exchange, platformParam, receivedAction.getAction())) {
+							return;
+						}
+
 						SimulationResponse simulationResponse = simulationConnector.handlePlatformAction(platformParam,
 								receivedAction);
 
@@ -198,7 +413,8 @@ public class PlatformOverviewHandler implements HttpHandler {
 						if (simulationResponse.getStatusCode() != HttpURLConnection.HTTP_OK) {
 							jsonResponse = simulationResponse.getJsonResponse();
 						} else {
-							jsonResponse = simulationConnector.buildPlatformJsonResponse(platformParam)
+							jsonResponse = simulationConnector
+									.buildPlatformJsonResponse(getServerName(exchange), platformParam)
 									.getJsonResponse();
 						}
 
@@ -228,32 +444,54 @@ public class PlatformOverviewHandler implements HttpHandler {
 		}
 	}
 
-	private void handleGetGatewayRequest(HttpExchange exchange) throws IOException {
+	private void handleGetGatewayRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
 		try {
-			// Get the request URI
-			String requestUri = exchange.getRequestURI().toString();
-
-			logger.info("Path component of this URI :{} ", exchange.getRequestURI().getPath());
+			logger.debug("Path component of this URI :{} ", exchange.getRequestURI().getPath());
 
 			// Extract platform and gateway from the path
-			String platformParam = HttpServerHelper.getPathParam(requestUri, "platform");
-			String gatewayParam = HttpServerHelper.getPathParam(requestUri, "gateway");
+			String platformParam = parameters.get("platform");
+			String gatewayParam = parameters.get("gateway");
 
 			if (platformParam != null && gatewayParam != null) {
 				// Process the platform and gateway information
-				String requestInfo = String.format("This is a GET request for Platform: %s Gateway: %s", platformParam,
-						gatewayParam);
-				logger.info(requestInfo);
+				logger.debug("This is a GET request for Platform: {} Gateway: {}", platformParam, gatewayParam);
+
+				ResponseProjection projection = getProjection(exchange);
+				if (projection == null) {
+					return;
+				}
+
+				if (simulationConnector.isStreamingEnabled()) {
+					ServerTiming timing = ServerTiming.current();
+					long start = timing != null ? System.nanoTime() : 0;
+					doip.simulation.api.Gateway gateway = simulationConnector.getGatewayByName(platformParam,
+							gatewayParam);
+					if (timing != null) {
+						timing.add(ServerTiming.Phase.RESOLVE, start);
+					}
+					if (gateway != null) {
+						// Write the JSON while the ECUs are visited instead of building it in memory
+						setNextCursor(exchange, simulationConnector.getNextCursor(gateway, projection));
+						HttpServerHelper.sendStreamingResponse(exchange, "application/json",
+								HttpURLConnection.HTTP_OK,
+								out -> simulationConnector.writeGatewayJson(getServerName(exchange), gateway,
+										platformParam, projection, out));
+						HttpServerHelper.responseServerLogging(exchange, HttpURLConnection.HTTP_OK, null);
+						return;
+					}
+				}
 
 				// Build the JSON response
-				SimulationResponse simulationResponse = simulationConnector.buildGatewayJsonResponse(platformParam,
-						gatewayParam);
+				SimulationResponse simulationResponse = simulationConnector.buildGatewayJsonResponse(
+						getServerName(exchange), platformParam, gatewayParam, projection);
+				setNextCursor(exchange, simulationResponse.getNextCursor());
 
-				// Set the response headers and body
-				HttpServerHelper.sendResponse(exchange, simulationResponse.getJsonResponse(), "application/json",
-						simulationResponse.getStatusCode());
-				HttpServerHelper.responseServerLogging(exchange, simulationResponse.getStatusCode(),
-						simulationResponse.getJsonResponse());
+				// Set the response headers and body, or send 304 if the client has the current version
+				int sentStatusCode = HttpServerHelper.sendResponseBody(exchange, simulationResponse.getResponseBody(),
+						"application/json", simulationResponse.getStatusCode());
+				HttpServerHelper.responseServerLogging(exchange, sentStatusCode,
+						sentStatusCode == HttpURLConnection.HTTP_NOT_MODIFIED ? null
+								: simulationResponse.getJsonResponse());
 
 			} else {
 				// Invalid URL parameters
@@ -268,26 +506,72 @@ public class PlatformOverviewHandler implements HttpHandler {
 
 	}
 
-	private void handleGetPlatformRequest(HttpExchange exchange) throws IOException {
+	private void handleGetEcuRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
+		try {
+			String platformParam = parameters.get("platform");
+			String gatewayParam = parameters.get("gateway");
+			String ecuParam = parameters.get("ecu");
+
+			logger.debug("This is a GET request for Platform: {} Gateway: {} ECU: {}", platformParam, gatewayParam,
+					ecuParam);
+
+			ResponseProjection projection = getProjection(exchange);
+			if (projection == null) {
+				return;
+			}
+
+			if (simulationConnector.isStreamingEnabled()) {
+				doip.simulation.api.Ecu ecu = simulationConnector.getEcuByName(platformParam, gatewayParam, ecuParam);
+				if (ecu != null) {
+					// Write the JSON while the lookup entries are visited instead of building it in memory
+					setNextCursor(exchange, simulationConnector.getNextCursor(ecu, projection));
+					HttpServerHelper.sendStreamingResponse(exchange, "application/json", HttpURLConnection.HTTP_OK,
+							out -> simulationConnector.writeEcuJson(getServerName(exchange), ecu, platformParam,
+									gatewayParam, projection, out));
+					HttpServerHelper.responseServerLogging(exchange, HttpURLConnection.HTTP_OK, null);
+					return;
+				}
+			}
+
+			// Build the JSON response of the requested ECU only
+			SimulationResponse simulationResponse = simulationConnector.buildEcuJsonResponse(getServerName(exchange),
+					platformParam, gatewayParam, ecuParam, projection);
+			setNextCursor(exchange, simulationResponse.getNextCursor());
+
+			// Set the response headers and body, or send 304 if the client has the current version
+			int sentStatusCode = HttpServerHelper.sendResponseBody(exchange, simulationResponse.getResponseBody(),
+					"application/json", simulationResponse.getStatusCode());
+			HttpServerHelper.responseServerLogging(exchange, sentStatusCode,
+					sentStatusCode == HttpURLConnection.HTTP_NOT_MODIFIED ? null
+							: simulationResponse.getJsonResponse());
+		} catch (Exception e) {
+			// Handle exceptions and send an appropriate response
+			logger.error("Error processing request: {}", e.getMessage(), e);
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_INTERNAL_ERROR, -1); // Internal Server Error
+		}
+	}
+
+	private void handleGetPlatformRequest(HttpExchange exchange, PathParameters parameters) throws IOException {
 		try {
 			// Extract platform parameter from the path
 			String requestPath = exchange.getRequestURI().getPath();
-			logger.info("Path component of this URI :{} ", exchange.getRequestURI().getPath());
+			logger.debug("Path component of this URI :{} ", exchange.getRequestURI().getPath());
 
-			String platformParam = HttpServerHelper.getPathParam(requestPath, "platform");
+			String platformParam = parameters.get("platform");
 			if (platformParam != null) {
 
-				String requestInfo = String.format("This is a GET request for platform: %s", platformParam);
-				logger.info(requestInfo);
+				logger.debug("This is a GET request for platform: {}", platformParam);
 
 				// Build the JSON response
-				SimulationResponse simulationResponse = simulationConnector.buildPlatformJsonResponse(platformParam);
-
-				// Set the response headers and body
-				HttpServerHelper.sendResponse(exchange, simulationResponse.getJsonResponse(), "application/json",
-						simulationResponse.getStatusCode());
-				HttpServerHelper.responseServerLogging(exchange, simulationResponse.getStatusCode(),
-						simulationResponse.getJsonResponse());
+				SimulationResponse simulationResponse = simulationConnector
+						.buildPlatformJsonResponse(getServerName(exchange), platformParam);
+
+				// Set the response headers and body, or send 304 if the client has the current version
+				int sentStatusCode = HttpServerHelper.sendResponseBody(exchange, simulationResponse.getResponseBody(),
+						"application/json", simulationResponse.getStatusCode());
+				HttpServerHelper.responseServerLogging(exchange, sentStatusCode,
+						sentStatusCode == HttpURLConnection.HTTP_NOT_MODIFIED ? null
+								: simulationResponse.getJsonResponse());
 			} else {
 				// Invalid URL parameters
 				logger.error("Invalid URL parameters for POST request.");
@@ -301,13 +585,34 @@ public class PlatformOverviewHandler implements HttpHandler {
 		}
 	}
 
+	/**
+	 * Reads the query parameters "fields", "limit" and "cursor". If they are
+	 * invalid, "400 Bad Request" will be sent.
+	 *
+	 * @param exchange The HTTP exchange.
+	 * @return The projection, or null if the request has already been answered.
+	 */
+	private ResponseProjection getProjection(HttpExchange exchange) throws IOException {
+		String query = exchange.getRequestURI().getQuery();
+		try {
+			return ResponseProjection.fromQuery(HttpServerHelper.getQueryParam(query, "fields"),
+					HttpServerHelper.getQueryParam(query, "limit"), HttpServerHelper.getQueryParam(query, "cursor"));
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid query parameters: {}", e.getMessage());
+			exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1); // Bad Request
+			return null;
+		}
+	}
+
+	private static void setNextCursor(HttpExchange exchange, String nextCursor) {
+		if (nextCursor != null) {
+			exchange.getResponseHeaders().set(ResponseProjection.NEXT_CURSOR_HEADER, nextCursor);
+		}
+	}
+
 	// Helper method to check if it's a special case for starting an action
 	private boolean isStartActionRequest(HttpExchange exchange) {
-		String requestPath = exchange.getRequestURI().getPath();
-		String platformParam = HttpServerHelper.getPathParam(requestPath, "platform");
-		String actionParam = HttpServerHelper.getQueryParam(exchange, "action");
-
-		boolean isValidRequest = actionParam != null && platformParam != null; // && isValidAction(actionParam)
+		boolean isValidRequest = HttpServerHelper.indexOfQueryValue(exchange.getRequestURI().getQuery(), "action") >= 0;
 
 		if (!isValidRequest) {
 			//logger.error("Invalid action request. Platform: {}, Action: {}", platformParam, actionParam);
@@ -316,17 +621,4 @@ public class PlatformOverviewHandler implements HttpHandler {
 		return isValidRequest;
 	}
 
-	private boolean isValidAction(String action) {
-		// Validate the 'action' parameter against the allowed values
-		/*
-		 * TODO: @Nataliya: Using exceptions to validate correctness is expensive.
-		 * Building exceptions by JVM takes a lot of time.
-		 */
-		try {
-			Action currentAction = Action.valueOf(action);
-			return true; // If no exception is thrown, the status is valid
-		} catch (IllegalArgumentException e) {
-			return false; // If an exception is thrown, the status is invalid
-		}
-	}
 }
@@ -0,0 +1,271 @@
+package doip.simulation.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+
+/**
+ * Index of the platforms by their state, together with the number of
+ * platforms and gateways in each state. It is updated by the state changes
+ * which are detected by the StateMonitor and by the actions which are
+ * executed through the SimulationConnector, so a request for the platforms
+ * in one state only touches these platforms and the counts are available
+ * without visiting any platform.
+ * <p>
+ * The index is replaced as a whole on each change (copy-on-write). State
+ * changes are rare compared to requests, and readers get a consistent view
+ * with a single volatile read. Platforms which have been added, removed or
+ * replaced are reported by the StateMonitor as well, so a request does not
+ * need to read the list of platforms. While the StateMonitor is not running
+ * the index can not be kept up to date, so it is rebuilt from the platforms
+ * for each request, which costs the same as filtering all platforms.
+ */
+class PlatformStateIndex implements StateListener {
+
+	private static Logger logger = LogManager.getLogger(PlatformStateIndex.class);
+
+	private static final ServiceState[] STATES = ServiceState.values();
+
+	private final SimulationManager simulationManager;
+
+	private final StateMonitor stateMonitor;
+
+	/**
+	 * The known state of each platform and its gateways by platform name. Only
+	 * accessed while holding the monitor of this object.
+	 */
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	private volatile Snapshot snapshot = null;
+
+	/**
+	 * true while the StateMonitor publishes the changes, so the snapshot does
+	 * not need to be rebuilt.
+	 */
+	private volatile boolean valid = false;
+
+	PlatformStateIndex(SimulationManager simulationManager, StateMonitor stateMonitor) {
+		this.simulationManager = simulationManager;
+		this.stateMonitor = stateMonitor;
+		stateMonitor.addListener(this);
+	}
+
+	/**
+	 * Gets the platforms which had the given state when it has been detected
+	 * last.
+	 *
+	 * @param state The state.
+	 * @return The platforms in the order of the SimulationManager. The set must
+	 *         not be modified.
+	 */
+	Set<Platform> getPlatforms(ServiceState state) {
+		return current().platformsByState.get(state);
+	}
+
+	/**
+	 * Gets the number of platforms and gateways in each state. Both are taken
+	 * from the same version of the index, so they match each other.
+	 *
+	 * @return The counts.
+	 */
+	Counts counts() {
+		Snapshot current = current();
+		return new Counts(current.platformCounts.clone(), current.gatewayCounts.clone());
+	}
+
+	/**
+	 * Gets the version of the index. It will be incremented with each change, so
+	 * it can be used to validate cached responses.
+	 *
+	 * @return The version.
+	 */
+	long getVersion() {
+		return current().version;
+	}
+
+	private Snapshot current() {
+		Snapshot current = snapshot;
+		if (current != null && valid) {
+			return current;
+		}
+		return rebuild();
+	}
+
+	/**
+	 * Reads the states of all platforms and gateways and replaces the index.
+	 */
+	private synchronized Snapshot rebuild() {
+		// The monitor has to run before the index is built, so no change is missed
+		boolean monitored = stateMonitor.isRunning();
+		entries.clear();
+		List<Platform> platforms = simulationManager.getPlatforms();
+		if (platforms != null) {
+			int position = 0;
+			for (Platform platform : platforms) {
+				Entry entry = new Entry(platform, position++);
+				entry.read();
+				entries.put(platform.getName(), entry);
+			}
+		}
+		long version = snapshot != null ? snapshot.version + 1 : 0;
+		snapshot = createSnapshot(version);
+		valid = monitored;
+		logger.debug("State index rebuilt with {} platforms", entries.size());
+		return snapshot;
+	}
+
+	/**
+	 * Reads the states of a platform and its gateways again, e.g. after an
+	 * action has been executed.
+	 *
+	 * @param platform The platform.
+	 */
+	synchronized void refresh(Platform platform) {
+		Entry entry = entries.get(platform.getName());
+		if (entry == null || entry.platform != platform) {
+			valid = false;
+			return;
+		}
+		if (entry.read()) {
+			snapshot = createSnapshot(snapshot.version + 1);
+		}
+	}
+
+	@Override
+	public void stateChanged(StateChangeEvent event) {
+		Platform platform;
+		synchronized (this) {
+			Entry entry = entries.get(event.getPlatform());
+			if (entry == null) {
+				// The platform has been added after the index has been built
+				valid = false;
+				return;
+			}
+			platform = entry.platform;
+		}
+		refresh(platform);
+	}
+
+	@Override
+	public void monitorStopped() {
+		valid = false;
+	}
+
+	@Override
+	public void platformsChanged() {
+		valid = false;
+	}
+
+	private Snapshot createSnapshot(long version) {
+		List<Entry> ordered = new ArrayList<>(entries.values());
+		ordered.sort(Comparator.comparingInt((Entry e) -> e.position));
+		EnumMap<ServiceState, Set<Platform>> platformsByState = new EnumMap<>(ServiceState.class);
+		for (ServiceState state : STATES) {
+			platformsByState.put(state, new LinkedHashSet<>());
+		}
+		int[] platformCounts = new int[STATES.length];
+		int[] gatewayCounts = new int[STATES.length];
+		for (Entry entry : ordered) {
+			if (entry.state != null) {
+				platformsByState.get(entry.state).add(entry.platform);
+				platformCounts[entry.state.ordinal()]++;
+			}
+			for (ServiceState gatewayState : entry.gatewayStates) {
+				if (gatewayState != null) {
+					gatewayCounts[gatewayState.ordinal()]++;
+				}
+			}
+		}
+		for (ServiceState state : STATES) {
+			platformsByState.put(state, Collections.unmodifiableSet(platformsByState.get(state)));
+		}
+		return new Snapshot(version, platformsByState, platformCounts, gatewayCounts);
+	}
+
+	/**
+	 * The states of one platform and its gateways.
+	 */
+	private static final class Entry {
+
+		private final Platform platform;
+
+		private final int position;
+
+		private ServiceState state;
+
+		private ServiceState[] gatewayStates = new ServiceState[0];
+
+		private Entry(Platform platform, int position) {
+			this.platform = platform;
+			this.position = position;
+		}
+
+		/**
+		 * Reads the current states.
+		 *
+		 * @return true if a state has changed.
+		 */
+		private boolean read() {
+			ServiceState newState = platform.getState();
+			List<Gateway> gateways = platform.getGateways();
+			ServiceState[] newGatewayStates = new ServiceState[gateways != null ? gateways.size() : 0];
+			for (int i = 0; i < newGatewayStates.length; i++) {
+				newGatewayStates[i] = gateways.get(i).getState();
+			}
+			boolean changed = newState != state || !Arrays.equals(newGatewayStates, gatewayStates);
+			state = newState;
+			gatewayStates = newGatewayStates;
+			return changed;
+		}
+	}
+
+	/**
+	 * The number of platforms and gateways in each state, the index is the
+	 * ordinal of the state.
+	 */
+	static final class Counts {
+
+		final int[] platforms;
+
+		final int[] gateways;
+
+		private Counts(int[] platforms, int[] gateways) {
+			this.platforms = platforms;
+			this.gateways = gateways;
+		}
+	}
+
+	private static final class Snapshot {
+
+		private final long version;
+
+		private final EnumMap<ServiceState, Set<Platform>> platformsByState;
+
+		private final int[] platformCounts;
+
+		private final int[] gatewayCounts;
+
+		private Snapshot(long version, EnumMap<ServiceState, Set<Platform>> platformsByState, int[] platformCounts,
+				int[] gatewayCounts) {
+			this.version = version;
+			this.platformsByState = platformsByState;
+			this.platformCounts = platformCounts;
+			this.gatewayCounts = gatewayCounts;
+		}
+	}
+}
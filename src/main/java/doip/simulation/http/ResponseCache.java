@@ -0,0 +1,84 @@
+package doip.simulation.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cache for serialized responses of the SimulationConnector. Each entry is
+ * stored together with the state version of the simulation and a fingerprint of
+ * the state of the resource at the time when the response has been built. An
+ * entry is only returned if both values are still the same, otherwise the
+ * response needs to be built again.
+ */
+final class ResponseCache {
+
+	private static Logger logger = LogManager.getLogger(ResponseCache.class);
+
+	/**
+	 * The host name is part of the key, so the number of entries needs to be
+	 * limited because the host is taken from the request header.
+	 */
+	static final int MAX_ENTRIES = 1024;
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds the key for a resource.
+	 *
+	 * @param serverName The server name which is used in the URLs of the
+	 *                   response.
+	 * @param resource   The path of the resource including relevant query
+	 *                   parameters.
+	 * @return The key.
+	 */
+	static String key(String serverName, String resource) {
+		return serverName + " " + resource;
+	}
+
+	/**
+	 * Returns the cached response if it has been built for the given version and
+	 * fingerprint.
+	 *
+	 * @param key         The key of the resource.
+	 * @param version     The current state version of the simulation.
+	 * @param fingerprint The current fingerprint of the resource.
+	 * @return The cached response or null if there is no valid entry.
+	 */
+	SimulationResponse get(String key, long version, long fingerprint) {
+		Entry entry = entries.get(key);
+		if (entry == null || entry.version != version || entry.fingerprint != fingerprint) {
+			return null;
+		}
+		return entry.response;
+	}
+
+	void put(String key, long version, long fingerprint, SimulationResponse response) {
+		if (entries.size() >= MAX_ENTRIES && !entries.containsKey(key)) {
+			logger.debug("Response cache is full, all entries will be removed");
+			entries.clear();
+		}
+		entries.put(key, new Entry(version, fingerprint, response));
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+		private final long version;
+		private final long fingerprint;
+		private final SimulationResponse response;
+
+		private Entry(long version, long fingerprint, SimulationResponse response) {
+			this.version = version;
+			this.fingerprint = fingerprint;
+			this.response = response;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Notifies the access log and the route metrics when the response of an
+ * exchange is complete. Usually this is the case when the handler returns. A
+ * handler which keeps the exchange open and sends the response later from
+ * another thread, like a parked "waitFor" request or an event stream, calls
+ * {@link #defer()} before it returns and {@link #complete()} when the response
+ * has been finished. The listeners are then called when both have happened,
+ * so they see the final status code, the number of bytes and the real
+ * latency.
+ * <p>
+ * The listeners are kept per thread, because the JDK HTTP server shares the
+ * attributes of an exchange with all exchanges of its context.
+ */
+final class ResponseCompletion {
+
+	private static Logger logger = LogManager.getLogger(ResponseCompletion.class);
+
+	/**
+	 * The listeners of the exchange which is handled by the current thread, the
+	 * outermost first. A listener which has been deferred is replaced by null.
+	 */
+	private static final ThreadLocal<List<Runnable>> LISTENERS = ThreadLocal.withInitial(ArrayList::new);
+
+	/**
+	 * The completion which has been deferred by the handler of the current
+	 * thread, until the outermost caller of run() has returned.
+	 */
+	private static final ThreadLocal<ResponseCompletion> DEFERRED = new ThreadLocal<>();
+
+	/**
+	 * A step of the handling of an exchange, e.g. the rest of a filter chain.
+	 */
+	@FunctionalInterface
+	interface Task {
+		void run() throws IOException;
+	}
+
+	/**
+	 * The listeners which have been deferred, the innermost first.
+	 */
+	private final List<Runnable> listeners;
+
+	/**
+	 * Counts down the return of the handler and the completion of the
+	 * response. The listeners are called when it reaches 0.
+	 */
+	private final AtomicInteger outstanding = new AtomicInteger(2);
+
+	private final AtomicBoolean completed = new AtomicBoolean(false);
+
+	private ResponseCompletion(List<Runnable> listeners) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Executes a task which handles an exchange and calls the listener when the
+	 * response is complete. This is right after the task unless the handler
+	 * has deferred the response.
+	 *
+	 * @param task     The task, e.g. the call of the handler.
+	 * @param listener Called once when the response is complete.
+	 * @throws IOException If the task throws it.
+	 */
+	static void run(Task task, Runnable listener) throws IOException {
+		List<Runnable> current = LISTENERS.get();
+		int index = current.size();
+		current.add(listener);
+		try {
+			task.run();
+		} finally {
+			Runnable own = current.remove(index);
+			if (index == 0) {
+				ResponseCompletion deferred = DEFERRED.get();
+				if (deferred != null) {
+					DEFERRED.remove();
+					deferred.countDown();
+				}
+			}
+			if (own != null) {
+				own.run();
+			}
+		}
+	}
+
+	/**
+	 * Declares that the response of the exchange which is handled by the
+	 * current thread will be finished after the handler has returned. It must
+	 * be called by the handler thread.
+	 *
+	 * @return The completion on which {@link #complete()} has to be called when
+	 *         the response has been finished.
+	 */
+	static ResponseCompletion defer() {
+		List<Runnable> current = LISTENERS.get();
+		List<Runnable> deferred = new ArrayList<>(current.size());
+		for (int i = current.size() - 1; i >= 0; i--) {
+			Runnable listener = current.get(i);
+			if (listener != null) {
+				deferred.add(listener);
+				current.set(i, null);
+			}
+		}
+		ResponseCompletion completion = new ResponseCompletion(deferred);
+		if (deferred.isEmpty()) {
+			// The handler has been called directly, nobody waits for its return
+			completion.countDown();
+		} else {
+			DEFERRED.set(completion);
+		}
+		return completion;
+	}
+
+	/**
+	 * Declares that the deferred response has been finished. Further calls are
+	 * ignored.
+	 */
+	void complete() {
+		if (completed.compareAndSet(false, true)) {
+			countDown();
+		}
+	}
+
+	private void countDown() {
+		if (outstanding.decrementAndGet() != 0) {
+			return;
+		}
+		for (Runnable listener : listeners) {
+			try {
+				listener.run();
+			} catch (RuntimeException e) {
+				logger.error("Error recording a completed response: {}", e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package doip.simulation.http;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Selects which parts of a gateway or ECU will be returned and which slice of
+ * the lookup entries will be returned. It is given by the query parameters
+ * "fields", "limit" and "cursor":
+ * <ul>
+ * <li>fields: Comma-separated list of the properties which shall be returned,
+ * e.g. "status" for the state of a gateway only, "ecus" for the ECUs without
+ * lookup tables or "runtimeLookupTable" for the runtime lookup tables only.
+ * The names of the gateway and the ECUs and the URLs of the ECUs are always
+ * returned.</li>
+ * <li>limit: Maximum number of entries which will be returned for each lookup
+ * table.</li>
+ * <li>cursor: Index of the first lookup entry which will be returned. The
+ * cursor for the next page will be sent in the header "X-Next-Cursor".</li>
+ * </ul>
+ */
+public final class ResponseProjection {
+
+	public static final String NAME = "name";
+
+	public static final String URL = "url";
+
+	public static final String STATUS = "status";
+
+	public static final String ECUS = "ecus";
+
+	public static final String CONFIGURED_LOOKUP_TABLE = "configuredLookupTable";
+
+	public static final String RUNTIME_LOOKUP_TABLE = "runtimeLookupTable";
+
+	/**
+	 * Name of the response header which contains the cursor of the next page.
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private static final Set<String> KNOWN_FIELDS = Set.of(NAME, URL, STATUS, ECUS, CONFIGURED_LOOKUP_TABLE,
+			RUNTIME_LOOKUP_TABLE);
+
+	/**
+	 * Projection which returns everything.
+	 */
+	public static final ResponseProjection ALL = new ResponseProjection(null, 0, 0);
+
+	/**
+	 * The selected fields, or null if all fields are selected.
+	 */
+	private final Set<String> fields;
+
+	/**
+	 * Maximum number of lookup entries per table, 0 means no limit.
+	 */
+	private final int limit;
+
+	private final int cursor;
+
+	private final String key;
+
+	private ResponseProjection(Set<String> fields, int limit, int cursor) {
+		this.fields = fields;
+		this.limit = limit;
+		this.cursor = cursor;
+		this.key = buildKey();
+	}
+
+	/**
+	 * Creates a projection from the query parameters of a request.
+	 *
+	 * @param fields The value of "fields", or null.
+	 * @param limit  The value of "limit", or null.
+	 * @param cursor The value of "cursor", or null.
+	 * @return The projection.
+	 * @throws IllegalArgumentException If a value is invalid.
+	 */
+	public static ResponseProjection fromQuery(String fields, String limit, String cursor) {
+		if (fields == null && limit == null && cursor == null) {
+			return ALL;
+		}
+		Set<String> selectedFields = null;
+		if (fields != null) {
+			selectedFields = new TreeSet<>();
+			for (String field : fields.split(",")) {
+				String trimmed = field.trim();
+				if (trimmed.isEmpty()) {
+					continue;
+				}
+				if (!KNOWN_FIELDS.contains(trimmed)) {
+					throw new IllegalArgumentException("Unknown field: " + trimmed);
+				}
+				selectedFields.add(trimmed);
+			}
+			selectedFields = Collections.unmodifiableSet(selectedFields);
+		}
+		int parsedLimit = parseNonNegative("limit", limit);
+		if (limit != null && parsedLimit == 0) {
+			throw new IllegalArgumentException("The limit must be greater than 0");
+		}
+		return new ResponseProjection(selectedFields, parsedLimit, parseNonNegative("cursor", cursor));
+	}
+
+	private static int parseNonNegative(String name, String value) {
+		if (value == null) {
+			return 0;
+		}
+		try {
+			int parsed = Integer.parseInt(value.trim());
+			if (parsed < 0) {
+				throw new IllegalArgumentException("The " + name + " must not be negative");
+			}
+			return parsed;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The " + name + " is not a number: " + value);
+		}
+	}
+
+	/**
+	 * Checks whether a property shall be returned.
+	 *
+	 * @param field The name of the property.
+	 * @return true if the property shall be returned.
+	 */
+	public boolean includes(String field) {
+		return fields == null || NAME.equals(field) || fields.contains(field);
+	}
+
+	/**
+	 * Checks whether the ECUs of a gateway shall be returned. They are returned
+	 * if "ecus" or one of the lookup tables has been selected.
+	 *
+	 * @return true if the ECUs shall be returned.
+	 */
+	public boolean includesEcus() {
+		return includes(ECUS) || includes(CONFIGURED_LOOKUP_TABLE) || includes(RUNTIME_LOOKUP_TABLE);
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Returns the requested slice of the lookup entries. The slice is a view of
+	 * the given list, so no entries will be copied.
+	 *
+	 * @param entries All lookup entries of a table.
+	 * @return The entries which shall be returned.
+	 */
+	public <T> List<T> slice(List<T> entries) {
+		if (limit == 0 && cursor == 0) {
+			return entries;
+		}
+		int size = entries.size();
+		int from = Math.min(cursor, size);
+		int to = limit == 0 ? size : (int) Math.min(size, (long) from + limit);
+		return entries.subList(from, to);
+	}
+
+	/**
+	 * Checks whether a lookup table has more entries than the requested slice.
+	 *
+	 * @param size The number of entries of the lookup table.
+	 * @return true if there is a next page.
+	 */
+	public boolean hasMore(int size) {
+		return limit > 0 && (long) cursor + limit < size;
+	}
+
+	/**
+	 * Gets the cursor for the page after this one.
+	 *
+	 * @return The cursor.
+	 */
+	public String getNextCursor() {
+		return Integer.toString(cursor + limit);
+	}
+
+	/**
+	 * Returns a canonical form of the projection which is used in the key of the
+	 * response cache.
+	 *
+	 * @return An empty string if everything is returned, otherwise the canonical
+	 *         query string.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	private String buildKey() {
+		if (fields == null && limit == 0 && cursor == 0) {
+			return "";
+		}
+		StringBuilder builder = new StringBuilder("?");
+		if (fields != null) {
+			builder.append("fields=").append(String.join(",", fields));
+		}
+		builder.append("&limit=").append(limit).append("&cursor=").append(cursor);
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return key.isEmpty() ? "all" : key;
+	}
+}
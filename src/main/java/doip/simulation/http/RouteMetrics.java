@@ -0,0 +1,226 @@
+package doip.simulation.http;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import doip.simulation.http.helpers.LatencyHistogram;
+
+/**
+ * Latency histograms and counters of the requests, separately for each route
+ * and HTTP method. A route is the path template of the handler which answered
+ * the request, e.g. "/doip-simulation/platform/{platform}", or the context
+ * path if the handler does not have templates, like custom handlers.
+ * <p>
+ * Recording is lock-free and does not allocate once a route has been seen for
+ * the first time. The number of routes is limited by the registered contexts
+ * and templates, request paths are never used as routes.
+ */
+public final class RouteMetrics {
+
+	/**
+	 * The methods which are counted separately. All other methods are counted
+	 * as "OTHER", so clients can not create any number of entries.
+	 */
+	static final String[] METHODS = { "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "OTHER" };
+
+	/**
+	 * The route template of the current request, set by handlers which match
+	 * the path against a RouteTable. Exchange attributes can not be used for it,
+	 * because the JDK HTTP server shares them between all exchanges of a
+	 * context.
+	 */
+	private static final ThreadLocal<String> CURRENT_ROUTE = new ThreadLocal<>();
+
+	private final ConcurrentHashMap<String, AtomicReferenceArray<RouteStats>> routes = new ConcurrentHashMap<>();
+
+	private volatile boolean enabled = true;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the recording. The recorded values are kept.
+	 *
+	 * @param enabled true to record the requests.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Sets the route of the request which is handled by the current thread.
+	 *
+	 * @param template The matched path template.
+	 */
+	static void setCurrentRoute(String template) {
+		CURRENT_ROUTE.set(template);
+	}
+
+	/**
+	 * Gets and clears the route of the request which is handled by the current
+	 * thread.
+	 *
+	 * @return The route, or null if the handler did not set it.
+	 */
+	static String takeCurrentRoute() {
+		String route = CURRENT_ROUTE.get();
+		if (route != null) {
+			CURRENT_ROUTE.set(null);
+		}
+		return route;
+	}
+
+	/**
+	 * Records a request.
+	 *
+	 * @param route  The route of the request.
+	 * @param method The HTTP method.
+	 * @param status The status code of the response. Requests which have not
+	 *               been answered are counted as server errors.
+	 * @param bytes  The number of bytes of the response body.
+	 * @param nanos  The time to handle the request in nanoseconds.
+	 */
+	void record(String route, String method, int status, long bytes, long nanos) {
+		RouteStats stats = getOrCreate(route, methodIndex(method));
+		stats.latency.record(nanos);
+		stats.requests.increment();
+		stats.bytes.add(bytes);
+		stats.statusClasses[status >= 100 && status < 600 ? status / 100 : 5].increment();
+	}
+
+	private RouteStats getOrCreate(String route, int methodIndex) {
+		AtomicReferenceArray<RouteStats> byMethod = routes.get(route);
+		if (byMethod == null) {
+			byMethod = routes.computeIfAbsent(route, r -> new AtomicReferenceArray<>(METHODS.length));
+		}
+		RouteStats stats = byMethod.get(methodIndex);
+		if (stats == null) {
+			byMethod.compareAndSet(methodIndex, null, new RouteStats(route, METHODS[methodIndex]));
+			stats = byMethod.get(methodIndex);
+		}
+		return stats;
+	}
+
+	static int methodIndex(String method) {
+		for (int i = 0; i < METHODS.length - 1; i++) {
+			if (METHODS[i].equals(method)) {
+				return i;
+			}
+		}
+		return METHODS.length - 1;
+	}
+
+	/**
+	 * Gets the statistics of a route and method.
+	 *
+	 * @param method The HTTP method.
+	 * @param route  The route.
+	 * @return The statistics, or null if no such request has been recorded.
+	 */
+	public RouteStats get(String method, String route) {
+		AtomicReferenceArray<RouteStats> byMethod = routes.get(route);
+		return byMethod != null ? byMethod.get(methodIndex(method)) : null;
+	}
+
+	/**
+	 * Gets the statistics of all routes and methods which have been recorded.
+	 *
+	 * @return The statistics, sorted by route and method.
+	 */
+	public List<RouteStats> getAll() {
+		List<RouteStats> all = new ArrayList<>();
+		for (AtomicReferenceArray<RouteStats> byMethod : routes.values()) {
+			for (int i = 0; i < byMethod.length(); i++) {
+				RouteStats stats = byMethod.get(i);
+				if (stats != null) {
+					all.add(stats);
+				}
+			}
+		}
+		all.sort(Comparator.comparing(RouteStats::getRoute).thenComparing(RouteStats::getMethod));
+		return all;
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		routes.clear();
+	}
+
+	/**
+	 * The latencies and counters of one route and method.
+	 */
+	public static final class RouteStats {
+
+		private final String route;
+
+		private final String method;
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		private final LongAdder requests = new LongAdder();
+
+		private final LongAdder bytes = new LongAdder();
+
+		/**
+		 * Counters of the responses by the first digit of the status code,
+		 * index 0 is not used.
+		 */
+		private final LongAdder[] statusClasses = new LongAdder[6];
+
+		private RouteStats(String route, String method) {
+			this.route = route;
+			this.method = method;
+			for (int i = 0; i < statusClasses.length; i++) {
+				statusClasses[i] = new LongAdder();
+			}
+		}
+
+		public String getRoute() {
+			return route;
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		/**
+		 * Gets the histogram of the times to handle the requests.
+		 *
+		 * @return The histogram in nanoseconds.
+		 */
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		public long getRequests() {
+			return requests.sum();
+		}
+
+		/**
+		 * Gets the number of bytes of all response bodies as they have been
+		 * sent, i.e. after compression.
+		 *
+		 * @return The number of bytes.
+		 */
+		public long getBytes() {
+			return bytes.sum();
+		}
+
+		/**
+		 * Gets the number of responses with the given class of status codes.
+		 *
+		 * @param statusClass 1 for 1xx, 2 for 2xx up to 5 for 5xx.
+		 * @return The number of responses.
+		 */
+		public long getStatusCount(int statusClass) {
+			return statusClasses[statusClass].sum();
+		}
+	}
+}
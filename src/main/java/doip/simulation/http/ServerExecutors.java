@@ -0,0 +1,79 @@
+package doip.simulation.http;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Factory for the executors which are used by the {@link DoipHttpServer} to
+ * execute the HTTP exchanges.
+ */
+final class ServerExecutors {
+
+	private static Logger logger = LogManager.getLogger(ServerExecutors.class);
+
+	private ServerExecutors() {
+	}
+
+	/**
+	 * Creates the executor for the given execution mode.
+	 *
+	 * @param mode          The execution mode of the server.
+	 * @param workerThreads The number of worker threads for mode BOUNDED_POOL.
+	 * @param queueCapacity The queue capacity for mode BOUNDED_POOL.
+	 * @return The executor, or null if the default executor of the JDK HTTP
+	 *         server shall be used.
+	 */
+	static ExecutorService create(ExecutionMode mode, int workerThreads, int queueCapacity) {
+		switch (mode) {
+		case VIRTUAL_THREADS:
+			return newVirtualThreadExecutor();
+		case BOUNDED_POOL:
+			logger.info("Using {} worker threads with a queue capacity of {}", workerThreads, queueCapacity);
+			return new BoundedWorkerPool(workerThreads, queueCapacity);
+		case DISPATCHER_THREAD:
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Creates an executor which starts a new virtual thread for each task. The
+	 * project is still compiled for Java 11, so the factory method of Java 21 is
+	 * looked up at runtime. If it is not available a cached thread pool is used.
+	 *
+	 * @return The executor.
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			ExecutorService executor = (ExecutorService) factory.invoke(null);
+			logger.info("Using virtual threads to execute HTTP exchanges");
+			return executor;
+		} catch (ReflectiveOperationException e) {
+			logger.warn("Virtual threads are not supported by Java {}, using a cached thread pool instead",
+					System.getProperty("java.version"));
+			return Executors.newCachedThreadPool(namedThreadFactory("doip-http-worker"));
+		}
+	}
+
+	/**
+	 * Creates a thread factory for daemon threads with the given name prefix.
+	 *
+	 * @param prefix The prefix of the thread names.
+	 * @return The thread factory.
+	 */
+	static ThreadFactory namedThreadFactory(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
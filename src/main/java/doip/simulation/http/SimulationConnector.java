@@ -1,9 +1,26 @@
 package doip.simulation.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,14 +30,16 @@ import doip.simulation.api.ServiceState;
 import doip.library.exception.DoipException;
 import doip.simulation.api.Gateway;
 import doip.simulation.api.SimulationManager;
+import doip.simulation.http.helpers.JsonCodec;
+import doip.simulation.http.helpers.ServerTiming;
+import doip.simulation.http.helpers.ServerTiming.Phase;
 import doip.simulation.http.lib.Action;
 import doip.simulation.http.lib.ActionRequest;
 import doip.simulation.http.lib.LookupEntry;
 import doip.simulation.http.lib.Modifier;
 import doip.simulation.http.lib.ServerInfo;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * The SimulationConnector class provides a connection to the simulation manager
@@ -31,29 +50,212 @@ public class SimulationConnector {
 
 	protected SimulationManager simulationManager;
 
-	// private final ObjectMapper objectMapper = new ObjectMapper();
-	private final ObjectMapper objectMapper = new ObjectMapper()
-			.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+	private volatile JsonCodec jsonCodec = JsonCodec.getDefault();
 
 	public static final String PLATFORM_PATH = "/doip-simulation/platform";
 	public static final String DOIP_SIMULATION_PATH = "/doip-simulation";
 	private String hostName;
 
-	private String serverNameFromRequestHeader;
+	private volatile String serverNameFromRequestHeader;
 
+	private final ResponseCache responseCache = new ResponseCache();
+
+	private final UrlPrefixCache urlPrefixes = new UrlPrefixCache(PLATFORM_PATH);
+
+	/**
+	 * Version of the simulation state. It will be incremented when a platform has
+	 * been started or stopped and when invalidateResponseCache() is called.
+	 */
+	private final AtomicLong stateVersion = new AtomicLong();
+
+	/**
+	 * Index of the platforms by state, null if no StateMonitor is available.
+	 */
+	private volatile PlatformStateIndex stateIndex = null;
+
+	private volatile boolean responseCacheEnabled = true;
+
+	private volatile boolean streamingEnabled = false;
+
+	public static final int DEFAULT_ACTION_PARALLELISM = 8;
+
+	private volatile int actionParallelism = DEFAULT_ACTION_PARALLELISM;
+
+	/**
+	 * Limits the number of actions of all batches which run at the same time. It
+	 * is replaced when the parallelism is changed.
+	 */
+	private volatile Semaphore actionPermits = new Semaphore(DEFAULT_ACTION_PARALLELISM);
+
+	/**
+	 * Threads which perform the actions of the batches. The number of threads
+	 * which actually execute an action is limited by actionPermits.
+	 */
+	private final ExecutorService actionExecutor = Executors
+			.newCachedThreadPool(ServerExecutors.namedThreadFactory("doip-http-action"));
+
+	/**
+	 * A lock per platform name, so a platform is never started and stopped at
+	 * the same time by different requests or batches.
+	 */
+	private final Map<String, Object> platformLocks = new ConcurrentHashMap<>();
+
+	public boolean isResponseCacheEnabled() {
+		return responseCacheEnabled;
+	}
+
+	/**
+	 * Enables or disables the cache for serialized responses.
+	 *
+	 * @param enabled true if serialized responses shall be reused.
+	 */
+	public void setResponseCacheEnabled(boolean enabled) {
+		this.responseCacheEnabled = enabled;
+		if (!enabled) {
+			responseCache.clear();
+		}
+	}
+
+	public JsonCodec getJsonCodec() {
+		return jsonCodec;
+	}
+
+	/**
+	 * Sets the codec which is used to serialize the responses. By default the
+	 * shared codec JsonCodec.getDefault() is used.
+	 *
+	 * @param jsonCodec The codec.
+	 */
+	public void setJsonCodec(JsonCodec jsonCodec) {
+		this.jsonCodec = Objects.requireNonNull(jsonCodec);
+	}
+
+	public boolean isStreamingEnabled() {
+		return streamingEnabled;
+	}
+
+	/**
+	 * Enables or disables streaming of large responses. If enabled, the JSON of a
+	 * gateway will be written directly to the response stream while the ECUs and
+	 * lookup entries are visited instead of building the complete response in
+	 * memory. Streamed responses are not cached and do not have an ETag.
+	 *
+	 * @param enabled true if large responses shall be streamed.
+	 */
+	public void setStreamingEnabled(boolean enabled) {
+		this.streamingEnabled = enabled;
+	}
+
+	public int getActionParallelism() {
+		return actionParallelism;
+	}
+
+	/**
+	 * Sets the maximum number of platform actions which run at the same time,
+	 * summed over all batches. Batches which are already running keep the
+	 * previous limit.
+	 *
+	 * @param actionParallelism The maximum number of concurrent actions.
+	 */
+	public void setActionParallelism(int actionParallelism) {
+		if (actionParallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be greater than 0");
+		}
+		this.actionParallelism = actionParallelism;
+		this.actionPermits = new Semaphore(actionParallelism);
+	}
+
+	/**
+	 * Stops the threads which perform the actions of batches. Running batches
+	 * report their remaining actions as interrupted.
+	 */
+	public void shutdown() {
+		actionExecutor.shutdownNow();
+	}
+
+	/**
+	 * Invalidates all cached responses. This needs to be called when the
+	 * simulation has been changed in a way which is not visible in the state of
+	 * the platforms and gateways, for example when the lookup tables have been
+	 * replaced.
+	 */
+	public void invalidateResponseCache() {
+		stateVersion.incrementAndGet();
+	}
+
+	/**
+	 * Gets the current version of the simulation state.
+	 *
+	 * @return The state version.
+	 */
+	public long getStateVersion() {
+		return stateVersion.get();
+	}
+
+	/**
+	 * Indexes the platforms by their state, so the overview with a status filter
+	 * only visits the platforms in that state and the state counts are available
+	 * without visiting any platform. The index is kept up to date by the given
+	 * monitor and by the actions which are executed through this connector.
+	 * Without an index all platforms are filtered for each request.
+	 *
+	 * @param stateMonitor The monitor which detects the state changes.
+	 */
+	public void enableStateIndex(StateMonitor stateMonitor) {
+		this.stateIndex = new PlatformStateIndex(simulationManager, stateMonitor);
+	}
+
+	/**
+	 * Gets the server name which is used by the methods without a server name
+	 * parameter.
+	 *
+	 * @return The server name which has been set last, or the alternative host
+	 *         name if none has been set.
+	 * @deprecated The server name is shared by all requests. Use
+	 *             {@link #getServerName(String)} and pass the result to the
+	 *             methods with a server name parameter.
+	 */
+	@Deprecated
 	public String getServerNameFromRequestHeader() {
-		if (serverNameFromRequestHeader == null) {
+		String serverName = serverNameFromRequestHeader;
+		if (serverName == null) {
 			return hostName;
 		}
-		return serverNameFromRequestHeader;
+		return serverName;
 	}
 
+	/**
+	 * Sets the server name which is used by the methods without a server name
+	 * parameter.
+	 *
+	 * @param serverNameParam The server name, e.g. "http://myserver.com:8080".
+	 * @deprecated Concurrent requests overwrite each other's server name. Pass
+	 *             the server name of the request to the methods with a server
+	 *             name parameter instead.
+	 */
+	@Deprecated
 	public void setServerNameFromRequestHeader(String serverNameParam) {
 		if (serverNameParam != null) {
 			this.serverNameFromRequestHeader = serverNameParam;
 		}
 	}
 
+	/**
+	 * Gets the server name which will be used in the URLs of the response to a
+	 * request.
+	 *
+	 * @param hostWithPort The host and port of the request, see
+	 *                     HttpServerHelper.getHostWithPort(), or null.
+	 * @return The server name, e.g. "http://myserver.com:8080", or the
+	 *         alternative host name if the request contains no host.
+	 */
+	public String getServerName(String hostWithPort) {
+		if (hostWithPort == null) {
+			return hostName;
+		}
+		return urlPrefixes.serverName(hostWithPort);
+	}
+
 	public SimulationConnector(SimulationManager simulationManager, String alternativeHostName) {
 		this.simulationManager = simulationManager;
 		this.hostName = alternativeHostName;
@@ -71,9 +273,11 @@ public class SimulationConnector {
 		try {
 			// Access simulationManager
 			platforms = simulationManager.getPlatforms();
-			logger.info("Retrieved platform overview. Total platforms: {}", platforms.size());
-			for (Platform platform : platforms) {
-				logger.info("Platform: {}, State: {}", platform.getName(), platform.getState());
+			logger.debug("Retrieved platform overview. Total platforms: {}", platforms.size());
+			if (logger.isDebugEnabled()) {
+				for (Platform platform : platforms) {
+					logger.debug("Platform: {}, State: {}", platform.getName(), platform.getState());
+				}
 			}
 		} catch (Exception e) {
 			// Log the error and rethrow the exception
@@ -95,7 +299,7 @@ public class SimulationConnector {
 			// Attempt to retrieve the platform
 			platform = simulationManager.getPlatformByName(platformName);
 			if (platform != null) {
-				logger.info("Platform: {}, State: {}", platform.getName(), platform.getState());
+				logger.debug("Platform: {}, State: {}", platform.getName(), platform.getState());
 			} else {
 				// Log a warning if the platform is not found
 				logger.warn("Platform: {} not found", platformName);
@@ -123,7 +327,7 @@ public class SimulationConnector {
 				// Attempt to retrieve the gateway from the platform
 				gateway = platform.getGatewayByName(gatewayName);
 				if (gateway != null) {
-					logger.info("Gateway: {}, State: {}", gateway.getName(), gateway.getState());
+					logger.debug("Gateway: {}, State: {}", gateway.getName(), gateway.getState());
 				} else {
 					// Log a warning if the gateway is not found
 					logger.warn("Gateway: {} for Platform {} not found", gatewayName, platformName);
@@ -136,6 +340,31 @@ public class SimulationConnector {
 		return gateway;
 	}
 
+	/**
+	 * Retrieve an ECU by name for a specific gateway.
+	 *
+	 * @param platformName The name of the platform.
+	 * @param gatewayName  The name of the gateway.
+	 * @param ecuName      The name of the ECU.
+	 * @return The ECU if found, otherwise null.
+	 */
+	public doip.simulation.api.Ecu getEcuByName(String platformName, String gatewayName, String ecuName) {
+		doip.simulation.api.Ecu ecu = null;
+		try {
+			Gateway gateway = getGatewayByName(platformName, gatewayName);
+			if (gateway != null) {
+				ecu = gateway.getEcuByName(ecuName);
+				if (ecu == null) {
+					logger.warn("ECU: {} for Gateway {} not found", ecuName, gatewayName);
+				}
+			}
+		} catch (Exception e) {
+			// Log the error and return null
+			logger.error("Error retrieving ECU by name: {}", e.getMessage(), e);
+		}
+		return ecu;
+	}
+
 	/**
 	 * Build a JSON response for the overview of platforms based on the specified
 	 * status.
@@ -145,12 +374,35 @@ public class SimulationConnector {
 	 * @throws Exception If an I/O error occurs during the process.
 	 */
 	public SimulationResponse buildOverviewJsonResponse(String status) throws IOException {
+		return buildOverviewJsonResponse(getServerNameFromRequestHeader(), status);
+	}
+
+	/**
+	 * Build a JSON response for the overview of platforms based on the specified
+	 * status.
+	 *
+	 * @param serverName The server name of the request which is used in the URLs.
+	 * @param status     The status parameter.
+	 * @return A SimulationResponse object containing the HTTP status code and JSON response.
+	 * @throws IOException If an I/O error occurs during the process.
+	 */
+	public SimulationResponse buildOverviewJsonResponse(String serverName, String status) throws IOException {
 		try {
 			// Initialize ServerInfo to hold platform overview
 			// ServerInfo serverInfo = new ServerInfo();
 
 			// Retrieve platform overview based on the status
-			List<doip.simulation.api.Platform> platforms = getPlatformOverview(status);
+			PlatformStateIndex index = stateIndex;
+			boolean indexed = index != null && status != null && !status.isEmpty();
+			long indexVersion = 0;
+			List<doip.simulation.api.Platform> platforms;
+			if (indexed) {
+				// Only the platforms in the requested state are visited
+				indexVersion = index.getVersion();
+				platforms = new ArrayList<>(index.getPlatforms(ServiceState.valueOf(status)));
+			} else {
+				platforms = getPlatformOverview(status);
+			}
 
 			if (platforms == null) {
 				// Log an error if platform overview retrieval fails. Check logs for details.
@@ -159,13 +411,23 @@ public class SimulationConnector {
 				return new SimulationResponse(HttpURLConnection.HTTP_NOT_FOUND,buildJsonErrorResponse(errorMessage)); //"{}" Return an empty JSON object or handle it as needed
 			}
 
+			// Reuse the serialized response if nothing has changed since the last request
+			String cacheKey = ResponseCache.key(serverName, DOIP_SIMULATION_PATH + "?status=" + status);
+			long version = stateVersion.get();
+			// A platform which has entered the state changes the index version
+			long fingerprint = 31 * indexVersion + fingerprintPlatforms(platforms);
+			SimulationResponse cachedResponse = getCachedResponse(cacheKey, version, fingerprint);
+			if (cachedResponse != null) {
+				return cachedResponse;
+			}
+
 			// Process the retrieved platforms and populate serverInfo
-			doip.simulation.http.lib.ServerInfo serverInfo = processOverview(platforms, status);
+			doip.simulation.http.lib.ServerInfo serverInfo = processOverview(serverName, platforms, status);
 			
 			// Convert the object to JSON
-	        String jsonResponse = buildJsonResponse(serverInfo);
-	        
-			return new SimulationResponse(HttpURLConnection.HTTP_OK,jsonResponse);
+			SimulationResponse response = new SimulationResponse(HttpURLConnection.HTTP_OK, buildJsonResponseBytes(serverInfo));
+			putCachedResponse(cacheKey, version, fingerprint, response);
+			return response;
 		} catch (Exception e) {
 			// Log an error and return an empty JSON object in case of an exception
 			// logger.error("Error building overview JSON response: {}", e.getMessage(), e);
@@ -175,6 +437,65 @@ public class SimulationConnector {
 		}
 	}
 
+	/**
+	 * Build a JSON response with the number of platforms and gateways in each
+	 * state, e.g.
+	 *
+	 * <pre>
+	 * {"platforms":{"RUNNING":2,"STOPPED":1,"ERROR":0},"gateways":{"RUNNING":4,"STOPPED":2,"ERROR":0}}
+	 * </pre>
+	 *
+	 * With a state index the counts are taken from the index, otherwise all
+	 * platforms are visited.
+	 *
+	 * @return A SimulationResponse object containing the HTTP status code and JSON response.
+	 * @throws IOException If an I/O error occurs during the process.
+	 */
+	public SimulationResponse buildStateCountsJsonResponse() throws IOException {
+		try {
+			ServiceState[] states = ServiceState.values();
+			int[] platformCounts;
+			int[] gatewayCounts;
+			PlatformStateIndex index = stateIndex;
+			if (index != null) {
+				PlatformStateIndex.Counts counts = index.counts();
+				platformCounts = counts.platforms;
+				gatewayCounts = counts.gateways;
+			} else {
+				platformCounts = new int[states.length];
+				gatewayCounts = new int[states.length];
+				for (doip.simulation.api.Platform platform : simulationManager.getPlatforms()) {
+					platformCounts[platform.getState().ordinal()]++;
+					for (doip.simulation.api.Gateway gateway : platform.getGateways()) {
+						gatewayCounts[gateway.getState().ordinal()]++;
+					}
+				}
+			}
+
+			ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+			try (JsonGenerator generator = jsonCodec.createGenerator(body)) {
+				generator.writeStartObject();
+				writeStateCounts(generator, "platforms", states, platformCounts);
+				writeStateCounts(generator, "gateways", states, gatewayCounts);
+				generator.writeEndObject();
+			}
+			return new SimulationResponse(HttpURLConnection.HTTP_OK, body.toByteArray());
+		} catch (Exception e) {
+			String errorMessage = "Error building state counts JSON response: " + e.getMessage();
+			logger.error(errorMessage, e);
+			return new SimulationResponse(HttpURLConnection.HTTP_INTERNAL_ERROR, buildJsonErrorResponse(errorMessage));
+		}
+	}
+
+	private static void writeStateCounts(JsonGenerator generator, String name, ServiceState[] states, int[] counts)
+			throws IOException {
+		generator.writeObjectFieldStart(name);
+		for (ServiceState state : states) {
+			generator.writeNumberField(state.name(), counts[state.ordinal()]);
+		}
+		generator.writeEndObject();
+	}
+
 	/**
 	 * Build a JSON response for a specific platform based on the specified platform
 	 * name.
@@ -184,9 +505,26 @@ public class SimulationConnector {
 	 * @throws Exception If an I/O error occurs during the process.
 	 */
 	public SimulationResponse buildPlatformJsonResponse(String platformName) throws IOException {
+		return buildPlatformJsonResponse(getServerNameFromRequestHeader(), platformName);
+	}
+
+	/**
+	 * Build a JSON response for a specific platform based on the specified platform
+	 * name.
+	 *
+	 * @param serverName   The server name of the request which is used in the URLs.
+	 * @param platformName The name of the platform.
+	 * @return A SimulationResponse object containing the HTTP status code and JSON response.
+	 * @throws IOException If an I/O error occurs during the process.
+	 */
+	public SimulationResponse buildPlatformJsonResponse(String serverName, String platformName) throws IOException {
 		try {
+			ServerTiming timing = ServerTiming.current();
+			long start = timing != null ? System.nanoTime() : 0;
+
 			// Retrieve the platform based on the specified platform name
 			doip.simulation.api.Platform platform = getPlatformByName(platformName);
+			start = lap(timing, Phase.RESOLVE, start);
 
 			if (platform == null) {
 				// Log an error if the specified platform is not found
@@ -195,13 +533,26 @@ public class SimulationConnector {
 				return new SimulationResponse(HttpURLConnection.HTTP_NOT_FOUND,buildJsonErrorResponse(errorMessage)); //"{}" Return an empty JSON object or handle it as needed!
 			}
 
+			// Reuse the serialized response if nothing has changed since the last request
+			String cacheKey = ResponseCache.key(serverName, PLATFORM_PATH + "/" + platformName);
+			long version = stateVersion.get();
+			long fingerprint = fingerprintPlatform(platform, 1);
+			SimulationResponse cachedResponse = getCachedResponse(cacheKey, version, fingerprint);
+			start = lapCache(timing, start, cachedResponse);
+			if (cachedResponse != null) {
+				return cachedResponse;
+			}
+
 			// Process the retrieved platform and create a real JSON object Platformstring 
-			doip.simulation.http.lib.Platform platformInfo = processPlatform(platform);
+			doip.simulation.http.lib.Platform platformInfo = processPlatform(serverName, platform);
+			start = lap(timing, Phase.MAP, start);
 			
 			// Convert the object to JSON
-			String jsonResponse = buildJsonResponse(platformInfo);
-		
-			return new SimulationResponse(HttpURLConnection.HTTP_OK,jsonResponse);
+			byte[] json = buildJsonResponseBytes(platformInfo);
+			lap(timing, Phase.SERIALIZE, start);
+			SimulationResponse response = new SimulationResponse(HttpURLConnection.HTTP_OK, json);
+			putCachedResponse(cacheKey, version, fingerprint, response);
+			return response;
 		} catch (Exception e) {
 			// Log an error and return an empty JSON object in case of an exception
 			// logger.error("Error building platform JSON response: {}", e.getMessage(), e);
@@ -222,9 +573,30 @@ public class SimulationConnector {
 	 * @throws Exception If an I/O error occurs during the process.
 	 */
 	public SimulationResponse buildGatewayJsonResponse(String platformName, String gatewayName) throws IOException {
+		return buildGatewayJsonResponse(getServerNameFromRequestHeader(), platformName, gatewayName,
+				ResponseProjection.ALL);
+	}
+
+	/**
+	 * Build a JSON response for a specific gateway which contains only the parts
+	 * and the slice of the lookup entries which are selected by the projection.
+	 *
+	 * @param serverName   The server name of the request which is used in the URLs.
+	 * @param platformName The name of the platform.
+	 * @param gatewayName  The name of the gateway.
+	 * @param projection   The selected parts of the gateway.
+	 * @return A SimulationResponse object containing the HTTP status code and JSON response.
+	 * @throws IOException If an I/O error occurs during the process.
+	 */
+	public SimulationResponse buildGatewayJsonResponse(String serverName, String platformName, String gatewayName,
+			ResponseProjection projection) throws IOException {
 		try {
+			ServerTiming timing = ServerTiming.current();
+			long start = timing != null ? System.nanoTime() : 0;
+
 			// Retrieve the gateway based on the specified platform and gateway names
 			doip.simulation.api.Gateway gateway = getGatewayByName(platformName, gatewayName);
+			start = lap(timing, Phase.RESOLVE, start);
 
 			if (gateway == null) {
 				// Log an error if the specified gateway is not found
@@ -233,12 +605,28 @@ public class SimulationConnector {
 				return new SimulationResponse(HttpURLConnection.HTTP_NOT_FOUND,buildJsonErrorResponse(errorMessage)); //"{}" Return an empty JSON object or handle it as needed
 			}
 
+			// Reuse the serialized response if nothing has changed since the last request
+			String cacheKey = ResponseCache.key(serverName,
+					PLATFORM_PATH + "/" + platformName + "/gateway/" + gatewayName + projection.getKey());
+			long version = stateVersion.get();
+			long fingerprint = fingerprintGateway(gateway, 1);
+			SimulationResponse cachedResponse = getCachedResponse(cacheKey, version, fingerprint);
+			start = lapCache(timing, start, cachedResponse);
+			if (cachedResponse != null) {
+				return cachedResponse;
+			}
+
 			// Process the retrieved gateway and create a real JSON object Gateway
-			doip.simulation.http.lib.Gateway gatewayInfo = processGateway(gateway, platformName);
+			doip.simulation.http.lib.Gateway gatewayInfo = processGateway(serverName, gateway, platformName, projection);
+			start = lap(timing, Phase.MAP, start);
 
 			// Convert the object to JSON
-			String jsonResponse = buildJsonResponse(gatewayInfo);
-			return new SimulationResponse(HttpURLConnection.HTTP_OK,jsonResponse);
+			byte[] json = buildJsonResponseBytes(gatewayInfo);
+			lap(timing, Phase.SERIALIZE, start);
+			SimulationResponse response = new SimulationResponse(HttpURLConnection.HTTP_OK, json);
+			response.setNextCursor(getNextCursor(gateway, projection));
+			putCachedResponse(cacheKey, version, fingerprint, response);
+			return response;
 		} catch (Exception e) {
 			// Log an error and return an empty JSON object in case of an exception
 			// logger.error("Error building gateway JSON response: {}", e.getMessage(), e);
@@ -249,6 +637,317 @@ public class SimulationConnector {
 		}
 	}
 
+	/**
+	 * Build a JSON response for a specific ECU which contains only the lookup
+	 * tables and the slice of the lookup entries which are selected by the
+	 * projection.
+	 *
+	 * @param serverName   The server name of the request which is used in the URLs.
+	 * @param platformName The name of the platform.
+	 * @param gatewayName  The name of the gateway.
+	 * @param ecuName      The name of the ECU.
+	 * @param projection   The selected parts of the ECU.
+	 * @return A SimulationResponse object containing the HTTP status code and JSON response.
+	 * @throws IOException If an I/O error occurs during the process.
+	 */
+	public SimulationResponse buildEcuJsonResponse(String serverName, String platformName, String gatewayName,
+			String ecuName, ResponseProjection projection) throws IOException {
+		try {
+			ServerTiming timing = ServerTiming.current();
+			long start = timing != null ? System.nanoTime() : 0;
+
+			doip.simulation.api.Ecu ecu = getEcuByName(platformName, gatewayName, ecuName);
+			start = lap(timing, Phase.RESOLVE, start);
+			if (ecu == null) {
+				String errorMessage = String.format("The specified ECU name %s does not exist", ecuName);
+				logger.error(errorMessage);
+				return new SimulationResponse(HttpURLConnection.HTTP_NOT_FOUND, buildJsonErrorResponse(errorMessage));
+			}
+
+			// Reuse the serialized response if the lookup tables have not been changed
+			String ecuPath = PLATFORM_PATH + "/" + platformName + "/gateway/" + gatewayName + "/ecu/" + ecuName;
+			String cacheKey = ResponseCache.key(serverName, ecuPath + projection.getKey());
+			long version = stateVersion.get();
+			long fingerprint = fingerprintEcu(ecu, 1);
+			SimulationResponse cachedResponse = getCachedResponse(cacheKey, version, fingerprint);
+			start = lapCache(timing, start, cachedResponse);
+			if (cachedResponse != null) {
+				return cachedResponse;
+			}
+
+			String currentEcuUrl = urlPrefixes.ecu(serverName, platformName, gatewayName, ecuName).getUrl();
+			doip.simulation.http.lib.Ecu ecuInfo = toJsonEcu(ecu, currentEcuUrl, projection);
+			start = lap(timing, Phase.MAP, start);
+
+			byte[] json = buildJsonResponseBytes(ecuInfo);
+			lap(timing, Phase.SERIALIZE, start);
+			SimulationResponse response = new SimulationResponse(HttpURLConnection.HTTP_OK, json);
+			response.setNextCursor(getNextCursor(ecu, projection));
+			putCachedResponse(cacheKey, version, fingerprint, response);
+			return response;
+		} catch (Exception e) {
+			String errorMessage = "Error building ECU JSON response: " + e.getMessage();
+			logger.error(errorMessage, e);
+			return new SimulationResponse(HttpURLConnection.HTTP_INTERNAL_ERROR, buildJsonErrorResponse(errorMessage));
+		}
+	}
+
+	/**
+	 * Writes the JSON of a gateway directly to the given stream. The JSON is the
+	 * same as the one which will be built by buildGatewayJsonResponse(), but the
+	 * ECUs and lookup entries are written while they are visited, so the memory
+	 * which is needed does not depend on the size of the lookup tables. Only the
+	 * parts and the slice of the lookup entries which are selected by the
+	 * projection will be written. The stream will be closed when the JSON has
+	 * been written.
+	 *
+	 * @param serverName     The server name of the request which is used in the
+	 *                       URLs.
+	 * @param gatewayCurrent The gateway to write.
+	 * @param platformName   The name of the platform to which the gateway belongs.
+	 * @param projection     The selected parts of the gateway.
+	 * @param out            The stream to which the JSON will be written.
+	 * @throws IOException If an I/O error occurs while writing the JSON.
+	 */
+	public void writeGatewayJson(String serverName, doip.simulation.api.Gateway gatewayCurrent, String platformName,
+			ResponseProjection projection, OutputStream out) throws IOException {
+		UrlPrefixCache.Prefix gatewayPrefix = urlPrefixes.gateway(serverName, platformName, gatewayCurrent.getName());
+
+		try (JsonGenerator generator = jsonCodec.createGenerator(out)) {
+			generator.writeStartObject();
+			writeStringField(generator, "name", gatewayCurrent.getName());
+			if (projection.includes(ResponseProjection.URL)) {
+				writeStringField(generator, "url", gatewayPrefix.getUrl());
+			}
+			if (projection.includes(ResponseProjection.STATUS)) {
+				writeStringField(generator, "status", gatewayCurrent.getState().toString());
+			}
+			if (projection.includesEcus()) {
+				generator.writeArrayFieldStart("ecus");
+				for (doip.simulation.api.Ecu ecu : gatewayCurrent.getEcus()) {
+					writeEcuJson(generator, ecu,
+							gatewayPrefix.child(UrlPrefixCache.ECU_SEPARATOR, ecu.getName()).getUrl(), projection);
+				}
+				generator.writeEndArray();
+			}
+			generator.writeEndObject();
+		}
+	}
+
+	/**
+	 * Writes the JSON of an ECU directly to the given stream. Only the lookup
+	 * tables and the slice of the lookup entries which are selected by the
+	 * projection will be written. The stream will be closed when the JSON has
+	 * been written.
+	 *
+	 * @param serverName   The server name of the request which is used in the
+	 *                     URLs.
+	 * @param ecu          The ECU to write.
+	 * @param platformName The name of the platform to which the ECU belongs.
+	 * @param gatewayName  The name of the gateway to which the ECU belongs.
+	 * @param projection   The selected parts of the ECU.
+	 * @param out          The stream to which the JSON will be written.
+	 * @throws IOException If an I/O error occurs while writing the JSON.
+	 */
+	public void writeEcuJson(String serverName, doip.simulation.api.Ecu ecu, String platformName,
+			String gatewayName, ResponseProjection projection, OutputStream out) throws IOException {
+		String currentEcuUrl = urlPrefixes.ecu(serverName, platformName, gatewayName, ecu.getName()).getUrl();
+		try (JsonGenerator generator = jsonCodec.createGenerator(out)) {
+			writeEcuJson(generator, ecu, currentEcuUrl, projection);
+		}
+	}
+
+	private static void writeEcuJson(JsonGenerator generator, doip.simulation.api.Ecu ecu, String currentEcuUrl,
+			ResponseProjection projection) throws IOException {
+		generator.writeStartObject();
+		writeStringField(generator, "name", ecu.getName());
+		writeStringField(generator, "url", currentEcuUrl);
+		if (projection.includes(ResponseProjection.CONFIGURED_LOOKUP_TABLE)) {
+			writeLookupTableJson(generator, "configuredLookupTable", ecu.getConfiguredLookupTable(), projection);
+		}
+		if (projection.includes(ResponseProjection.RUNTIME_LOOKUP_TABLE)) {
+			writeLookupTableJson(generator, "runtimeLookupTable", ecu.getRuntimeLookupTable(), projection);
+		}
+		generator.writeEndObject();
+	}
+
+	private static void writeLookupTableJson(JsonGenerator generator, String fieldName,
+			doip.library.util.LookupTable lookupTable, ResponseProjection projection) throws IOException {
+		generator.writeArrayFieldStart(fieldName);
+		if (lookupTable != null && lookupTable.getLookupEntries() != null) {
+			for (doip.library.util.LookupEntry lookupEntry : projection.slice(lookupTable.getLookupEntries())) {
+				generator.writeStartObject();
+				writeStringField(generator, "regex", lookupEntry.getRegex());
+				writeStringField(generator, "result", lookupEntry.getResult());
+				generator.writeArrayFieldStart("modifiers");
+				for (doip.library.util.LookupEntry modifier : lookupEntry.getModifiers()) {
+					generator.writeStartObject();
+					writeStringField(generator, "regex", modifier.getRegex());
+					writeStringField(generator, "result", modifier.getResult());
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+				generator.writeEndObject();
+			}
+		}
+		generator.writeEndArray();
+	}
+
+	/**
+	 * Writes a string field. Like the object mapper, null values will be
+	 * omitted.
+	 */
+	private static void writeStringField(JsonGenerator generator, String fieldName, String value)
+			throws IOException {
+		if (value != null) {
+			generator.writeStringField(fieldName, value);
+		}
+	}
+
+	/**
+	 * Gets the cursor of the next page of lookup entries.
+	 *
+	 * @param gateway    The gateway.
+	 * @param projection The projection of the current page.
+	 * @return The cursor of the next page, or null if none of the returned
+	 *         lookup tables has more entries.
+	 */
+	public String getNextCursor(doip.simulation.api.Gateway gateway, ResponseProjection projection) {
+		if (projection.getLimit() == 0 || !projection.includesEcus()) {
+			return null;
+		}
+		for (doip.simulation.api.Ecu ecu : gateway.getEcus()) {
+			String nextCursor = getNextCursor(ecu, projection);
+			if (nextCursor != null) {
+				return nextCursor;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the cursor of the next page of lookup entries.
+	 *
+	 * @param ecu        The ECU.
+	 * @param projection The projection of the current page.
+	 * @return The cursor of the next page, or null if none of the returned lookup
+	 *         tables has more entries.
+	 */
+	public String getNextCursor(doip.simulation.api.Ecu ecu, ResponseProjection projection) {
+		if (projection.getLimit() == 0) {
+			return null;
+		}
+		if ((projection.includes(ResponseProjection.CONFIGURED_LOOKUP_TABLE)
+				&& projection.hasMore(getLookupEntryCount(ecu.getConfiguredLookupTable())))
+				|| (projection.includes(ResponseProjection.RUNTIME_LOOKUP_TABLE)
+						&& projection.hasMore(getLookupEntryCount(ecu.getRuntimeLookupTable())))) {
+			return projection.getNextCursor();
+		}
+		return null;
+	}
+
+	private static int getLookupEntryCount(doip.library.util.LookupTable lookupTable) {
+		if (lookupTable == null || lookupTable.getLookupEntries() == null) {
+			return 0;
+		}
+		return lookupTable.getLookupEntries().size();
+	}
+
+	private SimulationResponse getCachedResponse(String cacheKey, long version, long fingerprint) {
+		if (!responseCacheEnabled) {
+			return null;
+		}
+		SimulationResponse cachedResponse = responseCache.get(cacheKey, version, fingerprint);
+		if (cachedResponse != null) {
+			logger.debug("Use cached response for {}", cacheKey);
+		}
+		return cachedResponse;
+	}
+
+	/**
+	 * Adds the time since the start to a phase of the Server-Timing.
+	 *
+	 * @return The start of the next phase, 0 if the timing is disabled.
+	 */
+	private static long lap(ServerTiming timing, Phase phase, long start) {
+		return timing != null ? timing.add(phase, start) : 0;
+	}
+
+	private long lapCache(ServerTiming timing, long start, SimulationResponse cachedResponse) {
+		if (timing == null) {
+			return 0;
+		}
+		if (responseCacheEnabled) {
+			timing.setCacheHit(cachedResponse != null);
+		}
+		return timing.add(Phase.CACHE, start);
+	}
+
+	private void putCachedResponse(String cacheKey, long version, long fingerprint, SimulationResponse response) {
+		if (responseCacheEnabled) {
+			responseCache.put(cacheKey, version, fingerprint, response);
+		}
+	}
+
+	/**
+	 * Calculates a fingerprint of the names and states of the given platforms and
+	 * their gateways. Walking the states is much cheaper than building and
+	 * serializing the response, and it detects state changes which happened
+	 * without a request to this server.
+	 *
+	 * @param platforms The platforms.
+	 * @return The fingerprint.
+	 */
+	private static long fingerprintPlatforms(List<doip.simulation.api.Platform> platforms) {
+		long hash = platforms.size();
+		for (doip.simulation.api.Platform platform : platforms) {
+			hash = fingerprintPlatform(platform, hash);
+		}
+		return hash;
+	}
+
+	private static long fingerprintPlatform(doip.simulation.api.Platform platform, long hash) {
+		hash = 31 * hash + platform.getName().hashCode();
+		hash = 31 * hash + platform.getState().ordinal();
+		for (doip.simulation.api.Gateway gateway : platform.getGateways()) {
+			hash = 31 * hash + gateway.getName().hashCode();
+			hash = 31 * hash + gateway.getState().ordinal();
+		}
+		return hash;
+	}
+
+	/**
+	 * Calculates a fingerprint of the state of the gateway and of the lookup
+	 * tables of its ECUs. The results of the runtime lookup tables will be changed
+	 * by the modifiers while the simulation is running, so they are part of the
+	 * fingerprint. The hash codes of the strings are cached by the JVM.
+	 *
+	 * @param gateway The gateway.
+	 * @param hash    The initial value of the fingerprint.
+	 * @return The fingerprint.
+	 */
+	private static long fingerprintGateway(doip.simulation.api.Gateway gateway, long hash) {
+		hash = 31 * hash + gateway.getName().hashCode();
+		hash = 31 * hash + gateway.getState().ordinal();
+		for (doip.simulation.api.Ecu ecu : gateway.getEcus()) {
+			hash = fingerprintEcu(ecu, hash);
+		}
+		return hash;
+	}
+
+	private static long fingerprintEcu(doip.simulation.api.Ecu ecu, long hash) {
+		hash = 31 * hash + ecu.getName().hashCode();
+		if (ecu.getConfiguredLookupTable() != null && ecu.getConfiguredLookupTable().getLookupEntries() != null) {
+			hash = 31 * hash + ecu.getConfiguredLookupTable().getLookupEntries().size();
+		}
+		if (ecu.getRuntimeLookupTable() != null && ecu.getRuntimeLookupTable().getLookupEntries() != null) {
+			for (doip.library.util.LookupEntry entry : ecu.getRuntimeLookupTable().getLookupEntries()) {
+				hash = 31 * hash + Objects.hashCode(entry.getResult());
+			}
+		}
+		return hash;
+	}
+
 	/**
 	 * Process a platform object and create a corresponding JSON object.
 	 *
@@ -256,20 +955,27 @@ public class SimulationConnector {
 	 * @return The JSON representation of the platform.
 	 */
 	public doip.simulation.http.lib.Platform processPlatform(doip.simulation.api.Platform platform) {
+		return processPlatform(getServerNameFromRequestHeader(), platform);
+	}
+
+	/**
+	 * Process a platform object and create a corresponding JSON object.
+	 *
+	 * @param serverName The server name of the request which is used in the URLs.
+	 * @param platform   The platform object to process.
+	 * @return The JSON representation of the platform.
+	 */
+	public doip.simulation.http.lib.Platform processPlatform(String serverName,
+			doip.simulation.api.Platform platform) {
 		// Implement the logic to process the platform and create a
 		// doip.simulation.http.lib.Platform object
-
-		// Get the server name from the DoipHttpServer
-		// String serverName = doipHttpServer.getServerName();
-		String serverName = getServerNameFromRequestHeader();
-
 		doip.simulation.http.lib.Platform modifiedPlatform = new doip.simulation.http.lib.Platform();
 		modifiedPlatform.setName(platform.getName());
 		modifiedPlatform.setStatus(platform.getState().toString());
 
-		String currentPlatformUrl = serverName + PLATFORM_PATH + "/" + platform.getName();
+		UrlPrefixCache.Prefix platformPrefix = urlPrefixes.platform(serverName, platform.getName());
 		// Update platform URL using the current server name
-		modifiedPlatform.setUrl(currentPlatformUrl);
+		modifiedPlatform.setUrl(platformPrefix.getUrl());
 
 		// Process each gateway in the platform
 		List<doip.simulation.http.lib.Gateway> modifiedGateways = new ArrayList<>();
@@ -281,9 +987,8 @@ public class SimulationConnector {
 			// Add error information for the gateway (if applicable)
 			// modifiedGateway.error = gateway.getState()
 
-			String currentGatewayUrl = currentPlatformUrl + "/gateway/" + gateway.getName();
 			// Update gateway URL using the current server name
-			modifiedGateway.url = currentGatewayUrl;
+			modifiedGateway.url = platformPrefix.child(UrlPrefixCache.GATEWAY_SEPARATOR, gateway.getName()).getUrl();
 
 			// Add modified gateway to the list
 			modifiedGateways.add(modifiedGateway);
@@ -307,70 +1012,114 @@ public class SimulationConnector {
 
 	public doip.simulation.http.lib.Gateway processGateway(doip.simulation.api.Gateway gatewayCurrent,
 			String platformName) {
+		return processGateway(getServerNameFromRequestHeader(), gatewayCurrent, platformName,
+				ResponseProjection.ALL);
+	}
+
+	/**
+	 * Process a gateway object and create a corresponding JSON object which
+	 * contains only the parts selected by the projection.
+	 *
+	 * @param serverName     The server name of the request which is used in the
+	 *                       URLs.
+	 * @param gatewayCurrent The gateway object to process.
+	 * @param platformName   The name of the platform to which the gateway belongs.
+	 * @param projection     The selected parts of the gateway.
+	 * @return The JSON representation of the gateway.
+	 */
+	public doip.simulation.http.lib.Gateway processGateway(String serverName,
+			doip.simulation.api.Gateway gatewayCurrent, String platformName, ResponseProjection projection) {
 		// Implement the logic to process the gateway and create a
 		// doip.simulation.http.lib.Gateway object
 
-		// Get the server name from the DoipHttpServer
-		// String serverName = doipHttpServer.getServerName();
-		String serverName = getServerNameFromRequestHeader();
-
 		// Create an instance of your classes and populate them with data
 		doip.simulation.http.lib.Gateway gateway = new doip.simulation.http.lib.Gateway();
 		gateway.name = gatewayCurrent.getName();
 
 		// gateway.url =
 		// "http://myserver.com/doip-simulation/platform/X2024/gateway/GW";
-		String currentPlatformUrl = serverName + PLATFORM_PATH + "/" + platformName;
-		String currentGatewayUrl = currentPlatformUrl + "/gateway/" + gatewayCurrent.getName();
-		;
-		gateway.url = currentGatewayUrl;
+		UrlPrefixCache.Prefix gatewayPrefix = urlPrefixes.gateway(serverName, platformName, gatewayCurrent.getName());
+		if (projection.includes(ResponseProjection.URL)) {
+			gateway.url = gatewayPrefix.getUrl();
+		}
 
-		gateway.status = gatewayCurrent.getState().toString();
+		if (projection.includes(ResponseProjection.STATUS)) {
+			gateway.status = gatewayCurrent.getState().toString();
+		}
 		// TODO:
 		// gateway.error = "Can't bind to port 13400 because it is already used by
 		// another gateway";
 
-		List<doip.simulation.http.lib.Ecu> modifiedEcus = new ArrayList<>();
-		for (doip.simulation.api.Ecu ecu : gatewayCurrent.getEcus()) {
-
-			doip.simulation.http.lib.Ecu modifiedEcu = new doip.simulation.http.lib.Ecu();
-			modifiedEcu.name = ecu.getName();
+		if (projection.includesEcus()) {
+			List<doip.simulation.http.lib.Ecu> modifiedEcus = new ArrayList<>();
+			for (doip.simulation.api.Ecu ecu : gatewayCurrent.getEcus()) {
+				String currentEcuUrl = gatewayPrefix.child(UrlPrefixCache.ECU_SEPARATOR, ecu.getName()).getUrl();
+				modifiedEcus.add(toJsonEcu(ecu, currentEcuUrl, projection));
+			}
+			gateway.ecus = modifiedEcus;
+		}
 
-			// ecu.url =
-			// "http://myserver.com/doip-simulation/platform/X2024/gateway/GW/ecu/EMS";
-			String currentEcuUrl = currentGatewayUrl + "/ecu/" + ecu.getName();
-			modifiedEcu.url = currentEcuUrl;
+		return gateway;
+		// return new doip.simulation.http.lib.Gateway();
+	}
 
-			List<doip.simulation.http.lib.LookupEntry> configuredlookupEntries = new ArrayList<>();
-			if (ecu.getConfiguredLookupTable() != null && ecu.getConfiguredLookupTable().getLookupEntries() != null) {
-				for (doip.library.util.LookupEntry curentLookupEntry : ecu.getConfiguredLookupTable()
-						.getLookupEntries()) {
+	/**
+	 * Process an ECU object and create a corresponding JSON object.
+	 *
+	 * @param ecu               The ECU object to process.
+	 * @param currentGatewayUrl The URL of the gateway to which the ECU belongs.
+	 * @return The JSON representation of the ECU.
+	 */
+	public doip.simulation.http.lib.Ecu processEcu(doip.simulation.api.Ecu ecu, String currentGatewayUrl) {
+		return processEcu(ecu, currentGatewayUrl, ResponseProjection.ALL);
+	}
 
-					LookupEntry modifiedlookupEntry = createJsonLookupEntry(curentLookupEntry);
+	/**
+	 * Process an ECU object and create a corresponding JSON object. Only the
+	 * slice of the lookup entries which is selected by the projection will be
+	 * converted.
+	 *
+	 * @param ecu               The ECU object to process.
+	 * @param currentGatewayUrl The URL of the gateway to which the ECU belongs.
+	 * @param projection        The selected parts of the ECU.
+	 * @return The JSON representation of the ECU.
+	 */
+	public doip.simulation.http.lib.Ecu processEcu(doip.simulation.api.Ecu ecu, String currentGatewayUrl,
+			ResponseProjection projection) {
+		// ecu.url =
+		// "http://myserver.com/doip-simulation/platform/X2024/gateway/GW/ecu/EMS";
+		return toJsonEcu(ecu, currentGatewayUrl + UrlPrefixCache.ECU_SEPARATOR + ecu.getName(), projection);
+	}
 
-					configuredlookupEntries.add(modifiedlookupEntry);
-				}
-			}
+	private doip.simulation.http.lib.Ecu toJsonEcu(doip.simulation.api.Ecu ecu, String currentEcuUrl,
+			ResponseProjection projection) {
+		doip.simulation.http.lib.Ecu modifiedEcu = new doip.simulation.http.lib.Ecu();
+		modifiedEcu.name = ecu.getName();
+		modifiedEcu.url = currentEcuUrl;
 
-			List<doip.simulation.http.lib.LookupEntry> runtimelookupEntries = new ArrayList<>();
-			if (ecu.getRuntimeLookupTable() != null && ecu.getRuntimeLookupTable().getLookupEntries() != null) {
-				for (doip.library.util.LookupEntry curentLookupEntry : ecu.getRuntimeLookupTable().getLookupEntries()) {
+		if (projection.includes(ResponseProjection.CONFIGURED_LOOKUP_TABLE)) {
+			modifiedEcu.configuredLookupTable = createJsonLookupEntries(ecu.getConfiguredLookupTable(), projection);
+		}
+		if (projection.includes(ResponseProjection.RUNTIME_LOOKUP_TABLE)) {
+			modifiedEcu.runtimeLookupTable = createJsonLookupEntries(ecu.getRuntimeLookupTable(), projection);
+		}
 
-					LookupEntry modifiedlookupEntry = createJsonLookupEntry(curentLookupEntry);
+		return modifiedEcu;
+	}
 
-					runtimelookupEntries.add(modifiedlookupEntry);
-				}
+	/**
+	 * Converts the slice of the lookup entries which is selected by the
+	 * projection. Entries outside of the slice are not touched.
+	 */
+	private List<doip.simulation.http.lib.LookupEntry> createJsonLookupEntries(
+			doip.library.util.LookupTable lookupTable, ResponseProjection projection) {
+		List<doip.simulation.http.lib.LookupEntry> lookupEntries = new ArrayList<>();
+		if (lookupTable != null && lookupTable.getLookupEntries() != null) {
+			for (doip.library.util.LookupEntry curentLookupEntry : projection.slice(lookupTable.getLookupEntries())) {
+				lookupEntries.add(createJsonLookupEntry(curentLookupEntry));
 			}
-			modifiedEcu.configuredLookupTable = configuredlookupEntries;
-			modifiedEcu.runtimeLookupTable = runtimelookupEntries;
-
-			modifiedEcus.add(modifiedEcu);
 		}
-
-		gateway.ecus = modifiedEcus;
-
-		return gateway;
-		// return new doip.simulation.http.lib.Gateway();
+		return lookupEntries;
 	}
 
 	private LookupEntry createJsonLookupEntry(doip.library.util.LookupEntry curentLookupEntry) {
@@ -400,10 +1149,22 @@ public class SimulationConnector {
 	 *         gateways.
 	 */
 	public ServerInfo processOverview(List<doip.simulation.api.Platform> platforms, String status) {
-		// Get the server name from the DoipHttpServer
-		// String serverName = doipHttpServer.getServerName();
-		String serverName = getServerNameFromRequestHeader();
+		return processOverview(getServerNameFromRequestHeader(), platforms, status);
+	}
 
+	/**
+	 * Process a list of platform objects and create a corresponding ServerInfo
+	 * object that represents an overview of platforms based on the specified
+	 * status.
+	 *
+	 * @param serverName The server name of the request which is used in the URLs.
+	 * @param platforms  The list of platform objects to process.
+	 * @param status     The status parameter for filtering platforms.
+	 * @return A ServerInfo object containing an overview of platforms and their
+	 *         gateways.
+	 */
+	public ServerInfo processOverview(String serverName, List<doip.simulation.api.Platform> platforms,
+			String status) {
 		// Build a JSON response based on the specified 'status'
 		ServerInfo serverInfo = new ServerInfo();
 
@@ -411,14 +1172,14 @@ public class SimulationConnector {
 			// Process each platform
 			List<doip.simulation.http.lib.Platform> modifiedPlatforms = new ArrayList<doip.simulation.http.lib.Platform>();
 			for (doip.simulation.api.Platform platform : platforms) {
-				doip.simulation.http.lib.Platform modifiedPlatform = new doip.simulation.http.lib.Platform();
 				if (filterPlatform(platform, status)) {
+					doip.simulation.http.lib.Platform modifiedPlatform = new doip.simulation.http.lib.Platform();
 					modifiedPlatform.setName(platform.getName());
 					modifiedPlatform.setStatus(platform.getState().toString());
 
-					String currentPlatformUrl = serverName + PLATFORM_PATH + "/" + platform.getName();
+					UrlPrefixCache.Prefix platformPrefix = urlPrefixes.platform(serverName, platform.getName());
 					// Update platform URL using the current server name
-					modifiedPlatform.setUrl(currentPlatformUrl);
+					modifiedPlatform.setUrl(platformPrefix.getUrl());
 
 					// Process each gateway in the platform
 					List<doip.simulation.http.lib.Gateway> modifiedGateways = new ArrayList<>();
@@ -427,9 +1188,9 @@ public class SimulationConnector {
 						modifiedGateway.name = gateway.getName();
 						modifiedGateway.status = gateway.getState().toString();
 
-						String currentGatewayUrl = currentPlatformUrl + "/gateway/" + gateway.getName();
 						// Update gateway URL using the current server name
-						modifiedGateway.url = currentGatewayUrl;
+						modifiedGateway.url = platformPrefix
+								.child(UrlPrefixCache.GATEWAY_SEPARATOR, gateway.getName()).getUrl();
 
 						// Add modified gateway to the list
 						modifiedGateways.add(modifiedGateway);
@@ -490,38 +1251,15 @@ public class SimulationConnector {
 	 */
 	public SimulationResponse performAction(doip.simulation.api.Platform platform, Action action) throws IOException {
 	    try {
-	        // Switch statement to handle different actions
-	        switch (action) {
-	            case start:
-	                logger.info("Starting the process for platform: {}", platform.getName());
-	                
-	                // Perform the start action
-	                platform.start();
-	                
-	                String messageStart = String.format("Platform %s started successfully", platform.getName());
-	                logger.info(messageStart);
-	                
-	                return new SimulationResponse(HttpURLConnection.HTTP_OK, buildJsonResponse(messageStart));
-
-	            case stop:
-	                logger.info("Stopping the process for platform: {}", platform.getName());
-	                
-	                // Perform the stop action
-	                platform.stop();
-	                
-	                String messageStop = String.format("Platform %s stopped successfully", platform.getName());
-	                logger.info(messageStop);
-	                
-	                return new SimulationResponse(HttpURLConnection.HTTP_OK, buildJsonResponse(messageStop));
-
-	            default:
-	                // If an unknown action is received, log an error
-	                String errorMessage = "Unknown action: " + action.toString();
-	                logger.error(errorMessage);
-	                
-	                // Return a SimulationResponse with HTTP Bad Request and error message
-	                return new SimulationResponse(HttpURLConnection.HTTP_BAD_REQUEST, buildJsonErrorResponse(errorMessage));
-	        }
+	        String message = executeAction(platform, action);
+	        return new SimulationResponse(HttpURLConnection.HTTP_OK, buildJsonResponse(message));
+	    } catch (IllegalArgumentException e) {
+	        // If an unknown action is received, log an error
+	        String errorMessage = e.getMessage();
+	        logger.error(errorMessage);
+	        
+	        // Return a SimulationResponse with HTTP Bad Request and error message
+	        return new SimulationResponse(HttpURLConnection.HTTP_BAD_REQUEST, buildJsonErrorResponse(errorMessage));
 	    } catch (DoipException e) {
 	        // If a DoipException occurs during the action, log an error
 	        String errorMessage = "Failed to perform action on platform: " + e.getMessage();
@@ -532,6 +1270,244 @@ public class SimulationConnector {
 	    }
 	}
 
+	/**
+	 * Executes an action on a platform.
+	 *
+	 * @param platform The platform on which the action needs to be performed.
+	 * @param action   The action to be performed.
+	 * @return The message which describes the result.
+	 * @throws DoipException            If the platform could not be started.
+	 * @throws IllegalArgumentException If the action is unknown.
+	 */
+	private String executeAction(doip.simulation.api.Platform platform, Action action) throws DoipException {
+	    synchronized (getPlatformLock(platform)) {
+	        return executeActionLocked(platform, action);
+	    }
+	}
+
+	/**
+	 * A change of a platform which is executed by
+	 * {@link SimulationConnector#changePlatform(doip.simulation.api.Platform, PlatformChange)}.
+	 *
+	 * @param <T> The type of the result.
+	 */
+	@FunctionalInterface
+	interface PlatformChange<T> {
+	    T run() throws DoipException, InterruptedException;
+	}
+
+	/**
+	 * Executes a change of a platform which is not an {@link Action}, e.g. an
+	 * asynchronous job. Like an action it holds the lock of the platform, so the
+	 * platform is not started and stopped at the same time, and afterwards the
+	 * cached responses are invalidated and the state index is updated.
+	 *
+	 * @param platform The platform which will be changed.
+	 * @param change   The change.
+	 * @return The result of the change.
+	 * @throws DoipException        If the change throws it.
+	 * @throws InterruptedException If the change has been interrupted.
+	 */
+	<T> T changePlatform(doip.simulation.api.Platform platform, PlatformChange<T> change)
+	        throws DoipException, InterruptedException {
+	    synchronized (getPlatformLock(platform)) {
+	        try {
+	            return change.run();
+	        } finally {
+	            stateChanged(platform);
+	        }
+	    }
+	}
+
+	private Object getPlatformLock(doip.simulation.api.Platform platform) {
+	    return platformLocks.computeIfAbsent(platform.getName(), name -> new Object());
+	}
+
+	private String executeActionLocked(doip.simulation.api.Platform platform, Action action) throws DoipException {
+	    // Switch statement to handle different actions
+	    switch (action) {
+	        case start:
+	            logger.info("Starting the process for platform: {}", platform.getName());
+	            
+	            // Perform the start action
+	            try {
+	                platform.start();
+	            } finally {
+	                stateChanged(platform);
+	            }
+	            
+	            String messageStart = String.format("Platform %s started successfully", platform.getName());
+	            logger.info(messageStart);
+	            return messageStart;
+
+	        case stop:
+	            logger.info("Stopping the process for platform: {}", platform.getName());
+	            
+	            // Perform the stop action
+	            try {
+	                platform.stop();
+	            } finally {
+	                stateChanged(platform);
+	            }
+	            
+	            String messageStop = String.format("Platform %s stopped successfully", platform.getName());
+	            logger.info(messageStop);
+	            return messageStop;
+
+	        default:
+	            throw new IllegalArgumentException("Unknown action: " + action.toString());
+	    }
+	}
+
+	/**
+	 * Invalidates the cached responses and updates the state index after an
+	 * action, so the next request sees the new state without waiting for the
+	 * StateMonitor.
+	 *
+	 * @param platform The platform on which an action has been performed.
+	 */
+	private void stateChanged(doip.simulation.api.Platform platform) {
+		stateVersion.incrementAndGet();
+		PlatformStateIndex index = stateIndex;
+		if (index != null) {
+			index.refresh(platform);
+		}
+	}
+
+	/**
+	 * Performs the actions of a batch concurrently. Actions for different
+	 * platforms run in parallel on up to the given number of threads, while
+	 * actions for the same platform are executed one after another in the given
+	 * order. The threads are shared with all other batches and the action
+	 * parallelism of the connector limits the actions of all batches. The
+	 * method returns when all actions have finished or the batch has been
+	 * interrupted.
+	 *
+	 * @param actions     The actions.
+	 * @param parallelism The maximum number of actions which run at the same
+	 *                    time.
+	 * @return The result of each action in the order of the request.
+	 */
+	public BatchActionResponse performActions(List<BatchActionRequest.Entry> actions, int parallelism) {
+	    if (parallelism < 1) {
+	        throw new IllegalArgumentException("The parallelism must be greater than 0");
+	    }
+	    long batchStart = System.nanoTime();
+	    AtomicReferenceArray<BatchActionResponse.Result> results = new AtomicReferenceArray<>(actions.size());
+
+	    // Group the actions by platform, so a platform is never started and stopped at the same time
+	    Map<String, List<Integer>> indicesByPlatform = new LinkedHashMap<>();
+	    for (int i = 0; i < actions.size(); i++) {
+	        BatchActionRequest.Entry entry = actions.get(i);
+	        String key = entry != null && entry.platform != null ? entry.platform : "";
+	        indicesByPlatform.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+	    }
+
+	    Queue<List<Integer>> pending = new ConcurrentLinkedQueue<>(indicesByPlatform.values());
+	    int threads = Math.min(parallelism, pending.size());
+	    logger.info("Performing {} actions for {} platforms on {} threads", actions.size(), indicesByPlatform.size(),
+	            threads);
+	    List<Future<?>> futures = new ArrayList<>(threads);
+	    try {
+	        for (int i = 0; i < threads; i++) {
+	            futures.add(actionExecutor.submit(() -> {
+	                performBatchEntries(actions, pending, results, batchStart);
+	                return null;
+	            }));
+	        }
+	        for (Future<?> future : futures) {
+	            future.get();
+	        }
+	    } catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
+	        logger.error("Interrupted while waiting for the actions");
+	    } catch (ExecutionException e) {
+	        logger.error("Unexpected error while performing the actions: {}", e.getCause().getMessage(),
+	                e.getCause());
+	    } catch (RejectedExecutionException e) {
+	        logger.error("The actions can not be performed because the connector has been shut down");
+	    } finally {
+	        // Stops the other threads of the batch if it has been aborted
+	        pending.clear();
+	        for (Future<?> future : futures) {
+	            future.cancel(true);
+	        }
+	    }
+
+	    BatchActionResponse response = new BatchActionResponse();
+	    response.results = new ArrayList<>(results.length());
+	    for (int i = 0; i < results.length(); i++) {
+	        BatchActionResponse.Result result = results.get(i);
+	        if (result == null) {
+	            // Not finished because the batch has been interrupted or a thread failed
+	            BatchActionRequest.Entry entry = actions.get(i);
+	            result = new BatchActionResponse.Result(entry != null ? entry.platform : null,
+	                    entry != null ? entry.action : null);
+	            result.status = HttpURLConnection.HTTP_INTERNAL_ERROR;
+	            result.error = "interrupted";
+	        }
+	        response.results.add(result);
+	    }
+	    response.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStart);
+	    return response;
+	}
+
+	/**
+	 * Takes the actions of one platform after another from the queue of a batch
+	 * and performs them in their order. Each action needs a permit of the
+	 * connector.
+	 */
+	private void performBatchEntries(List<BatchActionRequest.Entry> actions, Queue<List<Integer>> pending,
+	        AtomicReferenceArray<BatchActionResponse.Result> results, long batchStart) throws InterruptedException {
+	    List<Integer> indices;
+	    while ((indices = pending.poll()) != null) {
+	        for (int index : indices) {
+	            Semaphore permits = actionPermits;
+	            permits.acquire();
+	            try {
+	                results.set(index, performBatchEntry(actions.get(index), batchStart));
+	            } finally {
+	                permits.release();
+	            }
+	        }
+	    }
+	}
+
+	private BatchActionResponse.Result performBatchEntry(BatchActionRequest.Entry entry, long batchStart) {
+	    long start = System.nanoTime();
+	    BatchActionResponse.Result result = new BatchActionResponse.Result(entry != null ? entry.platform : null,
+	            entry != null ? entry.action : null);
+	    result.startMillis = TimeUnit.NANOSECONDS.toMillis(start - batchStart);
+	    try {
+	        if (entry == null || entry.platform == null || entry.action == null) {
+	            result.status = HttpURLConnection.HTTP_BAD_REQUEST;
+	            result.error = "Platform and action are required";
+	            return result;
+	        }
+	        doip.simulation.api.Platform platform = getPlatformByName(entry.platform);
+	        if (platform == null) {
+	            result.status = HttpURLConnection.HTTP_NOT_FOUND;
+	            result.error = String.format("The specified platform name %s does not exist", entry.platform);
+	            return result;
+	        }
+	        try {
+	            result.message = executeAction(platform, entry.action);
+	            result.status = HttpURLConnection.HTTP_OK;
+	        } catch (IllegalArgumentException e) {
+	            result.status = HttpURLConnection.HTTP_BAD_REQUEST;
+	            result.error = e.getMessage();
+	        } catch (DoipException e) {
+	            logger.error("Failed to perform action on platform {}: {}", entry.platform, e.getMessage());
+	            result.status = HttpURLConnection.HTTP_INTERNAL_ERROR;
+	            result.error = "Failed to perform action on platform: " + e.getMessage();
+	        }
+	        result.state = platform.getState();
+	        return result;
+	    } finally {
+	        result.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	    }
+	}
+
 	public void performAction_old(doip.simulation.api.Platform platform, Action action) {
 		switch (action) {
 		case start:
@@ -561,7 +1537,18 @@ public class SimulationConnector {
 	 * @throws IOException If an I/O error occurs during the process.
 	 */
 	public String buildJsonResponse(Object info) throws IOException {
-		return objectMapper.writeValueAsString(info);
+		return jsonCodec.writeAsString(info);
+	}
+
+	/**
+	 * Build a JSON response encoded as UTF-8 for the provided information object.
+	 *
+	 * @param info The information object.
+	 * @return The JSON response as UTF-8 bytes.
+	 * @throws IOException If an I/O error occurs during the process.
+	 */
+	public byte[] buildJsonResponseBytes(Object info) throws IOException {
+		return jsonCodec.writeAsBytes(info);
 	}
 
 	public String buildJsonErrorResponse(String errorMessage) {
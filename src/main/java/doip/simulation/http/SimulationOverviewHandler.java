@@ -7,11 +7,11 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import doip.simulation.api.ServiceState;
+import doip.simulation.http.helpers.EnumLookup;
 import doip.simulation.http.helpers.HttpServerHelper;
 
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -27,6 +27,14 @@ public class SimulationOverviewHandler implements HttpHandler {
 
 	public static final String RESOURCE_PATH = "/doip-simulation";
 
+	/**
+	 * Value of the query parameter "view" which returns the number of platforms
+	 * and gateways in each state instead of the platforms.
+	 */
+	public static final String VIEW_COUNTS = "counts";
+
+	private static final EnumLookup<ServiceState> STATES = EnumLookup.of(ServiceState.class);
+
 	public SimulationOverviewHandler(SimulationConnector simulationConnector) {
 		this.simulationConnector = simulationConnector;
 		// this.doipHttpServer = doipHttpServer;
@@ -34,18 +42,13 @@ public class SimulationOverviewHandler implements HttpHandler {
 
 	/**
 	 * Handle method for processing incoming HTTP requests
-	 * /doip-simulation?status=RUNNING' /doip-simulation/
+	 * /doip-simulation?status=RUNNING' /doip-simulation/ /doip-simulation?view=counts
 	 */
 	@Override
 	public void handle(HttpExchange exchange) throws IOException {
 		
 		URI uri = exchange.getRequestURI();
-		logger.info("Full URI: {}", uri.toString());
-
-		String hostWithPort = HttpServerHelper.getHostWithPort(exchange);
-		if (hostWithPort != null) {
-			simulationConnector.setServerNameFromRequestHeader("http://" + hostWithPort);
-		}
+		logger.debug("Full URI: {}", uri);
 
 		if ("GET".equals(exchange.getRequestMethod())) {
 			handleGetRequest(exchange);
@@ -62,37 +65,43 @@ public class SimulationOverviewHandler implements HttpHandler {
 			URI uri = exchange.getRequestURI();
 			String query = uri.getQuery();
 			
-			logger.info("Path component of this URI :{} ", exchange.getRequestURI().getPath());
+			logger.debug("Path component of this URI :{} ", exchange.getRequestURI().getPath());
 
-			logger.info("Returns the decoded query component of this URI: {}", query);
+			logger.debug("Returns the decoded query component of this URI: {}", query);
 	
 			String status = "";
 
 			if (query != null && !query.trim().isEmpty()) {
 
-				// Parse query parameters
-				Map<String, String> queryParams = HttpServerHelper.parseQueryParameters(query);
+				// Scan the query for the parameters, no map is built for each request
+				String view = HttpServerHelper.getQueryParam(query, "view");
+				if (view != null) {
+					if (!VIEW_COUNTS.equals(view)) {
+						logger.error("Invalid view provided: {}", view);
+						exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1); // Bad Request
+						return;
+					}
+					sendResponse(exchange, simulationConnector.buildStateCountsJsonResponse());
+					return;
+				}
 
 				// Validate and process the 'status' parameter
-				status = queryParams.get("status");
-				if (status == null || !isValidStatus(status)) {
+				int statusStart = HttpServerHelper.indexOfQueryValue(query, "status");
+				ServiceState state = statusStart < 0 ? null : HttpServerHelper.getQueryParam(query, statusStart, STATES);
+				if (state == null) {
 					// If 'status' is not empty and not a valid status, return Bad Request
-					logger.error("Invalid status provided: {}", status);
+					logger.error("Invalid status provided: {}", query);
 					exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1); // Bad Request
 					return;
 				}
+				// The status is case-insensitive, the name of the state is used from here on
+				status = state.name();
 			}
 			// Build the JSON response based on the status
-			SimulationResponse simulationResponse = simulationConnector.buildOverviewJsonResponse(status);
-
-			// Set the response headers and body
-			HttpServerHelper.sendResponse(
-			        exchange,
-			        simulationResponse.getJsonResponse(),
-			        "application/json",
-			        simulationResponse.getStatusCode()
-			);
-			HttpServerHelper.responseServerLogging(exchange, simulationResponse.getStatusCode(), simulationResponse.getJsonResponse());
+			// The server name is passed with the request, it must not be shared between concurrent requests
+			String serverName = simulationConnector.getServerName(HttpServerHelper.getHostWithPort(exchange));
+			SimulationResponse simulationResponse = simulationConnector.buildOverviewJsonResponse(serverName, status);
+			sendResponse(exchange, simulationResponse);
 			
 		} catch (IllegalArgumentException e) {
 			// Handle invalid status
@@ -109,15 +118,16 @@ public class SimulationOverviewHandler implements HttpHandler {
 		}
 	}
 
-	private boolean isValidStatus(String status) {
-		// Validate the 'status' parameter against the allowed values
-		try {
-			// SimulationStatus simulationStatus = SimulationStatus.valueOf(status);
-			ServiceState simulationStatus = ServiceState.valueOf(status);
-			return true; // If no exception is thrown, the status is valid
-		} catch (IllegalArgumentException e) {
-			return false; // If an exception is thrown, the status is invalid
-		}
+	private void sendResponse(HttpExchange exchange, SimulationResponse simulationResponse) throws IOException {
+		// Set the response headers and body, or send 304 if the client has the current version
+		int sentStatusCode = HttpServerHelper.sendResponseBody(
+		        exchange,
+		        simulationResponse.getResponseBody(),
+		        "application/json",
+		        simulationResponse.getStatusCode()
+		);
+		HttpServerHelper.responseServerLogging(exchange, sentStatusCode,
+				sentStatusCode == HttpURLConnection.HTTP_NOT_MODIFIED ? null : simulationResponse.getJsonResponse());
 	}
 
 }
@@ -1,20 +1,100 @@
 package doip.simulation.http;
 
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+import doip.simulation.http.helpers.ResponseBody;
+
 public class SimulationResponse {
 	private int statusCode;
-	private String jsonResponse;
+	private volatile String jsonResponse;
+	private volatile ResponseBody responseBody;
+	private String nextCursor;
 
 	public SimulationResponse(int statusCode, String jsonResponse) {
 		this.statusCode = statusCode;
 		this.jsonResponse = jsonResponse;
 	}
 
+	/**
+	 * Constructs a response from a body which is already encoded as UTF-8. Such
+	 * responses can be cached and sent again without any conversion.
+	 *
+	 * @param statusCode The HTTP status code.
+	 * @param body       The JSON body encoded as UTF-8.
+	 */
+	public SimulationResponse(int statusCode, byte[] body) {
+		this.statusCode = statusCode;
+		this.responseBody = new ResponseBody(body);
+	}
+
 	public int getStatusCode() {
 		return statusCode;
 	}
 
+	/**
+	 * Gets the cursor of the next page of lookup entries.
+	 *
+	 * @return The cursor, or null if there is no next page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
 	public String getJsonResponse() {
-		return jsonResponse;
+		String json = jsonResponse;
+		if (json == null && responseBody != null) {
+			json = new String(responseBody.getBytes(), StandardCharsets.UTF_8);
+			jsonResponse = json;
+		}
+		return json;
+	}
+
+	/**
+	 * Returns the body of the response together with its ETag and its compressed
+	 * variants. They are computed only once, so a cached response can be sent
+	 * again without hashing or compressing it again.
+	 *
+	 * @return The body of the response.
+	 */
+	public ResponseBody getResponseBody() {
+		ResponseBody body = responseBody;
+		if (body == null && jsonResponse != null) {
+			body = new ResponseBody(jsonResponse.getBytes(StandardCharsets.UTF_8));
+			responseBody = body;
+		}
+		return body;
+	}
+
+	/**
+	 * Returns the JSON response encoded as UTF-8. The returned array must not be
+	 * modified because it may be shared with other requests.
+	 *
+	 * @return The body of the response.
+	 */
+	public byte[] getBody() {
+		ResponseBody body = getResponseBody();
+		return body != null ? body.getBytes() : null;
+	}
+
+	/**
+	 * Returns a strong ETag which is computed from the content of the body. It
+	 * will be computed only once, so a cached response will always have the same
+	 * ETag.
+	 *
+	 * @return The ETag including the double quotes, or null if the status code
+	 *         is not 200.
+	 */
+	public String getETag() {
+		ResponseBody body = getResponseBody();
+		if (statusCode != HttpURLConnection.HTTP_OK || body == null) {
+			return null;
+		}
+		return body.getETag();
 	}
 
 }
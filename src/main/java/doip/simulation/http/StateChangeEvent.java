@@ -0,0 +1,82 @@
+package doip.simulation.http;
+
+import doip.simulation.api.ServiceState;
+
+/**
+ * Change of the state of a platform or of a gateway.
+ */
+public final class StateChangeEvent {
+
+	private final long sequence;
+
+	private final String platform;
+
+	private final String gateway;
+
+	private final ServiceState previousState;
+
+	private final ServiceState state;
+
+	private final long timestamp;
+
+	/**
+	 * Constructs a new event.
+	 *
+	 * @param sequence      Number of the event, it increases with each event.
+	 * @param platform      The name of the platform.
+	 * @param gateway       The name of the gateway, or null if the state of the
+	 *                      platform has changed.
+	 * @param previousState The previous state, or null if it is not known.
+	 * @param state         The new state.
+	 * @param timestamp     The time of the change in milliseconds since the epoch.
+	 */
+	public StateChangeEvent(long sequence, String platform, String gateway, ServiceState previousState,
+			ServiceState state, long timestamp) {
+		this.sequence = sequence;
+		this.platform = platform;
+		this.gateway = gateway;
+		this.previousState = previousState;
+		this.state = state;
+		this.timestamp = timestamp;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public String getPlatform() {
+		return platform;
+	}
+
+	public String getGateway() {
+		return gateway;
+	}
+
+	public ServiceState getPreviousState() {
+		return previousState;
+	}
+
+	public ServiceState getState() {
+		return state;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Gets the key of the platform or gateway, e.g. "X2024" or "X2024/GW".
+	 * Events with the same key can be coalesced, only the latest one is
+	 * relevant.
+	 *
+	 * @return The key.
+	 */
+	public String getKey() {
+		return gateway == null ? platform : platform + "/" + gateway;
+	}
+
+	@Override
+	public String toString() {
+		return getKey() + ": " + previousState + " -> " + state;
+	}
+}
@@ -0,0 +1,31 @@
+package doip.simulation.http;
+
+/**
+ * Listener for changes of the states of platforms and gateways which are
+ * detected by the StateMonitor.
+ */
+public interface StateListener {
+
+	/**
+	 * Will be called when the state of a platform or gateway has changed. It is
+	 * called on the thread of the StateMonitor, so it must not block.
+	 *
+	 * @param event The change.
+	 */
+	void stateChanged(StateChangeEvent event);
+
+	/**
+	 * Will be called when the StateMonitor has been stopped.
+	 */
+	default void monitorStopped() {
+	}
+
+	/**
+	 * Will be called when a platform has been added to or removed from the
+	 * simulation, or has been replaced by another platform with the same name.
+	 * It is called on the thread of the StateMonitor before the changes of the
+	 * states which have been detected by the same poll.
+	 */
+	default void platformsChanged() {
+	}
+}
@@ -0,0 +1,236 @@
+package doip.simulation.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+
+/**
+ * Detects changes of the states of platforms and gateways. The simulation API
+ * does not notify about state changes, so the states are polled periodically
+ * by a single background thread. Each change is published once to all
+ * registered listeners, no matter how many clients are interested in it.
+ */
+public class StateMonitor {
+
+	private static Logger logger = LogManager.getLogger(StateMonitor.class);
+
+	public static final long DEFAULT_POLL_INTERVAL_MILLIS = 100;
+
+	private final SimulationManager simulationManager;
+
+	private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The last known states, the key is the name of the platform or
+	 * "platform/gateway" for a gateway. Only accessed while holding the monitor
+	 * of this object.
+	 */
+	private final Map<String, ServiceState> states = new HashMap<>();
+
+	/**
+	 * The platforms of the last poll, to detect added, removed and replaced
+	 * platforms. Only accessed while holding the monitor of this object.
+	 */
+	private List<Platform> knownPlatforms = Collections.emptyList();
+
+	private long sequence = 0;
+
+	private boolean initialized = false;
+
+	private long pollIntervalMillis = DEFAULT_POLL_INTERVAL_MILLIS;
+
+	private ScheduledExecutorService scheduler = null;
+
+	public StateMonitor(SimulationManager simulationManager) {
+		this.simulationManager = simulationManager;
+	}
+
+	public long getPollIntervalMillis() {
+		return pollIntervalMillis;
+	}
+
+	/**
+	 * Sets the interval in which the states will be polled. It will be used the
+	 * next time the monitor is started.
+	 *
+	 * @param pollIntervalMillis The interval in milliseconds.
+	 */
+	public void setPollIntervalMillis(long pollIntervalMillis) {
+		if (pollIntervalMillis < 1) {
+			throw new IllegalArgumentException("The poll interval must be greater than 0");
+		}
+		this.pollIntervalMillis = pollIntervalMillis;
+	}
+
+	public void addListener(StateListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(StateListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts polling the states. If the monitor is already running nothing
+	 * happens.
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("doip-http-state"));
+		scheduler.scheduleWithFixedDelay(this::pollSafely, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+		logger.info("State monitor started with a poll interval of {} ms", pollIntervalMillis);
+	}
+
+	/**
+	 * Stops polling the states and notifies the listeners.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (scheduler == null) {
+				return;
+			}
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		for (StateListener listener : listeners) {
+			listener.monitorStopped();
+		}
+		logger.info("State monitor stopped");
+	}
+
+	public synchronized boolean isRunning() {
+		return scheduler != null;
+	}
+
+	private void pollSafely() {
+		try {
+			poll();
+		} catch (RuntimeException e) {
+			// An exception would cancel the scheduled task
+			logger.error("Unexpected error while polling the states: {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the current states of all platforms and gateways and publishes an
+	 * event for each state which has changed since the last call. The first call
+	 * only records the states.
+	 */
+	public void poll() {
+		List<StateChangeEvent> events = new ArrayList<>();
+		boolean platformsChanged;
+		synchronized (this) {
+			long timestamp = System.currentTimeMillis();
+			List<Platform> platforms = simulationManager.getPlatforms();
+			platformsChanged = initialized && !isSamePlatforms(platforms);
+			knownPlatforms = platforms != null ? new ArrayList<>(platforms) : Collections.emptyList();
+			if (platforms != null) {
+				for (Platform platform : platforms) {
+					String platformName = platform.getName();
+					update(platformName, null, platform.getState(), timestamp, events);
+					List<Gateway> gateways = platform.getGateways();
+					if (gateways == null) {
+						continue;
+					}
+					for (Gateway gateway : gateways) {
+						update(platformName, gateway.getName(), gateway.getState(), timestamp, events);
+					}
+				}
+			}
+			initialized = true;
+		}
+		// Publish outside of the lock, so a listener can take a snapshot
+		if (platformsChanged) {
+			logger.debug("The platforms of the simulation have changed");
+			for (StateListener listener : listeners) {
+				try {
+					listener.platformsChanged();
+				} catch (RuntimeException e) {
+					logger.error("State listener failed: {}", e.getMessage(), e);
+				}
+			}
+		}
+		for (StateChangeEvent event : events) {
+			publish(event);
+		}
+	}
+
+	/**
+	 * Compares the platforms with the platforms of the last poll by identity.
+	 *
+	 * @param platforms The current platforms, may be null.
+	 * @return true if the same platforms are in the same order.
+	 */
+	private boolean isSamePlatforms(List<Platform> platforms) {
+		int size = platforms != null ? platforms.size() : 0;
+		if (size != knownPlatforms.size()) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (platforms.get(i) != knownPlatforms.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void update(String platform, String gateway, ServiceState state, long timestamp,
+			List<StateChangeEvent> events) {
+		String key = gateway == null ? platform : platform + "/" + gateway;
+		ServiceState previous = states.put(key, state);
+		if (initialized && previous != state) {
+			events.add(new StateChangeEvent(++sequence, platform, gateway, previous, state, timestamp));
+		}
+	}
+
+	private void publish(StateChangeEvent event) {
+		logger.debug("State changed: {}", event);
+		for (StateListener listener : listeners) {
+			try {
+				listener.stateChanged(event);
+			} catch (RuntimeException e) {
+				logger.error("State listener failed: {}", e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Gets the last known states as events, so a new listener knows the states
+	 * from which the following changes start.
+	 *
+	 * @return One event per platform and gateway. The previous state of the
+	 *         events is null.
+	 */
+	public synchronized List<StateChangeEvent> snapshot() {
+		List<StateChangeEvent> snapshot = new ArrayList<>(states.size());
+		long timestamp = System.currentTimeMillis();
+		for (Map.Entry<String, ServiceState> entry : states.entrySet()) {
+			String key = entry.getKey();
+			int separator = key.indexOf('/');
+			String platform = separator < 0 ? key : key.substring(0, separator);
+			String gateway = separator < 0 ? null : key.substring(separator + 1);
+			snapshot.add(new StateChangeEvent(sequence, platform, gateway, null, entry.getValue(), timestamp));
+		}
+		return snapshot;
+	}
+
+	public synchronized long getSequence() {
+		return sequence;
+	}
+}
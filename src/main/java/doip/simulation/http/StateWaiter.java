@@ -0,0 +1,227 @@
+package doip.simulation.http;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import doip.simulation.api.ServiceState;
+
+/**
+ * Parks requests until a platform or gateway has reached a state, e.g. for
+ * "GET /doip-simulation/platform/X2024?waitFor=RUNNING&timeout=10s". A parked
+ * request does not hold any thread: it is registered here and completed by
+ * the StateMonitor when the state changes, or by a timer when the timeout
+ * expires. The completion is executed on a separate pool, so sending the
+ * response never delays the StateMonitor. The pool has at most
+ * COMPLETION_THREADS threads, further completions are queued, so a state
+ * change which releases many parked requests does not start a thread for
+ * each of them.
+ */
+final class StateWaiter implements StateListener {
+
+	private static Logger logger = LogManager.getLogger(StateWaiter.class);
+
+	static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+	static final long MAX_TIMEOUT_MILLIS = 300_000;
+
+	static final int COMPLETION_THREADS = 4;
+
+	/**
+	 * Callback which sends the response of a parked request.
+	 */
+	@FunctionalInterface
+	interface Completion {
+
+		/**
+		 * @param reached true if the state has been reached, false if the timeout
+		 *                has expired.
+		 */
+		void complete(boolean reached);
+	}
+
+	/**
+	 * The parked requests, the key is the same as of the StateChangeEvents.
+	 */
+	private final ConcurrentHashMap<String, Set<Wait>> waits = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService timer = Executors
+			.newSingleThreadScheduledExecutor(ServerExecutors.namedThreadFactory("doip-http-wait-timer"));
+
+	private final ThreadPoolExecutor completions = new ThreadPoolExecutor(COMPLETION_THREADS,
+			COMPLETION_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+			ServerExecutors.namedThreadFactory("doip-http-wait"));
+
+	StateWaiter(StateMonitor stateMonitor) {
+		// The threads are only kept while requests are completed
+		completions.allowCoreThreadTimeOut(true);
+		stateMonitor.addListener(this);
+	}
+
+	/**
+	 * Parks a request until a platform or gateway has reached a state. The
+	 * completion is called exactly once.
+	 *
+	 * @param key           The name of the platform or "platform/gateway".
+	 * @param target        The state to wait for.
+	 * @param currentState  Supplies the current state. It is checked after the
+	 *                      request has been registered, so a change in between
+	 *                      can not be missed.
+	 * @param timeoutMillis The maximum time to wait.
+	 * @param completion    Sends the response.
+	 */
+	void await(String key, ServiceState target, Supplier<ServiceState> currentState, long timeoutMillis,
+			Completion completion) {
+		Wait wait = new Wait(key, target, completion);
+		waits.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(wait);
+		if (currentState.get() == target) {
+			wait.complete(true);
+			return;
+		}
+		try {
+			wait.timeout = timer.schedule(() -> wait.complete(false), timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			wait.complete(false);
+			return;
+		}
+		if (wait.isDone()) {
+			// Completed before the timeout has been assigned
+			wait.timeout.cancel(false);
+		}
+	}
+
+	/**
+	 * Answers all parked requests with a timeout and stops the threads. The
+	 * responses which are being sent are completed before the threads end.
+	 */
+	void shutdown() {
+		monitorStopped();
+		timer.shutdownNow();
+		completions.shutdown();
+	}
+
+	/**
+	 * Gets the number of requests which are currently parked.
+	 *
+	 * @return The number of parked requests.
+	 */
+	int getPendingCount() {
+		int count = 0;
+		for (Set<Wait> set : waits.values()) {
+			count += set.size();
+		}
+		return count;
+	}
+
+	@Override
+	public void stateChanged(StateChangeEvent event) {
+		Set<Wait> set = waits.get(event.getKey());
+		if (set == null) {
+			return;
+		}
+		for (Wait wait : set) {
+			if (wait.target == event.getState()) {
+				wait.complete(true);
+			}
+		}
+	}
+
+	@Override
+	public void monitorStopped() {
+		// Nobody will notify about further changes, so answer all parked requests
+		for (Set<Wait> set : waits.values()) {
+			for (Wait wait : set) {
+				wait.complete(false);
+			}
+		}
+	}
+
+	/**
+	 * Parses a timeout like "10s", "500ms", "2m" or "10". A number without unit
+	 * is given in seconds.
+	 *
+	 * @param value The value of the query parameter, or null for the default.
+	 * @return The timeout in milliseconds, at most MAX_TIMEOUT_MILLIS.
+	 * @throws IllegalArgumentException If the value is invalid.
+	 */
+	static long parseTimeout(String value) {
+		if (value == null) {
+			return DEFAULT_TIMEOUT_MILLIS;
+		}
+		String trimmed = value.trim();
+		long factor = 1000;
+		if (trimmed.endsWith("ms")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 2);
+			factor = 1;
+		} else if (trimmed.endsWith("s")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 1);
+		} else if (trimmed.endsWith("m")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 1);
+			factor = 60_000;
+		}
+		long parsed;
+		try {
+			parsed = Long.parseLong(trimmed);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The timeout is not valid: " + value);
+		}
+		if (parsed < 0) {
+			throw new IllegalArgumentException("The timeout must not be negative");
+		}
+		return parsed > MAX_TIMEOUT_MILLIS / factor ? MAX_TIMEOUT_MILLIS : parsed * factor;
+	}
+
+	private final class Wait {
+
+		private final String key;
+
+		private final ServiceState target;
+
+		private final Completion completion;
+
+		private final AtomicBoolean done = new AtomicBoolean(false);
+
+		private volatile ScheduledFuture<?> timeout = null;
+
+		private Wait(String key, ServiceState target, Completion completion) {
+			this.key = key;
+			this.target = target;
+			this.completion = completion;
+		}
+
+		private boolean isDone() {
+			return done.get();
+		}
+
+		private void complete(boolean reached) {
+			if (!done.compareAndSet(false, true)) {
+				return;
+			}
+			Set<Wait> set = waits.get(key);
+			if (set != null) {
+				set.remove(this);
+			}
+			ScheduledFuture<?> future = timeout;
+			if (future != null) {
+				future.cancel(false);
+			}
+			logger.debug("Wait for {} to be {} completed, reached = {}", key, target, reached);
+			try {
+				completions.execute(() -> completion.complete(reached));
+			} catch (RejectedExecutionException e) {
+				completion.complete(reached);
+			}
+		}
+	}
+}
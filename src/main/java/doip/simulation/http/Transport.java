@@ -0,0 +1,25 @@
+package doip.simulation.http;
+
+/**
+ * Defines which implementation of HTTP/1.1 the {@link DoipHttpServer} uses to
+ * accept connections and to read and write the requests and responses. The
+ * handlers and filters are the same for all transports.
+ */
+public enum Transport {
+
+	/**
+	 * The HTTP server of the JDK (com.sun.net.httpserver). It reads and writes
+	 * the connections with blocking streams.
+	 */
+	JDK,
+
+	/**
+	 * A server with one non-blocking selector loop per processor. Requests are
+	 * read into pooled direct buffers, pipelined requests on a keep-alive
+	 * connection are handled one after another, and the response head and body
+	 * are written with a single gathering write. In execution mode
+	 * DISPATCHER_THREAD the exchanges are executed by the selector loop of the
+	 * connection.
+	 */
+	NIO
+}
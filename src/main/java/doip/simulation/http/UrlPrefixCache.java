@@ -0,0 +1,178 @@
+package doip.simulation.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for the URLs of platforms, gateways and ECUs which are part of the
+ * responses of the SimulationConnector. The URLs only depend on the server
+ * name of the request and on the names of the resources, so they are built
+ * once per (server name, platform, gateway, ECU) and then reused by all
+ * requests instead of concatenating them again for each request. The server
+ * names are cached by the "Host" header of the request for the same reason.
+ * <p>
+ * The URLs are kept in a tree with one level per path segment. Each node
+ * holds its complete URL, the URL of a child is built from the URL of its
+ * parent.
+ */
+final class UrlPrefixCache {
+
+	/**
+	 * The server name is taken from the "Host" header of the request, so the
+	 * number of server names needs to be limited.
+	 */
+	static final int MAX_SERVER_NAMES = 16;
+
+	/**
+	 * Maximum number of children of a node. Names beyond the limit are not
+	 * cached, their URLs will be built on each call.
+	 */
+	static final int MAX_CHILDREN = 4096;
+
+	static final String GATEWAY_SEPARATOR = "/gateway/";
+
+	static final String ECU_SEPARATOR = "/ecu/";
+
+	private final String platformPath;
+
+	private final ConcurrentHashMap<String, Prefix> serverNames = new ConcurrentHashMap<>();
+
+	/**
+	 * Server names by the raw value of the "Host" header, limited to
+	 * MAX_SERVER_NAMES like the server names.
+	 */
+	private final ConcurrentHashMap<String, String> hosts = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param platformPath The path of the platforms, e.g.
+	 *                     "/doip-simulation/platform".
+	 */
+	UrlPrefixCache(String platformPath) {
+		this.platformPath = platformPath;
+	}
+
+	/**
+	 * Gets the server name for the host of a request, e.g.
+	 * "http://myserver.com:8080" for "myserver.com:8080". The same instance
+	 * will be returned for the same host.
+	 *
+	 * @param hostWithPort The value of the "Host" header of the request.
+	 * @return The server name.
+	 */
+	String serverName(String hostWithPort) {
+		String serverName = hosts.get(hostWithPort);
+		if (serverName != null) {
+			return serverName;
+		}
+		serverName = "http://" + hostWithPort;
+		if (hosts.size() >= MAX_SERVER_NAMES) {
+			return serverName;
+		}
+		String existing = hosts.putIfAbsent(hostWithPort, serverName);
+		return existing != null ? existing : serverName;
+	}
+
+	/**
+	 * Gets the URL prefix of a platform, e.g.
+	 * "http://myserver.com/doip-simulation/platform/X2024".
+	 *
+	 * @param serverName   The server name of the request.
+	 * @param platformName The name of the platform.
+	 * @return The prefix.
+	 */
+	Prefix platform(String serverName, String platformName) {
+		return root(serverName).child("/", platformName);
+	}
+
+	/**
+	 * Gets the URL prefix of a gateway, e.g.
+	 * "http://myserver.com/doip-simulation/platform/X2024/gateway/GW".
+	 *
+	 * @param serverName   The server name of the request.
+	 * @param platformName The name of the platform.
+	 * @param gatewayName  The name of the gateway.
+	 * @return The prefix.
+	 */
+	Prefix gateway(String serverName, String platformName, String gatewayName) {
+		return platform(serverName, platformName).child(GATEWAY_SEPARATOR, gatewayName);
+	}
+
+	/**
+	 * Gets the URL of an ECU, e.g.
+	 * "http://myserver.com/doip-simulation/platform/X2024/gateway/GW/ecu/EMS".
+	 *
+	 * @param serverName   The server name of the request.
+	 * @param platformName The name of the platform.
+	 * @param gatewayName  The name of the gateway.
+	 * @param ecuName      The name of the ECU.
+	 * @return The prefix.
+	 */
+	Prefix ecu(String serverName, String platformName, String gatewayName, String ecuName) {
+		return gateway(serverName, platformName, gatewayName).child(ECU_SEPARATOR, ecuName);
+	}
+
+	void clear() {
+		serverNames.clear();
+		hosts.clear();
+	}
+
+	int size() {
+		return serverNames.size();
+	}
+
+	private Prefix root(String serverName) {
+		// Previous versions created "null/doip-simulation/..." without a server name
+		String key = String.valueOf(serverName);
+		Prefix root = serverNames.get(key);
+		if (root != null) {
+			return root;
+		}
+		root = new Prefix(key + platformPath);
+		if (serverNames.size() >= MAX_SERVER_NAMES) {
+			return root;
+		}
+		Prefix existing = serverNames.putIfAbsent(key, root);
+		return existing != null ? existing : root;
+	}
+
+	/**
+	 * A cached URL together with the URLs of its children.
+	 */
+	static final class Prefix {
+
+		private final String url;
+
+		private final ConcurrentHashMap<String, Prefix> children = new ConcurrentHashMap<>();
+
+		private Prefix(String url) {
+			this.url = url;
+		}
+
+		String getUrl() {
+			return url;
+		}
+
+		/**
+		 * Gets the prefix of a child. All children of a node use the same
+		 * separator.
+		 *
+		 * @param separator The separator between this URL and the name, e.g.
+		 *                  "/gateway/".
+		 * @param name      The name of the child.
+		 * @return The prefix of the child.
+		 */
+		Prefix child(String separator, String name) {
+			Prefix child = children.get(name);
+			if (child != null) {
+				return child;
+			}
+			child = new Prefix(url + separator + name);
+			if (children.size() >= MAX_CHILDREN) {
+				return child;
+			}
+			Prefix existing = children.putIfAbsent(name, child);
+			return existing != null ? existing : child;
+		}
+	}
+}
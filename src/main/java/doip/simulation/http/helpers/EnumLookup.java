@@ -0,0 +1,113 @@
+package doip.simulation.http.helpers;
+
+import java.lang.reflect.Array;
+
+/**
+ * Case-insensitive lookup of the constants of an enum by name. In contrast to
+ * Enum.valueOf() no exception is thrown for an unknown name, and the name can
+ * be a region of a larger string, e.g. the value of a query parameter, so the
+ * lookup does not allocate any memory.
+ * <p>
+ * The names are folded to lower case (ASCII only) and stored in an open
+ * addressing hash table which is built once per enum.
+ *
+ * @param <E> The type of the enum.
+ */
+public final class EnumLookup<E extends Enum<E>> {
+
+	private final E[] table;
+
+	private final int mask;
+
+	private EnumLookup(E[] table) {
+		this.table = table;
+		this.mask = table.length - 1;
+	}
+
+	/**
+	 * Creates the lookup table for an enum.
+	 *
+	 * @param <E>  The type of the enum.
+	 * @param type The class of the enum.
+	 * @return The lookup table.
+	 * @throws IllegalArgumentException If two constants only differ in case.
+	 */
+	public static <E extends Enum<E>> EnumLookup<E> of(Class<E> type) {
+		E[] constants = type.getEnumConstants();
+		int size = Integer.highestOneBit(Math.max(constants.length, 1) * 4);
+		@SuppressWarnings("unchecked")
+		E[] table = (E[]) Array.newInstance(type, size);
+		for (E constant : constants) {
+			String name = constant.name();
+			int index = hash(name, 0, name.length()) & (size - 1);
+			while (table[index] != null) {
+				if (matches(table[index].name(), name, 0, name.length())) {
+					throw new IllegalArgumentException(
+							"The constants " + table[index] + " and " + constant + " only differ in case");
+				}
+				index = (index + 1) & (size - 1);
+			}
+			table[index] = constant;
+		}
+		return new EnumLookup<>(table);
+	}
+
+	/**
+	 * Gets the constant with the given name, ignoring case.
+	 *
+	 * @param name The name, may be null.
+	 * @return The constant, or null if there is none with this name.
+	 */
+	public E get(CharSequence name) {
+		if (name == null) {
+			return null;
+		}
+		return get(name, 0, name.length());
+	}
+
+	/**
+	 * Gets the constant whose name is the given region of a string, ignoring
+	 * case.
+	 *
+	 * @param text  The text which contains the name.
+	 * @param start The index of the first character of the name.
+	 * @param end   The index after the last character of the name.
+	 * @return The constant, or null if there is none with this name.
+	 */
+	public E get(CharSequence text, int start, int end) {
+		int index = hash(text, start, end) & mask;
+		E constant;
+		while ((constant = table[index]) != null) {
+			if (matches(constant.name(), text, start, end)) {
+				return constant;
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	private static int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + fold(text.charAt(i));
+		}
+		// Spread the high bits, the table is indexed with the low bits
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean matches(String name, CharSequence text, int start, int end) {
+		if (name.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (fold(name.charAt(i)) != fold(text.charAt(start + i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static char fold(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+}
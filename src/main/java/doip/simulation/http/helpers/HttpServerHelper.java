@@ -1,7 +1,6 @@
 package doip.simulation.http.helpers;
 import com.sun.net.httpserver.HttpExchange;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.starcode88.http.HttpUtils;
 import com.sun.net.httpserver.Headers;
 
@@ -9,10 +8,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -22,6 +25,11 @@ import org.apache.logging.log4j.Logger;
 public class HttpServerHelper {
 	private static final Logger logger = LogManager.getLogger(HttpServerHelper.class);
 	
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	// Number of bytes of the SHA-256 digest which are used for an ETag
+	private static final int ETAG_DIGEST_BYTES = 16;
+	
 	/**
 	 * Sends a response to the client with the given message.
 	 *
@@ -47,7 +55,8 @@ public class HttpServerHelper {
 	}
 
 	/**
-	 * Sends a response to the client with the given message.
+	 * Sends a response to the client with the given message. If the client
+	 * accepts it, the message will be compressed (see {@link ResponseCompression}).
 	 *
 	 * @param exchange    The HTTP exchange.
 	 * @param message     The message to send in the response.
@@ -58,32 +67,308 @@ public class HttpServerHelper {
 	 */
 	public static <T> void sendResponse(HttpExchange exchange, T message, String contentType, int code)
 			throws IOException {
+		sendResponseBody(exchange, new ResponseBody(toBytes(message)), contentType, code, false);
+	}
+
+	/**
+	 * Sends a response with an ETag header. If the status code is 200 and the
+	 * client already has a response with the same ETag (header If-None-Match),
+	 * then "304 Not Modified" will be sent without body.
+	 *
+	 * @param exchange    The HTTP exchange.
+	 * @param message     The message to send in the response.
+	 * @param contentType The response content Type.
+	 * @param code        The response code to send.
+	 * @param eTag        The strong ETag of the message including the double
+	 *                    quotes, or null if no ETag shall be sent.
+	 * @param <T>         The type of the message.
+	 * @return The status code which has actually been sent.
+	 * @throws IOException If an I/O error occurs while sending the response.
+	 */
+	public static <T> int sendResponse(HttpExchange exchange, T message, String contentType, int code, String eTag)
+			throws IOException {
+		return sendResponseBody(exchange, new ResponseBody(toBytes(message), eTag), contentType, code, eTag != null);
+	}
+
+	/**
+	 * Sends a response body together with its ETag. The ETag and compressed
+	 * variants of the body are kept in the ResponseBody, so sending the same body
+	 * again does not need to hash or compress it again.
+	 *
+	 * @param exchange    The HTTP exchange.
+	 * @param body        The body to send in the response.
+	 * @param contentType The response content Type.
+	 * @param code        The response code to send.
+	 * @return The status code which has actually been sent.
+	 * @throws IOException If an I/O error occurs while sending the response.
+	 */
+	public static int sendResponseBody(HttpExchange exchange, ResponseBody body, String contentType, int code)
+			throws IOException {
+		return sendResponseBody(exchange, body, contentType, code, true);
+	}
+
+	private static int sendResponseBody(HttpExchange exchange, ResponseBody body, String contentType, int code,
+			boolean withETag) throws IOException {
 		try {
-			// Convert the message to bytes based on its type
-			byte[] messageBytes;
-			if (message instanceof String) {
-				messageBytes = ((String) message).getBytes(StandardCharsets.UTF_8);
-			} else if (message instanceof byte[]) {
-				messageBytes = (byte[]) message;
-			} else {
-				// Handle other types or throw an exception based on your requirements
-				throw new IllegalArgumentException("Unsupported message type: " + message.getClass().getName());
+			Headers headers = exchange.getResponseHeaders();
+			ServerTiming timing = ServerTiming.current();
+
+			// Negotiate the content coding
+			ResponseCompression compression = getResponseCompression(exchange);
+			String encoding = null;
+			if (compression.isApplicable(body.getLength())) {
+				headers.add("Vary", "Accept-Encoding");
+				encoding = negotiateContentEncoding(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+			}
+
+			if (withETag && code == HttpURLConnection.HTTP_OK) {
+				String eTag = body.getETag(encoding);
+				headers.set("ETag", eTag);
+				if (isNotModified(exchange, eTag)) {
+					addServerTiming(headers, timing);
+					try {
+						exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+					} finally {
+						exchange.close();
+					}
+					return HttpURLConnection.HTTP_NOT_MODIFIED;
+				}
+			}
+
+			byte[] messageBytes = body.getBytes();
+			if (encoding != null) {
+				long start = timing != null ? System.nanoTime() : 0;
+				messageBytes = body.getEncoded(encoding, compression.getLevel());
+				headers.set("Content-Encoding", encoding);
+				if (timing != null) {
+					timing.add(ServerTiming.Phase.COMPRESS, start);
+				}
 			}
 
 			// Set response headers
-			exchange.getResponseHeaders().add("Content-Type", contentType);
+			headers.add("Content-Type", contentType);
+			addServerTiming(headers, timing);
 			exchange.sendResponseHeaders(code, messageBytes.length);
 
 			// Write the message bytes to the response body
+			long start = timing != null ? System.nanoTime() : 0;
 			try (OutputStream responseBody = exchange.getResponseBody()) {
 				responseBody.write(messageBytes);
 			}
+			if (timing != null) {
+				timing.add(ServerTiming.Phase.WRITE, start);
+			}
+			return code;
 		} catch (IOException e) {
 			logger.error("Error sending response: {}", e.getMessage(), e);
 			throw e; // Re-throw the exception for higher-level handling
 		}
 	}
 
+	/**
+	 * Sends a response whose body is written while the response is sent. The
+	 * body is sent with chunked transfer encoding because its length is not known
+	 * in advance. If the client accepts it, the body will be compressed on the
+	 * fly. No ETag will be sent because the body is never complete in memory.
+	 *
+	 * @param exchange    The HTTP exchange.
+	 * @param contentType The response content Type.
+	 * @param code        The response code to send.
+	 * @param body        Writes the body to the response stream.
+	 * @throws IOException If an I/O error occurs while sending the response.
+	 */
+	public static void sendStreamingResponse(HttpExchange exchange, String contentType, int code, StreamingBody body)
+			throws IOException {
+		try {
+			Headers headers = exchange.getResponseHeaders();
+
+			// The size is unknown, so the minimum size of the compression is not considered
+			ResponseCompression compression = getResponseCompression(exchange);
+			String encoding = null;
+			if (compression.isEnabled()) {
+				headers.add("Vary", "Accept-Encoding");
+				encoding = negotiateContentEncoding(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+			}
+			if (encoding != null) {
+				headers.set("Content-Encoding", encoding);
+			}
+
+			headers.add("Content-Type", contentType);
+			ServerTiming timing = ServerTiming.current();
+			addServerTiming(headers, timing);
+			exchange.sendResponseHeaders(code, 0); // 0 means chunked transfer encoding
+
+			long start = timing != null ? System.nanoTime() : 0;
+			try (OutputStream responseBody = ResponseBody.openEncodingStream(exchange.getResponseBody(), encoding,
+					compression.getLevel())) {
+				body.writeTo(responseBody);
+			}
+			if (timing != null) {
+				timing.add(ServerTiming.Phase.WRITE, start);
+			}
+		} catch (IOException e) {
+			logger.error("Error sending response: {}", e.getMessage(), e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds the phases which have been timed so far as "Server-Timing" header.
+	 */
+	private static void addServerTiming(Headers headers, ServerTiming timing) {
+		if (timing != null) {
+			String value = timing.toHeaderValue();
+			if (value != null) {
+				headers.set("Server-Timing", value);
+			}
+		}
+	}
+
+	/**
+	 * Converts a message to bytes based on its type.
+	 */
+	private static <T> byte[] toBytes(T message) {
+		if (message instanceof String) {
+			return ((String) message).getBytes(StandardCharsets.UTF_8);
+		} else if (message instanceof byte[]) {
+			return (byte[]) message;
+		} else {
+			// Handle other types or throw an exception based on your requirements
+			throw new IllegalArgumentException("Unsupported message type: " + message.getClass().getName());
+		}
+	}
+
+	/**
+	 * Gets the compression settings of the HTTP context of the exchange.
+	 *
+	 * @param exchange The HTTP exchange.
+	 * @return The compression settings, ResponseCompression.DISABLED if the
+	 *         context has no settings.
+	 */
+	public static ResponseCompression getResponseCompression(HttpExchange exchange) {
+		Object compression = exchange.getAttribute(ResponseCompression.ATTRIBUTE);
+		if (compression instanceof ResponseCompression) {
+			return (ResponseCompression) compression;
+		}
+		return ResponseCompression.DISABLED;
+	}
+
+	/**
+	 * Selects the content coding for the response from the Accept-Encoding header
+	 * of the request. gzip is preferred over deflate if both have the same
+	 * quality value.
+	 *
+	 * @param acceptEncoding The value of the Accept-Encoding header, may be null.
+	 * @return "gzip", "deflate" or null if the body shall not be compressed.
+	 */
+	public static String negotiateContentEncoding(String acceptEncoding) {
+		if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+			return null;
+		}
+		double gzipQuality = -1;
+		double deflateQuality = -1;
+		double anyQuality = -1;
+		for (String element : acceptEncoding.split(",")) {
+			String[] tokens = element.split(";");
+			String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+			double quality = 1.0;
+			for (int i = 1; i < tokens.length; i++) {
+				String parameter = tokens[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(parameter.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+			switch (coding) {
+			case ResponseBody.GZIP:
+			case "x-gzip":
+				gzipQuality = quality;
+				break;
+			case ResponseBody.DEFLATE:
+				deflateQuality = quality;
+				break;
+			case "*":
+				anyQuality = quality;
+				break;
+			default:
+				break;
+			}
+		}
+		if (gzipQuality < 0) {
+			gzipQuality = anyQuality;
+		}
+		if (deflateQuality < 0) {
+			deflateQuality = anyQuality;
+		}
+		if (gzipQuality > 0 && gzipQuality >= deflateQuality) {
+			return ResponseBody.GZIP;
+		}
+		if (deflateQuality > 0) {
+			return ResponseBody.DEFLATE;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether one of the ETags in the If-None-Match header of the request
+	 * matches the given ETag. As defined in RFC 9110 the weak comparison is used.
+	 *
+	 * @param exchange The HTTP exchange.
+	 * @param eTag     The current ETag of the resource.
+	 * @return true if the client already has the current representation.
+	 */
+	public static boolean isNotModified(HttpExchange exchange, String eTag) {
+		String method = exchange.getRequestMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method)) {
+			return false;
+		}
+		List<String> ifNoneMatch = exchange.getRequestHeaders().get("If-None-Match");
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		String opaqueTag = stripWeakPrefix(eTag);
+		for (String headerValue : ifNoneMatch) {
+			for (String candidate : headerValue.split(",")) {
+				String trimmed = candidate.trim();
+				if (trimmed.equals("*") || stripWeakPrefix(trimmed).equals(opaqueTag)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeakPrefix(String eTag) {
+		return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+	}
+
+	/**
+	 * Computes a strong ETag from the content of a response body. It is the hex
+	 * string of the first 16 bytes of the SHA-256 digest in double quotes.
+	 *
+	 * @param body The response body.
+	 * @return The ETag including the double quotes.
+	 */
+	public static String computeETag(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			char[] eTag = new char[ETAG_DIGEST_BYTES * 2 + 2];
+			eTag[0] = '"';
+			for (int i = 0; i < ETAG_DIGEST_BYTES; i++) {
+				eTag[1 + i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+				eTag[2 + i * 2] = HEX_DIGITS[digest[i] & 0x0F];
+			}
+			eTag[eTag.length - 1] = '"';
+			return new String(eTag);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
 	/**
 	 * Reads the request body of an HTTP exchange and converts it to a String.
 	 *
@@ -175,7 +460,7 @@ public class HttpServerHelper {
 
 	/**
 	 * Logs details of the HTTP response, including status code, headers, and
-	 * optional response body.
+	 * optional response body. The details are logged at level DEBUG.
 	 *
 	 * @param exchange     The HTTP exchange.
 	 * @param responseCode The HTTP response status code.
@@ -183,9 +468,13 @@ public class HttpServerHelper {
 	 * @param <T>          The type of the response body.
 	 */
 	public static <T> void responseServerLogging(HttpExchange exchange, int responseCode, T responseBody) {
-		logger.info("--------------------------------------------------------------");
-		logger.info("Sent HTTP response:");
-		logger.info("    Status code = {} ({})", responseCode, HttpUtils.getStatusText(responseCode));
+		// The access log contains one record per request, the details are only needed for debugging
+		if (!logger.isDebugEnabled()) {
+			return;
+		}
+		logger.debug("--------------------------------------------------------------");
+		logger.debug("Sent HTTP response:");
+		logger.debug("    Status code = {} ({})", responseCode, HttpUtils.getStatusText(responseCode));
 
 		Headers headers = exchange.getResponseHeaders();
 
@@ -194,26 +483,29 @@ public class HttpServerHelper {
 
 		// Log the response body if it is not null and is a String
 		if (responseBody != null && responseBody instanceof String) {
-			logger.info(" Response body = {}", responseBody);
+			logger.debug(" Response body = {}", responseBody);
 		}
 
-		logger.info("--------------------------------------------------------------");
+		logger.debug("--------------------------------------------------------------");
 	}
 
 	/**
 	 * Logs details of the HTTP request, including URI, method, headers, and
-	 * optional request body.
+	 * optional request body. The details are logged at level DEBUG.
 	 *
 	 * @param exchange    The HTTP exchange.
 	 * @param requestBody The optional request body.
 	 * @param <T>         The type of the request body.
 	 */
 	public static <T> void requestServerLogging(HttpExchange exchange, T requestBody) {
-		logger.info("--------------------------------------------------------------");
-		logger.info("Received HTTP request:");
-		logger.info("    {}", exchange.getRequestURI());
+		if (!logger.isDebugEnabled()) {
+			return;
+		}
+		logger.debug("--------------------------------------------------------------");
+		logger.debug("Received HTTP request:");
+		logger.debug("    {}", exchange.getRequestURI());
 		String method = exchange.getRequestMethod();
-		logger.info("    " + method);
+		logger.debug("    " + method);
 
 		Headers headers = exchange.getRequestHeaders();
 
@@ -222,10 +514,10 @@ public class HttpServerHelper {
 
 		// Log the request body if it is not null and is a String
 		if (requestBody != null && requestBody instanceof String) {
-			logger.info("  Request body = {}", requestBody);
+			logger.debug("  Request body = {}", requestBody);
 		}
 
-		logger.info("--------------------------------------------------------------");
+		logger.debug("--------------------------------------------------------------");
 	}
 
 	/**
@@ -234,7 +526,7 @@ public class HttpServerHelper {
 	 * @param headers The headers to log.
 	 */
 	private static void headerLogging(Headers headers) {
-		logger.info("    Headers:");
+		logger.debug("    Headers:");
 
 		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
 			String headerName = header.getKey();
@@ -243,7 +535,7 @@ public class HttpServerHelper {
 			// Join the header values into a comma-separated string
 			String headerValueString = String.join(", ", headerValues);
 
-			logger.info("        {} = {}", headerName, headerValueString);
+			logger.debug("        {} = {}", headerName, headerValueString);
 		}
 	}
 	
@@ -289,14 +581,112 @@ public class HttpServerHelper {
      */
     public static String getQueryParam(HttpExchange exchange, String paramName) {
         URI uri = exchange.getRequestURI();
-        String query = uri.getQuery();
+        return getQueryParam(uri.getQuery(), paramName);
+    }
 
-        if (query != null && !query.trim().isEmpty()) {
-            Map<String, String> queryParams = parseQueryParameters(query);
-            return queryParams.get(paramName);
+    /**
+     * Get a specific query parameter from a query string. The query is scanned
+     * once without splitting it, only the value is copied and decoded.
+     *
+     * @param query     The query string, may be null.
+     * @param paramName The name of the query parameter.
+     * @return The URL-decoded value of the parameter or null if not found.
+     */
+    public static String getQueryParam(String query, String paramName) {
+        int start = indexOfQueryValue(query, paramName);
+        if (start < 0) {
+            return null;
         }
+        int end = endOfQueryValue(query, start);
+        String value = query.substring(start, end);
+        return needsDecoding(query, start, end) ? urlDecode(value) : value;
+    }
 
-        return null;
+    /**
+     * Get a query parameter whose value is the name of an enum constant. If the
+     * value is not URL-encoded, no memory is allocated.
+     *
+     * @param <E>    The type of the enum.
+     * @param query  The query string.
+     * @param start  The index of the value, see indexOfQueryValue().
+     * @param values The lookup table of the enum.
+     * @return The constant, ignoring case, or null if the value is no constant.
+     */
+    public static <E extends Enum<E>> E getQueryParam(String query, int start, EnumLookup<E> values) {
+        int end = endOfQueryValue(query, start);
+        if (needsDecoding(query, start, end)) {
+            return values.get(urlDecode(query.substring(start, end)));
+        }
+        return values.get(query, start, end);
+    }
+
+    /**
+     * Finds the value of a query parameter by scanning the query once. Like in
+     * parseQueryParameters() only parameters with a non-empty value are
+     * considered, and if a parameter occurs more than once, the last value is
+     * used.
+     *
+     * @param query     The query string, may be null.
+     * @param paramName The name of the query parameter.
+     * @return The index of the first character of the value, or -1 if the
+     *         parameter is not contained.
+     */
+    public static int indexOfQueryValue(String query, String paramName) {
+        if (query == null) {
+            return -1;
+        }
+        int found = -1;
+        int length = query.length();
+        int pairStart = 0;
+        int equals = -1;
+        boolean ambiguous = false;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? query.charAt(i) : '&';
+            if (c == '=') {
+                ambiguous = equals >= 0;
+                if (equals < 0) {
+                    equals = i;
+                }
+            } else if (c == '&') {
+                // Only "key=value" pairs, as with the split in parseQueryParameters()
+                if (equals >= 0 && !ambiguous && equals < i - 1 && keyEquals(query, pairStart, equals, paramName)) {
+                    found = equals + 1;
+                }
+                pairStart = i + 1;
+                equals = -1;
+                ambiguous = false;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the end of a query value.
+     *
+     * @param query The query string.
+     * @param start The index of the first character of the value.
+     * @return The index of the next '&amp;' or the length of the query.
+     */
+    public static int endOfQueryValue(String query, int start) {
+        int end = query.indexOf('&', start);
+        return end < 0 ? query.length() : end;
+    }
+
+    private static boolean keyEquals(String query, int start, int end, String paramName) {
+        if (needsDecoding(query, start, end)) {
+            return paramName.equals(urlDecode(query.substring(start, end)));
+        }
+        return end - start == paramName.length() && query.startsWith(paramName, start);
+    }
+
+    private static boolean needsDecoding(String query, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -323,19 +713,41 @@ public class HttpServerHelper {
      * @return The value of the specified parameter, or null if the parameter is not found.
      */
     public static String getPathParam(String path, String paramName) {
-        // Split the path into segments
-        String[] segments = path.split("/");
-
-        // Find the index of the parameter in the path
-        for (int i = 0; i < segments.length - 1; i++) {
-            if (paramName.equals(segments[i])) {
-                return segments[i + 1];
+        // Walk the segments without splitting the path
+        int length = path.length();
+        int segmentStart = 0;
+        while (segmentStart <= length) {
+            int segmentEnd = path.indexOf('/', segmentStart);
+            if (segmentEnd < 0) {
+                // The last segment has no successor
+                return null;
             }
+            if (segmentEnd - segmentStart == paramName.length() && path.startsWith(paramName, segmentStart)) {
+                int valueEnd = path.indexOf('/', segmentEnd + 1);
+                if (valueEnd < 0) {
+                    valueEnd = length;
+                }
+                if (valueEnd == segmentEnd + 1 && isTrailingSlashes(path, segmentEnd)) {
+                    // Like String.split(), trailing empty segments do not exist
+                    return null;
+                }
+                return path.substring(segmentEnd + 1, valueEnd);
+            }
+            segmentStart = segmentEnd + 1;
         }
 
         // Parameter not found in the path
         return null;
     }
+
+    private static boolean isTrailingSlashes(String path, int start) {
+        for (int i = start; i < path.length(); i++) {
+            if (path.charAt(i) != '/') {
+                return false;
+            }
+        }
+        return true;
+    }
     
     /**
      * Deserialize a JSON string into an object of the specified type.
@@ -347,11 +759,8 @@ public class HttpServerHelper {
      */
     public static <T> T deserializeJsonToObject(String jsonString, Class<T> valueType) {
         try {
-            // Create an ObjectMapper instance
-            ObjectMapper objectMapper = new ObjectMapper();
-
-            // Deserialize the JSON string into an object of the specified type
-            return objectMapper.readValue(jsonString, valueType);
+            // Deserialize the JSON string with the pre-built reader of the shared codec
+            return JsonCodec.getDefault().read(jsonString, valueType);
         } catch (JsonProcessingException e) {
              logger.error("Invalid JSON syntax: {}", e.getMessage(), e);
             return null;
@@ -369,7 +778,7 @@ public class HttpServerHelper {
      * @return A string representing the host with port information, or null if the "Host" header is not present.
      */
     public static String getHostWithPort(HttpExchange exchange) {
-    	logger.info("Local address: {}", exchange.getLocalAddress().toString());
+    	logger.debug("Local address: {}", exchange.getLocalAddress());
         Headers headers = exchange.getRequestHeaders();
         return getHostWithPortFromHeaders(headers);
     }
@@ -385,11 +794,11 @@ public class HttpServerHelper {
 
         if (hostHeader != null && !hostHeader.isEmpty()) {
             // Return the entire host string with port (if present)
-        	logger.info("Host with Port: " + hostHeader.get(0));
+        	logger.debug("Host with Port: {}", hostHeader.get(0));
             return hostHeader.get(0);
         } else {
             // Handle the case where the "Host" header is not present in the headers
-        	logger.info("Host header not found in the request");
+        	logger.debug("Host header not found in the request");
             return null;
         }
     }
@@ -0,0 +1,220 @@
+package doip.simulation.http.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import doip.simulation.http.lib.ActionRequest;
+import doip.simulation.http.lib.Ecu;
+import doip.simulation.http.lib.Gateway;
+import doip.simulation.http.lib.LookupEntry;
+import doip.simulation.http.lib.Modifier;
+import doip.simulation.http.lib.Platform;
+import doip.simulation.http.lib.ServerInfo;
+
+/**
+ * Shared JSON codec for the DTOs of the HTTP interface. It holds one
+ * ObjectMapper and pre-built ObjectReader and ObjectWriter instances for the
+ * DTO types. Readers and writers are immutable and thread-safe, and they have
+ * resolved their root (de)serializer already, so serializing a response does
+ * not need to look up serializers again.
+ */
+public final class JsonCodec {
+
+	private static Logger logger = LogManager.getLogger(JsonCodec.class);
+
+	/**
+	 * The types for which readers and writers will be built in advance.
+	 */
+	private static final Class<?>[] DTO_TYPES = { ActionRequest.class, ServerInfo.class, Platform.class,
+			Gateway.class, Ecu.class };
+
+	private static volatile JsonCodec defaultCodec = new JsonCodec(false);
+
+	private final ObjectMapper objectMapper;
+
+	private final boolean bytecodeAccessors;
+
+	private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new codec.
+	 *
+	 * @param bytecodeAccessors If true, the Blackbird module will be registered
+	 *                          which accesses the properties of the DTOs with
+	 *                          generated lambdas instead of reflection.
+	 */
+	public JsonCodec(boolean bytecodeAccessors) {
+		this.bytecodeAccessors = bytecodeAccessors;
+		this.objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		if (bytecodeAccessors) {
+			objectMapper.registerModule(new BlackbirdModule());
+		}
+		for (Class<?> type : DTO_TYPES) {
+			readers.put(type, objectMapper.readerFor(type));
+			writers.put(type, objectMapper.writerFor(type));
+		}
+	}
+
+	/**
+	 * Returns the codec which is used by servers and handlers which have not
+	 * been given their own codec.
+	 *
+	 * @return The shared codec.
+	 */
+	public static JsonCodec getDefault() {
+		return defaultCodec;
+	}
+
+	/**
+	 * Replaces the shared codec. Servers and handlers which already have a codec
+	 * keep it.
+	 *
+	 * @param codec The new shared codec.
+	 */
+	public static void setDefault(JsonCodec codec) {
+		if (codec == null) {
+			throw new IllegalArgumentException("The codec must not be null");
+		}
+		defaultCodec = codec;
+	}
+
+	public boolean isBytecodeAccessors() {
+		return bytecodeAccessors;
+	}
+
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	/**
+	 * Returns the reader for the given type. Readers for the DTO types have been
+	 * built in advance, readers for other types will be built once and kept.
+	 *
+	 * @param type The type to read.
+	 * @return The reader.
+	 */
+	public ObjectReader readerFor(Class<?> type) {
+		return readers.computeIfAbsent(type, objectMapper::readerFor);
+	}
+
+	/**
+	 * Returns the writer for the given type. Writers for the DTO types have been
+	 * built in advance, writers for other types will be built once and kept.
+	 *
+	 * @param type The type to write.
+	 * @return The writer.
+	 */
+	public ObjectWriter writerFor(Class<?> type) {
+		return writers.computeIfAbsent(type, objectMapper::writerFor);
+	}
+
+	public <T> T read(String json, Class<T> type) throws IOException {
+		return readerFor(type).readValue(json);
+	}
+
+	public <T> T read(byte[] json, Class<T> type) throws IOException {
+		return readerFor(type).readValue(json);
+	}
+
+	public <T> T read(InputStream in, Class<T> type) throws IOException {
+		return readerFor(type).readValue(in);
+	}
+
+	public byte[] writeAsBytes(Object value) throws IOException {
+		return writerFor(value.getClass()).writeValueAsBytes(value);
+	}
+
+	public String writeAsString(Object value) throws IOException {
+		return writerFor(value.getClass()).writeValueAsString(value);
+	}
+
+	/**
+	 * Creates a generator which writes UTF-8 encoded JSON to the given stream.
+	 * Closing the generator also closes the stream.
+	 *
+	 * @param out The stream to which the JSON will be written.
+	 * @return The generator.
+	 * @throws IOException If the generator can not be created.
+	 */
+	public JsonGenerator createGenerator(OutputStream out) throws IOException {
+		return objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+	}
+
+	/**
+	 * Serializes and deserializes a sample of each DTO type once, so the
+	 * serializers, the deserializers and (if enabled) the generated accessors
+	 * are created before the first request is received.
+	 */
+	public void warmUp() {
+		String method = "public void warmUp()";
+		logger.trace(">>> {}", method);
+		long start = System.nanoTime();
+		try {
+			for (Object sample : createSamples()) {
+				byte[] json = writeAsBytes(sample);
+				read(json, sample.getClass());
+			}
+			read("{\"action\":\"start\"}", ActionRequest.class);
+			logger.debug("JSON codec has been warmed up in {} ms (bytecode accessors: {})",
+					(System.nanoTime() - start) / 1000000, bytecodeAccessors);
+		} catch (IOException e) {
+			// The codec still works, the serializers will be created with the first request
+			logger.warn("Warming up the JSON codec failed: {}", e.getMessage(), e);
+		} finally {
+			logger.trace("<<< {}", method);
+		}
+	}
+
+	/**
+	 * Creates a sample of each DTO type which will be written by the server.
+	 */
+	private static Object[] createSamples() {
+		Modifier modifier = new Modifier();
+		modifier.regex = "22 F1 86";
+		modifier.result = "62 F1 86 03";
+
+		LookupEntry lookupEntry = new LookupEntry();
+		lookupEntry.regex = "10 03";
+		lookupEntry.result = "50 03";
+		lookupEntry.modifiers = new ArrayList<>(List.of(modifier));
+
+		Ecu ecu = new Ecu();
+		ecu.name = "ECU";
+		ecu.url = "http://localhost:8080/doip-simulation/platform/P/gateway/GW/ecu/ECU";
+		ecu.configuredLookupTable = new ArrayList<>(List.of(lookupEntry));
+		ecu.runtimeLookupTable = new ArrayList<>(List.of(lookupEntry));
+
+		Gateway gateway = new Gateway();
+		gateway.name = "GW";
+		gateway.url = "http://localhost:8080/doip-simulation/platform/P/gateway/GW";
+		gateway.status = "RUNNING";
+		gateway.ecus = new ArrayList<>(List.of(ecu));
+
+		Platform platform = new Platform();
+		platform.setName("P");
+		platform.setUrl("http://localhost:8080/doip-simulation/platform/P");
+		platform.setStatus("RUNNING");
+		platform.setGateways(new ArrayList<>(List.of(gateway)));
+
+		ServerInfo serverInfo = new ServerInfo();
+		serverInfo.platforms = new ArrayList<>(List.of(platform));
+		return new Object[] { serverInfo, platform, gateway, ecu };
+	}
+}
@@ -0,0 +1,202 @@
+package doip.simulation.http.helpers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds with buckets like an HDR histogram:
+ * each power of two is divided into 32 linear sub-buckets, so the relative
+ * error of a recorded value is less than 3.2 % over the whole range from 1 ns
+ * up to about 68 s. Larger values are counted in the last bucket.
+ * <p>
+ * Recording is lock-free and does not allocate, so it can be done by many
+ * threads for each request. Reading while values are recorded gives a
+ * consistent enough view for statistics, but count and buckets may differ by
+ * the values which are recorded at the same time.
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Number of bits of the sub-bucket index within a power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Values up to 2^36 ns (about 68 s) have their own bucket.
+	 */
+	private static final int MAX_MAGNITUDE = 36;
+
+	public static final long MAX_TRACKABLE_VALUE = (1L << MAX_MAGNITUDE) - 1;
+
+	static final int BUCKET_COUNT = bucketIndex(MAX_TRACKABLE_VALUE) + 1;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong sum = new AtomicLong();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos The latency in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(bucketIndex(Math.min(value, MAX_TRACKABLE_VALUE)));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Adds all values of another histogram to this one.
+	 *
+	 * @param other The other histogram.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			long bucketCount = other.buckets.get(i);
+			if (bucketCount != 0) {
+				buckets.addAndGet(i, bucketCount);
+			}
+		}
+		count.addAndGet(other.count.get());
+		sum.addAndGet(other.sum.get());
+		long otherMax = other.max.get();
+		long currentMax = max.get();
+		while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Gets the sum of all recorded values.
+	 *
+	 * @return The sum in nanoseconds.
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * Gets the largest recorded value.
+	 *
+	 * @return The maximum in nanoseconds, 0 if nothing has been recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets the mean of the recorded values.
+	 *
+	 * @return The mean in nanoseconds, 0 if nothing has been recorded.
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Gets the value below which the given percentage of the recorded values
+	 * lies, e.g. 99.9 for p999. Like an HDR histogram it returns the highest
+	 * value which falls into the same bucket, but not more than the maximum.
+	 *
+	 * @param percentile The percentile between 0 and 100.
+	 * @return The value in nanoseconds, 0 if nothing has been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		double clamped = Math.min(100.0, Math.max(0.0, percentile));
+		long rank = Math.max(1, (long) Math.ceil(clamped / 100.0 * total));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			cumulative += snapshot[i];
+			if (cumulative >= rank) {
+				return Math.min(highestEquivalentValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Gets the number of values which are less than or equal to the given
+	 * value. The count is exact for the bucket boundaries, within a bucket all
+	 * values are counted.
+	 *
+	 * @param nanos The upper bound in nanoseconds.
+	 * @return The number of values.
+	 */
+	public long getCountAtOrBelow(long nanos) {
+		if (nanos < 0) {
+			return 0;
+		}
+		int last = bucketIndex(Math.min(nanos, MAX_TRACKABLE_VALUE));
+		long cumulative = 0;
+		for (int i = 0; i <= last; i++) {
+			cumulative += buckets.get(i);
+		}
+		return cumulative;
+	}
+
+	/**
+	 * Converts a value of the histogram to milliseconds.
+	 *
+	 * @param nanos The value in nanoseconds.
+	 * @return The value in milliseconds.
+	 */
+	public static double toMillis(long nanos) {
+		return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	static int bucketIndex(long value) {
+		if (value < 2 * SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < 2 * SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,60 @@
+package doip.simulation.http.helpers;
+
+/**
+ * Values of the parameters of a path template, e.g. "platform" and "gateway"
+ * for "/doip-simulation/platform/{platform}/gateway/{gateway}". The names are
+ * shared by all matches of the same route, only the values are created per
+ * request.
+ */
+public final class PathParameters {
+
+	public static final PathParameters EMPTY = new PathParameters(new String[0], new String[0]);
+
+	private final String[] names;
+
+	private final String[] values;
+
+	PathParameters(String[] names, String[] values) {
+		this.names = names;
+		this.values = values;
+	}
+
+	/**
+	 * Gets the value of a parameter.
+	 *
+	 * @param name The name of the parameter as given in the template.
+	 * @return The value or null if the route does not have such a parameter.
+	 */
+	public String get(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	public String getValue(int index) {
+		return values[index];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < names.length; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(names[i]).append('=').append(values[i]);
+		}
+		return builder.append('}').toString();
+	}
+}
@@ -0,0 +1,194 @@
+package doip.simulation.http.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Body of an HTTP response encoded as UTF-8. The ETag and the compressed
+ * variants of the body are computed when they are needed for the first time.
+ * After that they are kept together with the body, so a cached response will
+ * not be hashed or compressed again.
+ */
+public final class ResponseBody {
+
+	public static final String GZIP = "gzip";
+
+	public static final String DEFLATE = "deflate";
+
+	private final byte[] bytes;
+
+	private volatile String eTag;
+
+	private volatile Encoded gzip;
+
+	private volatile Encoded deflate;
+
+	/**
+	 * Constructs a new body.
+	 *
+	 * @param bytes The body. The array must not be modified afterwards.
+	 */
+	public ResponseBody(byte[] bytes) {
+		this(bytes, null);
+	}
+
+	/**
+	 * Constructs a new body with an ETag which has already been computed.
+	 *
+	 * @param bytes The body. The array must not be modified afterwards.
+	 * @param eTag  The strong ETag of the body including the double quotes.
+	 */
+	public ResponseBody(byte[] bytes, String eTag) {
+		this.bytes = bytes;
+		this.eTag = eTag;
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public int getLength() {
+		return bytes.length;
+	}
+
+	/**
+	 * Returns the strong ETag of the uncompressed body.
+	 *
+	 * @return The ETag including the double quotes.
+	 */
+	public String getETag() {
+		String tag = eTag;
+		if (tag == null) {
+			tag = HttpServerHelper.computeETag(bytes);
+			eTag = tag;
+		}
+		return tag;
+	}
+
+	/**
+	 * Returns the strong ETag for the given content coding. Each content coding
+	 * is a different representation, so it needs to have a different strong ETag.
+	 *
+	 * @param encoding The content coding or null for the uncompressed body.
+	 * @return The ETag including the double quotes.
+	 */
+	public String getETag(String encoding) {
+		String tag = getETag();
+		if (encoding == null) {
+			return tag;
+		}
+		return tag.substring(0, tag.length() - 1) + "-" + encoding + "\"";
+	}
+
+	/**
+	 * Returns the body compressed with the given content coding. The result is
+	 * kept, so the body will be compressed only once per coding and level.
+	 *
+	 * @param encoding The content coding, "gzip" or "deflate".
+	 * @param level    The compression level.
+	 * @return The compressed body.
+	 */
+	public byte[] getEncoded(String encoding, int level) {
+		boolean isGzip = GZIP.equals(encoding);
+		if (!isGzip && !DEFLATE.equals(encoding)) {
+			throw new IllegalArgumentException("Unsupported content coding: " + encoding);
+		}
+		Encoded encoded = isGzip ? gzip : deflate;
+		if (encoded == null || encoded.level != level) {
+			encoded = new Encoded(level, compress(bytes, encoding, level));
+			if (isGzip) {
+				gzip = encoded;
+			} else {
+				deflate = encoded;
+			}
+		}
+		return encoded.bytes;
+	}
+
+	/**
+	 * Compresses data with the given content coding. Content coding "deflate" is
+	 * the zlib format as defined in RFC 9110.
+	 *
+	 * @param data     The data to compress.
+	 * @param encoding The content coding, "gzip" or "deflate".
+	 * @param level    The compression level.
+	 * @return The compressed data.
+	 */
+	public static byte[] compress(byte[] data, String encoding, int level) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+		try (OutputStream out = openEncodingStream(buffer, encoding, level)) {
+			out.write(data);
+		} catch (IOException e) {
+			// Writing to a ByteArrayOutputStream does not fail
+			throw new UncheckedIOException(e);
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Opens a stream which compresses all written data with the given content
+	 * coding before it will be written to the given stream. Closing the returned
+	 * stream also closes the given stream.
+	 *
+	 * @param out      The stream for the compressed data.
+	 * @param encoding The content coding, "gzip", "deflate" or null for no
+	 *                 compression.
+	 * @param level    The compression level.
+	 * @return The stream for the uncompressed data.
+	 * @throws IOException If the gzip header can not be written.
+	 */
+	public static OutputStream openEncodingStream(OutputStream out, String encoding, int level) throws IOException {
+		if (encoding == null) {
+			return out;
+		} else if (GZIP.equals(encoding)) {
+			return new LeveledGzipOutputStream(out, level);
+		} else if (DEFLATE.equals(encoding)) {
+			return new LeveledDeflaterOutputStream(out, level);
+		}
+		throw new IllegalArgumentException("Unsupported content coding: " + encoding);
+	}
+
+	/**
+	 * GZIPOutputStream with a configurable compression level.
+	 */
+	private static class LeveledGzipOutputStream extends GZIPOutputStream {
+		LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+			super(out);
+			def.setLevel(level);
+		}
+	}
+
+	/**
+	 * DeflaterOutputStream with a configurable compression level which releases
+	 * its deflater when it is closed.
+	 */
+	private static class LeveledDeflaterOutputStream extends DeflaterOutputStream {
+		LeveledDeflaterOutputStream(OutputStream out, int level) {
+			super(out, new Deflater(level));
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				def.end();
+			}
+		}
+	}
+
+	private static final class Encoded {
+		private final int level;
+		private final byte[] bytes;
+
+		private Encoded(int level, byte[] bytes) {
+			this.level = level;
+			this.bytes = bytes;
+		}
+	}
+}
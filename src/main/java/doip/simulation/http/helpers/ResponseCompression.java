@@ -0,0 +1,75 @@
+package doip.simulation.http.helpers;
+
+import java.util.zip.Deflater;
+
+/**
+ * Settings for the compression of response bodies. The settings are stored as
+ * attribute of each HTTP context, so that they are available in
+ * {@link HttpServerHelper} by calling HttpExchange.getAttribute().
+ */
+public final class ResponseCompression {
+
+	/**
+	 * Name of the HTTP context attribute which contains the settings.
+	 */
+	public static final String ATTRIBUTE = ResponseCompression.class.getName();
+
+	public static final int DEFAULT_LEVEL = 6;
+
+	public static final int DEFAULT_MIN_SIZE = 1024;
+
+	public static final ResponseCompression DEFAULT = new ResponseCompression(DEFAULT_LEVEL, DEFAULT_MIN_SIZE);
+
+	public static final ResponseCompression DISABLED = new ResponseCompression(Deflater.NO_COMPRESSION,
+			Integer.MAX_VALUE);
+
+	private final int level;
+
+	private final int minSize;
+
+	/**
+	 * Constructs new compression settings.
+	 *
+	 * @param level   The compression level from 1 (fastest) to 9 (smallest), or
+	 *                0 to disable compression.
+	 * @param minSize The minimum size of a response body in bytes. Smaller bodies
+	 *                will not be compressed.
+	 */
+	public ResponseCompression(int level, int minSize) {
+		if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Compression level must be between 0 and 9");
+		}
+		if (minSize < 0) {
+			throw new IllegalArgumentException("Minimum size must not be negative");
+		}
+		this.level = level;
+		this.minSize = minSize;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public boolean isEnabled() {
+		return level != Deflater.NO_COMPRESSION;
+	}
+
+	/**
+	 * Checks whether a body of the given size shall be compressed.
+	 *
+	 * @param size The size of the body in bytes.
+	 * @return true if the body shall be compressed.
+	 */
+	public boolean isApplicable(int size) {
+		return isEnabled() && size >= minSize;
+	}
+
+	@Override
+	public String toString() {
+		return isEnabled() ? "level " + level + ", minimum size " + minSize + " bytes" : "disabled";
+	}
+}
@@ -0,0 +1,21 @@
+package doip.simulation.http.helpers;
+
+import java.io.IOException;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Handler of a route in a RouteTable.
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+	/**
+	 * Handles a request which matched the route.
+	 *
+	 * @param exchange   The HTTP exchange.
+	 * @param parameters The values of the parameters in the path template.
+	 * @throws IOException If an I/O error occurs while sending the response.
+	 */
+	void handle(HttpExchange exchange, PathParameters parameters) throws IOException;
+}
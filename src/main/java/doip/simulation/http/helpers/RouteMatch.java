@@ -0,0 +1,92 @@
+package doip.simulation.http.helpers;
+
+/**
+ * Result of looking up a request in a RouteTable.
+ *
+ * @param <H> The type of the handlers.
+ */
+public final class RouteMatch<H> {
+
+	public enum Result {
+		/**
+		 * A route has been found for the path and the method.
+		 */
+		FOUND,
+
+		/**
+		 * No route has been found for the path.
+		 */
+		NOT_FOUND,
+
+		/**
+		 * A route has been found for the path, but not for the method.
+		 */
+		METHOD_NOT_ALLOWED
+	}
+
+	private static final RouteMatch<?> NOT_FOUND = new RouteMatch<>(Result.NOT_FOUND, null, null, null, null);
+
+	private final Result result;
+
+	private final H handler;
+
+	private final String template;
+
+	private final PathParameters parameters;
+
+	private final String allowedMethods;
+
+	RouteMatch(Result result, H handler, String template, PathParameters parameters, String allowedMethods) {
+		this.result = result;
+		this.handler = handler;
+		this.template = template;
+		this.parameters = parameters;
+		this.allowedMethods = allowedMethods;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <H> RouteMatch<H> notFound() {
+		return (RouteMatch<H>) NOT_FOUND;
+	}
+
+	public Result getResult() {
+		return result;
+	}
+
+	/**
+	 * Gets the handler of the route.
+	 *
+	 * @return The handler, or null if the result is not FOUND.
+	 */
+	public H getHandler() {
+		return handler;
+	}
+
+	/**
+	 * Gets the template of the matched route.
+	 *
+	 * @return The template, or null if no route matched the path.
+	 */
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Gets the values of the path parameters.
+	 *
+	 * @return The parameters, or null if no route matched the path.
+	 */
+	public PathParameters getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Gets the methods which are supported for the path, as they shall be sent
+	 * in the "Allow" header of a "405 Method Not Allowed" response.
+	 *
+	 * @return The comma-separated methods, or null if no route matched the path.
+	 */
+	public String getAllowedMethods() {
+		return allowedMethods;
+	}
+}
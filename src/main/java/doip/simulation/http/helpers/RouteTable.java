@@ -0,0 +1,209 @@
+package doip.simulation.http.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table of routes which are given as path templates like
+ * "/doip-simulation/platform/{platform}/gateway/{gateway}". The templates are
+ * compiled into a trie with one node per path segment. A request path is
+ * matched in a single pass over its segments without splitting it, and the
+ * same lookup decides whether the path is unknown (404), the method is not
+ * supported (405) or which handler shall be called.
+ * <p>
+ * Literal segments take priority over parameters, so a template
+ * "/a/new" wins over "/a/{id}" for the path "/a/new". Empty segments, e.g.
+ * caused by a trailing slash, are ignored.
+ * <p>
+ * Routes need to be added before the table is used. After that, the table can
+ * be used by any number of threads at the same time.
+ *
+ * @param <H> The type of the handlers.
+ */
+public final class RouteTable<H> {
+
+	private final Node<H> root = new Node<>();
+
+	/**
+	 * The maximum number of parameters of all templates.
+	 */
+	private int maxParameters = 0;
+
+	/**
+	 * Adds a route.
+	 *
+	 * @param method   The HTTP method, e.g. "GET".
+	 * @param template The path template. Parameters are given in curly braces,
+	 *                 e.g. "{platform}".
+	 * @param handler  The handler of the route.
+	 * @return This table.
+	 * @throws IllegalArgumentException If the template is invalid or if there is
+	 *                                  already a handler for the method and the
+	 *                                  template.
+	 */
+	public RouteTable<H> add(String method, String template, H handler) {
+		if (method == null || template == null || handler == null) {
+			throw new IllegalArgumentException("Method, template and handler must not be null");
+		}
+		Node<H> node = root;
+		List<String> parameterNames = new ArrayList<>();
+		for (String segment : template.split("/")) {
+			if (segment.isEmpty()) {
+				continue;
+			}
+			if (segment.startsWith("{") && segment.endsWith("}")) {
+				String name = segment.substring(1, segment.length() - 1);
+				if (name.isEmpty() || parameterNames.contains(name)) {
+					throw new IllegalArgumentException("Invalid parameter '" + segment + "' in template " + template);
+				}
+				node = node.getOrCreateParameterChild(name, template);
+				parameterNames.add(name);
+			} else if (segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0) {
+				throw new IllegalArgumentException("Invalid segment '" + segment + "' in template " + template);
+			} else {
+				node = node.getOrCreateLiteralChild(segment);
+			}
+		}
+		node.addHandler(method, handler, template, parameterNames.toArray(new String[0]));
+		maxParameters = Math.max(maxParameters, parameterNames.size());
+		return this;
+	}
+
+	/**
+	 * Looks up the route for a request.
+	 *
+	 * @param method The HTTP method of the request.
+	 * @param path   The decoded path of the request.
+	 * @return The result of the lookup. It is never null.
+	 */
+	public RouteMatch<H> match(String method, String path) {
+		String[] values = maxParameters > 0 ? new String[maxParameters] : null;
+		Node<H> node = find(root, path, skipSlashes(path, 0), values, 0);
+		if (node == null || node.methods.length == 0) {
+			return RouteMatch.notFound();
+		}
+		PathParameters parameters = node.parameterNames.length == 0 ? PathParameters.EMPTY
+				: new PathParameters(node.parameterNames, values);
+		H handler = node.getHandler(method);
+		if (handler == null) {
+			return new RouteMatch<>(RouteMatch.Result.METHOD_NOT_ALLOWED, null, node.template, parameters,
+					node.allowedMethods);
+		}
+		return new RouteMatch<>(RouteMatch.Result.FOUND, handler, node.template, parameters, node.allowedMethods);
+	}
+
+	/**
+	 * Finds the node for the rest of the path which starts at the given index.
+	 * Literal children are tried first, if they do not lead to a route the
+	 * parameter child will be tried.
+	 */
+	private static <H> Node<H> find(Node<H> node, String path, int start, String[] values, int parameterIndex) {
+		if (start >= path.length()) {
+			return node.methods.length > 0 ? node : null;
+		}
+		int end = path.indexOf('/', start);
+		if (end < 0) {
+			end = path.length();
+		}
+		int length = end - start;
+		int next = skipSlashes(path, end);
+
+		for (int i = 0; i < node.literals.length; i++) {
+			String literal = node.literals[i];
+			if (literal.length() == length && path.regionMatches(start, literal, 0, length)) {
+				Node<H> found = find(node.literalChildren[i], path, next, values, parameterIndex);
+				if (found != null) {
+					return found;
+				}
+			}
+		}
+
+		if (node.parameterChild != null) {
+			values[parameterIndex] = path.substring(start, end);
+			return find(node.parameterChild, path, next, values, parameterIndex + 1);
+		}
+		return null;
+	}
+
+	private static int skipSlashes(String path, int index) {
+		while (index < path.length() && path.charAt(index) == '/') {
+			index++;
+		}
+		return index;
+	}
+
+	private static final class Node<H> {
+
+		private String[] literals = new String[0];
+
+		private Node<H>[] literalChildren = newNodeArray(0);
+
+		private Node<H> parameterChild = null;
+
+		private String parameterName = null;
+
+		private String[] methods = new String[0];
+
+		private Object[] handlers = new Object[0];
+
+		private String template = null;
+
+		private String[] parameterNames = null;
+
+		private String allowedMethods = null;
+
+		@SuppressWarnings("unchecked")
+		private static <H> Node<H>[] newNodeArray(int length) {
+			return (Node<H>[]) new Node<?>[length];
+		}
+
+		private Node<H> getOrCreateLiteralChild(String literal) {
+			for (int i = 0; i < literals.length; i++) {
+				if (literals[i].equals(literal)) {
+					return literalChildren[i];
+				}
+			}
+			Node<H> child = new Node<>();
+			literals = Arrays.copyOf(literals, literals.length + 1);
+			literals[literals.length - 1] = literal;
+			literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+			literalChildren[literalChildren.length - 1] = child;
+			return child;
+		}
+
+		private Node<H> getOrCreateParameterChild(String name, String template) {
+			if (parameterChild == null) {
+				parameterChild = new Node<>();
+				parameterName = name;
+			} else if (!parameterName.equals(name)) {
+				throw new IllegalArgumentException("Parameter '" + name + "' in template " + template
+						+ " conflicts with parameter '" + parameterName + "' of another template");
+			}
+			return parameterChild;
+		}
+
+		private void addHandler(String method, H handler, String template, String[] parameterNames) {
+			if (getHandler(method) != null) {
+				throw new IllegalArgumentException("There is already a handler for " + method + " " + template);
+			}
+			methods = Arrays.copyOf(methods, methods.length + 1);
+			methods[methods.length - 1] = method;
+			handlers = Arrays.copyOf(handlers, handlers.length + 1);
+			handlers[handlers.length - 1] = handler;
+			this.template = template;
+			this.parameterNames = parameterNames;
+			this.allowedMethods = String.join(", ", methods);
+		}
+
+		@SuppressWarnings("unchecked")
+		private H getHandler(String method) {
+			for (int i = 0; i < methods.length; i++) {
+				if (methods[i].equals(method)) {
+					return (H) handlers[i];
+				}
+			}
+			return null;
+		}
+	}
+}
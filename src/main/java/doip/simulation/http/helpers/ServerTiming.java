@@ -0,0 +1,253 @@
+package doip.simulation.http.helpers;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Breakdown of the time to handle a request into phases, which is sent in the
+ * "Server-Timing" response header and written to the access log, e.g.
+ *
+ * <pre>
+ * Server-Timing: resolve;dur=0.004, cache;desc="miss";dur=0.011, map;dur=0.120, serialize;dur=0.085
+ * </pre>
+ *
+ * The timing of a request is bound to the thread which handles it. Code which
+ * takes part in a phase gets it with {@link #current()} and records the phase
+ * with monotonic timestamps:
+ *
+ * <pre>
+ * ServerTiming timing = ServerTiming.current();
+ * long start = timing != null ? System.nanoTime() : 0;
+ * ...
+ * if (timing != null) {
+ * 	timing.add(ServerTiming.Phase.MAP, start);
+ * }
+ * </pre>
+ *
+ * If no server has enabled the timing, current() only reads a volatile field
+ * and no timestamps are taken. The header is added before the response headers
+ * are sent, so the phase "write" is only contained in the access log.
+ */
+public final class ServerTiming {
+
+	public enum Phase {
+		/**
+		 * Looking up the platform, gateway or ECU through the SimulationManager.
+		 */
+		RESOLVE("resolve"),
+
+		/**
+		 * Computing the fingerprint and looking up the response cache.
+		 */
+		CACHE("cache"),
+
+		/**
+		 * Mapping the simulation to the JSON objects (DTOs).
+		 */
+		MAP("map"),
+
+		/**
+		 * Serializing the JSON objects with Jackson.
+		 */
+		SERIALIZE("serialize"),
+
+		/**
+		 * Compressing the response body.
+		 */
+		COMPRESS("compress"),
+
+		/**
+		 * Writing the response body to the connection. For streaming responses
+		 * it includes mapping and serialization.
+		 */
+		WRITE("write");
+
+		private final String metricName;
+
+		Phase(String metricName) {
+			this.metricName = metricName;
+		}
+
+		public String getMetricName() {
+			return metricName;
+		}
+	}
+
+	private static final Phase[] PHASES = Phase.values();
+
+	/**
+	 * Number of servers which have enabled the timing. If it is 0, no timing
+	 * will be looked up for the current thread.
+	 */
+	private static final AtomicInteger enabledCount = new AtomicInteger();
+
+	private static final ThreadLocal<ServerTiming> CURRENT = ThreadLocal.withInitial(ServerTiming::new);
+
+	private final long[] nanos = new long[PHASES.length];
+
+	private long startNanos;
+
+	private long totalNanos;
+
+	private Boolean cacheHit;
+
+	/**
+	 * true between begin() and stop(), only then phases will be recorded.
+	 */
+	private boolean active;
+
+	/**
+	 * true from begin() until the summary has been taken for the access log.
+	 */
+	private boolean pending;
+
+	private ServerTiming() {
+	}
+
+	/**
+	 * Enables the timing for a server. Each call needs a call of disable().
+	 */
+	public static void enable() {
+		enabledCount.incrementAndGet();
+	}
+
+	public static void disable() {
+		enabledCount.decrementAndGet();
+	}
+
+	/**
+	 * Starts the timing of a request on the current thread. The timing object of
+	 * the thread is reused, so no memory is allocated per request.
+	 *
+	 * @return The timing of the request.
+	 */
+	public static ServerTiming begin() {
+		ServerTiming timing = CURRENT.get();
+		for (int i = 0; i < timing.nanos.length; i++) {
+			timing.nanos[i] = -1;
+		}
+		timing.cacheHit = null;
+		timing.startNanos = System.nanoTime();
+		timing.active = true;
+		timing.pending = true;
+		return timing;
+	}
+
+	/**
+	 * Gets the timing of the request which is handled by the current thread.
+	 *
+	 * @return The timing, or null if the timing is disabled.
+	 */
+	public static ServerTiming current() {
+		if (enabledCount.get() == 0) {
+			return null;
+		}
+		ServerTiming timing = CURRENT.get();
+		return timing.active ? timing : null;
+	}
+
+	/**
+	 * Takes the summary of the last request of the current thread for the
+	 * access log. Each summary is only returned once.
+	 *
+	 * @return The summary in the format of the Server-Timing header including
+	 *         the phase "write" and the total time, or null if the request has
+	 *         not been timed.
+	 */
+	public static String takeSummary() {
+		if (enabledCount.get() == 0) {
+			return null;
+		}
+		ServerTiming timing = CURRENT.get();
+		if (!timing.pending) {
+			return null;
+		}
+		timing.pending = false;
+		return timing.format(true);
+	}
+
+	/**
+	 * Ends the recording of phases for the request. The values are kept for
+	 * the access log.
+	 */
+	public void stop() {
+		if (active) {
+			active = false;
+			totalNanos = System.nanoTime() - startNanos;
+		}
+	}
+
+	/**
+	 * Adds the time from the given start until now to a phase.
+	 *
+	 * @param phase      The phase.
+	 * @param startNanos The start of the phase from System.nanoTime().
+	 * @return The current time from System.nanoTime(), which can be used as the
+	 *         start of the next phase.
+	 */
+	public long add(Phase phase, long startNanos) {
+		long now = System.nanoTime();
+		int index = phase.ordinal();
+		nanos[index] = Math.max(nanos[index], 0) + (now - startNanos);
+		return now;
+	}
+
+	/**
+	 * Records whether the response has been found in the response cache.
+	 *
+	 * @param hit true for a hit.
+	 */
+	public void setCacheHit(boolean hit) {
+		this.cacheHit = hit;
+	}
+
+	/**
+	 * Gets the time of a phase.
+	 *
+	 * @param phase The phase.
+	 * @return The time in nanoseconds, -1 if the phase did not occur.
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * Creates the value of the Server-Timing header from the phases which have
+	 * been recorded so far.
+	 *
+	 * @return The header value, or null if no phase has been recorded.
+	 */
+	public String toHeaderValue() {
+		return format(false);
+	}
+
+	private String format(boolean withTotal) {
+		StringBuilder value = new StringBuilder(128);
+		for (Phase phase : PHASES) {
+			long phaseNanos = nanos[phase.ordinal()];
+			if (phaseNanos < 0) {
+				continue;
+			}
+			if (value.length() > 0) {
+				value.append(", ");
+			}
+			value.append(phase.metricName);
+			if (phase == Phase.CACHE && cacheHit != null) {
+				value.append(";desc=\"").append(cacheHit ? "hit" : "miss").append('"');
+			}
+			appendDuration(value, phaseNanos);
+		}
+		if (withTotal) {
+			if (value.length() > 0) {
+				value.append(", ");
+			}
+			value.append("total");
+			appendDuration(value, active ? System.nanoTime() - startNanos : totalNanos);
+		}
+		return value.length() > 0 ? value.toString() : null;
+	}
+
+	private static void appendDuration(StringBuilder value, long nanos) {
+		value.append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+	}
+}
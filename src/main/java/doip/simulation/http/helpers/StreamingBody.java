@@ -0,0 +1,21 @@
+package doip.simulation.http.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the body of a response directly to the response stream, so the
+ * complete body never needs to be kept in memory.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+
+	/**
+	 * Writes the body to the given stream. The implementation may close the
+	 * stream when it has finished.
+	 *
+	 * @param out The response stream.
+	 * @throws IOException If an I/O error occurs while writing the body.
+	 */
+	void writeTo(OutputStream out) throws IOException;
+}
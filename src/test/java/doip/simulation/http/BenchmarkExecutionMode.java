@@ -0,0 +1,130 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Measures how many status polls per second the server can answer while
+ * platforms are started which need a long time to start. The benchmark is
+ * executed with "gradlew benchmark".
+ */
+@Tag("benchmark")
+public class BenchmarkExecutionMode {
+
+	private static Logger logger = LogManager.getLogger(BenchmarkExecutionMode.class);
+
+	private static final String HOST = "http://localhost:8080";
+
+	private static final int PLATFORM_COUNT = 4;
+
+	private static final long PLATFORM_START_MILLIS = 2000;
+
+	private static final long MEASUREMENT_MILLIS = 5000;
+
+	private static final int[] RIG_COUNTS = { 1, 8, 32, 128 };
+
+	@ParameterizedTest(name = "mode={0}")
+	@EnumSource(ExecutionMode.class)
+	public void benchmarkPollingWhilePlatformsStart(ExecutionMode mode) throws Exception {
+		logger.info("Execution mode {}:", mode);
+		for (int rigs : RIG_COUNTS) {
+			double throughput = runScenario(mode, rigs);
+			logger.info("    {} polling test rigs: {} requests/s", rigs, String.format("%.1f", throughput));
+		}
+	}
+
+	/**
+	 * Starts a server and lets the given number of test rigs poll the overview
+	 * while the platforms are started one after another.
+	 *
+	 * @param mode The execution mode of the server.
+	 * @param rigs The number of test rigs which poll at the same time.
+	 * @return The number of answered polls per second.
+	 */
+	private double runScenario(ExecutionMode mode, int rigs) throws Exception {
+		DoipHttpServerBuilder builder = DoipHttpServerBuilder.newBuilder().executionMode(mode);
+		List<String> platformNames = new ArrayList<>();
+		for (int i = 0; i < PLATFORM_COUNT; i++) {
+			String name = "Platform" + i;
+			platformNames.add(name);
+			builder.addPlatform(new SlowStartPlatform(name, PLATFORM_START_MILLIS));
+		}
+		DoipHttpServer server = builder.build();
+		server.start();
+
+		ExecutorService clients = Executors.newFixedThreadPool(rigs + 1);
+		try {
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			AtomicBoolean running = new AtomicBoolean(true);
+			AtomicLong answeredPolls = new AtomicLong();
+
+			HttpRequest poll = HttpRequest.newBuilder(URI.create(HOST + "/doip-simulation")).GET().build();
+			for (int i = 0; i < rigs; i++) {
+				clients.submit(() -> {
+					while (running.get()) {
+						client.send(poll, HttpResponse.BodyHandlers.discarding());
+						answeredPolls.incrementAndGet();
+					}
+					return null;
+				});
+			}
+
+			clients.submit(() -> {
+				for (String name : platformNames) {
+					HttpRequest start = HttpRequest
+							.newBuilder(URI.create(HOST + "/doip-simulation/platform/" + name + "?action=start"))
+							.GET().build();
+					client.send(start, HttpResponse.BodyHandlers.discarding());
+				}
+				return null;
+			});
+
+			Thread.sleep(MEASUREMENT_MILLIS);
+			running.set(false);
+			return answeredPolls.get() * 1000.0 / MEASUREMENT_MILLIS;
+		} finally {
+			clients.shutdownNow();
+			clients.awaitTermination(PLATFORM_START_MILLIS * PLATFORM_COUNT, TimeUnit.MILLISECONDS);
+			server.stop();
+		}
+	}
+}
+
+/**
+ * Mock platform which blocks the calling thread in start() like a platform
+ * which needs a long time to bind all sockets.
+ */
+class SlowStartPlatform extends MockPlatform {
+
+	private final long startMillis;
+
+	public SlowStartPlatform(String name, long startMillis) throws IOException {
+		super(name);
+		this.startMillis = startMillis;
+	}
+
+	@Override
+	public void start() {
+		try {
+			Thread.sleep(startMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
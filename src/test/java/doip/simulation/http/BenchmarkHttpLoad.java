@@ -0,0 +1,149 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.api.Platform;
+import doip.simulation.http.LoadGenerator.Request;
+
+/**
+ * Measures throughput and latency percentiles of the complete server with a
+ * mix of GET and POST requests over many keep-alive connections. The server
+ * runs in the same process against a synthetic simulation, so the benchmark
+ * does not need any platform configuration or network. The benchmark is
+ * executed with "gradlew benchmark" and can be configured with system
+ * properties, e.g. "gradlew benchmark -Dload.platforms=200
+ * -Dload.connections=256 -Dload.scenarios=default,virtual-threads":
+ * <ul>
+ * <li>load.platforms, load.gateways, load.ecus, load.lookupEntries: size of the
+ * simulation</li>
+ * <li>load.connections: number of concurrent keep-alive connections</li>
+ * <li>load.warmup, load.duration: durations in seconds</li>
+ * <li>load.rate: requests per second of all connections, 0 to send as fast as
+ * possible</li>
+ * <li>load.scenarios: comma separated names of the scenarios, all if not
+ * set</li>
+ * </ul>
+ * Properties of the JDK HTTP server are forwarded as well. Without
+ * "-Dsun.net.httpserver.nodelay=true" the latencies of small responses on
+ * keep-alive connections are dominated by the delayed TCP acknowledgements
+ * (about 40 ms on Linux). The NIO transport always disables
+ * Nagle's algorithm.
+ */
+@Tag("benchmark")
+public class BenchmarkHttpLoad {
+
+	private static Logger logger = LogManager.getLogger(BenchmarkHttpLoad.class);
+
+	private static final String RESOURCE_PATH = "/doip-simulation";
+
+	private static final int PORT = 8080;
+
+	/**
+	 * The server options which are compared. Each scenario changes the default
+	 * configuration of the builder.
+	 */
+	private static final List<Scenario> SCENARIOS = Arrays.asList(
+			new Scenario("default", builder -> builder),
+			new Scenario("no-response-cache", builder -> builder.responseCache(false)),
+			new Scenario("streaming", builder -> builder.streamingResponses(true)),
+			new Scenario("bytecode-accessors", builder -> builder.bytecodeAccessors(true)),
+			new Scenario("virtual-threads", builder -> builder.executionMode(ExecutionMode.VIRTUAL_THREADS)),
+			new Scenario("bounded-pool", builder -> builder.executionMode(ExecutionMode.BOUNDED_POOL)),
+			new Scenario("nio-transport", builder -> builder.transport(Transport.NIO)),
+			new Scenario("nio-transport-virtual-threads",
+					builder -> builder.transport(Transport.NIO).executionMode(ExecutionMode.VIRTUAL_THREADS)));
+
+	private final int platforms = Integer.getInteger("load.platforms", 20);
+
+	private final int gateways = Integer.getInteger("load.gateways", 3);
+
+	private final int ecus = Integer.getInteger("load.ecus", 10);
+
+	private final int lookupEntries = Integer.getInteger("load.lookupEntries", 50);
+
+	private final int connections = Integer.getInteger("load.connections", 64);
+
+	private final long warmupMillis = (long) (Double.parseDouble(System.getProperty("load.warmup", "3")) * 1000);
+
+	private final long durationMillis = (long) (Double.parseDouble(System.getProperty("load.duration", "10")) * 1000);
+
+	private final double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+
+	private final List<String> selectedScenarios = parseList(System.getProperty("load.scenarios", ""));
+
+	@Test
+	public void benchmarkMixedLoad() throws Exception {
+		logger.info("Simulation with {} platforms, {} gateways, {} ECUs, {} lookup entries", platforms, gateways,
+				ecus, lookupEntries);
+		logger.info("{} connections, warm-up {} ms, duration {} ms, rate {}", connections, warmupMillis,
+				durationMillis, rate > 0 ? rate + " requests/s" : "unlimited");
+		ScalableSimulationManager simulation = new ScalableSimulationManager(platforms, gateways, ecus,
+				lookupEntries);
+		for (Scenario scenario : SCENARIOS) {
+			if (!selectedScenarios.isEmpty() && !selectedScenarios.contains(scenario.name)) {
+				continue;
+			}
+			LoadGenerator.Result result = runScenario(simulation, scenario);
+			logger.info("{} {}", String.format("%-20s", scenario.name), result);
+			assertTrue(result.getRequests() > 0, "No request has been answered in scenario " + scenario.name);
+		}
+	}
+
+	private LoadGenerator.Result runScenario(ScalableSimulationManager simulation, Scenario scenario)
+			throws Exception {
+		DoipHttpServerBuilder builder = DoipHttpServerBuilder.newBuilder();
+		for (Platform platform : simulation.getPlatforms()) {
+			builder.addPlatform(platform);
+		}
+		DoipHttpServer server = scenario.configuration.apply(builder).build();
+		server.start();
+		try {
+			LoadGenerator load = new LoadGenerator("localhost", PORT)
+					.connections(connections)
+					.warmup(warmupMillis)
+					.duration(durationMillis)
+					.rate(rate)
+					.add(30, random -> Request.get(gatewayPath(random)))
+					.add(20, Request.get(RESOURCE_PATH))
+					.add(20, random -> Request.get(platformPath(random)))
+					.add(15, random -> Request.get(gatewayPath(random) + "/ecu/ECU" + random.nextInt(ecus)))
+					.add(5, Request.get(RESOURCE_PATH + "?status=RUNNING"))
+					.add(10, random -> Request.post(platformPath(random), "{\"action\":\"start\"}"));
+			return load.run();
+		} finally {
+			server.stop();
+		}
+	}
+
+	private String platformPath(Random random) {
+		return RESOURCE_PATH + "/platform/P" + random.nextInt(platforms);
+	}
+
+	private String gatewayPath(Random random) {
+		return platformPath(random) + "/gateway/GW" + random.nextInt(gateways);
+	}
+
+	private static List<String> parseList(String value) {
+		return value.trim().isEmpty() ? List.of() : Arrays.asList(value.trim().split("\\s*,\\s*"));
+	}
+
+	private static final class Scenario {
+		private final String name;
+		private final UnaryOperator<DoipHttpServerBuilder> configuration;
+
+		private Scenario(String name, UnaryOperator<DoipHttpServerBuilder> configuration) {
+			this.name = name;
+			this.configuration = configuration;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package doip.simulation.http;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import doip.simulation.http.helpers.JsonCodec;
+import doip.simulation.http.lib.ActionRequest;
+
+/**
+ * Measures CPU time and allocated bytes per operation of the JSON
+ * serialization. The previous way with a new ObjectMapper per request is
+ * compared with the shared codec with and without bytecode accessors. The
+ * benchmark is executed with "gradlew benchmark".
+ */
+@Tag("benchmark")
+public class BenchmarkJsonCodec {
+
+	private static Logger logger = LogManager.getLogger(BenchmarkJsonCodec.class);
+
+	private static final int WARMUP_ITERATIONS = 20000;
+
+	private static final int ITERATIONS = 100000;
+
+	private static final String ACTION_JSON = "{\"action\":\"start\"}";
+
+	@Test
+	public void benchmarkCodec() throws Exception {
+		SimulationConnector connector = new SimulationConnector(new MockSimulationManager(), "http://localhost:8080");
+		connector.setResponseCacheEnabled(false);
+		doip.simulation.http.lib.Gateway gateway = connector
+				.processGateway(connector.getGatewayByName("X2024", "GW"), "X2024");
+
+		ObjectMapper sharedMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		JsonCodec reflection = new JsonCodec(false);
+		JsonCodec bytecode = new JsonCodec(true);
+		reflection.warmUp();
+		bytecode.warmUp();
+
+		measure("read ActionRequest, new ObjectMapper",
+				() -> new ObjectMapper().readValue(ACTION_JSON, ActionRequest.class));
+		measure("read ActionRequest, codec", () -> reflection.read(ACTION_JSON, ActionRequest.class));
+		measure("read ActionRequest, codec + blackbird", () -> bytecode.read(ACTION_JSON, ActionRequest.class));
+
+		measure("write Gateway, ObjectMapper", () -> sharedMapper.writeValueAsBytes(gateway));
+		measure("write Gateway, codec", () -> reflection.writeAsBytes(gateway));
+		measure("write Gateway, codec + blackbird", () -> bytecode.writeAsBytes(gateway));
+	}
+
+	private static void measure(String name, Operation operation) throws Exception {
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			operation.run();
+		}
+
+		long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+		long cpuBefore = threadBean.getCurrentThreadCpuTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			operation.run();
+		}
+		long cpuNanos = threadBean.getCurrentThreadCpuTime() - cpuBefore;
+		long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+		logger.info("{}: {} ns/op CPU, {} bytes/op allocated", String.format("%-40s", name),
+				String.format("%.0f", (double) cpuNanos / ITERATIONS), bytes / ITERATIONS);
+	}
+
+	@FunctionalInterface
+	private interface Operation {
+		Object run() throws Exception;
+	}
+}
@@ -0,0 +1,95 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static com.starcode88.jtest.Assertions.*;
+
+/**
+ * Measures the start-up time of the builder for a synthetic set of platforms,
+ * each with one gateway and two ECUs, when the configurations are loaded one
+ * after another and when they are loaded in parallel. The benchmark is
+ * executed with "gradlew benchmark".
+ */
+@Tag("benchmark")
+public class BenchmarkPlatformLoading {
+
+	private static Logger logger = LogManager.getLogger(BenchmarkPlatformLoading.class);
+
+	private static final int PLATFORM_COUNT = 100;
+
+	private static final int ROUNDS = 3;
+
+	private static final String[] SHARED_FILES = { "EMS.properties", "EMS.uds", "TCU.properties", "TCU.uds",
+			"standard.uds" };
+
+	private static Path directory = null;
+
+	private static List<String> platformFiles = new ArrayList<>();
+
+	@BeforeAll
+	public static void setUpBeforeClass() throws IOException {
+		directory = Files.createTempDirectory("doip-platforms");
+		Path resources = Paths.get("src/test/resources");
+		for (String file : SHARED_FILES) {
+			Files.copy(resources.resolve(file), directory.resolve(file));
+		}
+		String gateway = new String(Files.readAllBytes(resources.resolve("gateway.properties")),
+				StandardCharsets.UTF_8);
+		for (int i = 0; i < PLATFORM_COUNT; i++) {
+			String gatewayFile = "gateway" + i + ".properties";
+			Files.write(directory.resolve(gatewayFile),
+					gateway.replace("name = GW", "name = GW" + i).getBytes(StandardCharsets.UTF_8));
+			Path platformFile = directory.resolve(String.format("P%03d.properties", i));
+			Files.write(platformFile, ("name = P" + i + "\ngateway.files = " + gatewayFile + "\n")
+					.getBytes(StandardCharsets.UTF_8));
+			platformFiles.add(platformFile.toString());
+		}
+		logger.info("Created {} platform configurations in {}", PLATFORM_COUNT, directory);
+	}
+
+	@AfterAll
+	public static void tearDownAfterClass() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void benchmarkPlatformLoading() throws Exception {
+		long sequential = Long.MAX_VALUE;
+		long parallel = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			DoipHttpServerBuilder builder = DoipHttpServerBuilder.newBuilder();
+			for (String file : platformFiles) {
+				builder.addPlatform(file);
+			}
+			sequential = Math.min(sequential, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			DoipHttpServerBuilder.newBuilder().addPlatformsFromDirectory(directory.toString());
+			parallel = Math.min(parallel, System.nanoTime() - start);
+		}
+		logger.info("Loading {} platforms (best of {} rounds, {} processors):", PLATFORM_COUNT, ROUNDS,
+				Runtime.getRuntime().availableProcessors());
+		logger.info("    one after another: {} ms", sequential / 1_000_000);
+		logger.info("    in parallel:       {} ms", parallel / 1_000_000);
+		logger.info("    speed-up:          {}", String.format("%.2f", (double) sequential / parallel));
+		assertTrue(parallel > 0, "The parallel loading has not been measured");
+	}
+}
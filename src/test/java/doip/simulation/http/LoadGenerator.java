@@ -0,0 +1,593 @@
+package doip.simulation.http;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import doip.simulation.http.helpers.LatencyHistogram;
+
+/**
+ * In-process HTTP/1.1 load generator. Each connection is a keep-alive socket
+ * with its own thread which sends the requests of a weighted mix one after
+ * another and reads the complete responses. The latencies are recorded in a
+ * {@link LatencyHistogram} after a warm-up phase.
+ * <p>
+ * By default each connection sends the next request as soon as the previous
+ * response has been received (closed loop). If a request rate is configured
+ * the requests are sent at fixed intervals and the latency is measured from
+ * the time at which a request should have been sent, so a stalled server is
+ * not hidden by requests which have not been sent (coordinated omission).
+ * <p>
+ * The client is written directly on sockets, so its own overhead is small
+ * compared to the server when both run on the same machine.
+ */
+public class LoadGenerator {
+
+	private static Logger logger = LogManager.getLogger(LoadGenerator.class);
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+	private static final int READ_TIMEOUT_MILLIS = 30000;
+
+	private final String host;
+
+	private final int port;
+
+	private int connections = 16;
+
+	private long warmupMillis = 2000;
+
+	private long durationMillis = 10000;
+
+	private double requestsPerSecond = 0;
+
+	private final List<WeightedRequest> mix = new ArrayList<>();
+
+	private int totalWeight = 0;
+
+	/**
+	 * Constructs a new load generator.
+	 *
+	 * @param host The host of the server, e.g. "localhost".
+	 * @param port The port of the server.
+	 */
+	public LoadGenerator(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * Sets the number of concurrent keep-alive connections.
+	 *
+	 * @param connections The number of connections.
+	 * @return This load generator.
+	 */
+	public LoadGenerator connections(int connections) {
+		if (connections < 1) {
+			throw new IllegalArgumentException("The number of connections must be greater than 0");
+		}
+		this.connections = connections;
+		return this;
+	}
+
+	/**
+	 * Sets the duration of the warm-up phase whose latencies are not recorded.
+	 *
+	 * @param warmupMillis The duration in milliseconds.
+	 * @return This load generator.
+	 */
+	public LoadGenerator warmup(long warmupMillis) {
+		this.warmupMillis = warmupMillis;
+		return this;
+	}
+
+	/**
+	 * Sets the duration of the measurement.
+	 *
+	 * @param durationMillis The duration in milliseconds.
+	 * @return This load generator.
+	 */
+	public LoadGenerator duration(long durationMillis) {
+		if (durationMillis <= 0) {
+			throw new IllegalArgumentException("The duration must be greater than 0");
+		}
+		this.durationMillis = durationMillis;
+		return this;
+	}
+
+	/**
+	 * Sets the total request rate of all connections.
+	 *
+	 * @param requestsPerSecond The rate, or 0 to send the requests as fast as
+	 *                          the server answers them.
+	 * @return This load generator.
+	 */
+	public LoadGenerator rate(double requestsPerSecond) {
+		this.requestsPerSecond = requestsPerSecond;
+		return this;
+	}
+
+	/**
+	 * Adds a request to the mix.
+	 *
+	 * @param weight  The relative frequency of the request.
+	 * @param request The request.
+	 * @return This load generator.
+	 */
+	public LoadGenerator add(int weight, Request request) {
+		return add(weight, random -> request);
+	}
+
+	/**
+	 * Adds requests to the mix which are created for each send, e.g. for
+	 * random platforms.
+	 *
+	 * @param weight  The relative frequency of the requests.
+	 * @param factory Creates the requests.
+	 * @return This load generator.
+	 */
+	public LoadGenerator add(int weight, RequestFactory factory) {
+		if (weight < 1) {
+			throw new IllegalArgumentException("The weight must be greater than 0");
+		}
+		mix.add(new WeightedRequest(weight, factory));
+		totalWeight += weight;
+		return this;
+	}
+
+	/**
+	 * Runs the warm-up and the measurement.
+	 *
+	 * @return The result of the measurement.
+	 * @throws InterruptedException If the calling thread has been interrupted.
+	 */
+	public Result run() throws InterruptedException {
+		if (mix.isEmpty()) {
+			throw new IllegalStateException("No requests have been added");
+		}
+		long intervalNanos = requestsPerSecond > 0 ? (long) (connections * 1e9 / requestsPerSecond) : 0;
+		Connection[] workers = new Connection[connections];
+		Thread[] threads = new Thread[connections];
+		for (int i = 0; i < connections; i++) {
+			workers[i] = new Connection(i, intervalNanos);
+			threads[i] = new Thread(workers[i], "load-connection-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+
+		Thread.sleep(warmupMillis);
+		for (Connection worker : workers) {
+			worker.measuring = true;
+		}
+		long start = System.nanoTime();
+		Thread.sleep(durationMillis);
+		for (Connection worker : workers) {
+			worker.measuring = false;
+			worker.running = false;
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		for (Thread thread : threads) {
+			thread.join(READ_TIMEOUT_MILLIS);
+		}
+
+		Result result = new Result(elapsedNanos);
+		for (Connection worker : workers) {
+			worker.close();
+			result.add(worker);
+		}
+		return result;
+	}
+
+	private Request nextRequest(SplittableRandom random, Random factoryRandom) {
+		int value = random.nextInt(totalWeight);
+		for (WeightedRequest weightedRequest : mix) {
+			value -= weightedRequest.weight;
+			if (value < 0) {
+				return weightedRequest.factory.create(factoryRandom);
+			}
+		}
+		throw new IllegalStateException("Weights are inconsistent");
+	}
+
+	@FunctionalInterface
+	public interface RequestFactory {
+		Request create(Random random);
+	}
+
+	private static final class WeightedRequest {
+		private final int weight;
+		private final RequestFactory factory;
+
+		private WeightedRequest(int weight, RequestFactory factory) {
+			this.weight = weight;
+			this.factory = factory;
+		}
+	}
+
+	/**
+	 * An HTTP request of the mix.
+	 */
+	public static final class Request {
+
+		private final String method;
+
+		private final String path;
+
+		private final byte[] body;
+
+		private Request(String method, String path, byte[] body) {
+			this.method = method;
+			this.path = path;
+			this.body = body;
+		}
+
+		public static Request get(String path) {
+			return new Request("GET", path, null);
+		}
+
+		public static Request post(String path, String json) {
+			return new Request("POST", path, json.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public String getMethod() {
+			return method;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		private byte[] encode(String hostHeader) {
+			StringBuilder head = new StringBuilder(128);
+			head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+			head.append("Host: ").append(hostHeader).append("\r\n");
+			if (body != null) {
+				head.append("Content-Type: application/json\r\n");
+				head.append("Content-Length: ").append(body.length).append("\r\n");
+			}
+			head.append("\r\n");
+			byte[] headBytes = head.toString().getBytes(StandardCharsets.US_ASCII);
+			if (body == null) {
+				return headBytes;
+			}
+			byte[] bytes = new byte[headBytes.length + body.length];
+			System.arraycopy(headBytes, 0, bytes, 0, headBytes.length);
+			System.arraycopy(body, 0, bytes, headBytes.length, body.length);
+			return bytes;
+		}
+	}
+
+	/**
+	 * One keep-alive connection and the statistics of its requests. The
+	 * statistics are only read after the thread has terminated.
+	 */
+	private final class Connection implements Runnable {
+
+		private final int id;
+
+		private final long intervalNanos;
+
+		private final String hostHeader = host + ":" + port;
+
+		private volatile boolean running = true;
+
+		private volatile boolean measuring = false;
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		private final long[] statusClasses = new long[6];
+
+		private long requests;
+
+		private long errors;
+
+		private long bytes;
+
+		private long connects;
+
+		private Socket socket;
+
+		private InputStream in;
+
+		private OutputStream out;
+
+		private final byte[] scratch = new byte[8192];
+
+		private final StringBuilder line = new StringBuilder(128);
+
+		private long bodyLength;
+
+		private Connection(int id, long intervalNanos) {
+			this.id = id;
+			this.intervalNanos = intervalNanos;
+		}
+
+		@Override
+		public void run() {
+			SplittableRandom random = new SplittableRandom(id);
+			Random factoryRandom = new Random(id);
+			// Spread the first requests of the connections over one interval
+			long intended = System.nanoTime() + (intervalNanos > 0 ? random.nextLong(intervalNanos) : 0);
+			while (running) {
+				Request request = nextRequest(random, factoryRandom);
+				long start;
+				if (intervalNanos > 0) {
+					long wait;
+					while ((wait = intended - System.nanoTime()) > 0 && running) {
+						LockSupport.parkNanos(wait);
+					}
+					start = intended;
+					intended += intervalNanos;
+				} else {
+					start = System.nanoTime();
+				}
+				boolean measured = measuring;
+				try {
+					int status = send(request);
+					long nanos = System.nanoTime() - start;
+					if (measured && measuring) {
+						latency.record(nanos);
+						statusClasses[Math.min(status / 100, 5)]++;
+						requests++;
+						bytes += bodyLength;
+					}
+				} catch (IOException | RuntimeException e) {
+					if (measured && measuring) {
+						errors++;
+					}
+					if (running) {
+						logger.debug("Request {} {} failed on connection {}: {}", request.method, request.path, id,
+								e.getMessage());
+					}
+					close();
+				}
+			}
+		}
+
+		private int send(Request request) throws IOException {
+			if (socket == null) {
+				socket = new Socket();
+				socket.setTcpNoDelay(true);
+				socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+				socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+				in = new BufferedInputStream(socket.getInputStream(), scratch.length);
+				out = socket.getOutputStream();
+				connects++;
+			}
+			out.write(request.encode(hostHeader));
+			out.flush();
+			return readResponse(request);
+		}
+
+		/**
+		 * Reads the complete response. The body is discarded, only its length
+		 * is kept.
+		 */
+		private int readResponse(Request request) throws IOException {
+			String statusLine = readLine();
+			if (statusLine.length() < 12 || !statusLine.startsWith("HTTP/1.")) {
+				throw new IOException("Invalid status line: " + statusLine);
+			}
+			int status = Integer.parseInt(statusLine.substring(9, 12));
+
+			long contentLength = -1;
+			boolean chunked = false;
+			boolean closeConnection = statusLine.startsWith("HTTP/1.0");
+			String header;
+			while (!(header = readLine()).isEmpty()) {
+				int colon = header.indexOf(':');
+				if (colon < 0) {
+					continue;
+				}
+				String name = header.substring(0, colon).trim();
+				String value = header.substring(colon + 1).trim();
+				if (name.equalsIgnoreCase("Content-Length")) {
+					contentLength = Long.parseLong(value);
+				} else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+					chunked = value.toLowerCase().contains("chunked");
+				} else if (name.equalsIgnoreCase("Connection")) {
+					closeConnection = value.equalsIgnoreCase("close");
+				}
+			}
+
+			bodyLength = 0;
+			if ("HEAD".equals(request.method) || status / 100 == 1 || status == 204 || status == 304) {
+				// No body
+			} else if (chunked) {
+				long chunkSize;
+				while ((chunkSize = parseChunkSize(readLine())) > 0) {
+					skipFully(chunkSize);
+					readLine(); // CRLF after the chunk
+				}
+				while (!readLine().isEmpty()) {
+					// Trailer
+				}
+			} else if (contentLength >= 0) {
+				skipFully(contentLength);
+			} else {
+				// The body ends with the connection
+				int n;
+				while ((n = in.read(scratch)) >= 0) {
+					bodyLength += n;
+				}
+				closeConnection = true;
+			}
+			if (closeConnection) {
+				close();
+			}
+			return status;
+		}
+
+		private long parseChunkSize(String chunkLine) throws IOException {
+			int end = chunkLine.indexOf(';');
+			String size = (end < 0 ? chunkLine : chunkLine.substring(0, end)).trim();
+			try {
+				return Long.parseLong(size, 16);
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid chunk size: " + chunkLine);
+			}
+		}
+
+		private void skipFully(long length) throws IOException {
+			long remaining = length;
+			while (remaining > 0) {
+				int n = in.read(scratch, 0, (int) Math.min(scratch.length, remaining));
+				if (n < 0) {
+					throw new EOFException("Connection closed within the body");
+				}
+				remaining -= n;
+			}
+			bodyLength += length;
+		}
+
+		private String readLine() throws IOException {
+			line.setLength(0);
+			int b;
+			while ((b = in.read()) != '\n') {
+				if (b < 0) {
+					throw new EOFException("Connection closed by the server");
+				}
+				if (b != '\r') {
+					line.append((char) b);
+				}
+			}
+			return line.toString();
+		}
+
+		private void close() {
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					logger.debug("Error closing connection {}: {}", id, e.getMessage());
+				}
+				socket = null;
+			}
+		}
+	}
+
+	/**
+	 * The result of a measurement.
+	 */
+	public static final class Result {
+
+		private final long elapsedNanos;
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		private final long[] statusClasses = new long[6];
+
+		private long requests;
+
+		private long errors;
+
+		private long bytes;
+
+		private long connects;
+
+		private Result(long elapsedNanos) {
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		private void add(Connection connection) {
+			latency.add(connection.latency);
+			for (int i = 0; i < statusClasses.length; i++) {
+				statusClasses[i] += connection.statusClasses[i];
+			}
+			requests += connection.requests;
+			errors += connection.errors;
+			bytes += connection.bytes;
+			connects += connection.connects;
+		}
+
+		/**
+		 * Gets the number of answered requests in the measurement phase.
+		 *
+		 * @return The number of requests.
+		 */
+		public long getRequests() {
+			return requests;
+		}
+
+		/**
+		 * Gets the number of requests which failed with an I/O error, e.g.
+		 * because the connection has been closed.
+		 *
+		 * @return The number of errors.
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Gets the number of responses with the given class of status codes.
+		 *
+		 * @param statusClass 2 for 2xx, 3 for 3xx and so on.
+		 * @return The number of responses.
+		 */
+		public long getStatusCount(int statusClass) {
+			return statusClasses[statusClass];
+		}
+
+		/**
+		 * Gets the number of connections which have been opened, including
+		 * reconnects after the server closed a connection.
+		 *
+		 * @return The number of connections.
+		 */
+		public long getConnects() {
+			return connects;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * Gets the answered requests per second.
+		 *
+		 * @return The throughput.
+		 */
+		public double getThroughput() {
+			return requests * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Gets a latency percentile in milliseconds.
+		 *
+		 * @param percentile The percentile, e.g. 99.9.
+		 * @return The latency in milliseconds.
+		 */
+		public double getLatencyMillis(double percentile) {
+			return LatencyHistogram.toMillis(latency.getValueAtPercentile(percentile));
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%8.0f req/s  p50 %8.3f ms  p99 %8.3f ms  p999 %8.3f ms  max %8.3f ms  "
+							+ "(%d requests, %d non-2xx, %d errors, %.1f MB/s)",
+					getThroughput(), getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(99.9),
+					LatencyHistogram.toMillis(latency.getMax()), requests, requests - statusClasses[2], errors,
+					bytes / 1e6 / (elapsedNanos / 1e9));
+		}
+	}
+
+}
@@ -0,0 +1,236 @@
+package doip.simulation.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import doip.library.exception.DoipException;
+import doip.library.util.LookupTable;
+import doip.simulation.api.Ecu;
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+
+/**
+ * Variant of the MockSimulationManager whose size can be configured: the
+ * number of platforms, gateways per platform, ECUs per gateway and lookup
+ * entries per lookup table. The names are "P0", "P1", ... for the platforms,
+ * "GW0", "GW1", ... for the gateways and "ECU0", "ECU1", ... for the ECUs. It
+ * is used by the JMH benchmarks and by the load tests.
+ * <p>
+ * All ECUs share the same two lookup tables, so large simulations can be
+ * created quickly and with little memory. The benchmarks only read them.
+ */
+public class ScalableSimulationManager implements SimulationManager {
+
+	private final List<Platform> platforms;
+
+	private final Map<String, Platform> platformsByName;
+
+	/**
+	 * Creates a simulation of the given size. All platforms and gateways are in
+	 * state RUNNING.
+	 *
+	 * @param platformCount    The number of platforms.
+	 * @param gatewayCount     The number of gateways of each platform.
+	 * @param ecuCount         The number of ECUs of each gateway.
+	 * @param lookupEntryCount The number of entries of each lookup table.
+	 * @throws IOException If the lookup tables could not be created.
+	 */
+	public ScalableSimulationManager(int platformCount, int gatewayCount, int ecuCount, int lookupEntryCount)
+			throws IOException {
+		LookupTable configuredLookupTable = createLookupTable(lookupEntryCount);
+		LookupTable runtimeLookupTable = createLookupTable(lookupEntryCount);
+
+		List<Platform> list = new ArrayList<>(platformCount);
+		for (int p = 0; p < platformCount; p++) {
+			List<Gateway> gateways = new ArrayList<>(gatewayCount);
+			for (int g = 0; g < gatewayCount; g++) {
+				List<Ecu> ecus = new ArrayList<>(ecuCount);
+				for (int e = 0; e < ecuCount; e++) {
+					ecus.add(new ScalableEcu("ECU" + e, configuredLookupTable, runtimeLookupTable));
+				}
+				gateways.add(new ScalableGateway("GW" + g, ecus));
+			}
+			list.add(new ScalablePlatform("P" + p, gateways));
+		}
+		this.platforms = Collections.unmodifiableList(list);
+		this.platformsByName = list.stream().collect(Collectors.toMap(Platform::getName, Function.identity()));
+	}
+
+	/**
+	 * Creates a lookup table with the given number of entries. Every fourth
+	 * entry has a modifier. The entries are written to a temporary file in the
+	 * format of the .uds files because the lookup table is read from files.
+	 */
+	private static LookupTable createLookupTable(int lookupEntryCount) throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < lookupEntryCount; i++) {
+			String did = String.format("%02X %02X", (i >> 8) & 0xFF, i & 0xFF);
+			content.append("22 ").append(did).append(" : 62 ").append(did).append(" 00 01 02 03");
+			if (i % 4 == 0) {
+				content.append(" : 2E ").append(did).append(" : 6E ").append(did);
+			}
+			content.append('\n');
+		}
+		Path file = Files.createTempFile("doip-benchmark", ".uds");
+		try {
+			Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+			LookupTable lookupTable = new LookupTable();
+			lookupTable.addLookupEntriesFromFile(file.toString());
+			return lookupTable;
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Override
+	public void start(String platform) {
+	}
+
+	@Override
+	public void stop(String platform) {
+	}
+
+	@Override
+	public Platform getPlatformByName(String name) {
+		return platformsByName.get(name);
+	}
+
+	@Override
+	public List<Platform> getPlatforms() {
+		return platforms;
+	}
+
+	private static final class ScalablePlatform implements Platform {
+
+		private final String name;
+
+		private final List<Gateway> gateways;
+
+		private ScalablePlatform(String name, List<Gateway> gateways) {
+			this.name = name;
+			this.gateways = gateways;
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void stop() {
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public ServiceState getState() {
+			return ServiceState.RUNNING;
+		}
+
+		@Override
+		public Gateway getGatewayByName(String name) {
+			for (Gateway gateway : gateways) {
+				if (gateway.getName().equals(name)) {
+					return gateway;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public List<Gateway> getGateways() {
+			return gateways;
+		}
+	}
+
+	private static final class ScalableGateway implements Gateway {
+
+		private final String name;
+
+		private final List<Ecu> ecus;
+
+		private ScalableGateway(String name, List<Ecu> ecus) {
+			this.name = name;
+			this.ecus = ecus;
+		}
+
+		@Override
+		public void start() throws DoipException {
+		}
+
+		@Override
+		public void stop() {
+		}
+
+		@Override
+		public ServiceState getState() {
+			return ServiceState.RUNNING;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public Ecu getEcuByName(String name) {
+			for (Ecu ecu : ecus) {
+				if (ecu.getName().equals(name)) {
+					return ecu;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public List<Ecu> getEcus() {
+			return ecus;
+		}
+	}
+
+	private static final class ScalableEcu implements Ecu {
+
+		private final String name;
+
+		private final LookupTable configuredLookupTable;
+
+		private final LookupTable runtimeLookupTable;
+
+		private ScalableEcu(String name, LookupTable configuredLookupTable, LookupTable runtimeLookupTable) {
+			this.name = name;
+			this.configuredLookupTable = configuredLookupTable;
+			this.runtimeLookupTable = runtimeLookupTable;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void reset() {
+		}
+
+		@Override
+		public LookupTable getConfiguredLookupTable() {
+			return configuredLookupTable;
+		}
+
+		@Override
+		public LookupTable getRuntimeLookupTable() {
+			return runtimeLookupTable;
+		}
+	}
+}
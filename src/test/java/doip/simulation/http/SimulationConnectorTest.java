@@ -46,7 +46,7 @@ public class SimulationConnectorTest extends SimulationConnector {
 	}
 
 	@Override
-	public SimulationResponse buildOverviewJsonResponse(String status) throws IOException {
+	public SimulationResponse buildOverviewJsonResponse(String serverName, String status) throws IOException {
 		try {
 			// Retrieve platform overview based on the status
 			List<doip.simulation.api.Platform> platforms = getPlatformOverview(status);
@@ -65,10 +65,10 @@ public class SimulationConnectorTest extends SimulationConnector {
 			ServerInfo serverInfo;
 			if (createMockResponse) {
 				// Create ServerInfo for platforms
-				serverInfo = createSampleJson(platforms, status);
+				serverInfo = createSampleJson(serverName, platforms, status);
 			} else {
 				// Create a real JSON object Platform
-				serverInfo = processOverview(platforms, status);
+				serverInfo = processOverview(serverName, platforms, status);
 			}
 			// Process the retrieved platforms if needed
 //			for (doip.simulation.api.Platform platform : platforms) {
@@ -86,11 +86,8 @@ public class SimulationConnectorTest extends SimulationConnector {
 	}
 
 	// Method to build a sample JSON response
-	private ServerInfo createSampleJson(List<doip.simulation.api.Platform> platforms, String status) {
-		// Get the server name from the DoipHttpServer
-		// String serverName = doipHttpServer.getServerName();
-		String serverName = getServerNameFromRequestHeader();
-
+	private ServerInfo createSampleJson(String serverName, List<doip.simulation.api.Platform> platforms,
+			String status) {
 		// Build a JSON response based on the specified 'status'
 		ServerInfo serverInfo = new ServerInfo();
 
@@ -131,7 +128,7 @@ public class SimulationConnectorTest extends SimulationConnector {
 	}
 
 	@Override
-	public SimulationResponse buildPlatformJsonResponse(String platformName) throws IOException {
+	public SimulationResponse buildPlatformJsonResponse(String serverName, String platformName) throws IOException {
 		try {
 			// Retrieve the platform based on the specified platform name
 			doip.simulation.api.Platform platform = getPlatformByName(platformName);
@@ -149,10 +146,10 @@ public class SimulationConnectorTest extends SimulationConnector {
 
 			Platform platformInfo;
 			if (createMockResponse) {
-				platformInfo = createPlatformSampleJson(platform);
+				platformInfo = createPlatformSampleJson(serverName, platform);
 			} else {
 				// Process the retrieved platform and create a real JSON object Platform
-				platformInfo = processPlatform(platform);
+				platformInfo = processPlatform(serverName, platform);
 			}
 			// Convert the object to JSON
 			String jsonResponse = buildJsonResponse(platformInfo);
@@ -168,7 +165,8 @@ public class SimulationConnectorTest extends SimulationConnector {
 	}
 
 	@Override
-	public SimulationResponse buildGatewayJsonResponse(String platformName, String gatewayName) throws IOException {
+	public SimulationResponse buildGatewayJsonResponse(String serverName, String platformName, String gatewayName,
+			ResponseProjection projection) throws IOException {
 		try {
 			// Retrieve the gateway based on the specified platform and gateway names
 			doip.simulation.api.Gateway gateway = getGatewayByName(platformName, gatewayName);
@@ -186,10 +184,10 @@ public class SimulationConnectorTest extends SimulationConnector {
 
 			Gateway gatewayInfo;
 			if (createMockResponse) {
-				gatewayInfo = createGatewaySampleJson(gateway, platformName);
+				gatewayInfo = createGatewaySampleJson(serverName, gateway, platformName);
 			} else {
 				// Process the retrieved gateway and create a real JSON object Gateway
-				gatewayInfo = processGateway(gateway, platformName);
+				gatewayInfo = processGateway(serverName, gateway, platformName, projection);
 			}
 
 			// Convert the object to JSON
@@ -205,11 +203,7 @@ public class SimulationConnectorTest extends SimulationConnector {
 		}
 	}
 
-	private Platform createPlatformSampleJson(doip.simulation.api.Platform platformCurrent) {
-		// Get the server name from the DoipHttpServer
-		// String serverName = doipHttpServer.getServerName();
-		String serverName = getServerNameFromRequestHeader();
-
+	private Platform createPlatformSampleJson(String serverName, doip.simulation.api.Platform platformCurrent) {
 		// Create a Platform
 		Platform platform = new Platform();
 		platform.setName("X2024");
@@ -240,11 +234,8 @@ public class SimulationConnectorTest extends SimulationConnector {
 		return platform;
 	}
 
-	private Gateway createGatewaySampleJson(doip.simulation.api.Gateway gatewayCurrent, String platformName) {
-
-		// Get the server name from the DoipHttpServer
-		// String serverName = doipHttpServer.getServerName();
-		String serverName = getServerNameFromRequestHeader();
+	private Gateway createGatewaySampleJson(String serverName, doip.simulation.api.Gateway gatewayCurrent,
+			String platformName) {
 
 		// Create an instance of your classes and populate them with data
 		Gateway gateway = new Gateway();
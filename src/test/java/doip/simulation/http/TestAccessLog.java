@@ -0,0 +1,100 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+class TestAccessLog {
+
+	private static Logger logger = LogManager.getLogger(TestAccessLog.class);
+
+	@Test
+	void testDropWhenFull() {
+		logger.info("-------------------------- testDropWhenFull ------------------------------------");
+		AccessLog accessLog = new AccessLog(3);
+		assertEquals(4, accessLog.getCapacity(), "The capacity has not been rounded to a power of two");
+		for (int i = 0; i < 4; i++) {
+			assertTrue(accessLog.offer(createRecord(i)), "The record has not been buffered");
+		}
+		assertTrue(!accessLog.offer(createRecord(4)), "The record has been buffered although the buffer is full");
+		assertEquals(1L, accessLog.getDroppedCount(), "The dropped record has not been counted");
+
+		assertEquals(4, accessLog.drain(), "Not all records have been written");
+		assertEquals(0, accessLog.getPendingCount(), "There are still pending records");
+		assertTrue(accessLog.offer(createRecord(5)), "The buffer can not be reused after it has been drained");
+	}
+
+	@Test
+	void testConcurrentProducers() throws InterruptedException {
+		logger.info("-------------------------- testConcurrentProducers ------------------------------------");
+		AccessLog accessLog = new AccessLog(8192);
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread producer = new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					accessLog.offer(createRecord(i));
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		assertEquals(4000, accessLog.drain(), "Not all records have been written");
+		assertEquals(0L, accessLog.getDroppedCount(), "Records have been dropped");
+	}
+
+	@Test
+	void testParkedRequest() throws Exception {
+		logger.info("-------------------------- testParkedRequest ------------------------------------");
+		List<AccessLog.Record> records = new CopyOnWriteArrayList<>();
+		AccessLog accessLog = new AccessLog() {
+			@Override
+			public boolean offer(Record record) {
+				records.add(record);
+				return true;
+			}
+		};
+		DoipHttpServer server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).build();
+		server.setAccessLog(accessLog);
+		server.start();
+		try {
+			// The mocked platform is always running, so the request is parked until the timeout
+			HttpRequest request = HttpRequest.newBuilder(
+					URI.create("http://localhost:8080/doip-simulation/platform/X2024?waitFor=STOPPED&timeout=300ms"))
+					.GET().build();
+			HttpResponse<String> response = HttpClient.newHttpClient().send(request,
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, response.statusCode(), "Platform not found");
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (records.isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, records.size(), "The parked request has not been logged once");
+			AccessLog.Record record = records.get(0);
+			assertEquals(200, record.getStatus(), "The status code of the response has not been logged");
+			assertEquals((long) response.body().length(), record.getBytes(),
+					"The size of the response has not been logged: " + record.getBytes());
+			assertTrue(record.getLatencyNanos() >= 300_000_000L,
+					"The time while the request was parked is missing: " + record.getLatencyNanos());
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static AccessLog.Record createRecord(int index) {
+		return new AccessLog.Record("127.0.0.1", "GET", "/doip-simulation?index=" + index, 200, 42, 1000, null);
+	}
+}
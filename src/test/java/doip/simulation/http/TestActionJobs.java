@@ -0,0 +1,208 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+import doip.simulation.http.lib.Action;
+
+class TestActionJobs {
+
+	private static Logger logger = LogManager.getLogger(TestActionJobs.class);
+
+	@Test
+	void testStartJob() throws Exception {
+		logger.info("-------------------------- testStartJob ------------------------------------");
+		MockSimulationManager simulationManager = new MockSimulationManager();
+		SimulationConnector connector = new SimulationConnector(simulationManager, "http://localhost:8080");
+		ActionJobs jobs = new ActionJobs(connector, 2);
+		try {
+			long version = connector.getStateVersion();
+			ActionJob job = jobs.submit(connector.getPlatformByName("X2024"), Action.start);
+			assertSame(job, jobs.get(job.getId()), "Job can be found by its ID");
+			waitUntilFinished(job);
+
+			JobStatus status = job.toStatus("http://localhost:8080/doip-simulation/jobs/" + job.getId());
+			logger.info(connector.buildJsonResponse(status));
+			assertEquals(JobStatus.State.SUCCEEDED, status.state, "Job succeeded");
+			assertEquals(3, status.totalGateways, "Number of gateways");
+			assertEquals(3, status.completedGateways, "Number of completed gateways");
+			assertNotNull(status.gateways.get(0).latencyMillis);
+			assertTrue(connector.getStateVersion() > version, "The response cache has been invalidated");
+		} finally {
+			jobs.shutdown();
+		}
+	}
+
+	@Test
+	void testParallelStartWithFailingGateway() throws Exception {
+		logger.info("-------------------------- testParallelStartWithFailingGateway ------------------------------------");
+		Gateway good = mock(Gateway.class);
+		when(good.getName()).thenReturn("Good");
+		when(good.getState()).thenReturn(ServiceState.RUNNING);
+		Gateway bad = mock(Gateway.class);
+		when(bad.getName()).thenReturn("Bad");
+		when(bad.getState()).thenReturn(ServiceState.ERROR);
+
+		Platform platform = mock(Platform.class, withSettings().extraInterfaces(ParallelStartPlatform.class));
+		when(platform.getName()).thenReturn("P");
+		when(platform.getGateways()).thenReturn(List.of(good, bad));
+		doThrow(new IllegalStateException("Port already in use")).when((ParallelStartPlatform) platform)
+				.startGateway(bad);
+
+		SimulationConnector connector = new SimulationConnector(new MockSimulationManager(), "http://localhost:8080");
+		ActionJobs jobs = new ActionJobs(connector, 1);
+		try {
+			ActionJob job = jobs.submit(platform, Action.start);
+			waitUntilFinished(job);
+
+			JobStatus status = job.toStatus(null);
+			logger.info(connector.buildJsonResponse(status));
+			assertEquals(JobStatus.State.FAILED, status.state, "Job failed");
+			assertNotNull(status.error);
+			assertNull(status.gateways.get(0).error);
+			assertEquals("Port already in use", status.gateways.get(1).error, "Error of the failed gateway");
+			verify((ParallelStartPlatform) platform).startGateway(good);
+			verify((ParallelStartPlatform) platform, never()).completeStart();
+			verify(platform, never()).start();
+		} finally {
+			jobs.shutdown();
+		}
+	}
+
+	@Test
+	void testJobHoldsPlatformLock() throws Exception {
+		logger.info("-------------------------- testJobHoldsPlatformLock ------------------------------------");
+		AtomicReference<ServiceState> state = new AtomicReference<>(ServiceState.STOPPED);
+		CountDownLatch starting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Platform platform = mock(Platform.class);
+		when(platform.getName()).thenReturn("P");
+		when(platform.getState()).thenAnswer(invocation -> state.get());
+		doAnswer(invocation -> {
+			starting.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			state.set(ServiceState.RUNNING);
+			return null;
+		}).when(platform).start();
+		doAnswer(invocation -> {
+			state.set(ServiceState.STOPPED);
+			return null;
+		}).when(platform).stop();
+		SimulationManager simulationManager = mock(SimulationManager.class);
+		when(simulationManager.getPlatforms()).thenReturn(List.of(platform));
+		when(simulationManager.getPlatformByName("P")).thenReturn(platform);
+		StateMonitor stateMonitor = mock(StateMonitor.class);
+		when(stateMonitor.isRunning()).thenReturn(true);
+
+		SimulationConnector connector = new SimulationConnector(simulationManager, "http://localhost:8080");
+		connector.enableStateIndex(stateMonitor);
+		assertTrue(connector.buildStateCountsJsonResponse().getJsonResponse().contains("\"STOPPED\":1"),
+				"The platform is not stopped");
+		ActionJobs jobs = new ActionJobs(connector, 1);
+		try {
+			ActionJob job = jobs.submit(platform, Action.start);
+			assertTrue(starting.await(5, TimeUnit.SECONDS), "The job has not been started");
+
+			// A synchronous action waits until the job has finished
+			Thread stop = new Thread(() -> {
+				try {
+					connector.performAction(platform, Action.stop);
+				} catch (Exception e) {
+					logger.error("Unexpected Exception: " + e.getMessage(), e);
+				}
+			});
+			stop.start();
+			stop.join(200);
+			verify(platform, never()).stop();
+
+			release.countDown();
+			waitUntilFinished(job);
+			stop.join(5000);
+			verify(platform).stop();
+
+			// The state index is updated by the job without waiting for the monitor
+			job = jobs.submit(platform, Action.start);
+			waitUntilFinished(job);
+			assertTrue(connector.buildStateCountsJsonResponse().getJsonResponse().contains("\"RUNNING\":1"),
+					"The state index has not been refreshed by the job");
+		} finally {
+			release.countDown();
+			jobs.shutdown();
+		}
+	}
+
+	@Test
+	void testShutdownWithServer() throws Exception {
+		logger.info("-------------------------- testShutdownWithServer ------------------------------------");
+		Set<Thread> before = getJobThreads();
+		DoipHttpServer server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).build();
+		Set<Thread> threads;
+		server.start();
+		try {
+			HttpRequest request = HttpRequest
+					.newBuilder(URI.create("http://localhost:8080/doip-simulation/platform/X2024?async=true"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString("{\"action\": \"start\"}")).build();
+			HttpResponse<String> response = HttpClient.newHttpClient().send(request,
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(202, response.statusCode(), "The job has not been accepted");
+			threads = getJobThreads();
+			threads.removeAll(before);
+			assertTrue(!threads.isEmpty(), "The job has not been executed by a thread of the server");
+		} finally {
+			server.stop();
+		}
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (threads.stream().anyMatch(Thread::isAlive) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(threads.stream().noneMatch(Thread::isAlive),
+				"The threads of the jobs are still running after the server has been stopped");
+	}
+
+	@Test
+	void testStopTasks() throws Exception {
+		logger.info("-------------------------- testStopTasks ------------------------------------");
+		DoipHttpServer server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).build();
+		AtomicInteger count = new AtomicInteger();
+		server.addStopTask(count::incrementAndGet);
+		// A server which has never been started releases its resources as well
+		server.stop();
+		server.stop();
+		assertEquals(1, count.get(), "The stop task has not been executed exactly once");
+	}
+
+	private static Set<Thread> getJobThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getName().startsWith("doip-http-job")).collect(Collectors.toSet());
+	}
+
+	private static void waitUntilFinished(ActionJob job) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(job.isFinished(), "Job has finished");
+	}
+}
@@ -1,16 +1,20 @@
 package doip.simulation.http;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 
+import static com.starcode88.jtest.Assertions.*;
+
 import com.starcode88.jtest.TestExecutionError;
 
 import doip.library.exception.DoipException;
 import doip.library.properties.EmptyPropertyValue;
 import doip.library.properties.MissingProperty;
+import doip.simulation.http.helpers.JsonCodec;
 
 public class TestDoipHttpServerBuilder {
 	
@@ -34,4 +38,80 @@ public class TestDoipHttpServerBuilder {
 			}
 		}
 	}
+	
+	@Test
+	public void testVirtualThreads() throws TestExecutionError  {
+		boolean started = false;
+		DoipHttpServer server = null;
+		try {
+			server = DoipHttpServerBuilder.newBuilder()
+					.addPlatform("src/test/resources/X2024.properties")
+					.executionMode(ExecutionMode.VIRTUAL_THREADS)
+					.build();
+			server.start();
+			started = true;
+			assertEquals(ExecutionMode.VIRTUAL_THREADS, server.getExecutionMode(),
+					"The execution mode is not VIRTUAL_THREADS");
+		} catch (IOException | MissingProperty | EmptyPropertyValue | DoipException e) {
+			throw logger.throwing(new TestExecutionError(e));
+		} finally {
+			if (started) {
+				server.stop();
+			}
+		}
+	}
+	
+	@Test
+	public void testAddPlatformsFromDirectory() throws TestExecutionError  {
+		boolean started = false;
+		DoipHttpServer server = null;
+		try {
+			// The directory also contains the configurations of the gateway and the ECUs
+			server = DoipHttpServerBuilder.newBuilder()
+					.addPlatformsFromDirectory("src/test/resources")
+					.build();
+			server.start();
+			started = true;
+			assertEquals(1, server.getSimulationManager().getPlatforms().size(), "Number of loaded platforms");
+		} catch (IOException | PlatformLoadException e) {
+			throw logger.throwing(new TestExecutionError(e));
+		} finally {
+			if (started) {
+				server.stop();
+			}
+		}
+	}
+	
+	@Test
+	public void testBytecodeAccessors() throws TestExecutionError  {
+		boolean started = false;
+		DoipHttpServer server = null;
+		try {
+			server = DoipHttpServerBuilder.newBuilder()
+					.addPlatform(new MockPlatform("X2024"))
+					.bytecodeAccessors(true)
+					.build();
+			server.start();
+			started = true;
+			assertTrue(server.getJsonCodec().isBytecodeAccessors(), "The server does not use bytecode accessors");
+			// Servers which are built later still get the shared codec by default
+			assertTrue(!JsonCodec.getDefault().isBytecodeAccessors(), "The shared codec has been replaced");
+		} catch (IOException e) {
+			throw logger.throwing(new TestExecutionError(e));
+		} finally {
+			if (started) {
+				server.stop();
+			}
+		}
+	}
+	
+	@Test
+	public void testAddPlatformsWithMissingFile() {
+		PlatformLoadException e = assertThrows(PlatformLoadException.class,
+				() -> DoipHttpServerBuilder.newBuilder().addPlatforms(
+						List.of("src/test/resources/X2024.properties", "src/test/resources/missing.properties")));
+		assertEquals(1, e.getFailures().size(), "Number of failed files");
+		assertTrue(e.getFailures().containsKey("src/test/resources/missing.properties"),
+				"The missing file has been reported");
+	}
 }
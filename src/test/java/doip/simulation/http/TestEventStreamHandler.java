@@ -0,0 +1,227 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+
+class TestEventStreamHandler {
+
+	private static Logger logger = LogManager.getLogger(TestEventStreamHandler.class);
+
+	@Test
+	void testCoalescing() throws Exception {
+		logger.info("-------------------------- testCoalescing ------------------------------------");
+		EventStreamHandler handler = createHandler(EventStreamHandler.DEFAULT_MAX_PENDING_EVENTS);
+		BlockingSink sink = new BlockingSink();
+		try {
+			handler.handle(createExchange(sink));
+			assertEquals(1, handler.getSubscriberCount(), "The client has not been subscribed");
+
+			// The writer takes the first event and blocks, the following events are queued
+			handler.stateChanged(createEvent(1, "X2024"));
+			assertTrue(sink.writing.await(5, TimeUnit.SECONDS), "The first event has not been written");
+			handler.stateChanged(createEvent(2, "X2024"));
+			handler.stateChanged(createEvent(3, "Y2024"));
+			handler.stateChanged(createEvent(4, "X2024"));
+
+			sink.release.countDown();
+			String received = sink.awaitContent("id: 4\n");
+			logger.info("Received events:\n{}", received);
+			assertTrue(received.contains("id: 1\n"), "The first event is missing");
+			assertTrue(!received.contains("id: 2\n"), "The replaced event has been sent");
+			assertTrue(received.indexOf("id: 3\n") >= 0 && received.indexOf("id: 3\n") < received.indexOf("id: 4\n"),
+					"The replacing event has not been moved to the end of the queue");
+			assertEquals(1, handler.getSubscriberCount(), "A client which reads has been disconnected");
+		} finally {
+			sink.release.countDown();
+			handler.shutdown();
+		}
+	}
+
+	@Test
+	void testDisconnectOnOverflow() throws Exception {
+		logger.info("-------------------------- testDisconnectOnOverflow ------------------------------------");
+		EventStreamHandler handler = createHandler(2);
+		BlockingSink sink = new BlockingSink();
+		HttpExchange exchange = createExchange(sink);
+		try {
+			handler.handle(exchange);
+			handler.stateChanged(createEvent(1, "A"));
+			assertTrue(sink.writing.await(5, TimeUnit.SECONDS), "The first event has not been written");
+			handler.stateChanged(createEvent(2, "B"));
+			handler.stateChanged(createEvent(3, "C"));
+			// Coalesced with the pending event of "B", so the limit is not exceeded
+			handler.stateChanged(createEvent(4, "B"));
+			assertEquals(1, handler.getSubscriberCount(), "The client has been disconnected within the limit");
+			verify(exchange, never()).close();
+
+			handler.stateChanged(createEvent(5, "D"));
+			assertEquals(0, handler.getSubscriberCount(), "The slow client has not been disconnected");
+			verify(exchange).close();
+		} finally {
+			sink.release.countDown();
+			handler.shutdown();
+		}
+	}
+
+	@Test
+	void testDisconnectStalledClient() throws Exception {
+		logger.info("-------------------------- testDisconnectStalledClient ------------------------------------");
+		EventStreamHandler handler = createHandler(EventStreamHandler.DEFAULT_MAX_PENDING_EVENTS);
+		BlockingSink sink = new BlockingSink();
+		HttpExchange exchange = createExchange(sink);
+		try {
+			handler.handle(exchange);
+			handler.stateChanged(createEvent(1, "X2024"));
+			assertTrue(sink.writing.await(5, TimeUnit.SECONDS), "The first event has not been written");
+
+			// A write which blocks for a short time is not a stall
+			handler.sendHeartbeat(System.nanoTime());
+			assertEquals(1, handler.getSubscriberCount(), "The client has been disconnected too early");
+
+			handler.sendHeartbeat(System.nanoTime() + EventStreamHandler.STALLED_WRITE_NANOS + 1_000_000);
+			assertEquals(0, handler.getSubscriberCount(), "The stalled client has not been disconnected");
+			verify(exchange).close();
+		} finally {
+			sink.release.countDown();
+			handler.shutdown();
+		}
+	}
+
+	@Test
+	void testEventStreamEndpoint() throws Exception {
+		logger.info("-------------------------- testEventStreamEndpoint ------------------------------------");
+		DoipHttpServer server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).build();
+		server.start();
+		try {
+			// The snapshot which is sent after connecting contains the polled states
+			long deadline = System.currentTimeMillis() + 5000;
+			while (server.getStateMonitor().snapshot().isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+
+			HttpRequest request = HttpRequest
+					.newBuilder(URI.create("http://localhost:8080" + EventStreamHandler.RESOURCE_PATH)).GET().build();
+			HttpResponse<InputStream> response = HttpClient.newHttpClient().send(request,
+					HttpResponse.BodyHandlers.ofInputStream());
+			assertEquals(200, response.statusCode(), "The event stream is not available");
+			assertEquals("text/event-stream", response.headers().firstValue("Content-Type").orElse(""),
+					"Wrong content type of the event stream");
+
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+			CompletableFuture<String> data = CompletableFuture.supplyAsync(() -> readData(reader));
+			String event = data.get(10, TimeUnit.SECONDS);
+			logger.info("Received event: {}", event);
+			assertTrue(event.contains("\"platform\":\"X2024\""), "The event does not contain the platform");
+			assertTrue(event.contains("\"state\":\"RUNNING\""), "The event does not contain the state");
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static String readData(BufferedReader reader) {
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("data: ")) {
+					return line;
+				}
+			}
+			return "";
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static EventStreamHandler createHandler(int maxPendingEvents) {
+		StateMonitor monitor = new StateMonitor(mock(SimulationManager.class));
+		return new EventStreamHandler(monitor, EventStreamHandler.DEFAULT_MAX_SUBSCRIBERS, maxPendingEvents);
+	}
+
+	private static HttpExchange createExchange(OutputStream responseBody) {
+		HttpExchange exchange = mock(HttpExchange.class);
+		when(exchange.getRequestMethod()).thenReturn("GET");
+		when(exchange.getResponseHeaders()).thenReturn(new Headers());
+		when(exchange.getResponseBody()).thenReturn(responseBody);
+		when(exchange.getRemoteAddress()).thenReturn(new InetSocketAddress("localhost", 50000));
+		return exchange;
+	}
+
+	private static StateChangeEvent createEvent(long sequence, String platform) {
+		return new StateChangeEvent(sequence, platform, null, ServiceState.STOPPED, ServiceState.RUNNING, 0);
+	}
+
+	/**
+	 * Response body of a client which does not read until it is released.
+	 */
+	private static final class BlockingSink extends OutputStream {
+
+		private final CountDownLatch writing = new CountDownLatch(1);
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			writing.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted");
+			}
+			synchronized (received) {
+				received.write(b, off, len);
+			}
+		}
+
+		private String awaitContent(String expected) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (System.currentTimeMillis() < deadline) {
+				synchronized (received) {
+					String content = new String(received.toByteArray(), StandardCharsets.UTF_8);
+					if (content.contains(expected)) {
+						return content;
+					}
+				}
+				Thread.sleep(10);
+			}
+			synchronized (received) {
+				return new String(received.toByteArray(), StandardCharsets.UTF_8);
+			}
+		}
+	}
+}
@@ -111,6 +111,30 @@ class TestHttpServer {
 		logger.info("--------------------------------------------------------------");
 	}
 
+	@Test
+	void testAddAndRemoveContextWhileRunning() throws HttpStatusCodeException, HttpInvalidResponseBodyType,
+			URISyntaxException, IOException, InterruptedException {
+		logger.info("---------------------------  testAddAndRemoveContextWhileRunning -----------------------------------");
+		String hotContext = "/hottest";
+		assertTrue(server.isRunning(), "The server is not running");
+
+		server.addMappingContext(hotContext, new GetHandler());
+		assertTrue(server.contextExists(hotContext), "The context has not been added");
+		HttpResponse<String> response = clientForLocalHost.GET(hotContext, String.class);
+		assertEquals(200, response.statusCode(), "The HTTP status code is not 200");
+
+		assertTrue(server.removeMappingContext(hotContext), "The context has not been removed");
+		assertTrue(!server.getRegisteredContextPaths().contains(hotContext), "The context is still registered");
+		HttpStatusCodeException e = assertThrows(HttpStatusCodeException.class,
+				() -> clientForLocalHost.GET(hotContext, String.class));
+		assertEquals(404, e.getResponse().statusCode(), "The status code does not match the value 404");
+
+		// The other contexts are still available
+		response = clientForLocalHost.GET("/gettest", String.class);
+		assertEquals(200, response.statusCode(), "The HTTP status code is not 200");
+
+		logger.info("--------------------------------------------------------------");
+	}
 	
 	/*
 	@Test
@@ -0,0 +1,126 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.api.ServiceState;
+import doip.simulation.http.helpers.EnumLookup;
+import doip.simulation.http.helpers.HttpServerHelper;
+import doip.simulation.http.helpers.ResponseBody;
+import doip.simulation.http.lib.Action;
+
+class TestHttpServerHelper {
+
+	private static Logger logger = LogManager.getLogger(TestHttpServerHelper.class);
+
+	@Test
+	void testNegotiateContentEncoding() {
+		logger.info("-------------------------- testNegotiateContentEncoding ------------------------------------");
+		assertNull(HttpServerHelper.negotiateContentEncoding(null), "Encoding without Accept-Encoding header");
+		assertNull(HttpServerHelper.negotiateContentEncoding("identity"), "Encoding for identity");
+		assertEquals("gzip", HttpServerHelper.negotiateContentEncoding("gzip, deflate, br"),
+				"gzip is not preferred");
+		assertEquals("deflate", HttpServerHelper.negotiateContentEncoding("gzip;q=0.5, deflate"),
+				"Quality values are not considered");
+		assertEquals("deflate", HttpServerHelper.negotiateContentEncoding("deflate, gzip;q=0"),
+				"gzip with q=0 has been selected");
+		assertEquals("gzip", HttpServerHelper.negotiateContentEncoding("*"), "Wildcard is not considered");
+	}
+
+	@Test
+	void testCompressedBodyIsCached() throws IOException {
+		logger.info("-------------------------- testCompressedBodyIsCached ------------------------------------");
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 1000; i++) {
+			json.append("{\"regex\":\"22 F1 86\",\"result\":\"62 F1 86 03\"},");
+		}
+		json.append("{}]");
+		byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+		ResponseBody body = new ResponseBody(bytes);
+
+		byte[] gzip = body.getEncoded(ResponseBody.GZIP, 6);
+		assertTrue(gzip.length < bytes.length, "The body has not been compressed");
+		assertSame(gzip, body.getEncoded(ResponseBody.GZIP, 6), "The compressed body has not been reused");
+		assertEquals(json.toString(), decompress(new GZIPInputStream(new ByteArrayInputStream(gzip))),
+				"gzip round trip failed");
+
+		byte[] deflate = body.getEncoded(ResponseBody.DEFLATE, 1);
+		assertEquals(json.toString(), decompress(new InflaterInputStream(new ByteArrayInputStream(deflate))),
+				"deflate round trip failed");
+
+		assertTrue(!body.getETag().equals(body.getETag(ResponseBody.GZIP)),
+				"The compressed representation has the same ETag");
+	}
+
+	private static String decompress(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void testQueryScanner() {
+		logger.info("-------------------------- testQueryScanner ------------------------------------");
+		String[] queries = { "status=RUNNING", "fields=status,ecus&limit=50&cursor=100", "a=1&a=2", "a=&b=2",
+				"a=1=2&b", "=x&b=%41+B", "&&b=2&", "waitFor=RUNNING&timeout=10s" };
+		String[] names = { "status", "fields", "limit", "cursor", "a", "b", "", "waitFor", "timeout", "unknown" };
+		for (String query : queries) {
+			// The scanner must find the same values as the map
+			Map<String, String> expected = HttpServerHelper.parseQueryParameters(query);
+			for (String name : names) {
+				String value = HttpServerHelper.getQueryParam(query, name);
+				assertEquals(expected.get(name), value,
+						"Value of " + name + " in " + query + ": " + value);
+			}
+		}
+		assertNull(HttpServerHelper.getQueryParam((String) null, "status"), "Value in null query");
+
+		EnumLookup<Action> actions = EnumLookup.of(Action.class);
+		String query = "fields=status&action=STOP";
+		int start = HttpServerHelper.indexOfQueryValue(query, "action");
+		assertEquals(Action.stop, HttpServerHelper.getQueryParam(query, start, actions), "Action is not found");
+		query = "action=st%6Fp";
+		start = HttpServerHelper.indexOfQueryValue(query, "action");
+		assertEquals(Action.stop, HttpServerHelper.getQueryParam(query, start, actions), "Action is not decoded");
+		query = "action=restart";
+		start = HttpServerHelper.indexOfQueryValue(query, "action");
+		assertNull(HttpServerHelper.getQueryParam(query, start, actions), "Unknown action is found");
+	}
+
+	@Test
+	void testEnumLookup() {
+		logger.info("-------------------------- testEnumLookup ------------------------------------");
+		EnumLookup<ServiceState> states = EnumLookup.of(ServiceState.class);
+		for (ServiceState state : ServiceState.values()) {
+			assertEquals(state, states.get(state.name()), "State " + state + " is not found");
+			assertEquals(state, states.get(state.name().toLowerCase()), "Lower case " + state + " is not found");
+		}
+		assertNull(states.get("RUNNIN"), "A prefix of a state is found");
+		assertNull(states.get(""), "An empty name is found");
+		assertNull(states.get((String) null), "A null name is found");
+		assertEquals(ServiceState.RUNNING, states.get("xRUNNINGx", 1, 8), "A region is not found");
+	}
+
+	@Test
+	void testGetPathParam() {
+		logger.info("-------------------------- testGetPathParam ------------------------------------");
+		String path = "/doip-simulation/platform/X2024/gateway/GW/ecu/EMS";
+		assertEquals("X2024", HttpServerHelper.getPathParam(path, "platform"), "Platform not found");
+		assertEquals("GW", HttpServerHelper.getPathParam(path, "gateway"), "Gateway not found");
+		assertEquals("EMS", HttpServerHelper.getPathParam(path, "ecu"), "ECU not found");
+		assertNull(HttpServerHelper.getPathParam(path, "EMS"), "The last segment has a value");
+		assertNull(HttpServerHelper.getPathParam("/platform/", "platform"), "Trailing slash has a value");
+		assertEquals("", HttpServerHelper.getPathParam("/platform//X", "platform"), "Empty segment is skipped");
+	}
+}
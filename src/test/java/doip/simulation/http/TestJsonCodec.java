@@ -0,0 +1,54 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.http.helpers.JsonCodec;
+import doip.simulation.http.lib.Action;
+import doip.simulation.http.lib.ActionRequest;
+import doip.simulation.http.lib.Ecu;
+import doip.simulation.http.lib.Gateway;
+
+class TestJsonCodec {
+
+	private static Logger logger = LogManager.getLogger(TestJsonCodec.class);
+
+	@Test
+	void testReadActionRequest() throws IOException {
+		logger.info("-------------------------- testReadActionRequest ------------------------------------");
+		JsonCodec codec = new JsonCodec(false);
+		ActionRequest request = codec.read("{\"action\":\"stop\"}", ActionRequest.class);
+		assertEquals(Action.stop, request.getAction(), "The action has not been read");
+		assertSame(codec.readerFor(ActionRequest.class), codec.readerFor(ActionRequest.class),
+				"The reader has not been reused");
+	}
+
+	@Test
+	void testBytecodeAccessors() throws IOException {
+		logger.info("-------------------------- testBytecodeAccessors ------------------------------------");
+		JsonCodec reflection = new JsonCodec(false);
+		JsonCodec bytecode = new JsonCodec(true);
+		bytecode.warmUp();
+
+		Ecu ecu = new Ecu();
+		ecu.name = "EMS";
+		ecu.configuredLookupTable = new ArrayList<>();
+		Gateway gateway = new Gateway();
+		gateway.name = "GW";
+		gateway.status = "RUNNING";
+		gateway.ecus = new ArrayList<>();
+		gateway.ecus.add(ecu);
+
+		String expected = reflection.writeAsString(gateway);
+		logger.info(expected);
+		assertEquals(expected, bytecode.writeAsString(gateway),
+				"The JSON with bytecode accessors is different");
+		assertTrue(!expected.contains("\"error\""), "Null values have not been omitted");
+	}
+}
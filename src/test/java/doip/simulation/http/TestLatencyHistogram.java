@@ -0,0 +1,69 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.http.helpers.LatencyHistogram;
+
+class TestLatencyHistogram {
+
+	private static Logger logger = LogManager.getLogger(TestLatencyHistogram.class);
+
+	@Test
+	void testBucketBoundaries() {
+		logger.info("-------------------------- testBucketBoundaries ------------------------------------");
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, (int) histogram.getValueAtPercentile(50), "Percentile of an empty histogram");
+		assertEquals(0, (int) histogram.getMax(), "Maximum of an empty histogram");
+
+		// Up to 63 ns each value has its own bucket, from 64 ns on two values share a bucket,
+		// from 128 ns on four values
+		for (long value : new long[] { 63, 64, 65, 127, 128 }) {
+			histogram.record(value);
+		}
+		assertEquals(5, (int) histogram.getCount(), "Number of recorded values");
+		assertEquals(128, (int) histogram.getMax(), "Maximum");
+
+		assertEquals(63, (int) histogram.getValueAtPercentile(0), "p0");
+		assertEquals(63, (int) histogram.getValueAtPercentile(20), "p20");
+		assertEquals(65, (int) histogram.getValueAtPercentile(40), "p40 is not the highest value of the bucket of 64");
+		assertEquals(65, (int) histogram.getValueAtPercentile(60), "p60");
+		assertEquals(127, (int) histogram.getValueAtPercentile(80), "p80");
+		assertEquals(128, (int) histogram.getValueAtPercentile(100), "p100 is greater than the maximum");
+
+		assertEquals(0, (int) histogram.getCountAtOrBelow(62), "Count at or below 62");
+		assertEquals(1, (int) histogram.getCountAtOrBelow(63), "Count at or below 63");
+		assertEquals(3, (int) histogram.getCountAtOrBelow(64), "65 is in the bucket of 64");
+		assertEquals(3, (int) histogram.getCountAtOrBelow(65), "Count at or below 65");
+		assertEquals(4, (int) histogram.getCountAtOrBelow(126), "127 is in the bucket of 126");
+		assertEquals(4, (int) histogram.getCountAtOrBelow(127), "Count at or below 127");
+		assertEquals(5, (int) histogram.getCountAtOrBelow(128), "Count at or below 128");
+		assertEquals(0, (int) histogram.getCountAtOrBelow(-1), "Count at or below a negative value");
+	}
+
+	@Test
+	void testLargeValues() {
+		logger.info("-------------------------- testLargeValues ------------------------------------");
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(100);
+		long tenSeconds = 10_000_000_000L;
+		histogram.record(tenSeconds);
+		assertEquals(tenSeconds, histogram.getMax(), "Maximum: " + histogram.getMax());
+		assertEquals(tenSeconds, histogram.getValueAtPercentile(100), "p100: " + histogram.getValueAtPercentile(100));
+		assertEquals(1, (int) histogram.getCountAtOrBelow(9_500_000_000L), "Count below the large value");
+		assertEquals(2, (int) histogram.getCountAtOrBelow(tenSeconds), "Count at the large value");
+
+		// Values beyond the range are counted in the last bucket, only the maximum is exact
+		long tooLarge = 2 * LatencyHistogram.MAX_TRACKABLE_VALUE;
+		histogram.record(tooLarge);
+		assertEquals(tooLarge, histogram.getMax(), "Maximum: " + histogram.getMax());
+		assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE, histogram.getValueAtPercentile(100),
+				"p100: " + histogram.getValueAtPercentile(100));
+		assertEquals(3, (int) histogram.getCountAtOrBelow(LatencyHistogram.MAX_TRACKABLE_VALUE),
+				"Count at the end of the range");
+		assertEquals(3, (int) histogram.getCount(), "Number of recorded values");
+	}
+}
@@ -0,0 +1,156 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import doip.simulation.api.SimulationManager;
+import doip.simulation.http.helpers.HttpServerHelper;
+
+class TestLoadShedding {
+
+	private static Logger logger = LogManager.getLogger(TestLoadShedding.class);
+
+	private static final int PORT = 8080;
+
+	private DoipHttpServer server = null;
+
+	private final CountDownLatch handlerEntered = new CountDownLatch(1);
+
+	private final CountDownLatch releaseHandler = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() throws Exception {
+		SimulationManager mockSimulationManager = Mockito.mock(SimulationManager.class);
+		server = new DoipHttpServer(PORT, mockSimulationManager);
+		server.setExecutionMode(ExecutionMode.BOUNDED_POOL);
+		server.setWorkerPoolSize(1, 1);
+		server.addMappingContext("/blocking", new BlockingHandler());
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		releaseHandler.countDown();
+		if (server != null) {
+			server.stop();
+			server = null;
+		}
+	}
+
+	@Test
+	void testRejectWhenQueueIsFull() throws IOException, InterruptedException {
+		logger.info("-------------------------- testRejectWhenQueueIsFull ------------------------------------");
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/blocking")).GET()
+				.build();
+
+		// First request occupies the only worker thread
+		CompletableFuture<HttpResponse<String>> first = client.sendAsync(request,
+				HttpResponse.BodyHandlers.ofString());
+		assertTrue(handlerEntered.await(5, TimeUnit.SECONDS), "The first request has not reached the handler");
+
+		// Second request waits in the queue
+		CompletableFuture<HttpResponse<String>> second = client.sendAsync(request,
+				HttpResponse.BodyHandlers.ofString());
+		long deadline = System.currentTimeMillis() + 5000;
+		while (server.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, server.getQueueDepth(), "The second request has not been queued");
+		assertEquals(1, server.getActiveWorkerCount(), "The worker thread is not active");
+
+		// Third request must be rejected
+		HttpResponse<String> third = client.send(request, HttpResponse.BodyHandlers.ofString());
+		assertEquals(503, third.statusCode(), "The HTTP status code is not 503");
+		assertTrue(third.headers().firstValue("Retry-After").isPresent(), "The Retry-After header is missing");
+		assertEquals(1L, server.getRejectedCount(), "The rejected count is not 1");
+
+		releaseHandler.countDown();
+		assertEquals(200, first.join().statusCode(), "The HTTP status code of the first request is not 200");
+		assertEquals(200, second.join().statusCode(), "The HTTP status code of the second request is not 200");
+	}
+
+	@Test
+	void testStartTwice() throws Exception {
+		logger.info("-------------------------- testStartTwice ------------------------------------");
+		Set<Thread> before = getThreads("doip-http-worker");
+		releaseHandler.countDown();
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/blocking")).GET()
+				.build();
+		assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode(),
+				"The request has not been answered");
+		Set<Thread> workers = getThreads("doip-http-worker");
+		workers.removeAll(before);
+		assertTrue(!workers.isEmpty(), "The request has not been executed by a worker thread");
+
+		// The second call must not replace the pool which is used by the transport
+		server.start();
+		assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode(),
+				"The request has not been answered after the second start");
+		server.stop();
+		server = null;
+		assertNoneAlive(workers, "The worker threads are still running after the server has been stopped");
+	}
+
+	@Test
+	void testStartFailure() throws Exception {
+		logger.info("-------------------------- testStartFailure ------------------------------------");
+		server.stop();
+		Set<Thread> before = getThreads("doip-http");
+
+		// The JDK HTTP server can not be started again after it has been stopped
+		assertThrows(IllegalStateException.class, () -> server.start());
+		assertTrue(!server.isRunning(), "The server is running after the failed start");
+		Set<Thread> threads = getThreads("doip-http");
+		threads.removeAll(before);
+		assertNoneAlive(threads, "The failed start has left threads behind");
+	}
+
+	private static Set<Thread> getThreads(String prefix) {
+		return Thread.getAllStackTraces().keySet().stream().filter(thread -> thread.getName().startsWith(prefix))
+				.collect(Collectors.toSet());
+	}
+
+	private static void assertNoneAlive(Set<Thread> threads, String message) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (threads.stream().anyMatch(Thread::isAlive) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(threads.stream().noneMatch(Thread::isAlive), message);
+	}
+
+	private class BlockingHandler implements HttpHandler {
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			handlerEntered.countDown();
+			try {
+				releaseHandler.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			HttpServerHelper.sendResponse(exchange, "released", "text/plain", 200);
+		}
+	}
+}
@@ -0,0 +1,331 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TestNioTransport {
+
+	private static Logger logger = LogManager.getLogger(TestNioTransport.class);
+
+	private static final String HOST = "http://localhost:8080";
+
+	private static final String PLATFORM_PATH = PlatformOverviewHandler.RESOURCE_PATH + "/X2024";
+
+	private static final String PARKED_PATH = PLATFORM_PATH + "?waitFor=STOPPED&timeout=300ms";
+
+	/**
+	 * The size of the response of "/large", far above the high water mark of
+	 * the write queue and the socket buffers.
+	 */
+	private static final int LARGE_CHUNKS = 512;
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private DoipHttpServer server = null;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@AfterEach
+	void tearDown() {
+		if (server != null) {
+			server.stop();
+			server = null;
+		}
+	}
+
+	@Test
+	void testRequests() throws Exception {
+		logger.info("-------------------------- testRequests ------------------------------------");
+		startServer(DoipHttpServerBuilder.newBuilder());
+		assertEquals(Transport.NIO, server.getTransport(), "The transport has not been set");
+
+		HttpResponse<String> response = send("GET", PLATFORM_PATH, null);
+		assertEquals(200, response.statusCode(), "Platform not found");
+		assertTrue(response.body().contains("X2024"), "The platform is missing in the response: " + response.body());
+		assertTrue(response.headers().firstValue("Date").isPresent(), "The Date header is missing");
+
+		assertEquals(404, send("GET", PlatformOverviewHandler.RESOURCE_PATH + "/Unknown", null).statusCode(),
+				"Unknown platform found");
+		assertEquals(405, send("DELETE", PLATFORM_PATH, null).statusCode(), "DELETE allowed");
+		assertEquals(200, send("GET", "/customGet", null).statusCode(), "Custom handler not called");
+
+		response = send("POST", "/customPost", "Hello NIO");
+		assertEquals(200, response.statusCode(), "Custom handler not called");
+		assertTrue(response.body().endsWith("Hello NIO"), "The request body has not been read: " + response.body());
+
+		// A body which is larger than the read buffer is collected in a growing array
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			body.append("0123456789");
+		}
+		response = send("POST", "/customPost", body.toString());
+		assertEquals(200, response.statusCode(), "Custom handler not called");
+		assertTrue(response.body().endsWith(body.toString()), "The large request body has not been read completely");
+	}
+
+	@Test
+	void testStreamingResponse() throws Exception {
+		logger.info("-------------------------- testStreamingResponse ------------------------------------");
+		startServer(DoipHttpServerBuilder.newBuilder().streamingResponses(true).responseCache(false));
+
+		HttpResponse<String> response = send("GET", PLATFORM_PATH, null);
+		assertEquals(200, response.statusCode(), "Platform not found");
+		assertTrue(response.body().startsWith("{") && response.body().endsWith("}"),
+				"The chunked response is not complete: " + response.body());
+		// The connection is still usable after a chunked response
+		assertEquals(200, send("GET", PLATFORM_PATH, null).statusCode(), "Platform not found");
+	}
+
+	@Test
+	void testPipelining() throws Exception {
+		logger.info("-------------------------- testPipelining ------------------------------------");
+		startServer(DoipHttpServerBuilder.newBuilder());
+
+		String requests = "GET /customGet HTTP/1.1\r\nHost: localhost\r\n\r\n"
+				+ "GET " + PlatformOverviewHandler.RESOURCE_PATH + "/Unknown HTTP/1.1\r\nHost: localhost\r\n\r\n"
+				+ "GET " + PLATFORM_PATH + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+		String responses;
+		try (Socket socket = new Socket("localhost", 8080)) {
+			socket.setSoTimeout(10000);
+			OutputStream out = socket.getOutputStream();
+			out.write(requests.getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			responses = readAll(socket.getInputStream());
+		}
+
+		List<Integer> statusCodes = new ArrayList<>();
+		for (String line : responses.split("\r\n")) {
+			if (line.startsWith("HTTP/1.1 ")) {
+				statusCodes.add(Integer.parseInt(line.substring(9, 12)));
+			}
+		}
+		assertEquals(3, statusCodes.size(), "Not all pipelined requests have been answered: " + statusCodes);
+		assertEquals(200, statusCodes.get(0).intValue(), "Wrong order of the responses: " + statusCodes);
+		assertEquals(404, statusCodes.get(1).intValue(), "Wrong order of the responses: " + statusCodes);
+		assertEquals(200, statusCodes.get(2).intValue(), "Wrong order of the responses: " + statusCodes);
+		assertTrue(responses.contains("Connection: close"), "The last response does not close the connection");
+	}
+
+	@Test
+	void testBadRequest() throws Exception {
+		logger.info("-------------------------- testBadRequest ------------------------------------");
+		startServer(DoipHttpServerBuilder.newBuilder());
+
+		String response;
+		try (Socket socket = new Socket("localhost", 8080)) {
+			socket.setSoTimeout(10000);
+			socket.getOutputStream().write("NONSENSE\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			response = readAll(socket.getInputStream());
+		}
+		assertTrue(response.startsWith("HTTP/1.1 400"), "The malformed request has not been rejected: " + response);
+	}
+
+	@Test
+	void testBoundedPool() throws Exception {
+		logger.info("-------------------------- testBoundedPool ------------------------------------");
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CustomMappingController controller = createServer(
+				DoipHttpServerBuilder.newBuilder().executionMode(ExecutionMode.BOUNDED_POOL).workerPool(1, 1));
+		controller.addExternalHandler("/block", exchange -> {
+			entered.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.start();
+
+		// Responses which are finished by a worker thread are handed to the selector loop
+		assertEquals(200, send("GET", PLATFORM_PATH, null).statusCode(), "Platform not found");
+		HttpResponse<String> response = send("POST", "/customPost", "Hello pool");
+		assertTrue(response.body().endsWith("Hello pool"), "The request body has not been read: " + response.body());
+
+		// A parked request does not occupy the only worker thread
+		CompletableFuture<HttpResponse<String>> parked = sendAsync("GET", PARKED_PATH);
+		assertEquals(200, send("GET", PLATFORM_PATH, null).statusCode(), "The worker thread is still occupied");
+		assertEquals(200, parked.get(10, TimeUnit.SECONDS).statusCode(), "The parked request failed");
+		assertEquals("timeout", parked.get().headers().firstValue(PlatformOverviewHandler.WAIT_RESULT_HEADER).orElse(""),
+				"The parked request has not timed out");
+
+		CompletableFuture<HttpResponse<String>> running = sendAsync("GET", "/block");
+		CompletableFuture<HttpResponse<String>> queued = null;
+		try {
+			assertTrue(entered.await(5, TimeUnit.SECONDS), "The worker thread is not busy");
+			queued = sendAsync("GET", "/block");
+			waitUntil(() -> server.getQueueDepth() == 1, "The request has not been queued");
+
+			// The 503 is sent by the selector loop which could not hand over the exchange
+			response = send("GET", PLATFORM_PATH, null);
+			assertEquals(503, response.statusCode(), "The saturated pool has not rejected the request");
+			assertTrue(response.headers().firstValue("Retry-After").isPresent(), "The Retry-After header is missing");
+			assertEquals(1, (int) server.getRejectedCount(), "The rejected request has not been counted");
+		} finally {
+			release.countDown();
+		}
+		assertEquals(200, running.get(10, TimeUnit.SECONDS).statusCode(), "The running request failed");
+		assertEquals(200, queued.get(10, TimeUnit.SECONDS).statusCode(), "The queued request failed");
+		assertEquals(200, send("GET", PLATFORM_PATH, null).statusCode(), "The pool has not recovered");
+	}
+
+	@Test
+	void testBackPressure() throws Exception {
+		logger.info("-------------------------- testBackPressure ------------------------------------");
+		CountDownLatch written = new CountDownLatch(1);
+		CustomMappingController controller = createServer(
+				DoipHttpServerBuilder.newBuilder().executionMode(ExecutionMode.BOUNDED_POOL));
+		controller.addExternalHandler("/large", exchange -> {
+			byte[] chunk = new byte[CHUNK_SIZE];
+			exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+			exchange.sendResponseHeaders(200, (long) LARGE_CHUNKS * CHUNK_SIZE);
+			try (OutputStream out = exchange.getResponseBody()) {
+				for (int i = 0; i < LARGE_CHUNKS; i++) {
+					out.write(chunk);
+				}
+			}
+			written.countDown();
+		});
+		server.start();
+
+		long received = 0;
+		try (Socket socket = new Socket("localhost", 8080)) {
+			socket.setSoTimeout(10000);
+			socket.getOutputStream().write(
+					"GET /large HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+							.getBytes(StandardCharsets.US_ASCII));
+			// The worker thread is blocked while the client does not read
+			assertTrue(!written.await(500, TimeUnit.MILLISECONDS),
+					"The worker thread has not been blocked above the high water mark");
+
+			InputStream in = socket.getInputStream();
+			byte[] buffer = new byte[CHUNK_SIZE];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				received += count;
+			}
+		}
+		assertTrue(written.await(10, TimeUnit.SECONDS), "The worker thread has not finished the response");
+		assertTrue(received > (long) LARGE_CHUNKS * CHUNK_SIZE, "The response is incomplete: " + received);
+	}
+
+	@Test
+	void testVirtualThreads() throws Exception {
+		logger.info("-------------------------- testVirtualThreads ------------------------------------");
+		startServer(DoipHttpServerBuilder.newBuilder().executionMode(ExecutionMode.VIRTUAL_THREADS));
+
+		assertEquals(200, send("GET", PLATFORM_PATH, null).statusCode(), "Platform not found");
+		assertEquals(404, send("GET", PlatformOverviewHandler.RESOURCE_PATH + "/Unknown", null).statusCode(),
+				"Unknown platform found");
+		HttpResponse<String> response = send("POST", "/customPost", "Hello virtual");
+		assertTrue(response.body().endsWith("Hello virtual"), "The request body has not been read: " + response.body());
+
+		// The parked response is finished by the timer of the state waiter
+		long start = System.currentTimeMillis();
+		response = send("GET", PARKED_PATH, null);
+		assertEquals(200, response.statusCode(), "The parked request failed");
+		assertEquals("timeout", response.headers().firstValue(PlatformOverviewHandler.WAIT_RESULT_HEADER).orElse(""),
+				"The parked request has not timed out");
+		assertTrue(System.currentTimeMillis() - start >= 300, "The request has not been parked");
+
+		// The events are written by the writer thread of the event stream
+		HttpRequest request = HttpRequest.newBuilder(URI.create(HOST + EventStreamHandler.RESOURCE_PATH)).GET()
+				.build();
+		HttpResponse<InputStream> events = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		assertEquals(200, events.statusCode(), "The event stream is not available");
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(events.body(), StandardCharsets.UTF_8))) {
+			CompletableFuture<String> data = CompletableFuture.supplyAsync(() -> readEvent(reader));
+			String event = data.get(10, TimeUnit.SECONDS);
+			logger.info("Received event: {}", event);
+			assertTrue(event.contains("\"platform\":\"X2024\""), "The event does not contain the platform");
+		}
+		assertEquals(200, send("GET", PLATFORM_PATH, null).statusCode(), "Platform not found");
+	}
+
+	private void startServer(DoipHttpServerBuilder builder) throws Exception {
+		createServer(builder);
+		server.start();
+	}
+
+	private CustomMappingController createServer(DoipHttpServerBuilder builder) throws Exception {
+		server = builder.addPlatform(new MockPlatform("X2024")).transport(Transport.NIO).build();
+		CustomMappingController controller = new CustomMappingController(server);
+		controller.addExternalHandler("/customGet", new GetHandlerCustom());
+		controller.addExternalHandler("/customPost", new PostHandlerCustom());
+		return controller;
+	}
+
+	private CompletableFuture<HttpResponse<String>> sendAsync(String method, String path) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(HOST + path))
+				.method(method, HttpRequest.BodyPublishers.noBody()).build();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static void waitUntil(BooleanSupplier condition, String message)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean(), message);
+	}
+
+	private static String readEvent(BufferedReader reader) {
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("data: ")) {
+					return line;
+				}
+			}
+			return "";
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private HttpResponse<String> send(String method, String path, String body)
+			throws IOException, InterruptedException {
+		HttpRequest.BodyPublisher publisher = body == null ? HttpRequest.BodyPublishers.noBody()
+				: HttpRequest.BodyPublishers.ofString(body);
+		HttpRequest request = HttpRequest.newBuilder(URI.create(HOST + path)).method(method, publisher).build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			bytes.write(buffer, 0, count);
+		}
+		return bytes.toString(StandardCharsets.ISO_8859_1.name());
+	}
+}
@@ -4,7 +4,9 @@ package doip.simulation.http;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -139,6 +141,32 @@ class TestOverviewHandler {
 		logger.info("Custom GET test completed.");
 	}
 
+	@Test
+	void testGetWithIfNoneMatch() throws IOException, InterruptedException {
+		logger.info("-------------------------- testGetWithIfNoneMatch ------------------------------------");
+		java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+				.version(java.net.http.HttpClient.Version.HTTP_1_1).build();
+		URI uri = URI.create("http://localhost:" + PORT + SimulationConnector.PLATFORM_PATH + "/X2024/gateway/GW");
+
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "The HTTP status code is not 200");
+		String eTag = response.headers().firstValue("ETag").orElse(null);
+		assertNotNull(eTag, "The response has no ETag");
+
+		// Same ETag, the body must not be sent again
+		response = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", eTag).GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(304, response.statusCode(), "The HTTP status code is not 304");
+		assertTrue(response.body().isEmpty(), "The 304 response has a body");
+
+		// Different ETag, the complete response must be sent
+		response = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", "\"outdated\"").GET().build(),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), "The HTTP status code is not 200");
+		assertEquals(eTag, response.headers().firstValue("ETag").orElse(null), "The ETag has changed");
+	}
+
 	@Test
 	void testPostPlatformOverviewHandler() throws HttpStatusCodeException, HttpInvalidResponseBodyType,
 			URISyntaxException, IOException, InterruptedException, HttpInvalidRequestBodyType {
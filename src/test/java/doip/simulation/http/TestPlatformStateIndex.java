@@ -0,0 +1,147 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+import doip.simulation.http.lib.Action;
+
+class TestPlatformStateIndex {
+
+	private static Logger logger = LogManager.getLogger(TestPlatformStateIndex.class);
+
+	private final List<Platform> platforms = new ArrayList<>();
+
+	private final List<AtomicReference<ServiceState>> states = new ArrayList<>();
+
+	private SimulationManager simulationManager;
+
+	private StateMonitor stateMonitor;
+
+	@BeforeEach
+	void setUp() {
+		addPlatform("X2024", ServiceState.RUNNING);
+		addPlatform("X2025", ServiceState.STOPPED);
+		addPlatform("X2026", ServiceState.RUNNING);
+		simulationManager = mock(SimulationManager.class);
+		when(simulationManager.getPlatforms()).thenReturn(platforms);
+		stateMonitor = mock(StateMonitor.class);
+		when(stateMonitor.isRunning()).thenReturn(true);
+	}
+
+	@Test
+	void testIndexByState() {
+		logger.info("-------------------------- testIndexByState ------------------------------------");
+		PlatformStateIndex index = new PlatformStateIndex(simulationManager, stateMonitor);
+		verify(stateMonitor).addListener(index);
+
+		Set<Platform> running = index.getPlatforms(ServiceState.RUNNING);
+		assertEquals(2, running.size(), "Number of running platforms");
+		assertSame(platforms.get(0), running.iterator().next(), "The order of the platforms has not been kept");
+		PlatformStateIndex.Counts counts = index.counts();
+		assertEquals(1, counts.platforms[ServiceState.STOPPED.ordinal()], "Number of stopped platforms");
+		assertEquals(3, counts.gateways[ServiceState.STOPPED.ordinal()], "Number of stopped gateways");
+		assertEquals(0, counts.platforms[ServiceState.ERROR.ordinal()], "Number of platforms with error");
+		long version = index.getVersion();
+
+		// The index is only updated by the monitor, the platforms are not visited again
+		states.get(1).set(ServiceState.RUNNING);
+		assertEquals(2, index.getPlatforms(ServiceState.RUNNING).size(), "The index has been rebuilt");
+		index.stateChanged(new StateChangeEvent(1, "X2025", null, ServiceState.STOPPED, ServiceState.RUNNING, 0));
+		assertEquals(3, index.getPlatforms(ServiceState.RUNNING).size(), "The state change has not been applied");
+		assertTrue(index.getPlatforms(ServiceState.STOPPED).isEmpty(), "The platform is still stopped");
+		assertTrue(index.getVersion() > version, "The version has not been incremented");
+
+		states.get(0).set(ServiceState.ERROR);
+		index.refresh(platforms.get(0));
+		assertEquals(1, index.counts().platforms[ServiceState.ERROR.ordinal()], "The refresh has not been applied");
+
+		// Without the monitor the index is rebuilt for each request
+		index.monitorStopped();
+		when(stateMonitor.isRunning()).thenReturn(false);
+		states.get(2).set(ServiceState.STOPPED);
+		assertEquals(1, index.counts().platforms[ServiceState.STOPPED.ordinal()], "The index has not been rebuilt");
+	}
+
+	@Test
+	void testReplacedPlatform() {
+		logger.info("-------------------------- testReplacedPlatform ------------------------------------");
+		PlatformStateIndex index = new PlatformStateIndex(simulationManager, stateMonitor);
+		assertEquals(1, index.getPlatforms(ServiceState.STOPPED).size(), "Number of stopped platforms");
+
+		// The platforms are not read again for each request
+		clearInvocations(simulationManager);
+		index.getPlatforms(ServiceState.RUNNING);
+		index.counts();
+		verify(simulationManager, never()).getPlatforms();
+
+		// The same number of platforms, but another instance of X2025
+		Platform replaced = platforms.remove(1);
+		states.remove(1);
+		addPlatform("X2025", ServiceState.RUNNING);
+		assertTrue(index.getPlatforms(ServiceState.STOPPED).contains(replaced), "The index has been rebuilt");
+		index.platformsChanged();
+		assertTrue(index.getPlatforms(ServiceState.STOPPED).isEmpty(), "The replaced platform is still contained");
+		assertTrue(index.getPlatforms(ServiceState.RUNNING).contains(platforms.get(2)), "The new platform is missing");
+		assertEquals(3, index.counts().platforms[ServiceState.RUNNING.ordinal()], "Number of running platforms");
+	}
+
+	@Test
+	void testStatusFilterUsesIndex() throws Exception {
+		logger.info("-------------------------- testStatusFilterUsesIndex ------------------------------------");
+		SimulationConnector connector = new SimulationConnector(simulationManager, "http://localhost:8080");
+		connector.enableStateIndex(stateMonitor);
+
+		SimulationResponse response = connector.buildOverviewJsonResponse("http://localhost:8080", "STOPPED");
+		assertEquals(200, response.getStatusCode(), "Overview not available");
+		assertTrue(response.getJsonResponse().contains("\"name\":\"X2025\""), "The stopped platform is missing");
+		assertTrue(!response.getJsonResponse().contains("X2024"), "A running platform is contained");
+
+		clearInvocations(platforms.toArray());
+		connector.setResponseCacheEnabled(false);
+		connector.buildOverviewJsonResponse("http://localhost:8080", "STOPPED");
+		verify(platforms.get(0), never()).getState();
+		verify(platforms.get(2), never()).getGateways();
+
+		// The action updates the index immediately
+		connector.performAction(platforms.get(1), Action.start);
+		response = connector.buildOverviewJsonResponse("http://localhost:8080", "STOPPED");
+		assertTrue(!response.getJsonResponse().contains("X2025"), "The started platform is still contained");
+
+		response = connector.buildStateCountsJsonResponse();
+		assertEquals(200, response.getStatusCode(), "Counts not available");
+		assertTrue(response.getJsonResponse().startsWith("{\"platforms\":{"), "Wrong format: " + response.getJsonResponse());
+		assertTrue(response.getJsonResponse().contains("\"RUNNING\":3"), "Wrong platform count: " + response.getJsonResponse());
+		assertTrue(response.getJsonResponse().contains("\"gateways\":{"), "Gateway counts are missing");
+	}
+
+	private void addPlatform(String name, ServiceState state) {
+		AtomicReference<ServiceState> platformState = new AtomicReference<>(state);
+		Gateway gateway = mock(Gateway.class);
+		when(gateway.getName()).thenReturn("GW");
+		when(gateway.getState()).thenAnswer(invocation -> platformState.get());
+		Platform platform = mock(Platform.class);
+		when(platform.getName()).thenReturn(name);
+		when(platform.getState()).thenAnswer(invocation -> platformState.get());
+		when(platform.getGateways()).thenReturn(List.of(gateway, gateway, gateway));
+		doAnswer(invocation -> {
+			platformState.set(ServiceState.RUNNING);
+			return null;
+		}).when(platform).start();
+		platforms.add(platform);
+		states.add(platformState);
+	}
+}
@@ -0,0 +1,129 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.http.RouteMetrics.RouteStats;
+
+class TestRouteMetrics {
+
+	private static Logger logger = LogManager.getLogger(TestRouteMetrics.class);
+
+	private static final String HOST = "http://localhost:8080";
+
+	private static final String PLATFORM_ROUTE = PlatformOverviewHandler.RESOURCE_PATH + "/{platform}";
+
+	private DoipHttpServer server = null;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).build();
+		new CustomMappingController(server).addExternalHandler("/customGet", new GetHandlerCustom());
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (server != null) {
+			server.stop();
+			server = null;
+		}
+	}
+
+	@Test
+	void testRecordByRouteAndMethod() throws IOException, InterruptedException {
+		logger.info("-------------------------- testRecordByRouteAndMethod ------------------------------------");
+		assertEquals(200, send("GET", "/doip-simulation/platform/X2024").statusCode(), "Platform not found");
+		assertEquals(404, send("GET", "/doip-simulation/platform/Unknown").statusCode(), "Unknown platform found");
+		assertEquals(405, send("DELETE", "/doip-simulation/platform/X2024").statusCode(), "DELETE allowed");
+		assertEquals(200, send("GET", "/customGet").statusCode(), "Custom handler not called");
+
+		RouteMetrics metrics = server.getRouteMetrics();
+		RouteStats platform = metrics.get("GET", PLATFORM_ROUTE);
+		assertNotNull(platform, "The route template has not been recorded");
+		assertEquals(2L, platform.getRequests(), "The requests of the route have not been counted");
+		assertEquals(1L, platform.getStatusCount(2), "The status code 2xx has not been counted");
+		assertEquals(1L, platform.getStatusCount(4), "The status code 4xx has not been counted");
+		assertTrue(platform.getBytes() > 0, "The bytes of the responses have not been counted");
+		assertEquals(2L, platform.getLatency().getCount(), "The latencies have not been recorded");
+
+		// No route matched, so the context path is used
+		RouteStats delete = metrics.get("DELETE", PlatformOverviewHandler.RESOURCE_PATH);
+		assertNotNull(delete, "A request without matching route has not been recorded");
+		assertEquals(1L, delete.getStatusCount(4), "The status code has not been counted");
+
+		RouteStats custom = metrics.get("GET", "/customGet");
+		assertNotNull(custom, "The custom handler has not been measured");
+		assertEquals(1L, custom.getRequests(), "The request of the custom handler has not been counted");
+	}
+
+	@Test
+	void testParkedRequest() throws IOException, InterruptedException {
+		logger.info("-------------------------- testParkedRequest ------------------------------------");
+		// The mocked platform is always running, so the request is parked until the timeout
+		assertEquals(200, send("GET", "/doip-simulation/platform/X2024?waitFor=STOPPED&timeout=300ms").statusCode(),
+				"Platform not found");
+
+		RouteStats platform = null;
+		long deadline = System.currentTimeMillis() + 5000;
+		// The request is recorded after its response has been sent
+		while ((platform == null || platform.getStatusCount(2) == 0) && System.currentTimeMillis() < deadline) {
+			platform = server.getRouteMetrics().get("GET", PLATFORM_ROUTE);
+			Thread.sleep(10);
+		}
+		assertNotNull(platform, "The parked request has not been recorded");
+		assertEquals(1L, platform.getRequests(), "The parked request has not been counted once");
+		assertEquals(1L, platform.getStatusCount(2), "The status code of the response has not been recorded");
+		assertEquals(0L, platform.getStatusCount(5), "The parked request has been counted as an error");
+		assertTrue(platform.getBytes() > 0, "The bytes of the response have not been counted");
+		assertTrue(platform.getLatency().getMax() >= 300_000_000L,
+				"The time while the request was parked is missing: " + platform.getLatency().getMax());
+	}
+
+	@Test
+	void testMetricsEndpoint() throws IOException, InterruptedException {
+		logger.info("-------------------------- testMetricsEndpoint ------------------------------------");
+		send("GET", "/doip-simulation/platform/X2024");
+
+		HttpResponse<String> json = send("GET", MetricsHandler.RESOURCE_PATH);
+		assertEquals(200, json.statusCode(), "Metrics not available");
+		assertTrue(json.body().contains("\"route\":\"" + PLATFORM_ROUTE + "\""), "The route is missing in JSON");
+		assertTrue(json.body().contains("\"p999\""), "The percentiles are missing in JSON");
+
+		HttpResponse<String> text = send("GET", MetricsHandler.RESOURCE_PATH + "?format=prometheus");
+		assertEquals(200, text.statusCode(), "Metrics not available");
+		assertTrue(text.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"),
+				"The text format has the wrong content type");
+		assertTrue(text.body().contains("doip_http_requests_total{method=\"GET\",route=\"" + PLATFORM_ROUTE
+				+ "\",status=\"2xx\"} 1"), "The request counter is missing in the text format");
+		assertTrue(text.body().contains("doip_http_request_duration_seconds_bucket{method=\"GET\",route=\""
+				+ PLATFORM_ROUTE + "\",le=\"+Inf\"} 1"), "The histogram is missing in the text format");
+	}
+
+	@Test
+	void testDisabled() throws IOException, InterruptedException {
+		logger.info("-------------------------- testDisabled ------------------------------------");
+		server.getRouteMetrics().setEnabled(false);
+		assertEquals(200, send("GET", "/customGet").statusCode(), "Custom handler not called");
+		assertNull(server.getRouteMetrics().get("GET", "/customGet"), "A request has been recorded while disabled");
+	}
+
+	private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(HOST + path))
+				.method(method, HttpRequest.BodyPublishers.noBody()).build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
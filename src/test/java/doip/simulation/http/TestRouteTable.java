@@ -0,0 +1,77 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.http.helpers.RouteMatch;
+import doip.simulation.http.helpers.RouteTable;
+
+class TestRouteTable {
+
+	private static Logger logger = LogManager.getLogger(TestRouteTable.class);
+
+	private static final String PLATFORM = "/doip-simulation/platform/{platform}";
+
+	private static final String GATEWAY = PLATFORM + "/gateway/{gateway}";
+
+	private final RouteTable<String> routes = new RouteTable<String>()
+			.add("GET", PLATFORM, "getPlatform")
+			.add("POST", PLATFORM, "postPlatform")
+			.add("GET", GATEWAY, "getGateway")
+			.add("GET", GATEWAY + "/ecu/{ecu}", "getEcu");
+
+	@Test
+	void testMatch() {
+		logger.info("-------------------------- testMatch ------------------------------------");
+		RouteMatch<String> match = routes.match("GET", "/doip-simulation/platform/X2024/gateway/GW/ecu/EMS");
+		assertEquals(RouteMatch.Result.FOUND, match.getResult(), "The route has not been found");
+		assertEquals("getEcu", match.getHandler(), "The wrong handler has been found");
+		assertEquals("X2024", match.getParameters().get("platform"), "Wrong platform");
+		assertEquals("GW", match.getParameters().get("gateway"), "Wrong gateway");
+		assertEquals("EMS", match.getParameters().get("ecu"), "Wrong ECU");
+
+		match = routes.match("POST", "/doip-simulation/platform/X2024/");
+		assertEquals("postPlatform", match.getHandler(), "A trailing slash is not ignored");
+	}
+
+	@Test
+	void testPlatformNamedGateway() {
+		logger.info("-------------------------- testPlatformNamedGateway ------------------------------------");
+		RouteMatch<String> match = routes.match("GET", "/doip-simulation/platform/gateway");
+		assertEquals("getPlatform", match.getHandler(), "A platform named 'gateway' is routed wrongly");
+		assertEquals("gateway", match.getParameters().get("platform"), "Wrong platform");
+
+		match = routes.match("GET", "/doip-simulation/platform/gateway/gateway/gateway");
+		assertEquals("getGateway", match.getHandler(), "A gateway named 'gateway' is routed wrongly");
+		assertEquals("gateway", match.getParameters().get("gateway"), "Wrong gateway");
+	}
+
+	@Test
+	void testNotFoundAndMethodNotAllowed() {
+		logger.info("-------------------------- testNotFoundAndMethodNotAllowed ------------------------------------");
+		assertEquals(RouteMatch.Result.NOT_FOUND, routes.match("GET", "/doip-simulation/platform").getResult(),
+				"A path without platform has been found");
+		assertEquals(RouteMatch.Result.NOT_FOUND,
+				routes.match("GET", "/doip-simulation/platform/X2024/unknown").getResult(),
+				"An unknown path has been found");
+
+		RouteMatch<String> match = routes.match("DELETE", "/doip-simulation/platform/X2024");
+		assertEquals(RouteMatch.Result.METHOD_NOT_ALLOWED, match.getResult(), "DELETE has not been rejected");
+		assertEquals("GET, POST", match.getAllowedMethods(), "The allowed methods are wrong");
+	}
+
+	@Test
+	void testLiteralBeforeParameter() {
+		logger.info("-------------------------- testLiteralBeforeParameter ------------------------------------");
+		RouteTable<String> table = new RouteTable<String>()
+				.add("GET", "/a/{id}/x", "parameter")
+				.add("GET", "/a/new", "literal");
+		assertEquals("literal", table.match("GET", "/a/new").getHandler(), "The literal has no priority");
+		assertEquals("parameter", table.match("GET", "/a/new/x").getHandler(),
+				"The parameter has not been tried after the literal did not match");
+		assertThrows(IllegalArgumentException.class, () -> table.add("GET", "/a/{name}", "conflict"));
+	}
+}
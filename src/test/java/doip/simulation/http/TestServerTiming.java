@@ -0,0 +1,113 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.http.helpers.ServerTiming;
+
+class TestServerTiming {
+
+	private static Logger logger = LogManager.getLogger(TestServerTiming.class);
+
+	private static final String GATEWAY_URL = "http://localhost:8080/doip-simulation/platform/X2024/gateway/GW";
+
+	private DoipHttpServer server = null;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@AfterEach
+	void tearDown() {
+		if (server != null) {
+			server.stop();
+			server = null;
+		}
+	}
+
+	@Test
+	void testPhases() {
+		logger.info("-------------------------- testPhases ------------------------------------");
+		assertNull(ServerTiming.current(), "A timing is available although it is disabled");
+		ServerTiming.enable();
+		try {
+			ServerTiming timing = ServerTiming.begin();
+			assertSame(timing, ServerTiming.current(), "The timing is not bound to the thread");
+			long start = System.nanoTime() - 2000000;
+			timing.add(ServerTiming.Phase.MAP, start);
+			timing.setCacheHit(false);
+			timing.add(ServerTiming.Phase.CACHE, System.nanoTime());
+			String header = timing.toHeaderValue();
+			assertTrue(header.startsWith("cache;desc=\"miss\";dur="), "The phases are not in order: " + header);
+			double mapMillis = parseDuration(header, "map");
+			assertTrue(mapMillis >= 2.0 && mapMillis < 1000.0, "The duration is not in milliseconds: " + header);
+			assertTrue(!header.contains("resolve"), "A phase which did not occur is contained: " + header);
+
+			timing.stop();
+			assertNull(ServerTiming.current(), "A timing is available after it has been stopped");
+			String summary = ServerTiming.takeSummary();
+			assertTrue(summary.contains("total;dur="), "The summary does not contain the total: " + summary);
+			assertNull(ServerTiming.takeSummary(), "The summary has been returned twice");
+		} finally {
+			ServerTiming.disable();
+		}
+	}
+
+	@Test
+	void testServerTimingHeader() throws Exception {
+		logger.info("-------------------------- testServerTimingHeader ------------------------------------");
+		server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).serverTiming(true)
+				.build();
+		server.start();
+
+		HttpResponse<String> response = get(GATEWAY_URL);
+		assertEquals(200, response.statusCode(), "Gateway not found");
+		String header = response.headers().firstValue("Server-Timing").orElse(null);
+		assertNotNull(header, "The Server-Timing header is missing");
+		for (String phase : new String[] { "resolve;", "cache;desc=\"miss\"", "map;", "serialize;" }) {
+			assertTrue(header.contains(phase), "The phase " + phase + " is missing: " + header);
+		}
+
+		header = get(GATEWAY_URL).headers().firstValue("Server-Timing").orElse("");
+		assertTrue(header.contains("cache;desc=\"hit\"") && !header.contains("map;"),
+				"The cached response has been timed wrongly: " + header);
+	}
+
+	@Test
+	void testDisabledByDefault() throws Exception {
+		logger.info("-------------------------- testDisabledByDefault ------------------------------------");
+		server = DoipHttpServerBuilder.newBuilder().addPlatform(new MockPlatform("X2024")).build();
+		server.start();
+
+		HttpResponse<String> response = get(GATEWAY_URL);
+		assertEquals(200, response.statusCode(), "Gateway not found");
+		assertTrue(response.headers().firstValue("Server-Timing").isEmpty(), "The Server-Timing header is sent");
+	}
+
+	private HttpResponse<String> get(String url) throws IOException, InterruptedException {
+		return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	/**
+	 * Gets the duration of a phase from the value of a Server-Timing header.
+	 */
+	private static double parseDuration(String header, String phase) {
+		String prefix = phase + ";dur=";
+		for (String metric : header.split(",")) {
+			metric = metric.trim();
+			if (metric.startsWith(prefix)) {
+				return Double.parseDouble(metric.substring(prefix.length()));
+			}
+		}
+		fail("The phase " + phase + " is missing: " + header);
+		return 0;
+	}
+}
@@ -1,7 +1,16 @@
 package doip.simulation.http;
 
 import static com.starcode88.jtest.Assertions.*;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -13,6 +22,8 @@ import org.mockito.Mockito;
 
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import doip.simulation.http.lib.Action;
 import doip.simulation.http.lib.ActionRequest;
 import doip.simulation.api.ServiceState;
@@ -24,6 +35,8 @@ class TestSimulationConnector {
 	private static SimulationConnector connector = null;
 	private static SimulationConnector connectorMockito = null;
 
+	private static final String SERVER_NAME = "http://localhost:8080";
+
 	// mock platform
 	private static final String platformName = "X2024";
 	private static doip.simulation.api.Platform mockPlatform = null;
@@ -198,6 +211,58 @@ class TestSimulationConnector {
 
 	}
 
+	@Test
+	public void testBuildEcuJsonResponse() throws IOException {
+		logger.info("-------------------------- testBuildEcuJsonResponse ------------------------------------");
+		SimulationResponse response = connector.buildEcuJsonResponse(SERVER_NAME, platformName, GatewayName, "EMS",
+				ResponseProjection.ALL);
+		assertEquals(200, response.getStatusCode(), "The HTTP status code is not 200");
+		logger.info(response.getJsonResponse());
+
+		doip.simulation.http.lib.Ecu ecu = new ObjectMapper().readValue(response.getBody(),
+				doip.simulation.http.lib.Ecu.class);
+		assertEquals("EMS", ecu.name, "The wrong ECU has been serialized");
+		assertTrue(ecu.url.endsWith("/doip-simulation/platform/X2024/gateway/GW/ecu/EMS"), "The URL is wrong");
+
+		SimulationResponse unknown = connector.buildEcuJsonResponse(SERVER_NAME, platformName, GatewayName, "Unknown",
+				ResponseProjection.ALL);
+		assertEquals(404, unknown.getStatusCode(), "The HTTP status code for an unknown ECU is not 404");
+	}
+
+	@Test
+	public void testProjectionAndPaging() throws IOException {
+		logger.info("-------------------------- testProjectionAndPaging ------------------------------------");
+		ObjectMapper mapper = new ObjectMapper();
+
+		// Gateway status only
+		SimulationResponse statusOnly = connector.buildGatewayJsonResponse(SERVER_NAME, platformName, GatewayName,
+				ResponseProjection.fromQuery("status", null, null));
+		doip.simulation.http.lib.Gateway gateway = mapper.readValue(statusOnly.getBody(),
+				doip.simulation.http.lib.Gateway.class);
+		assertNotNull(gateway.status, "The status is missing");
+		assertNull(gateway.ecus, "The ECUs have been returned although only the status was requested");
+
+		// First page of the runtime lookup table
+		int size = connector.getEcuByName(platformName, GatewayName, "EMS").getRuntimeLookupTable()
+				.getLookupEntries().size();
+		SimulationResponse firstPage = connector.buildEcuJsonResponse(SERVER_NAME, platformName, GatewayName, "EMS",
+				ResponseProjection.fromQuery("runtimeLookupTable", "2", null));
+		doip.simulation.http.lib.Ecu ecu = mapper.readValue(firstPage.getBody(), doip.simulation.http.lib.Ecu.class);
+		assertNull(ecu.configuredLookupTable, "The configured lookup table has been returned");
+		assertEquals(Math.min(2, size), ecu.runtimeLookupTable.size(), "The page size is wrong");
+		assertEquals(size > 2 ? "2" : null, firstPage.getNextCursor(), "The next cursor is wrong");
+
+		// Last page
+		SimulationResponse lastPage = connector.buildEcuJsonResponse(SERVER_NAME, platformName, GatewayName, "EMS",
+				ResponseProjection.fromQuery(null, "2", Integer.toString(size - 1)));
+		ecu = mapper.readValue(lastPage.getBody(), doip.simulation.http.lib.Ecu.class);
+		assertEquals(1, ecu.runtimeLookupTable.size(), "The last page does not contain the last entry");
+		assertNull(lastPage.getNextCursor(), "There is a next cursor after the last page");
+
+		assertThrows(IllegalArgumentException.class, () -> ResponseProjection.fromQuery("unknown", null, null));
+		assertThrows(IllegalArgumentException.class, () -> ResponseProjection.fromQuery(null, "0", null));
+	}
+
 	@Test
 	public void testHandlePlatformAction() {
 		logger.info("-------------------------- testHandlePlatformAction ------------------------------------");
@@ -245,6 +310,210 @@ class TestSimulationConnector {
 		performStartStopAction(connectorMockito);
 	}
 
+	@Test
+	public void testResponseCache() throws IOException {
+		logger.info("-------------------------- testResponseCache ------------------------------------");
+		SimulationConnector cachingConnector = new SimulationConnector(new MockSimulationManager(),
+				"http://localhost:8080");
+
+		SimulationResponse first = cachingConnector.buildGatewayJsonResponse(platformName, GatewayName);
+		SimulationResponse second = cachingConnector.buildGatewayJsonResponse(platformName, GatewayName);
+		assertEquals(200, first.getStatusCode(), "The HTTP status code is not 200");
+		assertSame(first, second, "The cached response has not been reused");
+
+		cachingConnector.invalidateResponseCache();
+		SimulationResponse third = cachingConnector.buildGatewayJsonResponse(platformName, GatewayName);
+		assertNotSame(first, third, "The response has not been built again after invalidation");
+		assertEquals(first.getJsonResponse(), third.getJsonResponse(), "The rebuilt response is different");
+
+		long version = cachingConnector.getStateVersion();
+		cachingConnector.performAction(cachingConnector.getPlatformByName(platformName), Action.stop);
+		assertTrue(cachingConnector.getStateVersion() > version, "The state version has not been incremented");
+
+		cachingConnector.setResponseCacheEnabled(false);
+		SimulationResponse uncached1 = cachingConnector.buildOverviewJsonResponse("");
+		SimulationResponse uncached2 = cachingConnector.buildOverviewJsonResponse("");
+		assertNotSame(uncached1, uncached2, "The response has been cached although the cache is disabled");
+	}
+
+	@Test
+	public void testWriteGatewayJson() throws IOException {
+		logger.info("-------------------------- testWriteGatewayJson ------------------------------------");
+		SimulationResponse response = connector.buildGatewayJsonResponse(SERVER_NAME, platformName, GatewayName,
+				ResponseProjection.ALL);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		connector.writeGatewayJson(SERVER_NAME, connector.getGatewayByName(platformName, GatewayName), platformName,
+				ResponseProjection.ALL, out);
+		logger.info(out.toString("UTF-8"));
+
+		ObjectMapper mapper = new ObjectMapper();
+		assertEquals(mapper.readTree(response.getBody()), mapper.readTree(out.toByteArray()),
+				"The streamed JSON is different from the JSON which has been built in memory");
+	}
+
+	@Test
+	public void testServerNamePerRequest() throws IOException {
+		logger.info("-------------------------- testServerNamePerRequest ------------------------------------");
+		String first = connector.getServerName("first:8080");
+		String second = connector.getServerName("second:8080");
+		assertEquals(SERVER_NAME, connector.getServerName(null), "Alternative host name not used");
+		assertSame(first, connector.getServerName("first:8080"), "The server name has been built again");
+
+		doip.simulation.http.lib.Gateway gateway1 = connector.processGateway(first,
+				connector.getGatewayByName(platformName, GatewayName), platformName, ResponseProjection.ALL);
+		doip.simulation.http.lib.Gateway gateway2 = connector.processGateway(second,
+				connector.getGatewayByName(platformName, GatewayName), platformName, ResponseProjection.ALL);
+		assertEquals("http://first:8080/doip-simulation/platform/X2024/gateway/GW", gateway1.url,
+				"Wrong URL of the gateway: " + gateway1.url);
+		assertEquals("http://second:8080/doip-simulation/platform/X2024/gateway/GW", gateway2.url,
+				"Wrong URL of the gateway: " + gateway2.url);
+		String ecuUrl = gateway2.ecus.get(0).url;
+		assertEquals("http://second:8080/doip-simulation/platform/X2024/gateway/GW/ecu/EMS", ecuUrl,
+				"Wrong URL of the ECU: " + ecuUrl);
+
+		// The built URLs are reused
+		doip.simulation.http.lib.Gateway again = connector.processGateway(first,
+				connector.getGatewayByName(platformName, GatewayName), platformName, ResponseProjection.ALL);
+		assertSame(gateway1.url, again.url, "The URL of the gateway has been built again");
+
+		SimulationResponse overview = connector.buildOverviewJsonResponse(second, "");
+		assertTrue(overview.getJsonResponse().contains("http://second:8080/doip-simulation/platform/X2024"),
+				"The overview does not contain the server name of the request");
+	}
+
+	@Test
+	public void testUrlPrefixCacheLimit() {
+		logger.info("-------------------------- testUrlPrefixCacheLimit ------------------------------------");
+		UrlPrefixCache cache = new UrlPrefixCache(SimulationConnector.PLATFORM_PATH);
+		for (int i = 0; i < UrlPrefixCache.MAX_SERVER_NAMES * 2; i++) {
+			String url = cache.platform("http://host" + i, "X2024").getUrl();
+			assertEquals("http://host" + i + "/doip-simulation/platform/X2024", url, "Wrong URL: " + url);
+		}
+		assertEquals(UrlPrefixCache.MAX_SERVER_NAMES, cache.size(), "Number of cached server names");
+	}
+
+	@Test
+	public void testPerformActions() throws IOException {
+		logger.info("-------------------------- testPerformActions ------------------------------------");
+		BatchActionRequest request = ActionsHandler.parseRequest("{\"parallelism\": 4, \"actions\": ["
+				+ "{\"platform\": \"" + platformName + "\", \"action\": \"start\"},"
+				+ "{\"platform\": \"Unknown\", \"action\": \"start\"},"
+				+ "{\"platform\": \"" + platformName + "\", \"action\": \"stop\"}]}");
+		assertEquals(3, request.actions.size(), "Number of parsed actions");
+
+		BatchActionResponse response = connector.performActions(request.actions, request.parallelism);
+		logger.info(connector.buildJsonResponse(response));
+		assertEquals(3, response.results.size(), "Number of results");
+		assertEquals(200, response.results.get(0).status, "Status of start action");
+		assertEquals(404, response.results.get(1).status, "Status of action for unknown platform");
+		assertNotNull(response.results.get(1).error);
+		assertEquals(200, response.results.get(2).status, "Status of stop action");
+		assertEquals(Action.stop, response.results.get(2).action, "Results are in the order of the request");
+
+		assertEquals(1, ActionsHandler.parseRequest("[{\"platform\": \"X\", \"action\": \"stop\"}]").actions.size(),
+				"Number of actions in array");
+		assertThrows(IllegalArgumentException.class, () -> ActionsHandler.parseRequest("{\"actions\": []}"));
+	}
+
+	@Test
+	public void testSharedActionLimit() throws Exception {
+		logger.info("-------------------------- testSharedActionLimit ------------------------------------");
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		Map<String, AtomicInteger> runningPerPlatform = new ConcurrentHashMap<>();
+		AtomicInteger maxRunningPerPlatform = new AtomicInteger();
+		SimulationManager simulationManager = mock(SimulationManager.class);
+		for (String name : new String[] { "A", "B", "C", "D" }) {
+			doip.simulation.api.Platform platform = mock(doip.simulation.api.Platform.class);
+			when(platform.getName()).thenReturn(name);
+			when(platform.getState()).thenReturn(ServiceState.RUNNING);
+			AtomicInteger perPlatform = runningPerPlatform.computeIfAbsent(name, k -> new AtomicInteger());
+			doAnswer(invocation -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				maxRunningPerPlatform.accumulateAndGet(perPlatform.incrementAndGet(), Math::max);
+				Thread.sleep(50);
+				perPlatform.decrementAndGet();
+				running.decrementAndGet();
+				return null;
+			}).when(platform).start();
+			when(simulationManager.getPlatformByName(name)).thenReturn(platform);
+		}
+		SimulationConnector limitedConnector = new SimulationConnector(simulationManager, "http://localhost:8080");
+		limitedConnector.setActionParallelism(2);
+		try {
+			// Two batches which could run 4 actions each and a single action on one of their platforms
+			List<BatchActionRequest.Entry> actions = createStartActions("A", "B", "C", "D");
+			List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < 2; i++) {
+				threads.add(new Thread(() -> limitedConnector.performActions(actions, 4)));
+			}
+			threads.add(new Thread(() -> {
+				try {
+					limitedConnector.performAction(simulationManager.getPlatformByName("A"), Action.start);
+				} catch (IOException e) {
+					logger.error("Unexpected Exception: " + e.getMessage(), e);
+				}
+			}));
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join(10000);
+			}
+			// The 2 permits of the batches plus the single action
+			assertTrue(maxRunning.get() <= 3, "The batches exceeded the shared limit: " + maxRunning.get());
+			assertEquals(1, maxRunningPerPlatform.get(), "A platform has been started twice at the same time");
+		} finally {
+			limitedConnector.shutdown();
+		}
+	}
+
+	@Test
+	public void testInterruptedActions() throws Exception {
+		logger.info("-------------------------- testInterruptedActions ------------------------------------");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		SimulationManager simulationManager = mock(SimulationManager.class);
+		doip.simulation.api.Platform platform = mock(doip.simulation.api.Platform.class);
+		when(platform.getName()).thenReturn("A");
+		when(platform.getState()).thenReturn(ServiceState.RUNNING);
+		doAnswer(invocation -> {
+			started.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return null;
+		}).when(platform).start();
+		when(simulationManager.getPlatformByName("A")).thenReturn(platform);
+		SimulationConnector blockingConnector = new SimulationConnector(simulationManager, "http://localhost:8080");
+		try {
+			AtomicReference<BatchActionResponse> response = new AtomicReference<>();
+			List<BatchActionRequest.Entry> actions = createStartActions("A", "A");
+			Thread batch = new Thread(() -> response.set(blockingConnector.performActions(actions, 1)));
+			batch.start();
+			assertTrue(started.await(5, TimeUnit.SECONDS), "The first action has not been started");
+			batch.interrupt();
+			batch.join(5000);
+
+			assertNotNull(response.get());
+			assertEquals(2, response.get().results.size(), "Number of results");
+			for (BatchActionResponse.Result result : response.get().results) {
+				assertEquals(500, result.status, "Status of an interrupted action");
+				assertEquals("interrupted", result.error, "Wrong error of an interrupted action: " + result.error);
+			}
+		} finally {
+			release.countDown();
+			blockingConnector.shutdown();
+		}
+	}
+
+	private static List<BatchActionRequest.Entry> createStartActions(String... platforms) {
+		List<BatchActionRequest.Entry> actions = new ArrayList<>();
+		for (String platform : platforms) {
+			actions.add(new BatchActionRequest.Entry(platform, Action.start));
+		}
+		return actions;
+	}
+
 	private void performStartStopAction(SimulationConnector currentConnector) {
 		ActionRequest actionRequest = new ActionRequest();
 		actionRequest.setAction(Action.start); // or Action.stop
@@ -0,0 +1,111 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.api.Gateway;
+import doip.simulation.api.Platform;
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+
+class TestStateMonitor {
+
+	private static Logger logger = LogManager.getLogger(TestStateMonitor.class);
+
+	@Test
+	void testPollPublishesChanges() {
+		logger.info("-------------------------- testPollPublishesChanges ------------------------------------");
+		Gateway gateway = mock(Gateway.class);
+		when(gateway.getName()).thenReturn("GW");
+		when(gateway.getState()).thenReturn(ServiceState.STOPPED, ServiceState.STOPPED, ServiceState.RUNNING);
+
+		Platform platform = mock(Platform.class);
+		when(platform.getName()).thenReturn("X2024");
+		when(platform.getState()).thenReturn(ServiceState.STOPPED, ServiceState.RUNNING, ServiceState.RUNNING);
+		when(platform.getGateways()).thenReturn(List.of(gateway));
+
+		SimulationManager simulationManager = mock(SimulationManager.class);
+		when(simulationManager.getPlatforms()).thenReturn(List.of(platform));
+
+		StateMonitor monitor = new StateMonitor(simulationManager);
+		List<StateChangeEvent> events = new ArrayList<>();
+		monitor.addListener(events::add);
+
+		// The first poll only records the states
+		monitor.poll();
+		assertEquals(0, events.size(), "Number of events after first poll");
+		assertEquals(2, monitor.snapshot().size(), "Number of states in snapshot");
+
+		// Platform has been started
+		monitor.poll();
+		assertEquals(1, events.size(), "Number of events after second poll");
+		StateChangeEvent event = events.get(0);
+		assertEquals("X2024", event.getKey(), "Key of platform event");
+		assertNull(event.getGateway());
+		assertEquals(ServiceState.STOPPED, event.getPreviousState(), "Previous state of platform");
+		assertEquals(ServiceState.RUNNING, event.getState(), "New state of platform");
+
+		// Gateway has been started
+		monitor.poll();
+		assertEquals(2, events.size(), "Number of events after third poll");
+		event = events.get(1);
+		assertEquals("X2024/GW", event.getKey(), "Key of gateway event");
+		assertEquals(2L, event.getSequence(), "Sequence of gateway event");
+
+		// Nothing has changed
+		monitor.poll();
+		assertEquals(2, events.size(), "Number of events after fourth poll");
+	}
+
+	@Test
+	void testPollDetectsChangedPlatforms() {
+		logger.info("-------------------------- testPollDetectsChangedPlatforms ------------------------------------");
+		Platform platform = mock(Platform.class);
+		when(platform.getName()).thenReturn("X2024");
+		when(platform.getState()).thenReturn(ServiceState.RUNNING);
+		Platform replacement = mock(Platform.class);
+		when(replacement.getName()).thenReturn("X2024");
+		when(replacement.getState()).thenReturn(ServiceState.RUNNING);
+
+		SimulationManager simulationManager = mock(SimulationManager.class);
+		when(simulationManager.getPlatforms()).thenReturn(List.of(platform));
+		StateMonitor monitor = new StateMonitor(simulationManager);
+		StateListener listener = mock(StateListener.class);
+		monitor.addListener(listener);
+
+		monitor.poll();
+		monitor.poll();
+		verify(listener, never()).platformsChanged();
+
+		// A platform with the same name and state is not a state change
+		when(simulationManager.getPlatforms()).thenReturn(List.of(replacement));
+		monitor.poll();
+		verify(listener, times(1)).platformsChanged();
+		verify(listener, never()).stateChanged(any());
+
+		when(simulationManager.getPlatforms()).thenReturn(List.of(replacement, platform));
+		monitor.poll();
+		verify(listener, times(2)).platformsChanged();
+	}
+
+	@Test
+	void testEncodeEvent() {
+		logger.info("-------------------------- testEncodeEvent ------------------------------------");
+		StateChangeEvent event = new StateChangeEvent(7, "X2024", "GW", ServiceState.STOPPED, ServiceState.RUNNING,
+				1000);
+		String frame = new String(EventStreamHandler.encode(event), StandardCharsets.UTF_8);
+		logger.info("Encoded event:\n{}", frame);
+		assertTrue(frame.startsWith("id: 7\nevent: state\ndata: {"), "Header of event");
+		assertTrue(frame.contains("\"gateway\":\"GW\""), "Gateway in event");
+		assertTrue(frame.contains("\"previous\":\"STOPPED\",\"state\":\"RUNNING\""), "States in event");
+		assertTrue(frame.endsWith("}\n\n"), "Event is terminated by an empty line");
+	}
+}
@@ -0,0 +1,137 @@
+package doip.simulation.http;
+
+import static com.starcode88.jtest.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+import doip.simulation.api.ServiceState;
+import doip.simulation.api.SimulationManager;
+
+class TestStateWaiter {
+
+	private static Logger logger = LogManager.getLogger(TestStateWaiter.class);
+
+	@Test
+	void testParseTimeout() {
+		logger.info("-------------------------- testParseTimeout ------------------------------------");
+		assertEquals(StateWaiter.DEFAULT_TIMEOUT_MILLIS, StateWaiter.parseTimeout(null), "Default timeout");
+		assertEquals(10_000L, StateWaiter.parseTimeout("10s"), "Timeout in seconds");
+		assertEquals(10_000L, StateWaiter.parseTimeout("10"), "Timeout without unit");
+		assertEquals(250L, StateWaiter.parseTimeout("250ms"), "Timeout in milliseconds");
+		assertEquals(120_000L, StateWaiter.parseTimeout("2m"), "Timeout in minutes");
+		assertEquals(StateWaiter.MAX_TIMEOUT_MILLIS, StateWaiter.parseTimeout("1000m"), "Timeout is limited");
+		assertThrows(IllegalArgumentException.class, () -> StateWaiter.parseTimeout("soon"));
+		assertThrows(IllegalArgumentException.class, () -> StateWaiter.parseTimeout("-1s"));
+	}
+
+	@Test
+	void testStateReached() throws InterruptedException {
+		logger.info("-------------------------- testStateReached ------------------------------------");
+		StateMonitor monitor = new StateMonitor(mock(SimulationManager.class));
+		StateWaiter waiter = new StateWaiter(monitor);
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean result = new AtomicBoolean(false);
+
+		waiter.await("X2024", ServiceState.RUNNING, () -> ServiceState.STOPPED, 10_000, reached -> {
+			result.set(reached);
+			latch.countDown();
+		});
+		assertEquals(1, waiter.getPendingCount(), "Number of parked requests");
+
+		// A change of another platform or to another state does not complete it
+		waiter.stateChanged(new StateChangeEvent(1, "Y2024", null, ServiceState.STOPPED, ServiceState.RUNNING, 0));
+		waiter.stateChanged(new StateChangeEvent(2, "X2024", null, ServiceState.STOPPED, ServiceState.ERROR, 0));
+		assertEquals(1, waiter.getPendingCount(), "Number of parked requests after other changes");
+
+		waiter.stateChanged(new StateChangeEvent(3, "X2024", null, ServiceState.ERROR, ServiceState.RUNNING, 0));
+		assertTrue(latch.await(5, TimeUnit.SECONDS), "Request has been completed");
+		assertTrue(result.get(), "State has been reached");
+		assertEquals(0, waiter.getPendingCount(), "Number of parked requests after completion");
+	}
+
+	@Test
+	void testAlreadyReachedAndTimeout() throws InterruptedException {
+		logger.info("-------------------------- testAlreadyReachedAndTimeout ------------------------------------");
+		StateMonitor monitor = new StateMonitor(mock(SimulationManager.class));
+		StateWaiter waiter = new StateWaiter(monitor);
+
+		CountDownLatch reachedLatch = new CountDownLatch(1);
+		waiter.await("X2024", ServiceState.RUNNING, () -> ServiceState.RUNNING, 10_000,
+				reached -> reachedLatch.countDown());
+		assertTrue(reachedLatch.await(5, TimeUnit.SECONDS), "Request is completed right away");
+
+		CountDownLatch timeoutLatch = new CountDownLatch(1);
+		AtomicBoolean result = new AtomicBoolean(true);
+		waiter.await("X2024/GW", ServiceState.RUNNING, () -> ServiceState.STOPPED, 50, reached -> {
+			result.set(reached);
+			timeoutLatch.countDown();
+		});
+		assertTrue(timeoutLatch.await(5, TimeUnit.SECONDS), "Request has timed out");
+		assertTrue(!result.get(), "State has not been reached");
+		assertEquals(0, waiter.getPendingCount(), "Number of parked requests after timeout");
+	}
+
+	@Test
+	void testCompletionThreadsAreLimited() throws InterruptedException {
+		logger.info("-------------------------- testCompletionThreadsAreLimited ------------------------------------");
+		StateMonitor monitor = new StateMonitor(mock(SimulationManager.class));
+		StateWaiter waiter = new StateWaiter(monitor);
+		int count = StateWaiter.COMPLETION_THREADS * 4;
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch completed = new CountDownLatch(count);
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		for (int i = 0; i < count; i++) {
+			waiter.await("X2024", ServiceState.RUNNING, () -> ServiceState.STOPPED, 60_000, reached -> {
+				threads.add(Thread.currentThread());
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				completed.countDown();
+			});
+		}
+
+		// All parked requests are released at once while the completions block
+		waiter.stateChanged(new StateChangeEvent(1, "X2024", null, ServiceState.STOPPED, ServiceState.RUNNING, 0));
+		Thread.sleep(200);
+		release.countDown();
+		assertTrue(completed.await(5, TimeUnit.SECONDS), "Not all parked requests have been answered");
+		assertTrue(threads.size() <= StateWaiter.COMPLETION_THREADS,
+				"Number of threads which completed the requests: " + threads.size());
+		waiter.shutdown();
+	}
+
+	@Test
+	void testShutdown() throws InterruptedException {
+		logger.info("-------------------------- testShutdown ------------------------------------");
+		StateMonitor monitor = new StateMonitor(mock(SimulationManager.class));
+		StateWaiter waiter = new StateWaiter(monitor);
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicBoolean result = new AtomicBoolean(true);
+		waiter.await("X2024", ServiceState.RUNNING, () -> ServiceState.STOPPED, 60_000, reached -> {
+			result.set(reached);
+			latch.countDown();
+		});
+
+		waiter.shutdown();
+		assertTrue(latch.await(5, TimeUnit.SECONDS), "The parked request has not been answered");
+		assertTrue(!result.get(), "The state has been reached");
+		assertEquals(0, waiter.getPendingCount(), "Number of parked requests after shutdown");
+
+		// A request which arrives after the shutdown is answered right away
+		AtomicBoolean answered = new AtomicBoolean(false);
+		waiter.await("X2024", ServiceState.RUNNING, () -> ServiceState.STOPPED, 60_000,
+				reached -> answered.set(true));
+		assertTrue(answered.get(), "The request after the shutdown has not been answered");
+	}
+}